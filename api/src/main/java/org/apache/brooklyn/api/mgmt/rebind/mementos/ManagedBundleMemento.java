@@ -20,6 +20,7 @@ package org.apache.brooklyn.api.mgmt.rebind.mementos;
 
 import javax.annotation.Nullable;
 
+import com.google.common.annotations.Beta;
 import com.google.common.io.ByteSource;
 
 public interface ManagedBundleMemento extends Memento {
@@ -32,6 +33,10 @@ public interface ManagedBundleMemento extends Memento {
     @Nullable
     String getChecksum();
     
+    /** A record of how the types in the bundle last resolved, if kept, to save re-validating them on rebind */
+    @Beta @Nullable
+    String getValidationSummary();
+    
     ByteSource getJarContent();
     void setJarContent(ByteSource byteSource);
 
@@ -17,6 +17,7 @@ package org.apache.brooklyn.camp.brooklyn.spi.dsl;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
@@ -32,16 +33,34 @@ import org.apache.brooklyn.util.core.task.Tasks;
 import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.guava.Maybe;
 import org.apache.brooklyn.util.javalang.Reflections;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.SynchronousBundleListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
 
 public class DslDeferredFunctionCall extends BrooklynDslDeferredSupplier<Object> {
     private static final Logger log = LoggerFactory.getLogger(DslDeferredFunctionCall.class);
     private static final Set<Method> DEPRECATED_ACCESS_WARNINGS = Collections.newSetFromMap(new ConcurrentHashMap<Method, Boolean>());
 
+    /**
+     * Cache of how a function name binds for a given target type and argument types, so the reflective search is done once.
+     * <p>
+     * The keys and methods refer to classes which may come from bundles, so values are held weakly, letting their
+     * entries (and so the classloaders) go once they are collected; weak keys would be compared by identity, and never
+     * match a key built for a later call. The cache is also cleared when a bundle is uninstalled or updated, by
+     * {@link BundleListener}.
+     */
+    private static final Cache<BindingKey, Binding> BINDINGS = CacheBuilder.newBuilder()
+            .maximumSize(10000)
+            .weakValues()
+            .build();
+
     private static final long serialVersionUID = 3243262633795112155L;
 
     private Object object;
@@ -152,36 +171,154 @@ public class DslDeferredFunctionCall extends BrooklynDslDeferredSupplier<Object>
         }
     
         protected void findMethod() {
-            method = Reflections.getMethodFromArgs(obj, fnName, args);
-            if (method.isPresent()) {
-                this.instance = obj;
-                this.instanceArgs = args;
-                return ;
+            BindingKey key = new BindingKey(obj, fnName, args);
+            Binding binding = BINDINGS.getIfPresent(key);
+            if (binding==null) {
+                binding = lookupMethod();
+                BINDINGS.put(key, binding);
+            }
+            applyBinding(binding);
+        }
+
+        /** applies a previously computed binding, setting the {@link #method}, {@link #instance} and {@link #instanceArgs} */
+        protected void applyBinding(Binding binding) {
+            switch (binding.mode) {
+            case DIRECT:
+                instance = obj;
+                instanceArgs = args;
+                break;
+            case COMMON:
+                instance = BrooklynDslCommon.class;
+                instanceArgs = ImmutableList.builder().add(obj).addAll(args).build();
+                break;
+            case FACADE:
+                Maybe<?> facade = wrapInFacade();
+                if (facade.isAbsent()) {
+                    // not expected as the facade is determined by the type of obj, but fall back to a full search
+                    applyBinding(lookupMethod());
+                    return;
+                }
+                instance = facade.get();
+                instanceArgs = args;
+                break;
+            case NONE:
+                method = Maybe.absent();
+                return;
             }
+            method = Maybe.of(binding.method);
+        }
+
+        protected Binding lookupMethod() {
+            Maybe<Method> m = Reflections.getMethodFromArgs(obj, fnName, args);
+            if (m.isPresent()) return new Binding(BindingMode.DIRECT, m.get());
                 
-            instance = BrooklynDslCommon.class;
-            instanceArgs = ImmutableList.builder().add(obj).addAll(args).build();
-            method = Reflections.getMethodFromArgs(instance, fnName, instanceArgs);
-            if (method.isPresent()) return ;
+            List<?> commonArgs = ImmutableList.builder().add(obj).addAll(args).build();
+            m = Reflections.getMethodFromArgs(BrooklynDslCommon.class, fnName, commonArgs);
+            if (m.isPresent()) return new Binding(BindingMode.COMMON, m.get());
     
-            Maybe<?> facade;
+            Maybe<?> facade = wrapInFacade();
+            if (facade.isPresent()) {
+                m = Reflections.getMethodFromArgs(facade.get(), fnName, args);
+                if (m.isPresent()) return new Binding(BindingMode.FACADE, m.get());
+            }
+            
+            return Binding.NONE;
+        }
+
+        protected Maybe<?> wrapInFacade() {
             try {
-                facade = Reflections.invokeMethodFromArgs(BrooklynDslCommon.DslFacades.class, "wrap", ImmutableList.of(obj));
+                return Reflections.invokeMethodFromArgs(BrooklynDslCommon.DslFacades.class, "wrap", ImmutableList.of(obj));
             } catch (IllegalArgumentException | IllegalAccessException | InvocationTargetException e) {
-                facade = Maybe.absent();
+                return Maybe.absent();
             }
-    
-            if (facade.isPresent()) {
-                instance = facade.get();
-                instanceArgs = args;
-                method = Reflections.getMethodFromArgs(instance, fnName, instanceArgs);
-                if (method.isPresent()) return ;
+        }
+    }
+
+    private enum BindingMode { DIRECT, COMMON, FACADE, NONE }
+
+    /** Where a function call is dispatched to, and the method found there. */
+    private static class Binding {
+        static final Binding NONE = new Binding(BindingMode.NONE, null);
+
+        final BindingMode mode;
+        final Method method;
+
+        Binding(BindingMode mode, Method method) {
+            this.mode = mode;
+            this.method = method;
+        }
+    }
+
+    /**
+     * The things which determine the outcome of the method search in {@link Invoker#lookupMethod()}:
+     * the target type (or class, for static calls), the function name, and the runtime types of the arguments.
+     */
+    private static class BindingKey {
+        final boolean isStatic;
+        final Class<?> type;
+        final String fnName;
+        final List<Class<?>> argTypes;
+
+        BindingKey(Object obj, String fnName, List<?> args) {
+            this.isStatic = obj instanceof Class;
+            this.type = isStatic ? (Class<?>) obj : obj.getClass();
+            this.fnName = fnName;
+            List<Class<?>> types = new ArrayList<Class<?>>(args.size());
+            for (Object arg : args) {
+                types.add(arg == null ? null : arg.getClass());
             }
-            
-            method = Maybe.absent();
+            this.argTypes = Collections.unmodifiableList(types);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(isStatic, type, fnName, argTypes);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof BindingKey)) return false;
+            BindingKey that = (BindingKey) obj;
+            return isStatic == that.isStatic && type == that.type &&
+                    fnName.equals(that.fnName) && argTypes.equals(that.argTypes);
         }
     }
     
+    /**
+     * Clears the cached function bindings when a bundle is uninstalled, updated or unresolved, as they may refer to
+     * its classes. Registered with the framework in the blueprint of this bundle.
+     */
+    public static class BundleListener implements SynchronousBundleListener {
+        private final BundleContext bundleContext;
+
+        public BundleListener(BundleContext bundleContext) {
+            this.bundleContext = bundleContext;
+        }
+
+        public void start() {
+            bundleContext.addBundleListener(this);
+        }
+
+        public void stop() {
+            bundleContext.removeBundleListener(this);
+            BINDINGS.invalidateAll();
+        }
+
+        @Override
+        public void bundleChanged(BundleEvent event) {
+            switch (event.getType()) {
+            case BundleEvent.UNINSTALLED:
+            case BundleEvent.UPDATED:
+            case BundleEvent.UNRESOLVED:
+                BINDINGS.invalidateAll();
+                break;
+            default:
+                // the classes bound to are unchanged
+            }
+        }
+    }
+
     protected Maybe<?> resolve(Object object, boolean immediate) {
         return Tasks.resolving(object, Object.class)
             .context(entity().getExecutionContext())
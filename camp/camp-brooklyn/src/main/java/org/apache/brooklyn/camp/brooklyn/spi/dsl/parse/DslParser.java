@@ -23,7 +23,20 @@ import java.util.List;
 
 import org.apache.brooklyn.util.collections.MutableList;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+
 public class DslParser {
+
+    /** Maximum number of distinct expressions whose parse trees are kept by {@link #parseCached(String)}. */
+    public static final int PARSE_CACHE_MAX_SIZE = 10000;
+
+    /** Parse trees are immutable so can be shared across threads and blueprints; keyed by the exact expression text. */
+    private static final Cache<String, Object> PARSE_CACHE = CacheBuilder.newBuilder()
+            .maximumSize(PARSE_CACHE_MAX_SIZE)
+            .build();
+
     private final String expression;
     int index = -1;
     
@@ -31,6 +44,25 @@ public class DslParser {
         this.expression = expression;
     }
     
+    /**
+     * Returns the parse tree for the given expression, re-using a previously parsed tree if one is cached.
+     * The result is immutable: a {@link QuotedString}, a {@link FunctionWithArgs}, or an immutable list of
+     * {@link FunctionWithArgs} for a chain. Expressions which fail to parse are not cached.
+     */
+    public static Object parseCached(String expression) {
+        Object result = PARSE_CACHE.getIfPresent(expression);
+        if (result==null) {
+            result = new DslParser(expression).parse();
+            PARSE_CACHE.put(expression, result);
+        }
+        return result;
+    }
+
+    /** Clears the cache used by {@link #parseCached(String)}; mainly for testing. */
+    public static void clearParseCache() {
+        PARSE_CACHE.invalidateAll();
+    }
+
     public synchronized Object parse() {
         if (index>=0)
             throw new IllegalStateException("Parser can only be used once");
@@ -113,7 +145,7 @@ public class DslParser {
             index++;
             skipWhitespace();
             if (index >= expression.length())
-                return result;
+                return ImmutableList.copyOf(result);
             char c = expression.charAt(index);
             if (c=='.') {
                 // chained expression
@@ -122,13 +154,13 @@ public class DslParser {
                 Object next = next();
                 if (next instanceof List) {
                     result.addAll((Collection<? extends FunctionWithArgs>) next);
-                    return result;
+                    return ImmutableList.copyOf(result);
                 } else {
                     throw new IllegalStateException("Expected functions following position"+chainStart);
                 }
             } else {
                 // following word not something handled at this level; assume parent will handle (or throw) - e.g. a , or extra )
-                return result;
+                return ImmutableList.copyOf(result);
             }
         } else {
             // it is just a word; return it with args as null
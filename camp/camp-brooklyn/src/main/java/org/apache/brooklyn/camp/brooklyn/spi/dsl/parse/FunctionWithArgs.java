@@ -20,6 +20,7 @@ package org.apache.brooklyn.camp.brooklyn.spi.dsl.parse;
 
 import java.util.List;
 
+import com.google.common.base.Objects;
 import com.google.common.collect.ImmutableList;
 
 public class FunctionWithArgs {
@@ -53,5 +54,18 @@ public class FunctionWithArgs {
     public Object arg(int i) {
         return args.get(i);
     }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof FunctionWithArgs)) return false;
+        FunctionWithArgs that = (FunctionWithArgs) obj;
+        return Objects.equal(function, that.function) && Objects.equal(args, that.args);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(function, args);
+    }
     
 }
\ No newline at end of file
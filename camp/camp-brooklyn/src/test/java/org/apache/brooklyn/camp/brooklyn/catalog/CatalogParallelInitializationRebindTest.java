@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.camp.brooklyn.catalog;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Map;
+
+import org.apache.brooklyn.api.entity.Entity;
+import org.apache.brooklyn.api.typereg.BrooklynTypeRegistry.RegisteredTypeKind;
+import org.apache.brooklyn.api.typereg.RegisteredType;
+import org.apache.brooklyn.camp.brooklyn.AbstractYamlRebindTest;
+import org.apache.brooklyn.core.entity.StartableApplication;
+import org.apache.brooklyn.core.internal.BrooklynProperties;
+import org.apache.brooklyn.core.mgmt.internal.ManagementContextInternal;
+import org.apache.brooklyn.core.server.BrooklynServerConfig;
+import org.apache.brooklyn.core.test.entity.TestEntity;
+import org.apache.brooklyn.test.support.TestResourceUnavailableException;
+import org.apache.brooklyn.util.core.ResourceUtils;
+import org.apache.brooklyn.util.osgi.OsgiTestResources;
+import org.apache.brooklyn.util.osgi.VersionedName;
+import org.apache.brooklyn.util.time.Duration;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.Iterables;
+
+public class CatalogParallelInitializationRebindTest extends AbstractYamlRebindTest implements OsgiTestResources {
+
+    @Override
+    protected boolean useOsgi() {
+        return true;
+    }
+
+    @Override
+    protected BrooklynProperties createBrooklynProperties() {
+        BrooklynProperties result = super.createBrooklynProperties();
+        result.put(BrooklynServerConfig.CATALOG_INITIALIZATION_THREADS, 4);
+        return result;
+    }
+
+    @Test
+    public void testRebindInstallsBundlesInParallel() throws Exception {
+        TestResourceUnavailableException.throwIfResourceUnavailable(getClass(), BROOKLYN_TEST_MORE_ENTITIES_V1_PATH);
+        TestResourceUnavailableException.throwIfResourceUnavailable(getClass(), BROOKLYN_TEST_OSGI_ENTITIES_PATH);
+        ((ManagementContextInternal)mgmt()).getOsgiManager().get().install(
+            new ResourceUtils(getClass()).getResourceFromUrl(BROOKLYN_TEST_MORE_ENTITIES_V1_URL) );
+        ((ManagementContextInternal)mgmt()).getOsgiManager().get().install(
+            new ResourceUtils(getClass()).getResourceFromUrl(BROOKLYN_TEST_OSGI_ENTITIES_URL) );
+        addCatalogItems(
+                "brooklyn.catalog:",
+                "  bundle: wrappers",
+                "  version: 1.0",
+                "  items:",
+                "  - id: wrapped-more-entity",
+                "    item:",
+                "      type: " + BROOKLYN_TEST_MORE_ENTITIES_MORE_ENTITY,
+                "  - id: wrapped-test-entity",
+                "    item:",
+                "      type: " + TestEntity.class.getName());
+        createAndStartApplication("services: [ { type: wrapped-more-entity } ]");
+
+        StartableApplication newApp = rebind();
+
+        Entity entity = Iterables.getOnlyElement(newApp.getChildren());
+        assertEquals(entity.getCatalogItemId(), "wrapped-more-entity:1.0");
+        RegisteredType wrapped = mgmt().getTypeRegistry().get("wrapped-test-entity", "1.0");
+        assertNotNull(wrapped);
+        // validated on rebind
+        assertEquals(wrapped.getKind(), RegisteredTypeKind.SPEC);
+
+        Map<VersionedName, Duration> timings = ((ManagementContextInternal)mgmt()).getCatalogInitialization().getPersistedBundleTimings();
+        assertTrue(timings.containsKey(new VersionedName(BROOKLYN_TEST_MORE_ENTITIES_SYMBOLIC_NAME_FULL, "0.1.0")), "timings="+timings);
+        assertTrue(timings.containsKey(new VersionedName("wrappers", "1.0")), "timings="+timings);
+    }
+}
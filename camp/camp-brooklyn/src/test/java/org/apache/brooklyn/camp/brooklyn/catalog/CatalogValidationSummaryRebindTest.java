@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.camp.brooklyn.catalog;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+import org.apache.brooklyn.api.entity.Entity;
+import org.apache.brooklyn.api.typereg.BrooklynTypeRegistry.RegisteredTypeKind;
+import org.apache.brooklyn.api.typereg.RegisteredType;
+import org.apache.brooklyn.camp.brooklyn.AbstractYamlRebindTest;
+import org.apache.brooklyn.core.entity.StartableApplication;
+import org.apache.brooklyn.core.internal.BrooklynProperties;
+import org.apache.brooklyn.core.mgmt.internal.ManagementContextInternal;
+import org.apache.brooklyn.core.server.BrooklynServerConfig;
+import org.apache.brooklyn.core.test.entity.TestEntity;
+import org.apache.brooklyn.core.typereg.BasicManagedBundle;
+import org.apache.brooklyn.core.typereg.RegisteredTypes;
+import org.apache.brooklyn.entity.stock.BasicEntity;
+import org.apache.brooklyn.util.osgi.VersionedName;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.Iterables;
+
+public class CatalogValidationSummaryRebindTest extends AbstractYamlRebindTest {
+
+    @Override
+    protected boolean useOsgi() {
+        return true;
+    }
+
+    @Override
+    protected BrooklynProperties createBrooklynProperties() {
+        BrooklynProperties result = super.createBrooklynProperties();
+        result.put(BrooklynServerConfig.CATALOG_TRUST_VALIDATION_SUMMARIES, true);
+        return result;
+    }
+
+    @Test
+    public void testRebindRecordsSummaryAndRestoresTypes() throws Exception {
+        addWrappers();
+        createAndStartApplication("services: [ { type: wrapped-test-entity } ]");
+
+        rebind();
+        String summary = getWrappersBundle().getValidationSummary();
+        assertNotNull(summary);
+        assertTrue(summary.contains("wrapped-test-entity:1.0"), summary);
+        switchOriginalToNewManagementContext();
+
+        StartableApplication newApp = rebind();
+
+        assertEquals(getWrappersBundle().getValidationSummary(), summary);
+        RegisteredType wrapped = mgmt().getTypeRegistry().get("wrapped-test-entity", "1.0");
+        assertEquals(wrapped.getKind(), RegisteredTypeKind.SPEC);
+        assertEquals(RegisteredTypes.peekActualJavaType(wrapped), TestEntity.class);
+        assertTrue(wrapped.getSuperTypes().contains(Entity.class), "supers="+wrapped.getSuperTypes());
+        assertEquals(Iterables.getOnlyElement(newApp.getChildren()).getCatalogItemId(), "wrapped-test-entity:1.0");
+
+        // restored types are usable
+        Entity entity = Iterables.getOnlyElement(createAndStartApplication("services: [ { type: wrapped-test-entity } ]").getChildren());
+        assertTrue(entity instanceof TestEntity, "entity="+entity);
+    }
+
+    @Test
+    public void testRebindTrustsMatchingSummary() throws Exception {
+        addWrappers();
+        rebind();
+        // tamper with the summary, to show it is used rather than re-validating
+        BasicManagedBundle bundle = getWrappersBundle();
+        bundle.setValidationSummary(bundle.getValidationSummary().replace(TestEntity.class.getName(), BasicEntity.class.getName()));
+        mgmt().getRebindManager().getChangeListener().onChanged(bundle);
+        switchOriginalToNewManagementContext();
+
+        rebind();
+
+        RegisteredType wrapped = mgmt().getTypeRegistry().get("wrapped-test-entity", "1.0");
+        assertEquals(RegisteredTypes.peekActualJavaType(wrapped), BasicEntity.class);
+    }
+
+    @Test
+    public void testRebindRevalidatesWhenChecksumDiffers() throws Exception {
+        addWrappers();
+        rebind();
+        BasicManagedBundle bundle = getWrappersBundle();
+        bundle.setValidationSummary(bundle.getValidationSummary()
+            .replace(TestEntity.class.getName(), BasicEntity.class.getName())
+            .replace("\"checksum\":\"", "\"checksum\":\"other-"));
+        mgmt().getRebindManager().getChangeListener().onChanged(bundle);
+        switchOriginalToNewManagementContext();
+
+        rebind();
+
+        RegisteredType wrapped = mgmt().getTypeRegistry().get("wrapped-test-entity", "1.0");
+        assertEquals(RegisteredTypes.peekActualJavaType(wrapped), TestEntity.class);
+        // and the summary is re-recorded
+        assertTrue(getWrappersBundle().getValidationSummary().contains(TestEntity.class.getName()));
+        assertFalse(getWrappersBundle().getValidationSummary().contains("other-"));
+    }
+
+    private void addWrappers() {
+        addCatalogItems(
+                "brooklyn.catalog:",
+                "  bundle: wrappers",
+                "  version: 1.0",
+                "  items:",
+                "  - id: wrapped-test-entity",
+                "    item:",
+                "      type: " + TestEntity.class.getName());
+    }
+
+    private BasicManagedBundle getWrappersBundle() {
+        return (BasicManagedBundle) ((ManagementContextInternal)mgmt()).getOsgiManager().get().getManagedBundle(new VersionedName("wrappers", "1.0"));
+    }
+}
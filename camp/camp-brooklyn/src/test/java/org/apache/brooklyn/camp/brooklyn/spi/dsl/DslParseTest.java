@@ -19,7 +19,9 @@
 package org.apache.brooklyn.camp.brooklyn.spi.dsl;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
 
 import java.util.Arrays;
 import java.util.List;
@@ -73,6 +75,29 @@ public class DslParseTest {
         assertEquals( ((FunctionWithArgs)fx2).getFunction(), "g" );
         assertTrue( ((FunctionWithArgs)fx2).getArgs().isEmpty() );
     }
-    
+
+    public void testParseCachedReturnsSameImmutableTree() {
+        DslParser.clearParseCache();
+        Object fx = DslParser.parseCached("f(\"x\", g(\"y\").h())");
+        assertSame(DslParser.parseCached("f(\"x\", g(\"y\").h())"), fx);
+        assertEquals(fx, new DslParser("f(\"x\", g(\"y\").h())").parse());
+        
+        assertTrue(fx instanceof ImmutableList, "fx="+fx);
+        Object nestedChain = ((FunctionWithArgs)Iterables.getOnlyElement((List<?>)fx)).arg(1);
+        assertTrue(nestedChain instanceof ImmutableList, "nested="+nestedChain);
+        assertEquals(((List<?>)nestedChain).size(), 2);
+    }
+
+    public void testParseCachedDoesNotCacheFailures() {
+        DslParser.clearParseCache();
+        for (int i=0; i<2; i++) {
+            try {
+                DslParser.parseCached("f(\"x\"");
+                fail("Expected parse failure");
+            } catch (IllegalStateException e) {
+                assertTrue(e.toString().contains("no close parenthesis"), "e="+e);
+            }
+        }
+    }
 
 }
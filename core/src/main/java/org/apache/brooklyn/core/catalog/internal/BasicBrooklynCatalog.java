@@ -36,6 +36,9 @@ import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.jar.Attributes;
 import java.util.jar.Manifest;
 import java.util.zip.ZipEntry;
@@ -56,6 +59,7 @@ import org.apache.brooklyn.api.typereg.BrooklynTypeRegistry.RegisteredTypeKind;
 import org.apache.brooklyn.api.typereg.ManagedBundle;
 import org.apache.brooklyn.api.typereg.OsgiBundleWithUrl;
 import org.apache.brooklyn.api.typereg.RegisteredType;
+import org.apache.brooklyn.api.typereg.RegisteredType.TypeImplementationPlan;
 import org.apache.brooklyn.api.typereg.RegisteredTypeLoadingContext;
 import org.apache.brooklyn.core.catalog.CatalogPredicates;
 import org.apache.brooklyn.core.catalog.internal.CatalogClasspathDo.CatalogScanningModes;
@@ -114,6 +118,7 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSortedSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.MoreExecutors;
 
 /* TODO the complex tree-structured catalogs are only useful when we are relying on those separate catalog classloaders
  * to isolate classpaths. with osgi everything is just put into the "manual additions" catalog. Deprecate/remove this. */
@@ -1640,14 +1645,34 @@ public class BasicBrooklynCatalog implements BrooklynCatalog {
     
     @Override @Beta
     public Map<RegisteredType,Collection<Throwable>> validateTypes(Iterable<RegisteredType> typesToValidate) {
+        return validateTypes(typesToValidate, MoreExecutors.newDirectExecutorService());
+    }
+
+    /** As {@link #validateTypes(Iterable)}, but validating the types in each cycle concurrently using the given executor */
+    @Beta
+    public Map<RegisteredType,Collection<Throwable>> validateTypes(Iterable<RegisteredType> typesToValidate, ExecutorService executor) {
         List<RegisteredType> typesRemainingToValidate = MutableList.copyOf(typesToValidate);
         while (true) {
             log.debug("Catalog load, starting validation cycle, "+typesRemainingToValidate.size()+" to validate");
+            Map<RegisteredType,Future<Collection<Throwable>>> validations = MutableMap.of();
+            for (final RegisteredType t: typesRemainingToValidate) {
+                validations.put(t, executor.submit(new Callable<Collection<Throwable>>() {
+                    @Override
+                    public Collection<Throwable> call() {
+                        return validateType(t, null);
+                    }
+                }));
+            }
             Map<RegisteredType,Collection<Throwable>> result = MutableMap.of();
-            for (RegisteredType t: typesRemainingToValidate) {
-                Collection<Throwable> tr = validateType(t, null);
+            for (Map.Entry<RegisteredType,Future<Collection<Throwable>>> validation: validations.entrySet()) {
+                Collection<Throwable> tr;
+                try {
+                    tr = validation.getValue().get();
+                } catch (Exception e) {
+                    throw Exceptions.propagate(e);
+                }
                 if (!tr.isEmpty()) {
-                    result.put(t, tr);
+                    result.put(validation.getKey(), tr);
                 }
             }
             log.debug("Catalog load, finished validation cycle, "+typesRemainingToValidate.size()+" unvalidated");
@@ -1845,6 +1870,37 @@ public class BasicBrooklynCatalog implements BrooklynCatalog {
         return ReferenceWithError.newInstanceThrowingError(null, Exceptions.create("Could not resolve "+typeToValidate, errors));
     }
 
+    /**
+     * Restores the given type to the resolved state previously found by {@link #resolve(RegisteredType, RegisteredTypeLoadingContext)},
+     * without re-running plan transformation: the java type is loaded and the supertypes collected as resolution does.
+     * Returns absent if the java type cannot be loaded. The result is not added to the type registry.
+     */
+    @Beta
+    public Maybe<RegisteredType> restoreResolved(RegisteredType typeToRestore, RegisteredTypeKind kind, String javaTypeName, @Nullable TypeImplementationPlan changedPlan) {
+        try {
+            Maybe<Class<?>> javaType = CatalogUtils.newClassLoadingContext(mgmt, typeToRestore).tryLoadClass(javaTypeName);
+            if (javaType.isAbsent()) {
+                return Maybe.absent("Cannot load "+javaTypeName+" for "+typeToRestore);
+            }
+            RegisteredType result = RegisteredTypes.copyResolved(kind, typeToRestore);
+            if (changedPlan!=null) {
+                RegisteredTypes.changePlanNotingEquivalent(result, changedPlan);
+            }
+            RegisteredTypes.cacheActualJavaType(result, javaType.get());
+
+            Set<Object> newSupers = MutableSet.of();
+            newSupers.add(javaType.get());
+            newSupers.addAll(typeToRestore.getSuperTypes());
+            newSupers.add(BrooklynObjectType.of(javaType.get()).getInterfaceType());
+            collectSupers(newSupers);
+            RegisteredTypes.addSuperTypes(result, newSupers);
+            return Maybe.of(result);
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            return Maybe.absent(e);
+        }
+    }
+
     private void collectSupers(Set<Object> s) {
         Queue<Object> remaining = new LinkedList<>();
         remaining.addAll(s);
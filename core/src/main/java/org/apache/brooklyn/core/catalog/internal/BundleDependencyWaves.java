@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.catalog.internal;
+
+import java.util.Dictionary;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.collections.MutableSet;
+import org.apache.brooklyn.util.text.Strings;
+import org.osgi.framework.Constants;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Sets;
+
+/**
+ * Groups bundles into waves which can each be started in parallel, such that every bundle comes after
+ * those in the set whose symbolic name it requires, or whose exported packages it imports.
+ * Bundles in a dependency cycle go in a final wave together.
+ */
+class BundleDependencyWaves {
+
+    private BundleDependencyWaves() {}
+
+    /** @param headers the OSGi manifest headers of each bundle, in the preferred start order */
+    static <K> List<List<K>> of(Map<K, ? extends Dictionary<String, String>> headers) {
+        Map<K, String> names = MutableMap.of();
+        Map<K, Set<String>> exports = MutableMap.of();
+        for (Map.Entry<K, ? extends Dictionary<String, String>> entry : headers.entrySet()) {
+            names.put(entry.getKey(), Iterables.getFirst(parseHeader(entry.getValue().get(Constants.BUNDLE_SYMBOLICNAME)), null));
+            exports.put(entry.getKey(), parseHeader(entry.getValue().get(Constants.EXPORT_PACKAGE)));
+        }
+
+        Map<K, Set<K>> dependencies = MutableMap.of();
+        for (Map.Entry<K, ? extends Dictionary<String, String>> entry : headers.entrySet()) {
+            Set<String> required = parseHeader(entry.getValue().get(Constants.REQUIRE_BUNDLE));
+            Set<String> imported = parseHeader(entry.getValue().get(Constants.IMPORT_PACKAGE));
+            Set<K> dependenciesOfBundle = MutableSet.of();
+            for (K other : headers.keySet()) {
+                if (other.equals(entry.getKey())) continue;
+                if ((names.get(other) != null && required.contains(names.get(other)))
+                        || !Sets.intersection(imported, exports.get(other)).isEmpty()) {
+                    dependenciesOfBundle.add(other);
+                }
+            }
+            dependencies.put(entry.getKey(), dependenciesOfBundle);
+        }
+
+        List<List<K>> result = MutableList.of();
+        Set<K> placed = MutableSet.of();
+        List<K> remaining = MutableList.copyOf(headers.keySet());
+        while (!remaining.isEmpty()) {
+            List<K> wave = MutableList.of();
+            for (K bundle : remaining) {
+                if (placed.containsAll(dependencies.get(bundle))) {
+                    wave.add(bundle);
+                }
+            }
+            if (wave.isEmpty()) {
+                // cycle; these are resolved together by the framework
+                wave = remaining;
+            }
+            result.add(wave);
+            placed.addAll(wave);
+            remaining = MutableList.copyOf(Sets.difference(MutableSet.copyOf(remaining), placed));
+        }
+        return result;
+    }
+
+    /**
+     * The names in a manifest header, e.g. the packages in {@code a.b;c.d;version="[1.0,2.0)",e.f},
+     * ignoring attributes and directives.
+     */
+    static Set<String> parseHeader(String header) {
+        Set<String> result = MutableSet.of();
+        if (Strings.isBlank(header)) return result;
+        for (String clause : split(header, ',')) {
+            for (String part : split(clause, ';')) {
+                part = part.trim();
+                if (!part.isEmpty() && !part.contains("=")) {
+                    result.add(part);
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Splits on the separator where it is not in a quoted string. */
+    private static List<String> split(String value, char separator) {
+        List<String> result = MutableList.of();
+        boolean quoted = false;
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == separator && !quoted) {
+                result.add(value.substring(start, i));
+                start = i + 1;
+            }
+        }
+        result.add(value.substring(start));
+        return result;
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.catalog.internal;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.annotation.Nullable;
+
+import org.apache.brooklyn.api.typereg.BrooklynTypeRegistry.RegisteredTypeKind;
+import org.apache.brooklyn.api.typereg.RegisteredType;
+import org.apache.brooklyn.core.BrooklynVersion;
+import org.apache.brooklyn.core.typereg.BasicTypeImplementationPlan;
+import org.apache.brooklyn.core.typereg.RegisteredTypes;
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.guava.Maybe;
+import org.apache.brooklyn.util.text.Strings;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Objects;
+
+/**
+ * A record of how the types in a bundle resolved when they were last validated, persisted with the bundle
+ * so that on a subsequent startup or promotion the types can be restored to their resolved state without
+ * re-running plan transformation. It applies only to the bundle binary (by checksum) and Brooklyn version
+ * it was recorded with; any problem in the types is then reported when they are first used.
+ */
+@JsonAutoDetect(fieldVisibility = JsonAutoDetect.Visibility.ANY, getterVisibility = JsonAutoDetect.Visibility.NONE, isGetterVisibility = JsonAutoDetect.Visibility.NONE)
+class BundleValidationSummary {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @JsonAutoDetect(fieldVisibility = JsonAutoDetect.Visibility.ANY, getterVisibility = JsonAutoDetect.Visibility.NONE, isGetterVisibility = JsonAutoDetect.Visibility.NONE)
+    static class ResolvedType {
+        private RegisteredTypeKind kind;
+        private String javaType;
+        /** set only if resolution changed the plan */
+        private String planFormat;
+        private String planData;
+    }
+
+    private String checksum;
+    private String brooklynVersion;
+    /** keyed by type id, sorted so that an unchanged summary serializes identically */
+    private Map<String, ResolvedType> types = new TreeMap<>();
+
+    /**
+     * Records the types which resolved successfully.
+     *
+     * @param resolvedTypes the resolved form of each type, keyed by the form as installed, or mapped to null if it did not resolve
+     */
+    static BundleValidationSummary of(String checksum, Map<RegisteredType, RegisteredType> resolvedTypes) {
+        BundleValidationSummary result = new BundleValidationSummary();
+        result.checksum = checksum;
+        result.brooklynVersion = BrooklynVersion.get();
+        for (Map.Entry<RegisteredType, RegisteredType> entry : resolvedTypes.entrySet()) {
+            RegisteredType resolved = entry.getValue();
+            if (resolved == null || resolved.getKind() == null || resolved.getKind() == RegisteredTypeKind.UNRESOLVED) continue;
+            Class<?> javaType = RegisteredTypes.peekActualJavaType(resolved);
+            if (javaType == null) continue;
+
+            ResolvedType summary = new ResolvedType();
+            summary.kind = resolved.getKind();
+            summary.javaType = javaType.getName();
+            Object planData = resolved.getPlan() == null ? null : resolved.getPlan().getPlanData();
+            Object originalPlanData = entry.getKey().getPlan() == null ? null : entry.getKey().getPlan().getPlanData();
+            if (!Objects.equal(planData, originalPlanData)) {
+                if (!(planData instanceof String)) continue;
+                summary.planFormat = resolved.getPlan().getPlanFormat();
+                summary.planData = (String) planData;
+            }
+            result.types.put(resolved.getId(), summary);
+        }
+        return result;
+    }
+
+    /** Parses a summary persisted by {@link #toJson()}, absent if there is none or it cannot be read */
+    static Maybe<BundleValidationSummary> fromJson(@Nullable String json) {
+        if (Strings.isBlank(json)) return Maybe.absent("No validation summary");
+        try {
+            return Maybe.of(MAPPER.readValue(json, BundleValidationSummary.class));
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            return Maybe.absent(e);
+        }
+    }
+
+    String toJson() {
+        try {
+            return MAPPER.writeValueAsString(this);
+        } catch (JsonProcessingException e) {
+            throw Exceptions.propagate(e);
+        }
+    }
+
+    /** Whether this summary was recorded for the bundle with the given checksum, by this version of Brooklyn */
+    boolean appliesTo(@Nullable String bundleChecksum) {
+        return checksum != null && checksum.equals(bundleChecksum) && Objects.equal(brooklynVersion, BrooklynVersion.get());
+    }
+
+    /** The resolved form of the given type, as recorded, absent if it was not recorded or cannot be restored */
+    Maybe<RegisteredType> restore(RegisteredType type, BasicBrooklynCatalog catalog) {
+        ResolvedType resolved = types.get(type.getId());
+        if (resolved == null || resolved.kind == null || resolved.javaType == null) {
+            return Maybe.absent("No resolution recorded for "+type);
+        }
+        return catalog.restoreResolved(type, resolved.kind, resolved.javaType,
+            resolved.planData == null ? null : new BasicTypeImplementationPlan(resolved.planFormat, resolved.planData));
+    }
+}
@@ -25,10 +25,19 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Dictionary;
+import java.util.Hashtable;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.brooklyn.api.catalog.BrooklynCatalog;
 import org.apache.brooklyn.api.catalog.CatalogItem;
@@ -49,6 +58,8 @@ import org.apache.brooklyn.core.mgmt.internal.ManagementContextInternal;
 import org.apache.brooklyn.core.mgmt.rebind.RebindManagerImpl;
 import org.apache.brooklyn.core.objs.BrooklynTypes;
 import org.apache.brooklyn.core.server.BrooklynServerConfig;
+import org.apache.brooklyn.core.typereg.BasicBrooklynTypeRegistry;
+import org.apache.brooklyn.core.typereg.BasicManagedBundle;
 import org.apache.brooklyn.core.typereg.BundleUpgradeParser;
 import org.apache.brooklyn.core.typereg.BundleUpgradeParser.CatalogUpgrades;
 import org.apache.brooklyn.core.typereg.RegisteredTypePredicates;
@@ -75,9 +86,14 @@ import org.slf4j.LoggerFactory;
 
 import com.google.common.annotations.Beta;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Functions;
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Ordering;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 @Beta
 public class CatalogInitialization implements ManagementContextInjectable {
@@ -120,6 +136,8 @@ public class CatalogInitialization implements ManagementContextInjectable {
     private boolean isPopulatingInitial = false;
 
     private final Object populatingCatalogMutex = new Object();
+
+    private volatile Map<VersionedName, Duration> persistedBundleTimings = Collections.emptyMap();
     
     public CatalogInitialization() {
         this(null);
@@ -500,58 +518,220 @@ public class CatalogInitialization implements ManagementContextInjectable {
     }
 
     private void installPersistedBundles(Map<VersionedName, InstallableManagedBundle> bundles, RebindExceptionHandler exceptionHandler, RebindLogger rebindLogger) {
-        Map<InstallableManagedBundle, OsgiBundleInstallationResult> installs = MutableMap.of();
+        Stopwatch sw = Stopwatch.createStarted();
+        Integer threadsConfigured = managementContext.getConfig().getConfig(BrooklynServerConfig.CATALOG_INITIALIZATION_THREADS);
+        int threads = (threadsConfigured == null) ? 1 : Math.max(1, threadsConfigured);
+        ExecutorService executor = (threads > 1)
+                ? Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("brooklyn-catalog-initialization-%d").setDaemon(true).build())
+                : MoreExecutors.newDirectExecutorService();
+        ConcurrentMap<VersionedName, Duration> timings = Maps.newConcurrentMap();
+        try {
+            Map<InstallableManagedBundle, OsgiBundleInstallationResult> installs = MutableMap.of();
+
+            // Install the bundles
+            Map<VersionedName, Future<OsgiBundleInstallationResult>> installing = MutableMap.of();
+            for (Map.Entry<VersionedName, InstallableManagedBundle> entry : bundles.entrySet()) {
+                VersionedName bundleId = entry.getKey();
+                InstallableManagedBundle installableBundle = entry.getValue();
+                rebindLogger.debug("RebindManager installing bundle {}", bundleId);
+                installing.put(bundleId, executor.submit(timed("install", bundleId, timings, () -> {
+                    try (InputStream in = installableBundle.getInputStream()) {
+                        return installBundle(installableBundle.getManagedBundle(), in);
+                    }
+                })));
+            }
+            for (Map.Entry<VersionedName, Future<OsgiBundleInstallationResult>> entry : installing.entrySet()) {
+                InstallableManagedBundle installableBundle = bundles.get(entry.getKey());
+                try {
+                    installs.put(installableBundle, getUnwrapped(entry.getValue()));
+                } catch (Exception e) {
+                    exceptionHandler.onCreateFailed(BrooklynObjectType.MANAGED_BUNDLE, entry.getKey().toString(), installableBundle.getManagedBundle().getSymbolicName(), e);
+                }
+            }
+
+            // Start the bundles (now that we've installed them all); if in parallel, then in waves
+            // so that bundles are started after those in the set which they depend on
+            List<List<OsgiBundleInstallationResult>> waves;
+            if (threads > 1) {
+                Map<OsgiBundleInstallationResult, Dictionary<String, String>> headers = MutableMap.of();
+                for (OsgiBundleInstallationResult br : installs.values()) {
+                    headers.put(br, br.getBundle() != null ? br.getBundle().getHeaders() : new Hashtable<String, String>());
+                }
+                waves = BundleDependencyWaves.of(headers);
+            } else {
+                waves = ImmutableList.<List<OsgiBundleInstallationResult>>of(MutableList.copyOf(installs.values()));
+            }
+            Set<RegisteredType> installedTypes = MutableSet.of();
+            for (List<OsgiBundleInstallationResult> wave : waves) {
+                Map<OsgiBundleInstallationResult, Future<?>> starting = MutableMap.of();
+                for (OsgiBundleInstallationResult br : wave) {
+                    starting.put(br, executor.submit(timed("start", br.getVersionedName(), timings, () -> {
+                        startBundle(br);
+                        return null;
+                    })));
+                }
+                for (Map.Entry<OsgiBundleInstallationResult, Future<?>> entry : starting.entrySet()) {
+                    OsgiBundleInstallationResult br = entry.getKey();
+                    try {
+                        getUnwrapped(entry.getValue());
+                        Iterables.addAll(installedTypes, managementContext.getTypeRegistry().getMatching(
+                            RegisteredTypePredicates.containingBundle(br.getVersionedName())));
+                    } catch (Exception e) {
+                        exceptionHandler.onCreateFailed(BrooklynObjectType.MANAGED_BUNDLE, br.getMetadata().getId(), br.getMetadata().getSymbolicName(), e);
+                    }
+                }
+            }
+            Duration installDuration = Duration.of(sw);
 
-        // Install the bundles
-        for (Map.Entry<VersionedName, InstallableManagedBundle> entry : bundles.entrySet()) {
-            VersionedName bundleId = entry.getKey();
-            InstallableManagedBundle installableBundle = entry.getValue();
-            rebindLogger.debug("RebindManager installing bundle {}", bundleId);
-            try (InputStream in = installableBundle.getInputStream()) {
-                installs.put(installableBundle, installBundle(installableBundle.getManagedBundle(), in));
-            } catch (Exception e) {
-                exceptionHandler.onCreateFailed(BrooklynObjectType.MANAGED_BUNDLE, bundleId.toString(), installableBundle.getManagedBundle().getSymbolicName(), e);
+            // Validate that they all started successfully, except where we trust how they resolved last time
+            boolean trustValidationSummaries = Boolean.TRUE.equals(managementContext.getConfig().getConfig(BrooklynServerConfig.CATALOG_TRUST_VALIDATION_SUMMARIES));
+            Set<RegisteredType> typesToValidate = trustValidationSummaries ? restoreValidatedTypes(installs, installedTypes) : installedTypes;
+            if (!typesToValidate.isEmpty()) {
+                validateAllTypes(typesToValidate, exceptionHandler, executor);
             }
+            if (trustValidationSummaries) {
+                recordValidationSummaries(installs.values(), installedTypes);
+            }
+
+            for (Map.Entry<InstallableManagedBundle, OsgiBundleInstallationResult> entry : installs.entrySet()) {
+                ManagedBundle bundle = entry.getKey().getManagedBundle();
+                OsgiBundleInstallationResult result = entry.getValue();
+                if (result.getCode() == OsgiBundleInstallationResult.ResultCode.IGNORING_BUNDLE_AREADY_INSTALLED 
+                        && !result.getMetadata().getId().equals(bundle.getId())) {
+                    // Bundle was already installed as a "Brooklyn managed bundle" (with different id), 
+                    // and will thus be persisted with that id.
+                    // For example, can happen if it is in the "initial catalog" and also in persisted state.
+                    // Delete this copy from the persisted state as it is a duplicate.
+                    managementContext.getRebindManager().getChangeListener().onUnmanaged(bundle);
+                }
+            }
+
+            Map<VersionedName, Duration> orderedTimings = MutableMap.of();
+            for (VersionedName bundleId : bundles.keySet()) {
+                if (timings.containsKey(bundleId)) orderedTimings.put(bundleId, timings.get(bundleId));
+            }
+            persistedBundleTimings = Collections.unmodifiableMap(orderedTimings);
+            if (!bundles.isEmpty()) {
+                rebindLogger.info("Installed {} persisted bundles in {} ({} thread(s), {} start wave(s)), validated {} types ({} restored from validation summaries) in {}; slowest bundles: {}",
+                    bundles.size(), installDuration, threads, waves.size(), typesToValidate.size(), installedTypes.size() - typesToValidate.size(), Duration.of(sw).subtract(installDuration),
+                    Iterables.limit(Ordering.natural().onResultOf(Functions.forMap(orderedTimings)).reverse().sortedCopy(orderedTimings.keySet()), 5));
+            }
+        } finally {
+            executor.shutdownNow();
         }
-        
-        // Start the bundles (now that we've installed them all)
-        Set<RegisteredType> installedTypes = MutableSet.of();
-        for (OsgiBundleInstallationResult br : installs.values()) {
-            try {
-                startBundle(br);
-                Iterables.addAll(installedTypes, managementContext.getTypeRegistry().getMatching(
-                    RegisteredTypePredicates.containingBundle(br.getVersionedName())));
-            } catch (Exception e) {
-                exceptionHandler.onCreateFailed(BrooklynObjectType.MANAGED_BUNDLE, br.getMetadata().getId(), br.getMetadata().getSymbolicName(), e);
+    }
+
+    /**
+     * The time taken to install and start each of the persisted bundles, the last time they were installed
+     * (on startup or promotion), for diagnosing slow catalog initialization.
+     */
+    @Beta
+    public Map<VersionedName, Duration> getPersistedBundleTimings() {
+        return persistedBundleTimings;
+    }
+
+    /**
+     * Restores types from the validation summaries persisted with their bundles, where the summary was recorded
+     * for the bundle as now installed; returns the types which still need validating.
+     */
+    private Set<RegisteredType> restoreValidatedTypes(Map<InstallableManagedBundle, OsgiBundleInstallationResult> installs, Set<RegisteredType> installedTypes) {
+        BrooklynCatalog catalog = managementContext.getCatalog();
+        if (!(catalog instanceof BasicBrooklynCatalog)) return installedTypes;
+
+        Map<VersionedName, BundleValidationSummary> summaries = MutableMap.of();
+        for (Map.Entry<InstallableManagedBundle, OsgiBundleInstallationResult> entry : installs.entrySet()) {
+            ManagedBundle persisted = entry.getKey().getManagedBundle();
+            if (!(persisted instanceof BasicManagedBundle)) continue;
+            Maybe<BundleValidationSummary> summary = BundleValidationSummary.fromJson(((BasicManagedBundle) persisted).getValidationSummary());
+            if (summary.isPresent() && summary.get().appliesTo(entry.getValue().getMetadata().getChecksum())) {
+                summaries.put(entry.getValue().getVersionedName(), summary.get());
             }
         }
-        
-        // Validate that they all started successfully
-        if (!installedTypes.isEmpty()) {
-            validateAllTypes(installedTypes, exceptionHandler);
+
+        Set<RegisteredType> result = MutableSet.of();
+        for (RegisteredType t : installedTypes) {
+            BundleValidationSummary summary = summaries.get(VersionedName.fromString(t.getContainingBundle()));
+            Maybe<RegisteredType> restored = (summary == null) ? Maybe.<RegisteredType>absent() : summary.restore(t, (BasicBrooklynCatalog) catalog);
+            if (restored.isPresent()) {
+                ((BasicBrooklynTypeRegistry) managementContext.getTypeRegistry()).addToLocalUnpersistedTypeRegistry(restored.get(), true);
+            } else {
+                result.add(t);
+            }
         }
-        
-        for (Map.Entry<InstallableManagedBundle, OsgiBundleInstallationResult> entry : installs.entrySet()) {
-            ManagedBundle bundle = entry.getKey().getManagedBundle();
-            OsgiBundleInstallationResult result = entry.getValue();
-            if (result.getCode() == OsgiBundleInstallationResult.ResultCode.IGNORING_BUNDLE_AREADY_INSTALLED 
-                    && !result.getMetadata().getId().equals(bundle.getId())) {
-                // Bundle was already installed as a "Brooklyn managed bundle" (with different id), 
-                // and will thus be persisted with that id.
-                // For example, can happen if it is in the "initial catalog" and also in persisted state.
-                // Delete this copy from the persisted state as it is a duplicate.
-                managementContext.getRebindManager().getChangeListener().onUnmanaged(bundle);
+        log.debug("Restored {} of {} types from validation summaries of {} bundles", new Object[] {installedTypes.size() - result.size(), installedTypes.size(), summaries.size()});
+        return result;
+    }
+
+    /** Records how the types in each bundle resolved, persisting it with the bundle where that has changed. */
+    private void recordValidationSummaries(Collection<OsgiBundleInstallationResult> installs, Set<RegisteredType> installedTypes) {
+        Map<VersionedName, List<RegisteredType>> installedTypesByBundle = MutableMap.of();
+        for (RegisteredType t : installedTypes) {
+            VersionedName vn = VersionedName.fromString(t.getContainingBundle());
+            List<RegisteredType> typesInBundle = installedTypesByBundle.get(vn);
+            if (typesInBundle == null) {
+                typesInBundle = MutableList.of();
+                installedTypesByBundle.put(vn, typesInBundle);
             }
+            typesInBundle.add(t);
+        }
+
+        for (OsgiBundleInstallationResult br : installs) {
+            if (!(br.getMetadata() instanceof BasicManagedBundle) || br.getMetadata().getChecksum() == null) continue;
+            BasicManagedBundle bundle = (BasicManagedBundle) br.getMetadata();
+            Map<String, RegisteredType> resolvedById = MutableMap.of();
+            for (RegisteredType t : managementContext.getTypeRegistry().getMatching(RegisteredTypePredicates.containingBundle(br.getVersionedName()))) {
+                resolvedById.put(t.getId(), t);
+            }
+            Map<RegisteredType, RegisteredType> resolvedTypes = MutableMap.of();
+            List<RegisteredType> typesInBundle = installedTypesByBundle.get(br.getVersionedName());
+            if (typesInBundle != null) {
+                for (RegisteredType t : typesInBundle) {
+                    resolvedTypes.put(t, resolvedById.get(t.getId()));
+                }
+            }
+            String summary = BundleValidationSummary.of(bundle.getChecksum(), resolvedTypes).toJson();
+            if (!summary.equals(bundle.getValidationSummary())) {
+                bundle.setValidationSummary(summary);
+                managementContext.getRebindManager().getChangeListener().onChanged(bundle);
+            }
+        }
+    }
+
+    private <T> Callable<T> timed(String phase, VersionedName bundleId, ConcurrentMap<VersionedName, Duration> timings, Callable<T> job) {
+        return () -> {
+            Stopwatch sw = Stopwatch.createStarted();
+            try {
+                return job.call();
+            } finally {
+                Duration duration = Duration.of(sw);
+                timings.merge(bundleId, duration, Duration::add);
+                log.debug("Catalog initialization, {} of bundle {} took {}", new Object[] {phase, bundleId, duration});
+            }
+        };
+    }
+
+    private static <T> T getUnwrapped(Future<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            throw Exceptions.propagate(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            Exceptions.propagateIfFatal(cause);
+            if (cause instanceof Exception) throw (Exception) cause;
+            throw Exceptions.propagate(cause);
         }
     }
     
-    private void validateAllTypes(Set<RegisteredType> installedTypes, RebindExceptionHandler exceptionHandler) {
+    private void validateAllTypes(Set<RegisteredType> installedTypes, RebindExceptionHandler exceptionHandler, ExecutorService executor) {
         Stopwatch sw = Stopwatch.createStarted();
         log.debug("Getting catalog to validate all types");
         final BrooklynCatalog catalog = this.managementContext.getCatalog();
         log.debug("Got catalog in {} now validate", sw.toString());
         sw.reset(); sw.start();
-        Map<RegisteredType, Collection<Throwable>> validationErrors = catalog.validateTypes( installedTypes );
+        Map<RegisteredType, Collection<Throwable>> validationErrors = (catalog instanceof BasicBrooklynCatalog)
+                ? ((BasicBrooklynCatalog) catalog).validateTypes( installedTypes, executor )
+                : catalog.validateTypes( installedTypes );
         log.debug("Validation done in {}", sw.toString());
         if (!validationErrors.isEmpty()) {
             Map<VersionedName, Map<RegisteredType,Collection<Throwable>>> errorsByBundle = MutableMap.of();
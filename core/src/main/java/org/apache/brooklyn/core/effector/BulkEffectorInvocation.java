@@ -0,0 +1,246 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.effector;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nullable;
+
+import org.apache.brooklyn.api.effector.Effector;
+import org.apache.brooklyn.api.entity.Entity;
+import org.apache.brooklyn.api.mgmt.Task;
+import org.apache.brooklyn.api.mgmt.TaskAdaptable;
+import org.apache.brooklyn.core.mgmt.internal.EffectorUtils;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.core.task.DynamicTasks;
+import org.apache.brooklyn.util.core.task.TaskInternal;
+import org.apache.brooklyn.util.core.task.TaskTags;
+import org.apache.brooklyn.util.core.task.Tasks;
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.text.Strings;
+import org.apache.brooklyn.util.time.Duration;
+import org.apache.brooklyn.util.time.Time;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+
+/**
+ * Invokes an effector on many entities (such as the members of a group) in batches, with limited concurrency,
+ * for rolling operations across large groups.
+ * <p>
+ * Within a batch, up to {@link #maxConcurrency(int)} invocations run at once, each worker starting another as soon as
+ * its previous one completes; the next batch starts (after {@link #pauseBetweenBatches(Duration)}) once all of the batch
+ * have completed. When more than {@link #maxFailures(int)} invocations have failed, no more are started and the task fails;
+ * otherwise it returns the result of each invocation, in the order of the entities, with the error for any tolerated failure.
+ * <p>
+ * The effector is looked up by name on each entity, so entities of different types each use their own implementation;
+ * an entity which does not declare it is invoked with the effector given (so one with its own body can be used on any entity).
+ * <p>
+ * Progress (the number completed and failed) is reported in the status of the task while it runs.
+ * <p>
+ * For example:
+ * <pre>{@code
+ * Task<List<Object>> task = DynamicTasks.submit(BulkEffectorInvocation.of(Startable.RESTART)
+ *         .batchSize(100).maxConcurrency(10).maxFailures(5)
+ *         .newTask(group.getMembers()), group);
+ * }</pre>
+ */
+@Beta
+public class BulkEffectorInvocation {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkEffectorInvocation.class);
+
+    private final Effector<?> effector;
+    private final Map<String, ?> parameters;
+    private int maxConcurrency = 0;
+    private int batchSize = 0;
+    private int maxFailures = 0;
+    private Duration pauseBetweenBatches = Duration.ZERO;
+
+    public static BulkEffectorInvocation of(Effector<?> effector) {
+        return new BulkEffectorInvocation(effector, null);
+    }
+
+    public static BulkEffectorInvocation of(Effector<?> effector, @Nullable Map<String, ?> parameters) {
+        return new BulkEffectorInvocation(effector, parameters);
+    }
+
+    protected BulkEffectorInvocation(Effector<?> effector, @Nullable Map<String, ?> parameters) {
+        this.effector = Preconditions.checkNotNull(effector, "effector");
+        this.parameters = (parameters != null) ? parameters : ImmutableMap.<String, Object>of();
+    }
+
+    /** The maximum number of invocations running at once; 0 (the default) for no limit. */
+    public BulkEffectorInvocation maxConcurrency(int val) {
+        Preconditions.checkArgument(val >= 0, "maxConcurrency must not be negative");
+        this.maxConcurrency = val;
+        return this;
+    }
+
+    /** The number of entities in each batch; 0 (the default) for all in a single batch. */
+    public BulkEffectorInvocation batchSize(int val) {
+        Preconditions.checkArgument(val >= 0, "batchSize must not be negative");
+        this.batchSize = val;
+        return this;
+    }
+
+    /** The number of failed invocations tolerated; when exceeded no more are started. Defaults to 0. */
+    public BulkEffectorInvocation maxFailures(int val) {
+        Preconditions.checkArgument(val >= 0, "maxFailures must not be negative");
+        this.maxFailures = val;
+        return this;
+    }
+
+    /** The time to wait after one batch completes before starting the next. Defaults to none. */
+    public BulkEffectorInvocation pauseBetweenBatches(@Nullable Duration val) {
+        this.pauseBetweenBatches = (val != null) ? val : Duration.ZERO;
+        return this;
+    }
+
+    /** Returns an unsubmitted task which invokes the effector on the given entities. */
+    public Task<List<Object>> newTask(Iterable<? extends Entity> entities) {
+        final List<Entity> targets = ImmutableList.copyOf(entities);
+        return Tasks.<List<Object>>builder()
+                .displayName(effector.getName() + " (bulk)")
+                .description("Invoking effector \"" + effector.getName() + "\" on " + targets.size() + " entit" + Strings.ies(targets.size())
+                        + " (" + this + ")")
+                .dynamic(true)
+                .body(new Callable<List<Object>>() {
+                    @Override
+                    public List<Object> call() {
+                        return new Run(targets).call();
+                    }
+                })
+                .build();
+    }
+
+    @Override
+    public String toString() {
+        return "maxConcurrency=" + (maxConcurrency > 0 ? maxConcurrency : "unlimited")
+                + ", batchSize=" + (batchSize > 0 ? batchSize : "all")
+                + ", maxFailures=" + maxFailures
+                + (pauseBetweenBatches.isPositive() ? ", pauseBetweenBatches=" + pauseBetweenBatches : "");
+    }
+
+    /** The state of one execution of the task. */
+    private class Run {
+        final List<Entity> entities;
+        final Object[] results;
+        final List<Throwable> errors = Collections.synchronizedList(Lists.<Throwable>newArrayList());
+        final AtomicInteger completed = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final TaskInternal<?> task;
+
+        Run(List<Entity> entities) {
+            this.entities = entities;
+            this.results = new Object[entities.size()];
+            this.task = (TaskInternal<?>) Tasks.current();
+        }
+
+        List<Object> call() {
+            List<Integer> indexes = Lists.newArrayList();
+            for (int i = 0; i < entities.size(); i++) indexes.add(i);
+            List<List<Integer>> batches = Lists.partition(indexes, (batchSize > 0) ? batchSize : Math.max(1, indexes.size()));
+            reportProgress();
+
+            for (int b = 0; b < batches.size() && !isAborted(); b++) {
+                List<Integer> batch = batches.get(b);
+                if (b > 0 && pauseBetweenBatches.isPositive()) {
+                    task.setBlockingDetails(progress() + "; pausing " + pauseBetweenBatches + " before batch " + (b + 1));
+                    Time.sleep(pauseBetweenBatches);
+                    reportProgress();
+                }
+                Queue<Integer> remaining = new ConcurrentLinkedQueue<Integer>(batch);
+                int numWorkers = (maxConcurrency > 0) ? Math.min(maxConcurrency, batch.size()) : batch.size();
+                List<TaskAdaptable<?>> workers = Lists.newArrayList();
+                for (int i = 0; i < numWorkers; i++) {
+                    workers.add(newWorker(remaining, i + 1));
+                }
+                String batchName = "batch " + (b + 1) + " of " + batches.size() + " (" + batch.size() + " entit" + Strings.ies(batch.size()) + ")";
+                DynamicTasks.queue(Tasks.parallel(batchName, workers)).getUnchecked();
+            }
+
+            if (isAborted()) {
+                throw Exceptions.create("Invoking " + effector.getName() + " failed on " + failed.get() + " of " + entities.size()
+                        + " entities (" + completed.get() + " completed; more than " + maxFailures + " failure" + Strings.s(maxFailures) + " not tolerated)",
+                        MutableList.copyOf(errors));
+            }
+            return Arrays.asList(results);
+        }
+
+        TaskAdaptable<?> newWorker(final Queue<Integer> remaining, int workerNum) {
+            return Tasks.<Void>builder()
+                    .displayName(effector.getName() + " worker " + workerNum)
+                    .dynamic(true)
+                    .body(new Runnable() {
+                        @Override
+                        public void run() {
+                            Integer index;
+                            while (!isAborted() && (index = remaining.poll()) != null) {
+                                invoke(index);
+                            }
+                        }
+                    })
+                    .build();
+        }
+
+        void invoke(int index) {
+            Entity entity = entities.get(index);
+            Effector<?> entityEffector = EffectorUtils.findEffectorDeclared(entity, effector.getName()).or(effector);
+            Task<?> invocation = DynamicTasks.queue(TaskTags.markInessential(Effectors.invocation(entity, entityEffector, parameters))).asTask();
+            invocation.blockUntilEnded();
+            if (invocation.isError()) {
+                Throwable error = Tasks.getError(invocation);
+                results[index] = error;
+                errors.add(error);
+                failed.incrementAndGet();
+                log.debug("Bulk invocation of {} failed on {}: {}", new Object[] {effector.getName(), entity, error});
+            } else {
+                results[index] = invocation.getUnchecked();
+            }
+            completed.incrementAndGet();
+            reportProgress();
+        }
+
+        boolean isAborted() {
+            return failed.get() > maxFailures;
+        }
+
+        String progress() {
+            return "Completed " + completed.get() + " of " + entities.size() + ", " + failed.get() + " failed";
+        }
+
+        void reportProgress() {
+            if (task != null) task.setBlockingDetails(progress());
+        }
+    }
+
+}
@@ -1041,6 +1041,8 @@ public abstract class AbstractEntity extends AbstractBrooklynObject implements E
                 attributesInternal.remove(attribute);
                 entityType.removeSensor(attribute);
             });
+            // not reported to the change listener, as before, so removal alone does not schedule a persistence write
+            getManagementSupport().onChangedWithoutPersisting();
         }
 
         @Override
@@ -19,6 +19,8 @@
 package org.apache.brooklyn.core.entity;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Set;
 import java.util.regex.Pattern;
 
 import javax.annotation.Nullable;
@@ -40,6 +42,8 @@ import org.apache.brooklyn.util.text.StringPredicates;
 import com.google.common.base.Objects;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 
 @SuppressWarnings("serial")
 public class EntityPredicates {
@@ -208,7 +212,7 @@ public class EntityPredicates {
         return new AttributeSatisfies<T>(attribute, condition);
     }
 
-    protected static class AttributeSatisfies<T> implements SerializablePredicate<Entity> {
+    protected static class AttributeSatisfies<T> implements SerializablePredicate<Entity>, IndexableEntityPredicate {
         protected final AttributeSensor<T> attribute;
         protected final Predicate<T> condition;
         private AttributeSatisfies(AttributeSensor<T> attribute, Predicate<T> condition) {
@@ -220,6 +224,10 @@ public class EntityPredicates {
             return (input != null) && condition.apply(input.getAttribute(attribute));
         }
         @Override
+        public Set<AttributeSensor<?>> getSensors() {
+            return ImmutableSet.<AttributeSensor<?>>of(attribute);
+        }
+        @Override
         public String toString() {
             return "attributeSatisfies("+attribute.getName()+","+condition+")";
         }
@@ -357,6 +365,131 @@ public class EntityPredicates {
 
     // ---------------------------
 
+    /**
+     * Returns a predicate that determines if a given entity is an instance of the given type
+     * (as {@link Predicates#instanceOf(Class)}, but {@link IndexableEntityPredicate indexable} by type).
+     */
+    public static Predicate<Entity> isInstanceOf(final Class<?> type) {
+        return new IsInstanceOf(type);
+    }
+
+    protected static class IsInstanceOf implements SerializablePredicate<Entity>, IndexableEntityPredicate {
+        protected final Class<?> type;
+        protected IsInstanceOf(Class<?> type) {
+            this.type = type;
+        }
+        @Override
+        public boolean apply(@Nullable Entity input) {
+            return type.isInstance(input);
+        }
+        @Override
+        public Class<?> getEntityType() {
+            return type;
+        }
+        @Override
+        public String toString() {
+            return "isInstanceOf("+type.getName()+")";
+        }
+    }
+
+    // ---------------------------
+
+    /**
+     * Returns a predicate that determines if a given entity has the given tag.
+     * Note tags added after the entity is managed are only seen by {@link IndexableEntityPredicate indexing} groups when they rescan.
+     */
+    public static Predicate<Entity> hasTag(final Object tag) {
+        return new HasTag(tag);
+    }
+
+    protected static class HasTag implements SerializablePredicate<Entity>, IndexableEntityPredicate {
+        protected final Object tag;
+        protected HasTag(Object tag) {
+            this.tag = tag;
+        }
+        @Override
+        public boolean apply(@Nullable Entity input) {
+            return (input != null) && input.tags().containsTag(tag);
+        }
+        @Override
+        public Object getTag() {
+            return tag;
+        }
+        @Override
+        public String toString() {
+            return "hasTag("+tag+")";
+        }
+    }
+
+    // ---------------------------
+
+    /**
+     * Returns a predicate that is true if all the given predicates are (as {@link Predicates#and(Iterable)}),
+     * but which remains {@link IndexableEntityPredicate indexable}, combining their dimensions.
+     * 
+     * @throws IllegalArgumentException if any of the predicates is not an {@link IndexableEntityPredicate}
+     */
+    @SafeVarargs
+    public static Predicate<Entity> allOf(Predicate<? super Entity>... predicates) {
+        ImmutableList.Builder<IndexableEntityPredicate> indexable = ImmutableList.builder();
+        for (Predicate<? super Entity> predicate : predicates) {
+            if (!(predicate instanceof IndexableEntityPredicate)) {
+                throw new IllegalArgumentException("Predicate "+predicate+" is not indexable; use Predicates.and instead");
+            }
+            indexable.add((IndexableEntityPredicate) predicate);
+        }
+        return new AllOf(indexable.build());
+    }
+
+    protected static class AllOf implements SerializablePredicate<Entity>, IndexableEntityPredicate {
+        protected final List<IndexableEntityPredicate> predicates;
+        protected AllOf(List<IndexableEntityPredicate> predicates) {
+            this.predicates = predicates;
+        }
+        @Override
+        public boolean apply(@Nullable Entity input) {
+            for (IndexableEntityPredicate predicate : predicates) {
+                if (!predicate.apply(input)) return false;
+            }
+            return true;
+        }
+        @Override
+        public Class<?> getEntityType() {
+            for (IndexableEntityPredicate predicate : predicates) {
+                if (predicate.getEntityType() != null) return predicate.getEntityType();
+            }
+            return null;
+        }
+        @Override
+        public Object getTag() {
+            for (IndexableEntityPredicate predicate : predicates) {
+                if (predicate.getTag() != null) return predicate.getTag();
+            }
+            return null;
+        }
+        @Override
+        public Entity getParent() {
+            for (IndexableEntityPredicate predicate : predicates) {
+                if (predicate.getParent() != null) return predicate.getParent();
+            }
+            return null;
+        }
+        @Override
+        public Set<AttributeSensor<?>> getSensors() {
+            ImmutableSet.Builder<AttributeSensor<?>> result = ImmutableSet.builder();
+            for (IndexableEntityPredicate predicate : predicates) {
+                result.addAll(predicate.getSensors());
+            }
+            return result.build();
+        }
+        @Override
+        public String toString() {
+            return "allOf("+predicates+")";
+        }
+    }
+
+    // ---------------------------
+
     /**
      * Returns a predicate that determines if a given entity is a direct child of this {@code parent}.
      */
@@ -366,7 +499,7 @@ public class EntityPredicates {
 
     // if needed, could add parentSatisfies(...)
     
-    protected static class IsChildOf implements SerializablePredicate<Entity> {
+    protected static class IsChildOf implements SerializablePredicate<Entity>, IndexableEntityPredicate {
         protected final Entity parent;
         protected IsChildOf(Entity parent) {
             this.parent = parent;
@@ -376,6 +509,10 @@ public class EntityPredicates {
             return (input != null) && Objects.equal(input.getParent(), parent);
         }
         @Override
+        public Entity getParent() {
+            return parent;
+        }
+        @Override
         public String toString() {
             return "isChildOf("+parent+")";
         }
@@ -498,12 +635,16 @@ public class EntityPredicates {
     }
 
     /** Common test, provide short friendly toString(). */
-    protected static class IsServiceUp implements SerializablePredicate<Entity> {
+    protected static class IsServiceUp implements SerializablePredicate<Entity>, IndexableEntityPredicate {
         @Override
         public boolean apply(Entity input) {
             return Boolean.TRUE.equals(input.sensors().get(Startable.SERVICE_UP));
         }
         @Override
+        public Set<AttributeSensor<?>> getSensors() {
+            return ImmutableSet.<AttributeSensor<?>>of(Startable.SERVICE_UP);
+        }
+        @Override
         public String toString() {
             return "SERVICE_UP";
         }
@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.entity;
+
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import org.apache.brooklyn.api.entity.Entity;
+import org.apache.brooklyn.api.sensor.AttributeSensor;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * A predicate on entities which declares what its result depends on, so that a
+ * {@link org.apache.brooklyn.entity.group.DynamicGroup} using it as a filter can maintain its membership
+ * from entity and sensor events, and narrow its rescans, rather than re-evaluating it against every entity.
+ * <p>
+ * The result for an entity must depend only on the declared dimensions: the entity's type and tags
+ * (taken as fixed once it is managed), its parent, and the values of the declared sensors.
+ * Predicates not implementing this interface are treated as opaque.
+ * See {@link EntityPredicates#allOf(Predicate...)} to combine them.
+ */
+@Beta
+public interface IndexableEntityPredicate extends Predicate<Entity> {
+
+    /** A type which every accepted entity is an instance of, or null. */
+    @Nullable
+    default Class<?> getEntityType() { return null; }
+
+    /** A tag which every accepted entity has, or null. */
+    @Nullable
+    default Object getTag() { return null; }
+
+    /** The parent of every accepted entity, or null. */
+    @Nullable
+    default Entity getParent() { return null; }
+
+    /** The sensors whose values the result depends on. */
+    default Set<AttributeSensor<?>> getSensors() { return ImmutableSet.of(); }
+
+}
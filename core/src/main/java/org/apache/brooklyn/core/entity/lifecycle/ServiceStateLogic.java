@@ -20,9 +20,12 @@ package org.apache.brooklyn.core.entity.lifecycle;
 
 import java.util.Collection;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.annotation.Nullable;
@@ -60,6 +63,8 @@ import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.collections.MutableSet;
 import org.apache.brooklyn.util.collections.QuorumCheck;
 import org.apache.brooklyn.util.collections.QuorumCheck.QuorumChecks;
+import org.apache.brooklyn.util.core.task.ScheduledTask;
+import org.apache.brooklyn.util.core.task.Tasks;
 import org.apache.brooklyn.util.core.task.ValueResolver;
 import org.apache.brooklyn.util.guava.Functionals;
 import org.apache.brooklyn.util.guava.Maybe;
@@ -77,6 +82,7 @@ import com.google.common.base.Stopwatch;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 import com.google.common.reflect.TypeToken;
 
 /** Logic, sensors and enrichers, and conveniences, for computing service status */
@@ -471,6 +477,24 @@ public class ServiceStateLogic {
             "enricher.service_state.children_and_members.ignore_entities.service_state_values",
             "Service states (including null) which indicate an entity should be ignored when looking at children service states; anything apart from RUNNING not in this list will be treated as not healthy (by default just ON_FIRE will mean not healthy)",
             MutableSet.<Lifecycle>builder().addAll(Lifecycle.values()).add(null).remove(Lifecycle.RUNNING).remove(Lifecycle.ON_FIRE).build().asUnmodifiable());
+        public static final ConfigKey<Duration> PUBLISH_DEBOUNCE = ConfigKeys.newDurationConfigKey("enricher.service_state.children_and_members.publish.debounce",
+            "Period over which changes to children and members are coalesced before the indicators are re-published, "
+            + "to avoid recomputing on every change when many change together (e.g. during a rolling restart); "
+            + "default zero, meaning publish immediately on every change", Duration.ZERO);
+
+        /** how each child or member counts towards {@link #UP_QUORUM_CHECK} */
+        private enum UpCategory { UP, NOT_UP, NOT_UP_IGNORED, NULL_IGNORED }
+        /** how each child or member counts towards {@link #RUNNING_QUORUM_CHECK} */
+        private enum StateCategory { RUNNING, NOT_HEALTHY, IGNORED }
+
+        /**
+         * The category of each child and member, updated as their values change,
+         * so that the quorum checks need not look at every entity on each event.
+         */
+        private final Tally<UpCategory> upTally = new Tally<>(UpCategory.class, UpCategory.NOT_UP);
+        private final Tally<StateCategory> stateTally = new Tally<>(StateCategory.class, StateCategory.NOT_HEALTHY);
+
+        private final AtomicBoolean publishQueued = new AtomicBoolean();
 
         protected String getKeyForMapSensor() {
             return Preconditions.checkNotNull(super.getUniqueTag());
@@ -507,7 +531,8 @@ public class ServiceStateLogic {
         final static Set<ConfigKey<?>> RECONFIGURABLE_KEYS = ImmutableSet.<ConfigKey<?>>of(
             UP_QUORUM_CHECK, RUNNING_QUORUM_CHECK,
             DERIVE_SERVICE_NOT_UP, DERIVE_SERVICE_NOT_UP,
-            IGNORE_ENTITIES_WITH_SERVICE_UP_NULL, IGNORE_ENTITIES_WITH_THESE_SERVICE_STATES);
+            IGNORE_ENTITIES_WITH_SERVICE_UP_NULL, IGNORE_ENTITIES_WITH_THESE_SERVICE_STATES,
+            PUBLISH_DEBOUNCE);
 
         @Override
         protected <T> void doReconfigureConfig(ConfigKey<T> key, T val) {
@@ -521,6 +546,8 @@ public class ServiceStateLogic {
         @Override
         protected void onChanged() {
             super.onChanged();
+            // the categories depend on config which may have changed
+            onAllProducerValuesChanged();
             if (entity != null && isRunning())
                 onUpdated();
         }
@@ -540,6 +567,25 @@ public class ServiceStateLogic {
                 return;
             }
 
+            Duration debounce = getConfig(PUBLISH_DEBOUNCE);
+            if (debounce==null || !debounce.isPositive()) {
+                publish();
+            } else if (publishQueued.compareAndSet(false, true)) {
+                // changes until this runs are coalesced into a single publication
+                Runnable job = new Runnable() {
+                    @Override public void run() {
+                        publishQueued.set(false);
+                        if (!isRunning() || !Entities.isManaged(entity)) return;
+                        publish();
+                    }
+                };
+                ScheduledTask task = ScheduledTask.builder(() -> Tasks.builder().body(job).dynamic(false).displayName("Service indicators publish").build())
+                    .delay(debounce).displayName("Service indicators publish after delay").build();
+                getExecutionContext().submit(task);
+            }
+        }
+
+        protected void publish() {
             // override superclass to publish multiple sensors
             if (getConfig(DERIVE_SERVICE_PROBLEMS)) {
                 updateMapSensor(SERVICE_PROBLEMS, computeServiceProblems());
@@ -550,70 +596,86 @@ public class ServiceStateLogic {
             }
         }
 
-        protected Object computeServiceNotUp() {
-            Map<Entity, Boolean> values = getValues(SERVICE_UP);
-            List<Entity> violators = MutableList.of();
-            boolean ignoreNull = getConfig(IGNORE_ENTITIES_WITH_SERVICE_UP_NULL);
+        @Override
+        protected void onProducerValuesChanged(Entity producer) {
+            Maybe<Boolean> up = getValue(SERVICE_UP, producer);
+            Maybe<Lifecycle> state = getValue(SERVICE_STATE_ACTUAL, producer);
             Set<Lifecycle> ignoreStates = getConfig(IGNORE_ENTITIES_WITH_THESE_SERVICE_STATES);
-            int entries=0;
-            int numUp=0;
-            for (Map.Entry<Entity, Boolean> state: values.entrySet()) {
-                if (ignoreNull && state.getValue()==null)
-                    continue;
-                entries++;
-                Lifecycle entityState = state.getKey().getAttribute(SERVICE_STATE_ACTUAL);
-
-                if (Boolean.TRUE.equals(state.getValue())) numUp++;
-                else if (!ignoreStates.contains(entityState)) {
-                    violators.add(state.getKey());
-                }
+
+            UpCategory upCategory = null;
+            if (up.isPresent()) {
+                if (up.get()==null && getConfig(IGNORE_ENTITIES_WITH_SERVICE_UP_NULL)) upCategory = UpCategory.NULL_IGNORED;
+                else if (Boolean.TRUE.equals(up.get())) upCategory = UpCategory.UP;
+                // uses the entity's current state, in case its value here is not yet updated
+                else if (ignoreStates.contains(producer.getAttribute(SERVICE_STATE_ACTUAL))) upCategory = UpCategory.NOT_UP_IGNORED;
+                else upCategory = UpCategory.NOT_UP;
+            }
+            upTally.put(producer, upCategory);
+
+            StateCategory stateCategory = null;
+            if (state.isPresent()) {
+                if (state.get()==Lifecycle.RUNNING) stateCategory = StateCategory.RUNNING;
+                else if (ignoreStates.contains(state.get())) stateCategory = StateCategory.IGNORED;
+                else stateCategory = StateCategory.NOT_HEALTHY;
+            }
+            stateTally.put(producer, stateCategory);
+        }
+
+        protected Object computeServiceNotUp() {
+            int size, entries, numUp, numViolators;
+            Entity firstViolator;
+            synchronized (upTally) {
+                size = upTally.size();
+                entries = size - upTally.count(UpCategory.NULL_IGNORED);
+                numUp = upTally.count(UpCategory.UP);
+                numViolators = upTally.count(UpCategory.NOT_UP);
+                firstViolator = Iterables.getFirst(upTally.flagged(), null);
             }
 
             QuorumCheck qc = getConfig(UP_QUORUM_CHECK);
             if (qc!=null) {
-                if (qc.isQuorate(numUp, violators.size()+numUp))
+                if (qc.isQuorate(numUp, numViolators+numUp))
                     // quorate
                     return null;
 
-                if (values.isEmpty()) return "No entities present";
+                if (size==0) return "No entities present";
                 if (entries==0) return "No entities publishing service up";
-                if (violators.isEmpty()) return "Not enough entities";
+                if (numViolators==0) return "Not enough entities";
             } else {
-                if (violators.isEmpty())
+                if (numViolators==0)
                     return null;
             }
 
-            if (violators.size()==1) return violators.get(0)+" is not up";
-            if (violators.size()==entries) return "None of the entities are up";
-            return violators.size()+" entities are not up, including "+violators.get(0);
+            if (numViolators==1) return firstViolator+" is not up";
+            if (numViolators==entries) return "None of the entities are up";
+            return numViolators+" entities are not up, including "+firstViolator;
         }
 
         protected Object computeServiceProblems() {
-            Map<Entity, Lifecycle> values = getValues(SERVICE_STATE_ACTUAL);
-            int numRunning=0;
-            List<Entity> onesNotHealthy=MutableList.of();
-            Set<Lifecycle> ignoreStates = getConfig(IGNORE_ENTITIES_WITH_THESE_SERVICE_STATES);
-            for (Map.Entry<Entity,Lifecycle> state: values.entrySet()) {
-                if (state.getValue()==Lifecycle.RUNNING) numRunning++;
-                else if (!ignoreStates.contains(state.getValue()))
-                    onesNotHealthy.add(state.getKey());
+            int numRunning, numNotHealthy;
+            List<Entity> onesNotHealthy;
+            synchronized (stateTally) {
+                numRunning = stateTally.count(StateCategory.RUNNING);
+                numNotHealthy = stateTally.count(StateCategory.NOT_HEALTHY);
+                // only the first few are named
+                onesNotHealthy = MutableList.copyOf(Iterables.limit(stateTally.flagged(), 3));
             }
 
             QuorumCheck qc = getConfig(RUNNING_QUORUM_CHECK);
             if (qc!=null) {
-                if (qc.isQuorate(numRunning, onesNotHealthy.size()+numRunning))
+                if (qc.isQuorate(numRunning, numNotHealthy+numRunning))
                     // quorate
                     return null;
 
-                if (onesNotHealthy.isEmpty())
+                if (numNotHealthy==0)
                     return "Not enough entities running to be quorate";
             } else {
-                if (onesNotHealthy.isEmpty())
+                if (numNotHealthy==0)
                     return null;
             }
 
-            return "Required entit"+Strings.ies(onesNotHealthy.size())+" not healthy: "+
-                (onesNotHealthy.size()>3 ? nameOfEntity(onesNotHealthy.get(0))+" and "+(onesNotHealthy.size()-1)+" others"
+            return "Required entit"+Strings.ies(numNotHealthy)+" not healthy: "+
+                (numNotHealthy>3 ? nameOfEntity(onesNotHealthy.get(0))+" and "+(numNotHealthy-1)+" others"
                     : Strings.join(nameOfEntity(onesNotHealthy), ", "));
         }
 
@@ -644,6 +706,41 @@ public class ServiceStateLogic {
         protected Object compute() {
             return null;
         }
+
+        /** Counts entities by category, tracking in order those in one category of interest. Callers must synchronize on this. */
+        private static class Tally<C extends Enum<C>> {
+            private final Map<Entity, C> categories = new LinkedHashMap<>();
+            private final int[] counts;
+            private final C flaggedCategory;
+            private final Set<Entity> flagged = new LinkedHashSet<>();
+
+            Tally(Class<C> type, C flaggedCategory) {
+                this.counts = new int[type.getEnumConstants().length];
+                this.flaggedCategory = flaggedCategory;
+            }
+
+            /** sets the category of the given entity, or removes it if null */
+            synchronized void put(Entity entity, @Nullable C category) {
+                C old = category==null ? categories.remove(entity) : categories.put(entity, category);
+                if (old==category) return;
+                if (old!=null) counts[old.ordinal()]--;
+                if (category!=null) counts[category.ordinal()]++;
+                if (category==flaggedCategory) flagged.add(entity);
+                else if (old==flaggedCategory) flagged.remove(entity);
+            }
+
+            int size() {
+                return categories.size();
+            }
+
+            int count(C category) {
+                return counts[category.ordinal()];
+            }
+
+            Iterable<Entity> flagged() {
+                return flagged;
+            }
+        }
     }
 
     public static class ComputeServiceIndicatorsFromChildrenAndMembersSpec extends ExtensibleEnricherSpec<ComputeServiceIndicatorsFromChildrenAndMembers,ComputeServiceIndicatorsFromChildrenAndMembersSpec> {
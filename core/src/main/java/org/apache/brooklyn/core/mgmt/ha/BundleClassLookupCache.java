@@ -0,0 +1,182 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.ha;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.brooklyn.util.core.osgi.SystemFrameworkLoader;
+import org.apache.brooklyn.util.guava.Maybe;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.SynchronousBundleListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Supplier;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Remembers which classes could, and could not, be loaded from OSGi bundles, so that repeated lookups
+ * (e.g. when deserializing persisted state on rebind, or resolving catalog types) do not go back to the
+ * framework each time. Lookups are cached either against a single bundle, or against a named set of
+ * candidate bundles (such as the white-list used by {@link org.apache.brooklyn.util.core.ClassLoaderUtils}).
+ * <p>
+ * The cache is bounded, and is cleared whenever a bundle is installed, updated, resolved, unresolved or
+ * uninstalled, as any of those can change what a lookup would find. It is registered as a listener on
+ * the framework by {@link OsgiManager}.
+ */
+@Beta
+public class BundleClassLookupCache implements SynchronousBundleListener {
+
+    private static final Logger log = LoggerFactory.getLogger(BundleClassLookupCache.class);
+
+    /** A cached lookup; either the class and the bundle it came from, or a miss */
+    private static class Lookup {
+        private static final Lookup MISS = new Lookup(null, null);
+
+        private final Bundle bundle;
+        private final Class<?> type;
+
+        private Lookup(Bundle bundle, Class<?> type) {
+            this.bundle = bundle;
+            this.type = type;
+        }
+    }
+
+    private final Cache<List<Object>, Lookup> cache;
+    /** incremented on every invalidation, so lookups which raced with a bundle event are not cached */
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong negativeHits = new AtomicLong();
+
+    public BundleClassLookupCache(long maximumSize) {
+        this.cache = CacheBuilder.newBuilder()
+            .maximumSize(maximumSize)
+            .recordStats()
+            .build();
+    }
+
+    /**
+     * Loads the class from the given bundle, as {@link SystemFrameworkLoader#loadClassFromBundle(String, Bundle)},
+     * remembering the class or that it was not found.
+     */
+    public Class<?> loadClass(Bundle bundle, String className) throws ClassNotFoundException {
+        List<Object> key = ImmutableList.<Object>of(bundle.getBundleId(), className);
+        Lookup lookup = cache.getIfPresent(key);
+        if (lookup == null) {
+            long generationBefore = generation.get();
+            try {
+                lookup = new Lookup(bundle, SystemFrameworkLoader.get().loadClassFromBundle(className, bundle));
+            } catch (ClassNotFoundException e) {
+                put(key, Lookup.MISS, generationBefore);
+                throw e;
+            }
+            put(key, lookup, generationBefore);
+        } else if (lookup == Lookup.MISS) {
+            negativeHits.incrementAndGet();
+            throw new ClassNotFoundException(className+" not found in "+bundle+" (cached)");
+        }
+        return lookup.type;
+    }
+
+    /**
+     * Loads the class from the first of the candidate bundles which has it, remembering which bundle that was
+     * or that none had it; the candidates are only computed if the lookup for that scope is not cached.
+     *
+     * @param scope identifies the set of candidates, e.g. the pattern used to select them
+     */
+    public Maybe<Class<?>> tryLoadClass(String scope, Supplier<? extends Iterable<Bundle>> candidates, String className) {
+        List<Object> key = ImmutableList.<Object>of(scope, className);
+        Lookup lookup = cache.getIfPresent(key);
+        if (lookup == null) {
+            long generationBefore = generation.get();
+            lookup = Lookup.MISS;
+            for (Bundle bundle : candidates.get()) {
+                try {
+                    lookup = new Lookup(bundle, loadClass(bundle, className));
+                    break;
+                } catch (ClassNotFoundException | NoClassDefFoundError e) {
+                    // try the next; a NoClassDefFoundError can come from a bundle with incomplete imports
+                }
+            }
+            put(key, lookup, generationBefore);
+        } else if (lookup == Lookup.MISS) {
+            negativeHits.incrementAndGet();
+        }
+        return lookup == Lookup.MISS ? Maybe.<Class<?>>absentNull() : Maybe.<Class<?>>of(lookup.type);
+    }
+
+    private void put(List<Object> key, Lookup lookup, long generationBefore) {
+        if (generation.get() == generationBefore) {
+            cache.put(key, lookup);
+        }
+    }
+
+    @Override
+    public void bundleChanged(BundleEvent event) {
+        switch (event.getType()) {
+        case BundleEvent.INSTALLED:
+        case BundleEvent.UPDATED:
+        case BundleEvent.RESOLVED:
+        case BundleEvent.UNRESOLVED:
+        case BundleEvent.UNINSTALLED:
+            invalidate();
+            break;
+        default:
+            // starting and stopping do not change what can be loaded
+        }
+    }
+
+    public void invalidate() {
+        if (log.isTraceEnabled()) log.trace("Invalidating class lookups: "+this);
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    /** Hits (including {@link #getNegativeHitCount() negative hits}), misses and evictions since created */
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    /** Lookups answered from the cache with a remembered failure */
+    public long getNegativeHitCount() {
+        return negativeHits.get();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    @Override
+    public String toString() {
+        CacheStats stats = getStats();
+        return MoreObjects.toStringHelper(this)
+            .add("size", size())
+            .add("hits", stats.hitCount())
+            .add("negativeHits", getNegativeHitCount())
+            .add("misses", stats.missCount())
+            .add("evictions", stats.evictionCount())
+            .toString();
+    }
+}
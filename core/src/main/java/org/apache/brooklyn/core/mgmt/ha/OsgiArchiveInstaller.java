@@ -18,22 +18,26 @@
  */
 package org.apache.brooklyn.core.mgmt.ha;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URL;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.jar.Attributes;
+import java.util.jar.JarFile;
 import java.util.jar.Manifest;
 import java.util.regex.Pattern;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
 
 import org.apache.brooklyn.api.typereg.ManagedBundle;
 import org.apache.brooklyn.api.typereg.RegisteredType;
@@ -63,6 +67,8 @@ import org.apache.brooklyn.util.stream.Streams;
 import org.apache.brooklyn.util.text.BrooklynVersionSyntax;
 import org.apache.brooklyn.util.text.Strings;
 import org.apache.brooklyn.util.text.VersionComparator;
+import org.apache.commons.io.input.CloseShieldInputStream;
+import org.apache.commons.io.input.TeeInputStream;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleException;
 import org.osgi.framework.Constants;
@@ -76,6 +82,7 @@ import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
 import com.google.common.collect.Iterables;
+import com.google.common.io.ByteStreams;
 
 // package-private so we can move this one if/when we move OsgiManager
 class OsgiArchiveInstaller {
@@ -97,6 +104,8 @@ class OsgiArchiveInstaller {
     private boolean validateTypes = true;
     
     private File zipFile;
+    /** what was found while copying the input to {@link #zipFile}, if it could be read as a ZIP in passing and the file has not since been rewritten */
+    private ArchiveScan archiveScan;
     private boolean isBringingExistingOsgiInstalledBundleUnderBrooklynManagement = false;
     private Manifest discoveredManifest;
     private VersionedName discoveredBomVersionedName;
@@ -256,13 +265,19 @@ class OsgiArchiveInstaller {
         
         zipFile = Os.newTempFile("brooklyn-bundle-transient-"+suppliedKnownBundleMetadata, "zip");
         try {
-            FileOutputStream fos = new FileOutputStream(zipFile);
-            Streams.copyClose(zipIn, fos);
+            try (FileOutputStream fos = new FileOutputStream(zipFile)) {
+                archiveScan = ArchiveScan.copyAndScan(zipIn, fos);
+            }
             try (ZipFile zf = new ZipFile(zipFile)) {
                 // validate it is a valid ZIP, otherwise errors are more obscure later.
                 // can happen esp if user supplies a file://path/to/folder/ as the URL.openStream returns a list of that folder (!) 
                 // the error thrown by the below is useful enough, and caller will wrap with suppliedKnownBundleMetadata details
                 zf.entries();
+                if (archiveScan!=null && archiveScan.entryCount!=zf.size()) {
+                    // local headers disagree with the central directory (e.g. data prepended); trust the latter
+                    log.debug("Archive for "+suppliedKnownBundleMetadata+" has "+zf.size()+" entries but "+archiveScan.entryCount+" were read while copying; will re-read the copy");
+                    archiveScan = null;
+                }
             }
         } catch (Exception e) {
             throw Exceptions.propagate(e);
@@ -273,7 +288,25 @@ class OsgiArchiveInstaller {
     }
 
     private void discoverManifestFromCatalogBom(boolean isCatalogBomRequired) {
-        discoveredManifest = new BundleMaker(mgmt()).getManifest(zipFile);
+        String bomS;
+        if (archiveScan!=null) {
+            discoveredManifest = archiveScan.manifest;
+            bomS = archiveScan.catalogBom;
+        } else {
+            discoveredManifest = new BundleMaker(mgmt()).getManifest(zipFile);
+            bomS = readCatalogBom(zipFile);
+        }
+        if (bomS==null) {
+            if (isCatalogBomRequired) {
+                throw new IllegalArgumentException("Archive must contain a catalog.bom file in the root");
+            } else {
+                return;
+            }
+        }
+        discoveredBomVersionedName = BasicBrooklynCatalog.getVersionedName( BasicBrooklynCatalog.getCatalogMetadata(bomS), false );
+    }
+    
+    private static String readCatalogBom(File zipFile) {
         ZipFile zf = null;
         try {
             try {
@@ -286,19 +319,13 @@ class OsgiArchiveInstaller {
                 bom = zf.getEntry("/"+BasicBrooklynCatalog.CATALOG_BOM);
             }
             if (bom==null) {
-                if (isCatalogBomRequired) {
-                    throw new IllegalArgumentException("Archive must contain a catalog.bom file in the root");
-                } else {
-                    return;
-                }
+                return null;
             }
-            String bomS;
             try {
-                bomS = Streams.readFullyString(zf.getInputStream(bom));
+                return Streams.readFullyString(zf.getInputStream(bom));
             } catch (IOException e) {
                 throw new IllegalArgumentException("Error reading catalog.bom from ZIP/JAR archive: "+e);
             }
-            discoveredBomVersionedName = BasicBrooklynCatalog.getVersionedName( BasicBrooklynCatalog.getCatalogMetadata(bomS), false );
         } finally {
             Streams.closeQuietly(zf);
         }
@@ -334,6 +361,7 @@ class OsgiArchiveInstaller {
             File zf2 = new BundleMaker(mgmt()).copyAddingManifest(zipFile, discoveredManifest);
             zipFile.delete();
             zipFile = zf2;
+            archiveScan = null;
         }
     }
     
@@ -397,7 +425,7 @@ class OsgiArchiveInstaller {
             if (result.code!=null) return ReferenceWithError.newInstanceWithoutError(result);
             assert inferredMetadata.isNameResolved() : "Should have resolved "+inferredMetadata;
             assert inferredMetadata instanceof BasicManagedBundle : "Only BasicManagedBundles supported";
-            ((BasicManagedBundle)inferredMetadata).setChecksum(getChecksum(new ZipFile(zipFile)));
+            ((BasicManagedBundle)inferredMetadata).setChecksum(archiveScan!=null ? archiveScan.checksum : getChecksum(zipFile));
 
             final boolean updating;
             result.metadata = osgiManager.getManagedBundle(inferredMetadata.getVersionedName());
@@ -564,9 +592,9 @@ class OsgiArchiveInstaller {
                 }
             }
             log.debug(result.message + " (partial): OSGi bundle installed, with bundle start and Brooklyn management to follow");
-            // can now delete and close (copy has been made and is available from OsgiManager)
-            zipFile.delete();
+            // file has now been moved to OsgiManager, so is no longer ours to delete
             zipFile = null;
+            archiveScan = null;
             
             // setting the above before the code below means if there is a problem starting or loading catalog items
             // a user has to remove then add again, or forcibly reinstall;
@@ -860,21 +888,86 @@ class OsgiArchiveInstaller {
         }
     }
     
-    private static String getChecksum(ZipFile zf) {
+    @VisibleForTesting
+    static String getChecksum(File zipFile) {
         // checksum should ignore time/date stamps on files - just look at entries and contents. also ignore order.
         // (tests fail without time/date is one reason, but really if a person rebuilds a ZIP that is the same 
         // files we should treat it as identical)
-        try {
+        try (ZipFile zf = new ZipFile(zipFile)) {
             Map<String,String> entriesToChecksum = MutableMap.of();
             for (ZipEntry ze: Collections.list(zf.entries())) {
                 entriesToChecksum.put(ze.getName(), Streams.getMd5Checksum(zf.getInputStream(ze)));
             }
-            return Streams.getMd5Checksum(Streams.newInputStreamWithContents(new TreeMap<>(entriesToChecksum).toString()));
+            return getChecksum(entriesToChecksum);
         } catch (Exception e) {
             throw Exceptions.propagate(e);
         }
     }
 
+    private static String getChecksum(Map<String,String> entriesToChecksum) {
+        return Streams.getMd5Checksum(Streams.newInputStreamWithContents(new TreeMap<>(entriesToChecksum).toString()));
+    }
+
+    /**
+     * The checksum, manifest and catalog BOM of an archive, collected as it is read from its input stream
+     * so that large archives do not have to be re-read from disk; see {@link #copyAndScan(InputStream, OutputStream)}.
+     */
+    @VisibleForTesting
+    static class ArchiveScan {
+        String checksum;
+        int entryCount;
+        Manifest manifest;
+        String catalogBom;
+
+        /**
+         * Copies the input fully to the output, reading it as a ZIP along the way.
+         * Returns null (having still copied everything) if the stream cannot be read as a ZIP,
+         * in which case callers should fall back to reading the copy.
+         */
+        static ArchiveScan copyAndScan(InputStream in, OutputStream out) throws IOException {
+            InputStream tee = new TeeInputStream(in, out);
+            ArchiveScan result = new ArchiveScan();
+            try {
+                ZipInputStream zin = new ZipInputStream(tee);
+                Map<String,String> entriesToChecksum = MutableMap.of();
+                String rootBom = null;
+                ZipEntry ze;
+                while ((ze = zin.getNextEntry())!=null) {
+                    result.entryCount++;
+                    String name = ze.getName();
+                    boolean isManifest = JarFile.MANIFEST_NAME.equalsIgnoreCase(name);
+                    boolean isBom = BasicBrooklynCatalog.CATALOG_BOM.equals(name) || ("/"+BasicBrooklynCatalog.CATALOG_BOM).equals(name);
+                    if (isManifest || isBom) {
+                        byte[] contents = ByteStreams.toByteArray(zin);
+                        entriesToChecksum.put(name, Streams.getMd5Checksum(new ByteArrayInputStream(contents)));
+                        if (isManifest) {
+                            if (result.manifest==null || JarFile.MANIFEST_NAME.equals(name)) {
+                                result.manifest = new Manifest(new ByteArrayInputStream(contents));
+                            }
+                        } else if (BasicBrooklynCatalog.CATALOG_BOM.equals(name)) {
+                            result.catalogBom = Streams.readFullyString(new ByteArrayInputStream(contents));
+                        } else {
+                            rootBom = Streams.readFullyString(new ByteArrayInputStream(contents));
+                        }
+                    } else {
+                        entriesToChecksum.put(name, Streams.getMd5Checksum(new CloseShieldInputStream(zin)));
+                    }
+                }
+                if (result.catalogBom==null) {
+                    result.catalogBom = rootBom;
+                }
+                result.checksum = getChecksum(entriesToChecksum);
+            } catch (Exception e) {
+                Exceptions.propagateIfFatal(e);
+                log.debug("Unable to read archive as a ZIP while copying it; will re-read the copy: "+e);
+                result = null;
+            }
+            // the central directory (and anything unread after an error) still needs copying
+            ByteStreams.copy(tee, ByteStreams.nullOutputStream());
+            return result;
+        }
+    }
+
     private boolean canUpdate() {
         // only update if forced, or it's a snapshot for which a byte stream is supplied
         // (IE don't update a snapshot verison every time its URL is referenced in a 'libraries' section)
@@ -19,11 +19,11 @@
 package org.apache.brooklyn.core.mgmt.ha;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -66,7 +66,6 @@ import org.apache.brooklyn.util.os.Os;
 import org.apache.brooklyn.util.os.Os.DeletionResult;
 import org.apache.brooklyn.util.osgi.VersionedName;
 import org.apache.brooklyn.util.repeat.Repeater;
-import org.apache.brooklyn.util.stream.Streams;
 import org.apache.brooklyn.util.text.Strings;
 import org.apache.brooklyn.util.time.Duration;
 import org.osgi.framework.Bundle;
@@ -92,6 +91,11 @@ public class OsgiManager {
     public static final ConfigKey<Boolean> REUSE_OSGI = ConfigKeys.newBooleanConfigKey("brooklyn.osgi.reuse",
         "Whether the OSGi container can reuse a previous one and itself can be reused, defaulting to false, "
         + "often overridden in tests for efficiency (and will ignore the cache dir)", false);
+
+    @Beta
+    public static final ConfigKey<Integer> CLASS_LOOKUP_CACHE_SIZE = ConfigKeys.newIntegerConfigKey("brooklyn.osgi.classLookupCache.size",
+        "[Beta] Maximum number of class lookups in OSGi bundles, successful or not, to remember until bundles next change; "
+        + "0 disables the cache", 10000);
     
     /** The {@link Framework#start()} event is the most expensive one; in fact a restart seems to be _more_ expensive than
      * a start from scratch; however if we leave it running, uninstalling any extra bundles, then tests are fast and don't leak.
@@ -102,6 +106,7 @@ public class OsgiManager {
     
     final ManagementContext mgmt;
     final OsgiClassPrefixer osgiClassPrefixer;
+    final BundleClassLookupCache classLookupCache;
     Framework framework;
     
     private boolean reuseFramework;
@@ -184,7 +189,8 @@ public class OsgiManager {
             return true;
         }
 
-        /** Updates the bundle file associated with the given record, creating and returning a backup if there was already such a file */ 
+        /** Updates the bundle file associated with the given record, creating and returning a backup if there was already such a file;
+         * the given file is moved into place (so is no longer available at its original path) */ 
         synchronized File updateManagedBundleFile(OsgiBundleInstallationResult result, File fNew) {
             File fCached = fileFor(result.getMetadata());
             File fBak = new File(fCached.getAbsolutePath()+".bak");
@@ -198,8 +204,9 @@ public class OsgiManager {
             } else {
                 log.debug("Creating Brooklyn local copy of bundle file "+fCached);
             }
-            try (FileInputStream fin = new FileInputStream(fNew); FileOutputStream fout = new FileOutputStream(fCached)) {
-                Streams.copy(fin, fout);
+            try {
+                // a rename where possible (the usual case, both being in the tmp space), otherwise a copy
+                Files.move(fNew.toPath(), fCached.toPath(), StandardCopyOption.REPLACE_EXISTING);
             } catch (IOException e) {
                 throw Exceptions.propagate(e);
             }
@@ -229,6 +236,8 @@ public class OsgiManager {
     public OsgiManager(ManagementContext mgmt) {
         this.mgmt = mgmt;
         this.osgiClassPrefixer = new OsgiClassPrefixer();
+        Integer classLookupCacheSize = mgmt.getConfig().getConfig(CLASS_LOOKUP_CACHE_SIZE);
+        this.classLookupCache = (classLookupCacheSize != null && classLookupCacheSize > 0) ? new BundleClassLookupCache(classLookupCacheSize) : null;
     }
 
     public void start() {
@@ -280,10 +289,17 @@ public class OsgiManager {
             if (reuseFramework) {
                 bundlesAtStartup = MutableSet.copyOf(Arrays.asList(framework.getBundleContext().getBundles()));
             }
+            if (classLookupCache != null && framework != null) {
+                framework.getBundleContext().addBundleListener(classLookupCache);
+            }
         }
     }
 
     public void stop() {
+        if (classLookupCache != null) {
+            framework.getBundleContext().removeBundleListener(classLookupCache);
+            classLookupCache.invalidate();
+        }
         if (reuseFramework) {
             for (Bundle b: framework.getBundleContext().getBundles()) {
                 if (!bundlesAtStartup.contains(b)) {
@@ -650,7 +666,7 @@ public class OsgiManager {
                     }
                     //Extension bundles don't support loadClass.
                     //Instead load from the app classpath.
-                    Class<T> clazz = SystemFrameworkLoader.get().loadClassFromBundle(typeToLoad, b);
+                    Class<T> clazz = loadClassFromBundle(typeToLoad, b);
                     return Maybe.of(clazz);
                 } else {
                     bundleProblems.put(osgiBundle, Maybe.getException(bundle));
@@ -688,6 +704,21 @@ public class OsgiManager {
         }
     }
 
+    /** Loads the class from the bundle, using the {@link #getClassLookupCache() class lookup cache} if enabled */
+    @SuppressWarnings("unchecked")
+    public <T> Class<T> loadClassFromBundle(String type, Bundle b) throws ClassNotFoundException {
+        if (classLookupCache != null) {
+            return (Class<T>) classLookupCache.loadClass(b, type);
+        }
+        return SystemFrameworkLoader.get().loadClassFromBundle(type, b);
+    }
+
+    /** The cache of class lookups in bundles, or null if disabled by {@link #CLASS_LOOKUP_CACHE_SIZE} */
+    @Beta @Nullable
+    public BundleClassLookupCache getClassLookupCache() {
+        return classLookupCache;
+    }
+
     protected Maybe<Bundle> findBundle(ManagedBundle managedBundle) {
         if (managedBundle.getOsgiUniqueUrl() != null) {
             Bundle bundle = framework.getBundleContext().getBundle(managedBundle.getOsgiUniqueUrl());
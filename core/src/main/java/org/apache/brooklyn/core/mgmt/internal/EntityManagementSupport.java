@@ -22,6 +22,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.brooklyn.api.effector.Effector;
 import org.apache.brooklyn.api.entity.Application;
@@ -97,6 +98,8 @@ public class EntityManagementSupport {
     protected final AtomicBoolean managementFailed = new AtomicBoolean(false);
     
     private volatile EntityChangeListener entityChangeListener = EntityChangeListener.NOOP;
+    private final AtomicLong changeVersion = new AtomicLong();
+    private final AtomicLong applicationChangeVersion = new AtomicLong();
 
     /**
      * Whether this entity is managed (i.e. "onManagementStarting" has been called, so the framework knows about it,
@@ -106,6 +109,43 @@ public class EntityManagementSupport {
         return currentlyDeployed.get();
     }
 
+    /**
+     * A counter which is incremented whenever a change to the entity (attributes, config, children, locations, 
+     * tags, members, adjuncts) is reported once it is managed; allows callers to cheaply detect whether an 
+     * entity might have changed, e.g. for HTTP ETags. Not persisted, so only comparable within this process.
+     */
+    public long getChangeVersion() {
+        return changeVersion.get();
+    }
+
+    /**
+     * For an application, a counter which is incremented whenever the {@link #getChangeVersion() change version}
+     * of it or of any entity in it is, so callers can detect whether anything in an application might have changed
+     * without visiting each entity. Entities added or removed show up as a change to their parent's children.
+     */
+    @Beta
+    public long getApplicationChangeVersion() {
+        return applicationChangeVersion.get();
+    }
+
+    /**
+     * Records a change to the entity which is not reported to the {@link #getEntityChangeListener() change listener}
+     * because it need not be persisted, so that it is still reflected in {@link #getChangeVersion()}.
+     */
+    @Beta
+    public void onChangedWithoutPersisting() {
+        incrementChangeVersions();
+    }
+
+    private void incrementChangeVersions() {
+        changeVersion.incrementAndGet();
+        Application app = entity.getApplication();
+        EntityManagementSupport appSupport = (app instanceof EntityInternal && !app.getId().equals(entity.getId()))
+                ? ((EntityInternal) app).getManagementSupport()
+                : this;
+        appSupport.applicationChangeVersion.incrementAndGet();
+    }
+
     public boolean isNoLongerManaged() {
         return wasDeployed() && !isDeployed();
     }
@@ -198,6 +238,7 @@ public class EntityManagementSupport {
                 everDeployed.set(true);
                 
                 entityChangeListener = new EntityChangeListenerImpl();
+                incrementChangeVersions();
             }
             
             /*
@@ -437,62 +478,75 @@ public class EntityManagementSupport {
     private class EntityChangeListenerImpl implements EntityChangeListener {
         @Override
         public void onChanged() {
+            incrementChangeVersions();
             getManagementContext().getRebindManager().getChangeListener().onChanged(entity);
         }
         @Override
         public void onChildrenChanged() {
+            incrementChangeVersions();
             getManagementContext().getRebindManager().getChangeListener().onChanged(entity);
         }
         @Override
         public void onLocationsChanged() {
+            incrementChangeVersions();
             getManagementContext().getRebindManager().getChangeListener().onChanged(entity);
         }
         @Override
         public void onTagsChanged() {
+            incrementChangeVersions();
             getManagementContext().getRebindManager().getChangeListener().onChanged(entity);
         }
         @Override
         public void onMembersChanged() {
+            incrementChangeVersions();
             getManagementContext().getRebindManager().getChangeListener().onChanged(entity);
         }
         @Override
         public void onPolicyAdded(Policy policy) {
+            incrementChangeVersions();
             getManagementContext().getRebindManager().getChangeListener().onChanged(entity);
             getManagementContext().getRebindManager().getChangeListener().onManaged(policy);
         }
         @Override
         public void onEnricherAdded(Enricher enricher) {
+            incrementChangeVersions();
             getManagementContext().getRebindManager().getChangeListener().onChanged(entity);
             getManagementContext().getRebindManager().getChangeListener().onManaged(enricher);
         }
         @Override
         public void onFeedAdded(Feed feed) {
+            incrementChangeVersions();
             getManagementContext().getRebindManager().getChangeListener().onChanged(entity);
             getManagementContext().getRebindManager().getChangeListener().onManaged(feed);
         }
         @Override
         public void onPolicyRemoved(Policy policy) {
+            incrementChangeVersions();
             getManagementContext().getRebindManager().getChangeListener().onChanged(entity);
             getManagementContext().getRebindManager().getChangeListener().onUnmanaged(policy);
         }
         @Override
         public void onEnricherRemoved(Enricher enricher) {
+            incrementChangeVersions();
             getManagementContext().getRebindManager().getChangeListener().onChanged(entity);
             getManagementContext().getRebindManager().getChangeListener().onUnmanaged(enricher);
         }
         @Override
         public void onFeedRemoved(Feed feed) {
+            incrementChangeVersions();
             getManagementContext().getRebindManager().getChangeListener().onChanged(entity);
             getManagementContext().getRebindManager().getChangeListener().onUnmanaged(feed);
         }
         @Override
         public void onAttributeChanged(AttributeSensor<?> attribute) {
+            incrementChangeVersions();
             if (attribute.getPersistenceMode() != SensorPersistenceMode.NONE) {
                 getManagementContext().getRebindManager().getChangeListener().onChanged(entity);
             }
         }
         @Override
         public void onConfigChanged(ConfigKey<?> key) {
+            incrementChangeVersions();
             getManagementContext().getRebindManager().getChangeListener().onChanged(entity);
         }
         @Override
@@ -501,6 +555,7 @@ public class EntityManagementSupport {
         }
         @Override
         public void onEffectorCompleted(Effector<?> effector) {
+            incrementChangeVersions();
             getManagementContext().getRebindManager().getChangeListener().onChanged(entity);
         }
     }
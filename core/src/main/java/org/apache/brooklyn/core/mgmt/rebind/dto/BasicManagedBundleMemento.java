@@ -43,6 +43,7 @@ public class BasicManagedBundleMemento extends AbstractMemento implements Manage
         protected String version;
         protected String url;
         protected String checksum;
+        protected String validationSummary;
         
         public Builder symbolicName(String symbolicName) {
             this.symbolicName = symbolicName;
@@ -64,12 +65,18 @@ public class BasicManagedBundleMemento extends AbstractMemento implements Manage
             return self();
         }
 
+        public Builder validationSummary(String validationSummary) {
+            this.validationSummary = validationSummary;
+            return self();
+        }
+
         public Builder from(ManagedBundleMemento other) {
             super.from(other);
             symbolicName = other.getSymbolicName();
             version = other.getVersion();
             url = other.getUrl();
             checksum = other.getChecksum();
+            validationSummary = other.getValidationSummary();
             return self();
         }
 
@@ -82,6 +89,7 @@ public class BasicManagedBundleMemento extends AbstractMemento implements Manage
     private String version;
     private String url;
     private String checksum;
+    private String validationSummary;
     transient private ByteSource jarContent;
 
     @SuppressWarnings("unused") // For deserialisation
@@ -93,6 +101,7 @@ public class BasicManagedBundleMemento extends AbstractMemento implements Manage
         this.version = builder.version;
         this.url = builder.url;
         this.checksum = builder.checksum;
+        this.validationSummary = builder.validationSummary;
     }
 
     @Override
@@ -115,6 +124,11 @@ public class BasicManagedBundleMemento extends AbstractMemento implements Manage
         return checksum;
     }
 
+    @Override
+    public String getValidationSummary() {
+        return validationSummary;
+    }
+
     @Override
     public ByteSource getJarContent() {
         return jarContent;
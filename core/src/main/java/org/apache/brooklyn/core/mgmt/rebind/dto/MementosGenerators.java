@@ -59,6 +59,7 @@ import org.apache.brooklyn.core.mgmt.persist.BrooklynPersistenceUtils;
 import org.apache.brooklyn.core.mgmt.rebind.AbstractBrooklynObjectRebindSupport;
 import org.apache.brooklyn.core.objs.BrooklynTypes;
 import org.apache.brooklyn.core.policy.AbstractPolicy;
+import org.apache.brooklyn.core.typereg.BasicManagedBundle;
 import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.collections.MutableSet;
 import org.apache.brooklyn.util.core.config.ConfigBag;
@@ -353,6 +354,9 @@ public class MementosGenerators {
         builder.url(bundle.getUrl())
             .symbolicName(bundle.getSymbolicName())
             .version(bundle.getSuppliedVersionString());
+        if (bundle instanceof BasicManagedBundle) {
+            builder.validationSummary(((BasicManagedBundle) bundle).getValidationSummary());
+        }
         return builder.build();
     }
     
@@ -35,6 +35,7 @@ import org.apache.brooklyn.util.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.annotations.Beta;
 import com.google.common.collect.ImmutableList;
 import com.google.common.reflect.TypeToken;
 
@@ -117,6 +118,21 @@ public class BrooklynServerConfig {
     public static final ConfigKey<String> BROOKLYN_CATALOG_URL = ConfigKeys.newStringConfigKey("brooklyn.catalog.url",
         "The URL of a custom catalog.bom to load");
 
+    @Beta
+    public static final ConfigKey<Integer> CATALOG_INITIALIZATION_THREADS = ConfigKeys.newIntegerConfigKey(
+        "brooklyn.catalog.initialization.threads",
+        "[Beta] Number of threads used when installing persisted bundles and validating their types on startup or promotion; "
+        + "bundles are started in waves respecting their OSGi dependencies; 1 (the default) installs and validates serially",
+        1);
+
+    @Beta
+    public static final ConfigKey<Boolean> CATALOG_TRUST_VALIDATION_SUMMARIES = ConfigKeys.newBooleanConfigKey(
+        "brooklyn.catalog.trustValidationSummaries",
+        "[Beta] Whether to persist how the types in each bundle resolved, and on startup or promotion to restore types "
+        + "from that rather than re-validating them, where the bundle checksum and Brooklyn version are unchanged; "
+        + "problems are then reported when the type is first used",
+        false);
+
     /** string used in places where the management node ID is needed to resolve a path */
     public static final String MANAGEMENT_NODE_ID_PROPERTY = "brooklyn.mgmt.node.id";
     
@@ -33,6 +33,7 @@ import org.apache.brooklyn.util.http.auth.Credentials;
 import org.apache.brooklyn.util.osgi.VersionedName;
 import org.apache.brooklyn.util.text.BrooklynVersionSyntax;
 
+import com.google.common.annotations.Beta;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
@@ -44,6 +45,7 @@ public class BasicManagedBundle extends AbstractBrooklynObject implements Manage
     private String checksum;
     private String url;
     private Credentials credentials;
+    private String validationSummary;
     private transient boolean persistenceNeeded = false;
 
     /** Creates an empty one, with an ID, expecting other fields will be populated. */
@@ -204,6 +206,17 @@ public class BasicManagedBundle extends AbstractBrooklynObject implements Manage
         this.checksum = md5Checksum;
     }
 
+    /** A record of how the types in this bundle last resolved, kept so they need not be re-validated on rebind; may be null */
+    @Beta
+    public String getValidationSummary() {
+        return validationSummary;
+    }
+
+    @Beta
+    public void setValidationSummary(String validationSummary) {
+        this.validationSummary = validationSummary;
+    }
+
     @Override
     protected BrooklynObjectInternal configure(Map<?, ?> flags) {
         throw new UnsupportedOperationException();
@@ -22,6 +22,7 @@ import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
 import org.apache.brooklyn.api.entity.Entity;
 import org.apache.brooklyn.api.sensor.AttributeSensor;
@@ -30,7 +31,9 @@ import org.apache.brooklyn.api.sensor.SensorEvent;
 import org.apache.brooklyn.api.sensor.SensorEventListener;
 import org.apache.brooklyn.core.BrooklynLogging;
 import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.collections.MutableSet;
 import org.apache.brooklyn.util.core.flags.TypeCoercions;
+import org.apache.brooklyn.util.guava.Maybe;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -110,6 +113,7 @@ public abstract class AbstractMultipleSensorAggregator<U> extends AbstractAggreg
                     // ApplicationLifecycleStateTest#testSensorInitAndPublishOrder
                 }
             }
+            onProducerValuesChanged(producer);
         }
     }
 
@@ -121,6 +125,7 @@ public abstract class AbstractMultipleSensorAggregator<U> extends AbstractAggreg
                 if (vs!=null)
                     vs.remove(producer);
             }
+            onProducerValuesChanged(producer);
         }
         onUpdated();
     }
@@ -135,36 +140,76 @@ public abstract class AbstractMultipleSensorAggregator<U> extends AbstractAggreg
                     LOG.debug(this+" received event when no entry for sensor ("+event+"); likely just added or removed, and will initialize subsequently if needed");
                 } else {
                     vs.put(e, event.getValue());
+                    onProducerValuesChanged(e);
                 }
             }
             onUpdated();
         }
     }
 
-    public <T> Map<Entity,T> getValues(Sensor<T> sensor) {
-        Map<Entity, T> valuesCopy = copyValues(sensor);
-        return coerceValues(valuesCopy, sensor.getType());
+    /**
+     * Invoked whenever the values held for the given producer change, including when it is added or removed,
+     * before {@link #onUpdated()}; it is called while holding the lock on the values, so subclasses
+     * can use it (with {@link #getValue(Sensor, Entity)}) to maintain state incrementally.
+     * Default implementation does nothing.
+     */
+    protected void onProducerValuesChanged(Entity producer) {
     }
 
-    private <T> Map<Entity, T> coerceValues(Map<Entity, T> values, Class<? super T> type) {
-        Map<Entity, T> typedValues = MutableMap.of();
-        for (Entry<Entity, T> entry : values.entrySet()) {
-            @SuppressWarnings("unchecked")
-            T typedValue = (T) TypeCoercions.coerce(entry.getValue(), type);
-            typedValues.put(entry.getKey(), typedValue);
+    /**
+     * Invokes {@link #onProducerValuesChanged(Entity)} for every producer tracked, holding the lock on the values
+     * as for individual changes; for use when something other than the values which subclasses depend on has changed,
+     * such as config.
+     */
+    protected void onAllProducerValuesChanged() {
+        synchronized (values) {
+            for (Entity producer: getProducers()) {
+                onProducerValuesChanged(producer);
+            }
         }
-        return typedValues;
     }
 
-    private <T> Map<Entity, T> copyValues(Sensor<T> sensor) {
+    /** Returns the value held for the given producer and sensor, or absent if that producer is not tracked. */
+    public <T> Maybe<T> getValue(Sensor<T> sensor, Entity producer) {
         synchronized (values) {
-            @SuppressWarnings("unchecked")
-            Map<Entity, T> sv = (Map<Entity, T>) values.get(sensor.getName());
-            //use MutableMap because of potentially null values
-            return MutableMap.copyOf(sv).asUnmodifiable();
+            Map<Entity, Object> sv = values.get(sensor.getName());
+            if (sv == null || !sv.containsKey(producer)) return Maybe.absent();
+            return Maybe.of(AbstractMultipleSensorAggregator.<T>coerce(sv.get(producer), sensor.getType()));
         }
     }
 
+    /** Returns the producers currently tracked (for any sensor). */
+    public Set<Entity> getProducers() {
+        Set<Entity> result = MutableSet.of();
+        synchronized (values) {
+            for (Map<Entity, Object> sv : values.values()) {
+                result.addAll(sv.keySet());
+            }
+        }
+        return result;
+    }
+
+    public <T> Map<Entity,T> getValues(Sensor<T> sensor) {
+        // copy and coerce in one pass, as this is typically called for every event
+        MutableMap<Entity, T> typedValues = MutableMap.of();
+        synchronized (values) {
+            Map<Entity, Object> sv = values.get(sensor.getName());
+            if (sv != null) {
+                for (Entry<Entity, Object> entry : sv.entrySet()) {
+                    typedValues.put(entry.getKey(), coerce(entry.getValue(), sensor.getType()));
+                }
+            }
+        }
+        //use MutableMap because of potentially null values
+        return typedValues.asUnmodifiable();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T coerce(Object value, Class<? super T> type) {
+        if (value == null || type.isInstance(value)) return (T) value;
+        return (T) TypeCoercions.coerce(value, type);
+    }
+
     @Override
     protected abstract Object compute();
 }
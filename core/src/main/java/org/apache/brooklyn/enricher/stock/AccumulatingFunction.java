@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.enricher.stock;
+
+import javax.annotation.Nullable;
+
+import com.google.common.annotations.Beta;
+
+/**
+ * A function over a collection of values (as used by {@link Aggregator}) whose result can also be
+ * maintained incrementally, as values are added and removed, rather than recomputed from all the values
+ * on every change.
+ * <p>
+ * The result of an {@link Accumulator} must be the same as applying the function to the collection of
+ * values which have been added and not removed (up to rounding, for floating point arithmetic).
+ */
+@Beta
+public interface AccumulatingFunction<U> {
+
+    Accumulator<U> newAccumulator();
+
+    /** Not thread-safe; callers should synchronize. */
+    @Beta
+    public interface Accumulator<U> {
+        void add(@Nullable Object value);
+        /** removes a value previously {@link #add(Object) added} */
+        void remove(@Nullable Object value);
+        U get();
+    }
+}
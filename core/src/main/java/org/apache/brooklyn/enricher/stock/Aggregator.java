@@ -93,6 +93,14 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
     // We use a synchronizedMap over a ConcurrentHashMap for entities that store null values.
     protected final Map<Entity, T> values = Collections.synchronizedMap(new LinkedHashMap<Entity, T>());
 
+    /**
+     * If the transformation is an {@link AccumulatingFunction}, its result is maintained as values change
+     * rather than recomputed over all values for every event. Guarded by {@link #values}.
+     */
+    private AccumulatingFunction.Accumulator<?> accumulator;
+    /** number of changes since the accumulator was built; it is periodically rebuilt to discard rounding errors */
+    private int accumulatorChanges;
+
     public Aggregator() {}
 
     @Override
@@ -122,6 +130,8 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
         } else if (t1!=null && !Objects.equals(t2, this.transformation)) {
             throw new IllegalStateException("Cannot supply both "+TRANSFORMATION_UNTYPED+" and "+TRANSFORMATION+" unless they are equal.");
         }
+        
+        rebuildAccumulator();
     }
         
     @SuppressWarnings({ "rawtypes", "unchecked" })
@@ -203,7 +213,9 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
                 } else {
                     initialVal = null;
                 }
+                boolean hadValue = values.containsKey(producer);
                 values.put(producer, initialVal != null ? initialVal : defaultMemberValue);
+                onValueChanged(hadValue, vo, true, values.get(producer));
                 //we might skip in onEvent in the short window while !values.containsKey(producer)
                 //but that's okay because the put which would have been done there is done here now
             } else {
@@ -216,7 +228,11 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
     
     @Override
     protected void onProducerRemoved(Entity producer) {
-        values.remove(producer);
+        synchronized (values) {
+            if (values.containsKey(producer)) {
+                onValueChanged(true, values.remove(producer), false, null);
+            }
+        }
         onUpdated();
     }
 
@@ -225,7 +241,7 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
         Entity e = event.getSource();
         synchronized (values) {
             if (values.containsKey(e)) {
-                values.put(e, event.getValue());
+                onValueChanged(true, values.put(e, event.getValue()), true, event.getValue());
             } else {
                 if (LOG.isDebugEnabled()) LOG.debug("{} received event for unknown producer ({}); presumably that producer has recently been removed", this, e);
             }
@@ -243,9 +259,34 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
         }
     }
     
+    /** must be called while synchronized on {@link #values} */
+    private void onValueChanged(boolean hadOldValue, T oldValue, boolean hasNewValue, T newValue) {
+        if (accumulator == null) return;
+        if (hadOldValue && valueFilter.apply(oldValue)) accumulator.remove(oldValue);
+        if (hasNewValue && valueFilter.apply(newValue)) accumulator.add(newValue);
+        if (++accumulatorChanges > Math.max(values.size(), 1000)) {
+            rebuildAccumulator();
+        }
+    }
+
+    private void rebuildAccumulator() {
+        synchronized (values) {
+            accumulatorChanges = 0;
+            if (transformation instanceof AccumulatingFunction) {
+                accumulator = ((AccumulatingFunction<?>) transformation).newAccumulator();
+                for (T v : Iterables.filter(values.values(), valueFilter)) {
+                    accumulator.add(v);
+                }
+            } else {
+                accumulator = null;
+            }
+        }
+    }
+
     @Override
     protected Object compute() {
         synchronized (values) {
+            if (accumulator != null) return accumulator.get();
             // TODO Could avoid copying when filter not needed
             List<T> vs = MutableList.copyOf(Iterables.filter(values.values(), valueFilter));
             if (transformation==null) return vs;
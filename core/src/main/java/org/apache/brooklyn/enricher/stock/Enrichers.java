@@ -938,7 +938,7 @@ public class Enrichers {
     }
     
     @Beta
-    public static class ComputingIsQuorate<T> implements Function<Collection<Boolean>, Boolean> {
+    public static class ComputingIsQuorate<T> implements Function<Collection<Boolean>, Boolean>, AccumulatingFunction<Boolean> {
         protected final TypeToken<T> typeToken;
         protected final QuorumCheck quorumCheck;
         protected final int totalSize;
@@ -967,6 +967,25 @@ public class Enrichers {
 
             return Boolean.valueOf(quorumCheck.isQuorate(numTrue, totalSize));
         }
+
+        @Override
+        public Accumulator<Boolean> newAccumulator() {
+            return new Accumulator<Boolean>() {
+                int numTrue = 0;
+                @Override
+                public void add(Object value) {
+                    if (Boolean.TRUE.equals(value)) numTrue++;
+                }
+                @Override
+                public void remove(Object value) {
+                    if (Boolean.TRUE.equals(value)) numTrue--;
+                }
+                @Override
+                public Boolean get() {
+                    return Boolean.valueOf(quorumCheck.isQuorate(numTrue, totalSize));
+                }
+            };
+        }
     }
 
     private static <T> Map<T,T> newIdentityMap(Set<T> keys) {
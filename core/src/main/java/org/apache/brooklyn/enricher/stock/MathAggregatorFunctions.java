@@ -21,11 +21,14 @@ package org.apache.brooklyn.enricher.stock;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
 
 import javax.annotation.Nullable;
 
 import org.apache.brooklyn.util.core.flags.TypeCoercions;
 import org.apache.brooklyn.util.guava.Maybe;
+import org.apache.brooklyn.util.math.QuantileSketch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -88,6 +91,30 @@ public class MathAggregatorFunctions {
         return new ComputingMax<T>(defaultValueForUnreportedSensors, valueToReportIfNoSensors, typeToken);
     }
 
+    /**
+     * Merges the {@link QuantileSketch} values (e.g. as published by {@link QuantileSketchEnricher} on each member)
+     * into a new sketch, ignoring nulls, so percentiles can be computed across them all; gives null if there are none.
+     */
+    @Beta
+    public static Function<Collection<? extends QuantileSketch>, QuantileSketch> computingMergedSketch() {
+        return new ComputingMergedSketch();
+    }
+
+    protected static class ComputingMergedSketch implements Function<Collection<? extends QuantileSketch>, QuantileSketch> {
+        @Override
+        public QuantileSketch apply(Collection<? extends QuantileSketch> vals) {
+            QuantileSketch result = null;
+            if (vals != null) {
+                for (QuantileSketch val : vals) {
+                    if (val == null) continue;
+                    if (result == null) result = val.newEmptyCopy();
+                    result.merge(val);
+                }
+            }
+            return result;
+        }
+    }
+
     @Beta
     protected abstract static class AbstractComputingNumber<T extends Number> implements Function<Collection<? extends Number>, T> {
         protected final Number defaultValueForUnreportedSensors;
@@ -113,7 +140,7 @@ public class MathAggregatorFunctions {
     }
 
     @Beta
-    protected abstract static class BasicComputingNumber<T extends Number> extends AbstractComputingNumber<T> {
+    protected abstract static class BasicComputingNumber<T extends Number> extends AbstractComputingNumber<T> implements AccumulatingFunction<T> {
         private boolean loggedNonNumber;
         
         public BasicComputingNumber(Number defaultValueForUnreportedSensors, Number valueToReportIfNoSensors, TypeToken<T> typeToken) {
@@ -133,16 +160,8 @@ public class MathAggregatorFunctions {
                         count++;
                     } else {
                         if (val != null) {
-                            // This function is used for example in an enricher, to compute an aggregated value.
-                            // Log at warn only once per enricher if we have a non-number; but if things go back to healthy
-                            // (i.e. no non-numbers) then we'll log again at warn next time.
                             hasNonNumber = true;
-                            if (loggedNonNumber) {
-                                if (LOG.isTraceEnabled()) LOG.trace("Input to numeric aggregator is not a number (again): "+val+" ("+val.getClass()+")");
-                            } else {
-                                loggedNonNumber = true;
-                                LOG.warn("Input to numeric aggregator is not a number: "+val+" ("+val.getClass()+")");
-                            }
+                            onNonNumber(val);
                         }
                         if (defaultValueForUnreportedSensors != null) {
                             postProcessedVals.add(defaultValueForUnreportedSensors);
@@ -158,7 +177,73 @@ public class MathAggregatorFunctions {
             return cast(result, typeToken);
         }
         
+        private void onNonNumber(Object val) {
+            // This function is used for example in an enricher, to compute an aggregated value.
+            // Log at warn only once per enricher if we have a non-number; but if things go back to healthy
+            // (i.e. no non-numbers) then we'll log again at warn next time.
+            if (loggedNonNumber) {
+                if (LOG.isTraceEnabled()) LOG.trace("Input to numeric aggregator is not a number (again): "+val+" ("+val.getClass()+")");
+            } else {
+                loggedNonNumber = true;
+                LOG.warn("Input to numeric aggregator is not a number: "+val+" ("+val.getClass()+")");
+            }
+        }
+        
         public abstract Number applyImpl(Collection<Number> vals);
+        
+        /** state for computing {@link #applyImpl(Collection)} incrementally, given numbers added and removed */
+        protected interface NumberAccumulator {
+            void add(double val);
+            void remove(double val);
+            /** only called when at least one number is present */
+            Number get();
+        }
+        
+        protected abstract NumberAccumulator newNumberAccumulator();
+        
+        @Override
+        public Accumulator<T> newAccumulator() {
+            final NumberAccumulator numbers = newNumberAccumulator();
+            return new Accumulator<T>() {
+                int count = 0;
+                int nonNumbers = 0;
+                
+                @Override
+                public void add(Object val) {
+                    Number n = toNumber(val, true);
+                    if (n != null) {
+                        numbers.add(n.doubleValue());
+                        count++;
+                    }
+                }
+                @Override
+                public void remove(Object val) {
+                    Number n = toNumber(val, false);
+                    if (n != null) {
+                        numbers.remove(n.doubleValue());
+                        count--;
+                    }
+                }
+                private Number toNumber(Object val, boolean adding) {
+                    Maybe<Number> coercedVal = TypeCoercions.tryCoerce(val, Number.class);
+                    if (coercedVal.isPresentAndNonNull()) return coercedVal.get();
+                    if (val != null) {
+                        if (adding) {
+                            nonNumbers++;
+                            onNonNumber(val);
+                        } else if (--nonNumbers == 0) {
+                            loggedNonNumber = false;
+                        }
+                    }
+                    return defaultValueForUnreportedSensors;
+                }
+                @Override
+                public T get() {
+                    if (count==0) return cast(valueToReportIfNoSensors, typeToken);
+                    return cast(numbers.get(), typeToken);
+                }
+            };
+        }
     }
 
     @Beta
@@ -174,6 +259,10 @@ public class MathAggregatorFunctions {
             }
             return result;
         }
+        @Override
+        protected NumberAccumulator newNumberAccumulator() {
+            return new SumAccumulator();
+        }
     }
 
     @Beta
@@ -189,6 +278,15 @@ public class MathAggregatorFunctions {
             }
             return (sum / vals.size());
         }
+        @Override
+        protected NumberAccumulator newNumberAccumulator() {
+            return new SumAccumulator() {
+                @Override
+                public Number get() {
+                    return sum / count;
+                }
+            };
+        }
     }
 
     @Beta
@@ -204,6 +302,15 @@ public class MathAggregatorFunctions {
             }
             return result;
         }
+        @Override
+        protected NumberAccumulator newNumberAccumulator() {
+            return new SortedAccumulator() {
+                @Override
+                public Number get() {
+                    return values.firstKey();
+                }
+            };
+        }
     }
 
     @Beta
@@ -219,6 +326,47 @@ public class MathAggregatorFunctions {
             }
             return result;
         }
+        @Override
+        protected NumberAccumulator newNumberAccumulator() {
+            return new SortedAccumulator() {
+                @Override
+                public Number get() {
+                    return values.lastKey();
+                }
+            };
+        }
+    }
+
+    private static class SumAccumulator implements BasicComputingNumber.NumberAccumulator {
+        protected double sum = 0d;
+        protected int count = 0;
+        @Override
+        public void add(double val) {
+            sum += val;
+            count++;
+        }
+        @Override
+        public void remove(double val) {
+            sum -= val;
+            count--;
+        }
+        @Override
+        public Number get() {
+            return sum;
+        }
+    }
+
+    /** keeps a count of each distinct value, so the smallest and largest can be found and removed in O(log n) */
+    private abstract static class SortedAccumulator implements BasicComputingNumber.NumberAccumulator {
+        protected final NavigableMap<Double,Integer> values = new TreeMap<>();
+        @Override
+        public void add(double val) {
+            values.merge(val, 1, Integer::sum);
+        }
+        @Override
+        public void remove(double val) {
+            values.computeIfPresent(val, (k, n) -> n == 1 ? null : n - 1);
+        }
     }
 
     protected static <N extends Number> N cast(Number n, TypeToken<? extends N> numberType) {
@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.enricher.stock;
+
+import java.math.BigDecimal;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.brooklyn.api.catalog.Catalog;
+import org.apache.brooklyn.api.entity.EntityLocal;
+import org.apache.brooklyn.api.sensor.AttributeSensor;
+import org.apache.brooklyn.api.sensor.Sensor;
+import org.apache.brooklyn.api.sensor.SensorEvent;
+import org.apache.brooklyn.config.ConfigKey;
+import org.apache.brooklyn.core.config.ConfigKeys;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.math.QuantileSketch;
+import org.apache.brooklyn.util.time.Duration;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.google.common.reflect.TypeToken;
+
+/**
+ * Records the values of a numeric {@link Sensor} in a {@link QuantileSketch} over a rolling time window,
+ * publishing the sketch, and optionally a map of percentiles (e.g. {@code p50}, {@code p99}) computed from it.
+ * <p>
+ * The window is divided into slices, each with its own sketch, and whole slices are discarded as they fall out of the window;
+ * so the window covered is between {@link #WINDOW_DURATION} and one slice longer. As with {@link YamlRollingTimeWindowMeanEnricher}
+ * the sketch is only updated when a new value arrives.
+ * <p>
+ * The published sketches can be merged up the hierarchy, e.g. using an {@link Aggregator} with
+ * {@link MathAggregatorFunctions#computingMergedSketch()} across members, then {@link #percentiles(List)} in a {@link Transformer}
+ * to publish percentiles for the whole tier; memory used is bounded regardless of the number of members.
+ * Values which are not numbers, including sketches, are ignored: a sketch sensor republishes its whole window
+ * on each change, so recording it here would count earlier values again; merge sketches with an aggregator as above.
+ */
+@Beta
+@Catalog(name = "Rolling Percentiles", description = "Records sensor data in a mergeable quantile sketch over a time window, for publishing percentiles.")
+public class QuantileSketchEnricher extends AbstractTransformer<Object, QuantileSketch> {
+
+    public static ConfigKey<Duration> WINDOW_DURATION = ConfigKeys.newConfigKey(
+            Duration.class,
+            "enricher.window.duration",
+            "Duration for which this window should store data, default one minute",
+            Duration.ONE_MINUTE);
+
+    public static ConfigKey<Integer> WINDOW_SLICES = ConfigKeys.newIntegerConfigKey(
+            "enricher.window.slices",
+            "Number of slices the window is divided into, discarded as each falls out of the window, default 6",
+            6);
+
+    public static ConfigKey<Double> RELATIVE_ACCURACY = ConfigKeys.newDoubleConfigKey(
+            "enricher.sketch.relativeAccuracy",
+            "Relative accuracy of the percentiles reported; sketches merged together must use the same value",
+            QuantileSketch.DEFAULT_RELATIVE_ACCURACY);
+
+    public static ConfigKey<Integer> MAX_BUCKETS = ConfigKeys.newIntegerConfigKey(
+            "enricher.sketch.maxBuckets",
+            "Maximum number of buckets in the sketch, bounding its size; if exceeded the lowest values lose accuracy",
+            QuantileSketch.DEFAULT_MAX_BUCKETS);
+
+    @SuppressWarnings("serial")
+    public static ConfigKey<List<Double>> PERCENTILES = ConfigKeys.newConfigKey(
+            new TypeToken<List<Double>>() {},
+            "enricher.percentiles",
+            "Percentiles to publish to the percentiles sensor, if there is one, default 50, 90 and 99",
+            ImmutableList.of(50d, 90d, 99d));
+
+    @SuppressWarnings("serial")
+    public static ConfigKey<AttributeSensor<Map<String, Double>>> PERCENTILES_SENSOR = ConfigKeys.newConfigKey(
+            new TypeToken<AttributeSensor<Map<String, Double>>>() {},
+            "enricher.percentiles.targetSensor",
+            "Sensor to publish a map of percentiles to, keyed e.g. p50, p99 (optional)");
+
+    private static class Slice {
+        final long start;
+        final QuantileSketch sketch;
+        Slice(long start, QuantileSketch sketch) {
+            this.start = start;
+            this.sketch = sketch;
+        }
+    }
+
+    private final LinkedList<Slice> slices = new LinkedList<Slice>();
+
+    @Override
+    public void setEntity(EntityLocal entity) {
+        super.setEntity(entity);
+
+        // Check that sourceSensor has been set (rather than triggerSensors)
+        getRequiredConfig(SOURCE_SENSOR);
+    }
+
+    @Override
+    protected Function<SensorEvent<Object>, QuantileSketch> getTransformation() {
+        return new Function<SensorEvent<Object>, QuantileSketch>() {
+            @Override
+            public QuantileSketch apply(SensorEvent<Object> event) {
+                QuantileSketch result = record(event.getValue(), event.getTimestamp());
+                AttributeSensor<Map<String, Double>> percentilesSensor = getConfig(PERCENTILES_SENSOR);
+                if (percentilesSensor != null) {
+                    entity.sensors().set(percentilesSensor, percentiles(getConfig(PERCENTILES)).apply(result));
+                }
+                return result;
+            }
+        };
+    }
+
+    /** records the given value, and returns a new sketch of all values in the window up to the given time */
+    public QuantileSketch record(Object value, long timestamp) {
+        long windowMillis = getConfig(WINDOW_DURATION).toMilliseconds();
+        long sliceMillis = Math.max(1, windowMillis / Math.max(1, getConfig(WINDOW_SLICES)));
+        long sliceStart = timestamp - (timestamp % sliceMillis);
+
+        synchronized (slices) {
+            while (!slices.isEmpty() && slices.getFirst().start + sliceMillis <= timestamp - windowMillis) {
+                slices.removeFirst();
+            }
+            if (value instanceof Number) {
+                if (slices.isEmpty() || slices.getLast().start < sliceStart) {
+                    slices.addLast(new Slice(sliceStart, new QuantileSketch(getConfig(RELATIVE_ACCURACY), getConfig(MAX_BUCKETS))));
+                }
+                // values arriving out of order are recorded in the latest slice
+                slices.getLast().sketch.add(((Number) value).doubleValue());
+            }
+
+            QuantileSketch result = new QuantileSketch(getConfig(RELATIVE_ACCURACY), getConfig(MAX_BUCKETS));
+            for (Slice slice : slices) {
+                result.merge(slice.sketch);
+            }
+            return result;
+        }
+    }
+
+    /** returns a function giving a map of the given percentiles from a sketch, keyed e.g. {@code p50}, {@code p99.9};
+     * the map is empty if the sketch is empty, and the function gives null for null */
+    public static Function<QuantileSketch, Map<String, Double>> percentiles(List<Double> percentiles) {
+        return new PercentilesFunction(percentiles);
+    }
+
+    protected static class PercentilesFunction implements Function<QuantileSketch, Map<String, Double>> {
+        private final List<Double> percentiles;
+
+        public PercentilesFunction(List<Double> percentiles) {
+            this.percentiles = ImmutableList.copyOf(percentiles);
+        }
+
+        @Override
+        public Map<String, Double> apply(QuantileSketch input) {
+            if (input == null) return null;
+            MutableMap<String, Double> result = MutableMap.of();
+            if (!input.isEmpty()) {
+                for (Double p : percentiles) {
+                    result.put("p" + BigDecimal.valueOf(p).stripTrailingZeros().toPlainString(), input.getPercentile(p));
+                }
+            }
+            return result.asUnmodifiable();
+        }
+    }
+}
@@ -18,15 +18,13 @@
  */
 package org.apache.brooklyn.enricher.stock;
 
-import java.util.Iterator;
-import java.util.LinkedList;
-
 import org.apache.brooklyn.api.catalog.Catalog;
 import org.apache.brooklyn.api.entity.EntityLocal;
 import org.apache.brooklyn.api.sensor.Sensor;
 import org.apache.brooklyn.api.sensor.SensorEvent;
 import org.apache.brooklyn.config.ConfigKey;
 import org.apache.brooklyn.core.config.ConfigKeys;
+import org.apache.brooklyn.util.collections.TimeWindowedDoubles;
 import org.apache.brooklyn.util.time.Duration;
 
 import com.google.common.base.Function;
@@ -84,8 +82,7 @@ public class YamlRollingTimeWindowMeanEnricher<T extends Number> extends Abstrac
         
     }
     
-    private final LinkedList<T> values = new LinkedList<T>();
-    private final LinkedList<Long> timestamps = new LinkedList<Long>();
+    private final TimeWindowedDoubles values = new TimeWindowedDoubles();
     volatile ConfidenceQualifiedNumber lastAverage = new ConfidenceQualifiedNumber(0d,0d);
     
     @Override
@@ -105,8 +102,7 @@ public class YamlRollingTimeWindowMeanEnricher<T extends Number> extends Abstrac
                 if (event.getValue()==null) {
                     return null;
                 }
-                values.addLast(event.getValue());
-                timestamps.addLast(eventTime);
+                values.add(event.getValue().doubleValue(), eventTime);
                 if (eventTime>0) {
                     ConfidenceQualifiedNumber average = getAverage(eventTime, 0);
 
@@ -125,70 +121,42 @@ public class YamlRollingTimeWindowMeanEnricher<T extends Number> extends Abstrac
     }
     
     public ConfidenceQualifiedNumber getAverage(long fromTime, long graceAllowed) {
-        if (timestamps.isEmpty()) {
-            return lastAverage = new ConfidenceQualifiedNumber(lastAverage.value, 0.0d);
-        }
-        
-        long firstTimestamp = -1;
-        Iterator<Long> ti = timestamps.iterator();
-        while (ti.hasNext()) {
-            firstTimestamp = ti.next();
-            if (firstTimestamp>0) break;
-        }
-        if (firstTimestamp<=0) {
-            // no values with reasonable timestamps
-            return lastAverage = new ConfidenceQualifiedNumber(values.get(values.size()-1).doubleValue(), 0.0d);
-        }
-
-        long lastTimestamp = timestamps.get(timestamps.size()-1);
-
-        long now = fromTime;
-        if (lastTimestamp > fromTime - graceAllowed) {
-            // without this, if the computation takes place X seconds after the publish,
-            // we treat X seconds as time for which we have no confidence in the data
-            now = lastTimestamp;
-        }
-        pruneValues(now);
-        
-        Duration timePeriod = getConfig(WINDOW_DURATION);
-        long windowStart = Math.max(now-timePeriod.toMilliseconds(), firstTimestamp);
-        long windowEnd = Math.max(now-timePeriod.toMilliseconds(), lastTimestamp);
-        Double confidence = ((double)(windowEnd - windowStart)) / timePeriod.toMilliseconds();
-        if (confidence <= 0.0000001d) {
-            // not enough timestamps in window 
-            double lastValue = values.get(values.size()-1).doubleValue();
-            return lastAverage = new ConfidenceQualifiedNumber(lastValue, 0.0d);
-        }
-        
-        long start = windowStart;
-        long end;
-        double weightedAverage = 0.0d;
-        
-        Iterator<T> valuesIter = values.iterator();
-        Iterator<Long> timestampsIter = timestamps.iterator();
-        while (valuesIter.hasNext()) {
-            // Ignores null and out-of-date values (and also values that are received out-of-order, but that shouldn't happen!)
-            Number val = valuesIter.next();
-            Long timestamp = timestampsIter.next();
-            if (val!=null && timestamp >= start) {
-                end = timestamp;
-                weightedAverage += ((end - start) / (confidence * timePeriod.toMilliseconds())) * val.doubleValue();
-                start = timestamp;
+        synchronized (values) {
+            if (values.isEmpty()) {
+                return lastAverage = new ConfidenceQualifiedNumber(lastAverage.value, 0.0d);
             }
-        }
-        
-        return lastAverage = new ConfidenceQualifiedNumber(weightedAverage, confidence);
-    }
+            
+            int firstIndex = values.indexOfFirstAtOrAfter(1);
+            if (firstIndex >= values.size()) {
+                // no values with reasonable timestamps
+                return lastAverage = new ConfidenceQualifiedNumber(values.getLatestValue(), 0.0d);
+            }
+            long firstTimestamp = values.getTimestamp(firstIndex);
+            long lastTimestamp = values.getLatestTimestamp();
     
-    /**
-     * Discards out-of-date values, but keeps at least one value.
-     */
-    private void pruneValues(long now) {
-        // keep one value from before the period, so that we can tell the window's start time
-        Duration timePeriod = getConfig(WINDOW_DURATION);
-        while(timestamps.size() > 1 && timestamps.get(1) < (now - timePeriod.toMilliseconds())) {
-            timestamps.removeFirst();
-            values.removeFirst();
+            long now = fromTime;
+            if (lastTimestamp > fromTime - graceAllowed) {
+                // without this, if the computation takes place X seconds after the publish,
+                // we treat X seconds as time for which we have no confidence in the data
+                now = lastTimestamp;
+            }
+            Duration timePeriod = getConfig(WINDOW_DURATION);
+            // keep one value from before the period, so that we can tell the window's start time
+            values.pruneBefore(now - timePeriod.toMilliseconds());
+            
+            long windowStart = Math.max(now-timePeriod.toMilliseconds(), firstTimestamp);
+            long windowEnd = Math.max(now-timePeriod.toMilliseconds(), lastTimestamp);
+            Double confidence = ((double)(windowEnd - windowStart)) / timePeriod.toMilliseconds();
+            if (confidence <= 0.0000001d) {
+                // not enough timestamps in window 
+                return lastAverage = new ConfidenceQualifiedNumber(values.getLatestValue(), 0.0d);
+            }
+            
+            // each value is weighted by the time since the previous value (or the window start);
+            // out-of-date values are ignored
+            double weightedAverage = values.getTimeWeightedSum(windowStart) / (confidence * timePeriod.toMilliseconds());
+            
+            return lastAverage = new ConfidenceQualifiedNumber(weightedAverage, confidence);
         }
     }
 }
@@ -19,18 +19,22 @@
 package org.apache.brooklyn.entity.group;
 
 import java.util.Collection;
+import java.util.List;
 
 import org.apache.brooklyn.api.entity.Entity;
 import org.apache.brooklyn.api.entity.Group;
+import org.apache.brooklyn.api.mgmt.Task;
 import org.apache.brooklyn.api.sensor.AttributeSensor;
 import org.apache.brooklyn.config.ConfigKey;
 import org.apache.brooklyn.core.config.ConfigKeys;
+import org.apache.brooklyn.core.effector.BulkEffectorInvocation;
 import org.apache.brooklyn.core.entity.lifecycle.ServiceStateLogic.ComputeServiceIndicatorsFromChildrenAndMembers;
 import org.apache.brooklyn.core.entity.trait.Changeable;
 import org.apache.brooklyn.core.sensor.Sensors;
 import org.apache.brooklyn.util.collections.QuorumCheck;
 import org.apache.brooklyn.util.collections.QuorumCheck.QuorumChecks;
 
+import com.google.common.annotations.Beta;
 import com.google.common.base.Predicate;
 import com.google.common.reflect.TypeToken;
 
@@ -92,6 +96,15 @@ public interface AbstractGroup extends Entity, Group, Changeable {
     // FIXME Do we really want this method? "setMembers" is a misleading name
     void setMembers(Collection<Entity> mm, Predicate<Entity> filter);
 
+    /**
+     * Invokes an effector on the current members, in batches and with the limits on concurrency and failures
+     * of the given invocation; see {@link BulkEffectorInvocation}.
+     * 
+     * @return the task, already submitted, giving the result for each member in the order of {@link #getMembers()}
+     */
+    @Beta
+    Task<List<Object>> invokeOnMembers(BulkEffectorInvocation invocation);
+
     public static Entity getFirst(Group g) {
         Collection<Entity> members = g.sensors().get(AbstractGroup.GROUP_MEMBERS);
         if (!members.isEmpty()) return members.iterator().next();
@@ -26,6 +26,8 @@ import java.util.Set;
 import org.apache.brooklyn.api.entity.Entity;
 import org.apache.brooklyn.api.entity.EntitySpec;
 import org.apache.brooklyn.api.entity.Group;
+import org.apache.brooklyn.api.mgmt.Task;
+import org.apache.brooklyn.core.effector.BulkEffectorInvocation;
 import org.apache.brooklyn.core.entity.AbstractEntity;
 import org.apache.brooklyn.core.entity.Entities;
 import org.apache.brooklyn.core.entity.EntityInternal;
@@ -33,6 +35,7 @@ import org.apache.brooklyn.core.entity.lifecycle.ServiceStateLogic;
 import org.apache.brooklyn.core.mgmt.internal.ManagementContextInternal;
 import org.apache.brooklyn.entity.stock.DelegateEntity;
 import org.apache.brooklyn.util.concurrent.Locks;
+import org.apache.brooklyn.util.core.task.DynamicTasks;
 import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -272,4 +275,9 @@ public abstract class AbstractGroupImpl extends AbstractEntity implements Abstra
         return child;
     }
 
+    @Override
+    public Task<List<Object>> invokeOnMembers(BulkEffectorInvocation invocation) {
+        return DynamicTasks.queueIfPossible(invocation.newTask(getMembers())).orSubmitAsync(this).asTask();
+    }
+
 }
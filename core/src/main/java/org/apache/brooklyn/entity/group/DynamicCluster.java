@@ -208,6 +208,38 @@ public interface DynamicCluster extends AbstractGroup, Cluster, MemberReplaceabl
             .defaultValue(0)
             .build();
 
+    @Beta
+    @SetFromFlag("growBatchSize")
+    ConfigKey<Integer> GROW_BATCH_SIZE = ConfigKeys.builder(Integer.class)
+            .name("dynamiccluster.growBatchSize")
+            .description("[Beta] The maximum number of members started at once when growing the cluster; "
+                    + "members for the next batch are created while the previous batch starts, and started as soon as it is done. "
+                    + "Any value null or less than or equal to zero means all members are started in one batch")
+            .defaultValue(0)
+            .build();
+
+    @Beta
+    @SetFromFlag("maxStartRatePerLocation")
+    ConfigKey<Double> MAX_START_RATE_PER_LOCATION = ConfigKeys.builder(Double.class)
+            .name("dynamiccluster.maxStartRatePerLocation")
+            .description("[Beta] The maximum number of members per second whose start will be begun in any one location, "
+                    + "to avoid overwhelming the location's API when growing by a lot. Null or zero means unlimited")
+            .build();
+
+    @Beta
+    AttributeSensor<Integer> GROW_QUEUED = Sensors.newIntegerSensor(
+            "dynamiccluster.grow.queued", "Number of members being added which are waiting to be created or for an earlier batch to start");
+
+    @Beta
+    AttributeSensor<Integer> GROW_STARTING = Sensors.newIntegerSensor(
+            "dynamiccluster.grow.starting", "Number of members being added which are starting (including provisioning), "
+                    + "or waiting to start because of the concurrency or rate limits");
+
+    @Beta
+    AttributeSensor<Integer> GROW_FAILED = Sensors.newIntegerSensor(
+            "dynamiccluster.grow.failed", "Number of members which have failed to start when added to the cluster, "
+                    + "since the cluster last grew without any failures");
+
     AttributeSensor<List<Location>> SUB_LOCATIONS = new BasicAttributeSensor<List<Location>>(
             new TypeToken<List<Location>>() {},
             "dynamiccluster.subLocations", "Locations for each availability zone to use");
@@ -66,6 +66,7 @@ import org.apache.brooklyn.feed.function.FunctionFeed;
 import org.apache.brooklyn.feed.function.FunctionPollConfig;
 import org.apache.brooklyn.util.collections.MutableList;
 import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.collections.MutableSet;
 import org.apache.brooklyn.util.collections.QuorumCheck.QuorumChecks;
 import org.apache.brooklyn.util.core.flags.TypeCoercions;
 import org.apache.brooklyn.util.core.task.DynamicTasks;
@@ -102,6 +103,7 @@ import com.google.common.collect.Sets;
 import com.google.common.reflect.TypeToken;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.RateLimiter;
 
 /**
  * A cluster of entities that can dynamically increase or decrease the number of entities.
@@ -120,6 +122,15 @@ public class DynamicClusterImpl extends AbstractGroupImpl implements DynamicClus
      */
     private transient Semaphore childTaskSemaphore;
 
+    /** Members queued and starting during {@link #addInEachLocation(Iterable, Map)}, published as {@link #GROW_QUEUED} and {@link #GROW_STARTING}. */
+    private final transient int[] growProgress = new int[2];
+
+    /**
+     * Limits the rate at which members are started in each location, if {@link #MAX_START_RATE_PER_LOCATION} is configured.
+     * Entries are dropped once their location is unmanaged or no longer has any members.
+     */
+    private final transient Map<Location, RateLimiter> startRateLimiters = MutableMap.of();
+
     /**
      * Value is read from config, or if config is null then initialised automatically. Only set if
      * isAvailabilityZoneEnabled. Set on init and on rebind.
@@ -240,6 +251,9 @@ public class DynamicClusterImpl extends AbstractGroupImpl implements DynamicClus
     @Override
     public void rebind() {
         super.rebind();
+        // any members being added when the cluster was last managed will not be started
+        if (sensors().get(GROW_QUEUED) != null) sensors().set(GROW_QUEUED, 0);
+        if (sensors().get(GROW_STARTING) != null) sensors().set(GROW_STARTING, 0);
         initialiseTaskPermitSemaphore();
         initializeZoneFailureDetector();
     }
@@ -891,29 +905,50 @@ public class DynamicClusterImpl extends AbstractGroupImpl implements DynamicClus
     }
 
     protected ReferenceWithError<Collection<Entity>> addInEachLocation(Iterable<Location> locations, Map<?,?> flags) {
+        List<Location> locationsToAdd = Lists.newArrayList(locations);
+        Integer batchSize = config().get(GROW_BATCH_SIZE);
+        if (batchSize == null || batchSize <= 0) batchSize = Math.max(1, locationsToAdd.size());
+
         List<Entity> addedEntities = Lists.newArrayList();
         Map<Entity, Location> addedEntityLocations = Maps.newLinkedHashMap();
-        Map<Entity, Task<?>> tasks = Maps.newLinkedHashMap();
-
-        for (Location loc : locations) {
-            Entity entity = addNode(loc, flags);
-            addedEntities.add(entity);
-            addedEntityLocations.put(entity, loc);
-            if (entity instanceof Startable) {
-                // First members are used when subsequent members need some attributes from them
-                // before they start; make sure they're in the first batch.
-                boolean privileged = entity.equals(AbstractGroup.getFirst(this));
-                Map<String, ?> args = ImmutableMap.of("locations", MutableList.builder().addIfNotNull(loc).buildImmutable());
-                Task<?> task = newThrottledEffectorTask(entity, Startable.START, args, privileged);
-                tasks.put(entity, task);
+        Map<Entity, Throwable> errors = Maps.newLinkedHashMap();
+
+        // Members are created a batch at a time; each batch is created while the previous one is starting,
+        // then started once the previous one is done.
+        adjustGrowProgress(locationsToAdd.size(), 0);
+        int unstarted = locationsToAdd.size();
+        Map<Entity, Task<?>> startingTasks = ImmutableMap.of();
+        try {
+            for (List<Location> batch : Lists.partition(locationsToAdd, batchSize)) {
+                Map<Entity, Task<?>> tasks = Maps.newLinkedHashMap();
+                for (Location loc : batch) {
+                    Entity entity = addNode(loc, flags);
+                    addedEntities.add(entity);
+                    addedEntityLocations.put(entity, loc);
+                    if (entity instanceof Startable) {
+                        // First members are used when subsequent members need some attributes from them
+                        // before they start; make sure they're in the first batch.
+                        boolean privileged = entity.equals(AbstractGroup.getFirst(this));
+                        Map<String, ?> args = ImmutableMap.of("locations", MutableList.builder().addIfNotNull(loc).buildImmutable());
+                        tasks.put(entity, newRateLimitedTask(loc, entity, newThrottledEffectorTask(entity, Startable.START, args, privileged)));
+                    }
+                }
+                errors.putAll(waitForStartingBatch(startingTasks));
+                startingTasks = ImmutableMap.of();
+
+                adjustGrowProgress(-batch.size(), tasks.size());
+                unstarted -= batch.size();
+                startingTasks = tasks;
+                Task<List<?>> parallel = Tasks.parallel("starting "+tasks.size()+" node"+Strings.s(tasks.size())+" (parallel)", tasks.values());
+                TaskTags.markInessential(parallel);
+                DynamicTasks.queueIfPossible(parallel).orSubmitAsync(this);
             }
+            errors.putAll(waitForStartingBatch(startingTasks));
+            startingTasks = ImmutableMap.of();
+        } finally {
+            adjustGrowProgress(-unstarted, -startingTasks.size());
         }
 
-        Task<List<?>> parallel = Tasks.parallel("starting "+tasks.size()+" node"+Strings.s(tasks.size())+" (parallel)", tasks.values());
-        TaskTags.markInessential(parallel);
-        DynamicTasks.queueIfPossible(parallel).orSubmitAsync(this);
-        Map<Entity, Throwable> errors = waitForTasksOnEntityStart(tasks);
-
         // if tracking, then report success/fail to the ZoneFailureDetector
         if (isAvailabilityZoneEnabled()) {
             for (Map.Entry<Entity, Location> entry : addedEntityLocations.entrySet()) {
@@ -933,6 +968,11 @@ public class DynamicClusterImpl extends AbstractGroupImpl implements DynamicClus
             .removeAll(errors.keySet())
             .build();
 
+        if (errors.isEmpty()) {
+            Integer failed = getAttribute(GROW_FAILED);
+            if (failed != null && failed != 0) sensors().set(GROW_FAILED, 0);
+        }
+
         // quarantine/cleanup as necessary
         if (!errors.isEmpty()) {
             if (isQuarantineEnabled()) {
@@ -946,6 +986,96 @@ public class DynamicClusterImpl extends AbstractGroupImpl implements DynamicClus
         return ReferenceWithError.newInstanceWithoutError(result);
     }
 
+    private Map<Entity, Throwable> waitForStartingBatch(Map<Entity, Task<?>> tasks) {
+        if (tasks.isEmpty()) return ImmutableMap.of();
+        Map<Entity, Throwable> errors = waitForTasksOnEntityStart(tasks);
+        adjustGrowProgress(0, -tasks.size());
+        if (!errors.isEmpty()) {
+            final int failed = errors.size();
+            sensors().modify(GROW_FAILED, new Function<Integer, Maybe<Integer>>() {
+                @Override public Maybe<Integer> apply(Integer input) {
+                    return Maybe.of((input == null ? 0 : input) + failed);
+                }
+            });
+        }
+        return errors;
+    }
+
+    private void adjustGrowProgress(int queuedDelta, int startingDelta) {
+        if (queuedDelta == 0 && startingDelta == 0) return;
+        synchronized (growProgress) {
+            growProgress[0] += queuedDelta;
+            growProgress[1] += startingDelta;
+            sensors().set(GROW_QUEUED, growProgress[0]);
+            sensors().set(GROW_STARTING, growProgress[1]);
+        }
+    }
+
+    /**
+     * Returns the given start task preceded by waiting for the {@link #MAX_START_RATE_PER_LOCATION} rate limit
+     * of its location, if there is one.
+     */
+    private Task<?> newRateLimitedTask(@Nullable Location loc, Entity target, Task<?> startTask) {
+        Double rate = config().get(MAX_START_RATE_PER_LOCATION);
+        if (rate == null || rate <= 0) return startTask;
+        RateLimiter limiter;
+        synchronized (startRateLimiters) {
+            pruneStartRateLimiters();
+            limiter = startRateLimiters.get(loc);
+            if (limiter == null || limiter.getRate() != rate) {
+                limiter = RateLimiter.create(rate);
+                startRateLimiters.put(loc, limiter);
+            }
+        }
+        final RateLimiter finalLimiter = limiter;
+        final String description = "Waiting for start rate limit in " + (loc == null ? "member location" : loc) + " to start " + target;
+        Task<?> waitForRate = Tasks.builder()
+                .displayName("Waiting for start rate limit")
+                .description(description)
+                .body(new Runnable() {
+                    @Override public void run() {
+                        String oldDetails = Tasks.setBlockingDetails(description);
+                        try {
+                            finalLimiter.acquire();
+                        } finally {
+                            Tasks.setBlockingDetails(oldDetails);
+                        }
+                    }
+                })
+                .build();
+        return Tasks.sequential("Waiting for start rate limit then starting " + target, waitForRate, startTask);
+    }
+
+    /** Drops the start rate limiters for locations which are unmanaged or in which there are no longer any members. */
+    private void pruneStartRateLimiters() {
+        synchronized (startRateLimiters) {
+            if (startRateLimiters.isEmpty()) return;
+            Set<Location> memberLocations = MutableSet.of();
+            boolean hasMembers = false;
+            for (Entity member : getMembers()) {
+                hasMembers = true;
+                for (Location loc : member.getLocations()) {
+                    for (Location ancestor = loc; ancestor != null; ancestor = ancestor.getParent()) {
+                        memberLocations.add(ancestor);
+                    }
+                }
+            }
+            for (Iterator<Location> iter = startRateLimiters.keySet().iterator(); iter.hasNext();) {
+                Location loc = iter.next();
+                // null is used for members whose location comes from the member spec
+                boolean inUse = (loc == null) ? hasMembers : (Locations.isManaged(loc) && memberLocations.contains(loc));
+                if (!inUse) iter.remove();
+            }
+        }
+    }
+
+    @Override
+    public boolean removeMember(Entity member) {
+        boolean changed = super.removeMember(member);
+        if (changed) pruneStartRateLimiters();
+        return changed;
+    }
+
     protected void quarantineFailedNodes(Map<Entity, Throwable> failedEntities) {
         for (Map.Entry<Entity, Throwable> entry : failedEntities.entrySet()) {
             Entity entity = entry.getKey();
@@ -1121,6 +1251,13 @@ public class DynamicClusterImpl extends AbstractGroupImpl implements DynamicClus
         return childTaskSemaphore;
     }
 
+    /** the locations for which there is currently a {@link #MAX_START_RATE_PER_LOCATION} rate limiter */
+    protected Set<Location> getStartRateLimitedLocations() {
+        synchronized (startRateLimiters) {
+            return MutableSet.copyOf(startRateLimiters.keySet());
+        }
+    }
+
     /**
      * @return An unprivileged effector task.
      * @see #newThrottledEffectorTask(Entity, Effector, Map, boolean)
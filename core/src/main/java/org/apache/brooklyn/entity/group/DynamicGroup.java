@@ -32,13 +32,21 @@ import org.apache.brooklyn.core.effector.MethodEffector;
 import org.apache.brooklyn.core.entity.trait.Startable;
 import org.apache.brooklyn.core.sensor.Sensors;
 import org.apache.brooklyn.util.core.flags.SetFromFlag;
+import org.apache.brooklyn.util.time.Duration;
 
+import com.google.common.annotations.Beta;
 import com.google.common.base.Predicate;
 import com.google.common.reflect.TypeToken;
 
 @ImplementedBy(DynamicGroupImpl.class)
 public interface DynamicGroup extends AbstractGroup {
 
+    /**
+     * The filter for members. If it is an {@link org.apache.brooklyn.core.entity.IndexableEntityPredicate}
+     * then membership is maintained from events for the dimensions it declares, and rescans only test
+     * the children of its declared parent (if any); other filters are opaque, and rescans test every
+     * entity in the application.
+     */
     @SuppressWarnings("serial")
     @SetFromFlag("entityFilter")
     ConfigKey<Predicate<? super Entity>> ENTITY_FILTER = ConfigKeys.newConfigKey(
@@ -46,9 +54,33 @@ public interface DynamicGroup extends AbstractGroup {
             "dynamicgroup.entityfilter", 
             "Filter for entities which will automatically be in the group");
 
+    @Beta
+    ConfigKey<Boolean> RESCAN_ON_REBIND = ConfigKeys.newBooleanConfigKey(
+            "dynamicgroup.rescanOnRebind",
+            "[Beta] Whether to rescan all entities when management of a group which has already scanned is taken over "
+            + "(e.g. on rebind or failover), for a filter whose membership is maintained from events (see ENTITY_FILTER). "
+            + "By default the membership as rebound is kept; groups with other filters are always rescanned",
+            false);
+
     AttributeSensor<Boolean> RUNNING = Sensors.newBooleanSensor(
             "dynamicgroup.running", "Whether the entity is running, and will automatically update group membership");
 
+    @Beta
+    AttributeSensor<Long> RESCAN_COUNT = Sensors.newLongSensor(
+            "dynamicgroup.rescan.count", "Number of times the entities have been rescanned to determine membership");
+
+    @Beta
+    AttributeSensor<Duration> RESCAN_DURATION = Sensors.newSensor(Duration.class,
+            "dynamicgroup.rescan.duration", "Time taken by the most recent rescan");
+
+    @Beta
+    AttributeSensor<Duration> RESCAN_TOTAL_DURATION = Sensors.newSensor(Duration.class,
+            "dynamicgroup.rescan.duration.total", "Total time taken by rescans");
+
+    @Beta
+    AttributeSensor<Integer> RESCAN_ENTITIES_SCANNED = Sensors.newIntegerSensor(
+            "dynamicgroup.rescan.scanned", "Number of entities tested against the filter by the most recent rescan");
+
     MethodEffector<Void> RESCAN_EFFECTOR = new MethodEffector<Void>(DynamicGroup.class, "rescanEntities");
 
     /**
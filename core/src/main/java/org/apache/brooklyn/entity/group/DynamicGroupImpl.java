@@ -19,26 +19,39 @@
 package org.apache.brooklyn.entity.group;
 
 import java.util.Collection;
+import java.util.List;
+
+import javax.annotation.Nullable;
 
 import org.apache.brooklyn.api.entity.Entity;
+import org.apache.brooklyn.api.mgmt.SubscriptionHandle;
 import org.apache.brooklyn.api.mgmt.Task;
+import org.apache.brooklyn.api.sensor.AttributeSensor;
 import org.apache.brooklyn.api.sensor.Sensor;
 import org.apache.brooklyn.api.sensor.SensorEvent;
 import org.apache.brooklyn.api.sensor.SensorEventListener;
 import org.apache.brooklyn.core.BrooklynLogging;
 import org.apache.brooklyn.core.BrooklynLogging.LoggingLevel;
+import org.apache.brooklyn.core.entity.AbstractEntity;
 import org.apache.brooklyn.core.entity.Entities;
 import org.apache.brooklyn.core.entity.EntityPredicates;
+import org.apache.brooklyn.core.entity.IndexableEntityPredicate;
 import org.apache.brooklyn.core.mgmt.internal.CollectionChangeListener;
 import org.apache.brooklyn.core.mgmt.internal.ManagementContextInternal;
+import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.core.task.Tasks;
 import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Objects;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 
 public class DynamicGroupImpl extends AbstractGroupImpl implements DynamicGroup {
@@ -49,6 +62,16 @@ public class DynamicGroupImpl extends AbstractGroupImpl implements DynamicGroup
 
     private volatile MyEntitySetChangeListener setChangeListener = null;
 
+    /** subscriptions for the dimensions declared by an {@link IndexableEntityPredicate} filter */
+    private volatile List<SubscriptionHandle> filterSubscriptions = ImmutableList.of();
+
+    private final SensorEventListener<Object> filterSensorListener = new SensorEventListener<Object>() {
+        @Override
+        public void onEvent(SensorEvent<Object> event) {
+            onEntityChanged(event.getSource());
+        }
+    };
+
     @Override
     public void init() {
         super.init();
@@ -59,6 +82,7 @@ public class DynamicGroupImpl extends AbstractGroupImpl implements DynamicGroup
     public void setEntityFilter(Predicate<? super Entity> filter) {
         // TODO Sould this be "evenIfOwned"?
         setConfigEvenIfOwned(ENTITY_FILTER, filter);
+        if (setChangeListener != null) subscribeToFilterDimensions();
         rescanEntities();
     }
 
@@ -82,6 +106,16 @@ public class DynamicGroupImpl extends AbstractGroupImpl implements DynamicGroup
                 entityFilter);
     }
 
+    /**
+     * @return
+     *      The filter configured in {@link #ENTITY_FILTER}, if it is an {@link IndexableEntityPredicate}; otherwise null.
+     */
+    @Nullable
+    protected IndexableEntityPredicate getIndexableEntityFilter() {
+        Predicate<? super Entity> entityFilter = getConfig(ENTITY_FILTER);
+        return (entityFilter instanceof IndexableEntityPredicate) ? (IndexableEntityPredicate) entityFilter : null;
+    }
+
     private boolean isRunning() {
         return Boolean.TRUE.equals(getAttribute(RUNNING));
     }
@@ -92,6 +126,7 @@ public class DynamicGroupImpl extends AbstractGroupImpl implements DynamicGroup
         if (setChangeListener != null) {
             ((ManagementContextInternal) getManagementContext()).removeEntitySetListener(setChangeListener);
         }
+        unsubscribeFromFilterDimensions();
     }
 
     @Override
@@ -144,6 +179,60 @@ public class DynamicGroupImpl extends AbstractGroupImpl implements DynamicGroup
         }
     }
 
+    /**
+     * Subscribes to changes in the parent and sensors declared by an {@link IndexableEntityPredicate} filter,
+     * replacing any previous such subscriptions, so membership is updated as they change without rescanning.
+     * Without a parent, each sensor is subscribed to once for all entities, with events from other applications
+     * filtered out before they are delivered.
+     * Changes in entity type and tags are not subscribed to; they are taken as fixed once the entity is managed.
+     */
+    protected void subscribeToFilterDimensions() {
+        synchronized (memberChangeMutex) {
+            unsubscribeFromFilterDimensions();
+            IndexableEntityPredicate filter = getIndexableEntityFilter();
+            if (filter == null) return;
+
+            List<SubscriptionHandle> handles = Lists.newArrayList();
+            final Entity parent = filter.getParent();
+            if (parent != null) {
+                SensorEventListener<Entity> childListener = new SensorEventListener<Entity>() {
+                    @Override
+                    public void onEvent(SensorEvent<Entity> event) {
+                        Entity child = event.getValue();
+                        // unmanaged children are added when they are managed, by the entity-set listener
+                        if (child != null && (hasMember(child) || Entities.isManaged(child))) onEntityChanged(child);
+                    }
+                };
+                handles.add(subscriptions().subscribe(parent, AbstractEntity.CHILD_ADDED, childListener));
+                handles.add(subscriptions().subscribe(parent, AbstractEntity.CHILD_REMOVED, childListener));
+            }
+            if (parent != null) {
+                for (AttributeSensor<?> sensor : filter.getSensors()) {
+                    handles.add(subscriptions().subscribeToChildren(parent, sensor, filterSensorListener));
+                }
+            } else {
+                Predicate<SensorEvent<?>> inApplication = new Predicate<SensorEvent<?>>() {
+                    @Override
+                    public boolean apply(SensorEvent<?> input) {
+                        return input.getSource() != null && Objects.equal(input.getSource().getApplicationId(), getApplicationId());
+                    }
+                };
+                for (AttributeSensor<?> sensor : filter.getSensors()) {
+                    handles.add(subscriptions().subscribe(MutableMap.<String, Object>of("eventFilter", inApplication), 
+                            null, sensor, filterSensorListener));
+                }
+            }
+            filterSubscriptions = handles;
+        }
+    }
+
+    protected void unsubscribeFromFilterDimensions() {
+        for (SubscriptionHandle handle : filterSubscriptions) {
+            subscriptions().unsubscribe(handle);
+        }
+        filterSubscriptions = ImmutableList.of();
+    }
+
     private class MyEntitySetChangeListener implements CollectionChangeListener<Entity> {
         @Override
         public void onItemAdded(Entity item) { onEntityAdded(item); }
@@ -159,6 +248,13 @@ public class DynamicGroupImpl extends AbstractGroupImpl implements DynamicGroup
         }
         setChangeListener = new MyEntitySetChangeListener();
         ((ManagementContextInternal) getManagementContext()).addEntitySetListener(setChangeListener);
+        subscribeToFilterDimensions();
+        if (getAttribute(RESCAN_COUNT) != null && getIndexableEntityFilter() != null && !Boolean.TRUE.equals(config().get(RESCAN_ON_REBIND))) {
+            // membership was maintained from events by the previous master, so is consistent with the entities as persisted;
+            // entities managed from now on are tested as they are added
+            if (log.isDebugEnabled()) log.debug("{} not rescanning on becoming master: keeping members as rebound, {}", this, getMembers());
+            return;
+        }
         Task<Object> rescan = Tasks.builder().displayName("rescan entities").body(
             new Runnable() {
                 @Override
@@ -183,6 +279,20 @@ public class DynamicGroupImpl extends AbstractGroupImpl implements DynamicGroup
         }
         ((ManagementContextInternal) getManagementContext()).removeEntitySetListener(setChangeListener);
         setChangeListener = null;
+        unsubscribeFromFilterDimensions();
+    }
+
+    /**
+     * @return
+     *      The entities a rescan tests against the filter: the children of the parent declared by an
+     *      {@link IndexableEntityPredicate} filter which are in this application, otherwise all entities in the application.
+     */
+    protected Iterable<Entity> getRescanCandidates() {
+        IndexableEntityPredicate filter = getIndexableEntityFilter();
+        if (filter != null && filter.getParent() != null) {
+            return Iterables.filter(filter.getParent().getChildren(), EntityPredicates.applicationIdEqualTo(getApplicationId()));
+        }
+        return Entities.descendantsAndSelf(getApplication());
     }
 
     @Override
@@ -197,13 +307,18 @@ public class DynamicGroupImpl extends AbstractGroupImpl implements DynamicGroup
                     "{} not (yet) scanning for children: no application defined", this);
                 return;
             }
+            Stopwatch stopwatch = Stopwatch.createStarted();
             boolean changed = false;
+            int scanned = 0;
             Collection<Entity> currentMembers = getMembers();
             Collection<Entity> toRemove = Sets.newLinkedHashSet(currentMembers);
 
-            final Iterable<Entity> unfiltered = Entities.descendantsAndSelf(getApplication());
-            log.debug("{} filtering {} with {}", new Object[]{this, unfiltered, entityFilter()});
-            for (Entity it : Iterables.filter(unfiltered, entityFilter())) {
+            final Iterable<Entity> unfiltered = getRescanCandidates();
+            final Predicate<? super Entity> filter = entityFilter();
+            log.debug("{} filtering {} with {}", new Object[]{this, unfiltered, filter});
+            for (Entity it : unfiltered) {
+                scanned++;
+                if (!filter.apply(it)) continue;
                 toRemove.remove(it);
                 if (!currentMembers.contains(it)) {
                     if (log.isDebugEnabled()) log.debug("{} rescan detected new item {}", this, it);
@@ -218,7 +333,18 @@ public class DynamicGroupImpl extends AbstractGroupImpl implements DynamicGroup
             }
             if (changed && log.isDebugEnabled())
                 log.debug("{} rescan complete, members now {}", this, getMembers());
+            recordRescan(Duration.of(stopwatch), scanned);
         }
     }
 
+    private void recordRescan(Duration duration, int scanned) {
+        Long count = getAttribute(RESCAN_COUNT);
+        Duration total = getAttribute(RESCAN_TOTAL_DURATION);
+        sensors().set(RESCAN_COUNT, (count != null ? count : 0) + 1);
+        sensors().set(RESCAN_DURATION, duration);
+        sensors().set(RESCAN_TOTAL_DURATION, (total != null) ? total.add(duration) : duration);
+        sensors().set(RESCAN_ENTITIES_SCANNED, scanned);
+        if (log.isTraceEnabled()) log.trace("{} rescanned {} entities in {}", new Object[] {this, scanned, duration});
+    }
+
 }
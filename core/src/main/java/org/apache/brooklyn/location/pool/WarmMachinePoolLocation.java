@@ -0,0 +1,433 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.location.pool;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import org.apache.brooklyn.api.location.LocationSpec;
+import org.apache.brooklyn.api.location.MachineLocation;
+import org.apache.brooklyn.api.location.MachineProvisioningLocation;
+import org.apache.brooklyn.api.location.NoMachinesAvailableException;
+import org.apache.brooklyn.config.ConfigKey;
+import org.apache.brooklyn.core.config.ConfigKeys;
+import org.apache.brooklyn.core.location.AbstractLocation;
+import org.apache.brooklyn.core.location.LocationConfigKeys;
+import org.apache.brooklyn.location.ssh.SshMachineLocation;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.core.task.Tasks;
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.text.Strings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Queues;
+import com.google.common.reflect.TypeToken;
+
+/**
+ * A location which keeps a number of machines from another (target) location provisioned and ready to use,
+ * so that {@link #obtain(Map)} can return one immediately rather than waiting for the target to create it.
+ * <p>
+ * Machines are pooled per template, i.e. per distinct set of flags passed to {@link #obtain(Map)} (ignoring the
+ * {@link LocationConfigKeys#CALLER_CONTEXT}). The pool for a template is created when a machine is first requested
+ * with those flags, or up front for each of the {@link #POOL_TEMPLATES}, and is replenished in the background
+ * whenever a machine is taken from it. If the pool is empty, the machine is obtained directly from the target.
+ * <p>
+ * On {@link #release(MachineLocation)}, if a {@link #RESET_SCRIPT} is configured and the pool for the machine's
+ * template is not full, the script is run on the machine and (if it succeeds) the machine is returned to the pool;
+ * otherwise the machine is released to the target.
+ * <p>
+ * The idle machines are persisted, but not their templates: on rebind they are released to the target,
+ * and the pools are refilled as machines are requested.
+ */
+@Beta
+public class WarmMachinePoolLocation<T extends MachineLocation> extends AbstractLocation implements MachineProvisioningLocation<T> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(WarmMachinePoolLocation.class);
+
+    @SuppressWarnings("serial")
+    public static final ConfigKey<MachineProvisioningLocation<?>> TARGET = ConfigKeys.newConfigKey(
+            new TypeToken<MachineProvisioningLocation<?>>() {},
+            "target",
+            "The location to obtain the pooled machines from");
+
+    /**
+     * Allows the target to be created on init, like {@link org.apache.brooklyn.location.multi.MultiLocation#SUB_LOCATION_SPECS}.
+     * It is cleared in init, so will never be persisted.
+     */
+    @SuppressWarnings("serial")
+    public static final ConfigKey<LocationSpec<?>> TARGET_SPEC = ConfigKeys.newConfigKey(
+            new TypeToken<LocationSpec<?>>() {},
+            "targetSpec",
+            "Spec of the location to obtain the pooled machines from, which is instantiated on init");
+
+    public static final ConfigKey<Integer> POOL_SIZE = ConfigKeys.newIntegerConfigKey(
+            "pool.size",
+            "Number of ready-to-use machines to keep for each template",
+            1);
+
+    @SuppressWarnings("serial")
+    public static final ConfigKey<List<Map<String, Object>>> POOL_TEMPLATES = ConfigKeys.newConfigKey(
+            new TypeToken<List<Map<String, Object>>>() {},
+            "pool.templates",
+            "Flags of the templates for which to fill the pool on init (rather than when a machine is first requested); "
+                    + "an empty map is the template for machines requested without flags",
+            ImmutableList.<Map<String, Object>>of());
+
+    public static final ConfigKey<String> RESET_SCRIPT = ConfigKeys.newStringConfigKey(
+            "pool.resetScript",
+            "Script run on a released ssh machine to reset it, before returning it to the pool; "
+                    + "if not set (or if the script fails), released machines are released to the target");
+
+    @SuppressWarnings("serial")
+    public static final ConfigKey<List<MachineLocation>> IDLE_MACHINES = ConfigKeys.newConfigKey(
+            new TypeToken<List<MachineLocation>>() {},
+            "pool.idleMachines",
+            "The machines currently in the pool (for internal use, so that they are released after rebind)");
+
+    private static class Pool {
+        final Map<Object, Object> flags;
+        final Deque<MachineLocation> available = Queues.newArrayDeque();
+        /** machines being obtained from the target, or reset, for this pool */
+        int pending;
+
+        Pool(Map<Object, Object> flags) {
+            this.flags = flags;
+        }
+    }
+
+    /** guarded by itself, as are the pools and {@link #inUse} */
+    private final Map<Map<Object, Object>, Pool> pools = Maps.newLinkedHashMap();
+    private final Map<MachineLocation, Pool> inUse = Maps.newLinkedHashMap();
+    /** set once drained or unmanaged, after which machines are no longer pooled; guarded by {@link #pools} */
+    private boolean closed;
+
+    @Override
+    public void init() {
+        super.init();
+
+        LocationSpec<?> targetSpec = getConfig(TARGET_SPEC);
+        if (targetSpec != null) {
+            checkState(getConfig(TARGET) == null, "must not set both target and targetSpec");
+            if (targetSpec.getParent() == null) {
+                // use a copy with us set as parent
+                targetSpec = LocationSpec.create(targetSpec).parent(this);
+            }
+            MachineProvisioningLocation<?> target = (MachineProvisioningLocation<?>) getManagementContext().getLocationManager().createLocation(targetSpec);
+            config().set(TARGET, target);
+            config().set(TARGET_SPEC, (LocationSpec<?>) null);
+        }
+        checkNotNull(getConfig(TARGET), "target");
+
+        for (Map<String, Object> templateFlags : getConfig(POOL_TEMPLATES)) {
+            replenish(getPool(templateFlags));
+        }
+    }
+
+    @Override
+    public void rebind() {
+        super.rebind();
+
+        final List<MachineLocation> idle = getConfig(IDLE_MACHINES);
+        if (idle != null && !idle.isEmpty()) {
+            LOG.info("Releasing {} idle machine(s) of pool {} after rebind", idle.size(), this);
+            config().set(IDLE_MACHINES, (List<MachineLocation>) null);
+            // in the background, as the target may not yet be rebound
+            getManagementContext().getServerExecutionContext().submit(Tasks.<Void>builder()
+                    .displayName("Releasing idle machines of pool "+this)
+                    .body(new Callable<Void>() {
+                        @Override
+                        public Void call() {
+                            for (MachineLocation machine : idle) {
+                                releaseToTarget(machine);
+                            }
+                            return null;
+                        }
+                    })
+                    .build());
+        }
+    }
+
+    @Override
+    public void onManagementStopped() {
+        boolean running = getManagementContext().isRunning();
+        super.onManagementStopped();
+        // when unmanaged explicitly (rather than on shutdown), don't leave the idle machines running;
+        // on shutdown they are kept, to be released on rebind, but machines still being obtained are released
+        if (running) {
+            drain();
+        } else {
+            synchronized (pools) {
+                closed = true;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public MachineProvisioningLocation<T> getTarget() {
+        return (MachineProvisioningLocation<T>) checkNotNull(getConfig(TARGET), "target");
+    }
+
+    public T obtain() throws NoMachinesAvailableException {
+        return obtain(MutableMap.of());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public T obtain(Map<?, ?> flags) throws NoMachinesAvailableException {
+        Pool pool = getPool(flags);
+        MachineLocation machine;
+        synchronized (pools) {
+            machine = pool.available.poll();
+            if (machine != null) {
+                inUse.put(machine, pool);
+                persistIdleMachines();
+            }
+        }
+        replenish(pool);
+
+        if (machine != null) {
+            LOG.debug("Obtained pooled machine {} from {}", machine, this);
+            return (T) machine;
+        }
+        LOG.debug("No pooled machine available in {}; obtaining from target {}", this, getTarget());
+        machine = getTarget().obtain(flags);
+        synchronized (pools) {
+            inUse.put(machine, pool);
+        }
+        return (T) machine;
+    }
+
+    @Override
+    public void release(T machine) {
+        final Pool pool;
+        boolean recycle;
+        synchronized (pools) {
+            pool = inUse.remove(machine);
+            recycle = (pool != null && canRecycle(pool, machine));
+            // counts towards the pool while being reset
+            if (recycle) pool.pending++;
+        }
+        if (!recycle) {
+            releaseToTarget(machine);
+            return;
+        }
+
+        final SshMachineLocation sshMachine = (SshMachineLocation) machine;
+        getManagementContext().getServerExecutionContext().submit(Tasks.<Void>builder()
+                .displayName("Resetting machine "+machine+" for pool "+this)
+                .body(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        recycle(pool, sshMachine);
+                        return null;
+                    }
+                })
+                .build());
+    }
+
+    /**
+     * Releases all the idle machines to the target, and stops pooling: machines are subsequently obtained from
+     * and released to the target directly, including any that were still being obtained or reset for the pool.
+     */
+    public void drain() {
+        List<MachineLocation> idle = MutableList.of();
+        synchronized (pools) {
+            closed = true;
+            for (Pool pool : pools.values()) {
+                idle.addAll(pool.available);
+                pool.available.clear();
+            }
+            persistIdleMachines();
+        }
+        for (MachineLocation machine : idle) {
+            releaseToTarget(machine);
+        }
+    }
+
+    /** The number of idle machines in the pool for the given template flags. */
+    public int getAvailableCount(Map<?, ?> flags) {
+        synchronized (pools) {
+            Pool pool = pools.get(templateKey(flags));
+            return (pool != null) ? pool.available.size() : 0;
+        }
+    }
+
+    /** The number of machines being obtained (or reset) for the pool for the given template flags. */
+    @VisibleForTesting
+    int getPendingCount(Map<?, ?> flags) {
+        synchronized (pools) {
+            Pool pool = pools.get(templateKey(flags));
+            return (pool != null) ? pool.pending : 0;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public MachineProvisioningLocation<T> newSubLocation(Map<?, ?> newFlags) {
+        // the sub-location fills its pools on demand, rather than pre-provisioning another set for the templates
+        return getManagementContext().getLocationManager().createLocation(LocationSpec.create(getClass())
+                .parent(this)
+                .configure(config().getLocalBag().getAllConfig())
+                .configure(IDLE_MACHINES, (List<MachineLocation>) null)
+                .configure(POOL_TEMPLATES, ImmutableList.<Map<String, Object>>of())
+                .configure(newFlags));
+    }
+
+    @Override
+    public Map<String, Object> getProvisioningFlags(Collection<String> tags) {
+        return getTarget().getProvisioningFlags(tags);
+    }
+
+    private Pool getPool(Map<?, ?> flags) {
+        Map<Object, Object> key = templateKey(flags);
+        synchronized (pools) {
+            Pool pool = pools.get(key);
+            if (pool == null) {
+                pool = new Pool(key);
+                pools.put(key, pool);
+            }
+            return pool;
+        }
+    }
+
+    /** Starts obtaining as many machines from the target as the pool is short of. */
+    private void replenish(final Pool pool) {
+        int shortfall;
+        synchronized (pools) {
+            if (closed) return;
+            shortfall = getConfig(POOL_SIZE) - pool.available.size() - pool.pending;
+            if (shortfall <= 0) return;
+            pool.pending += shortfall;
+        }
+        for (int i = 0; i < shortfall; i++) {
+            getManagementContext().getServerExecutionContext().submit(Tasks.<Void>builder()
+                    .displayName("Obtaining machine for pool "+this)
+                    .body(new Callable<Void>() {
+                        @Override
+                        public Void call() {
+                            addToPool(pool);
+                            return null;
+                        }
+                    })
+                    .build());
+        }
+    }
+
+    private void addToPool(Pool pool) {
+        MachineLocation machine = null;
+        boolean pooled = false;
+        try {
+            machine = getTarget().obtain(pool.flags);
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            // not retried here, to avoid repeatedly failing; the pool is replenished again when next used
+            LOG.warn("Failed to obtain machine for pool "+this+" (continuing): "+Exceptions.collapseText(e));
+        } finally {
+            synchronized (pools) {
+                pool.pending--;
+                if (machine != null && !closed) {
+                    pool.available.add(machine);
+                    persistIdleMachines();
+                    pooled = true;
+                }
+            }
+        }
+        if (pooled) {
+            LOG.debug("Added machine {} to pool {}", machine, this);
+        } else if (machine != null) {
+            LOG.debug("Pool {} closed while obtaining machine {}; releasing it", this, machine);
+            releaseToTarget(machine);
+        }
+    }
+
+    /** must be called when synchronized on {@link #pools} */
+    private boolean canRecycle(Pool pool, MachineLocation machine) {
+        return !closed && Strings.isNonBlank(getConfig(RESET_SCRIPT)) && machine instanceof SshMachineLocation
+                && pool.available.size() + pool.pending < getConfig(POOL_SIZE);
+    }
+
+    private void recycle(Pool pool, SshMachineLocation machine) {
+        boolean reset = false;
+        try {
+            int result = machine.execScript("Resetting machine for pool", ImmutableList.of(getConfig(RESET_SCRIPT)));
+            reset = (result == 0);
+            if (!reset) {
+                LOG.warn("Reset script failed with exit code "+result+" on "+machine+"; releasing it rather than returning it to pool "+this);
+            }
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            LOG.warn("Failed to reset "+machine+"; releasing it rather than returning it to pool "+this+": "+Exceptions.collapseText(e));
+        }
+        synchronized (pools) {
+            pool.pending--;
+            if (reset && closed) {
+                LOG.debug("Pool {} closed while resetting machine {}; releasing it", this, machine);
+                reset = false;
+            }
+            if (reset) {
+                pool.available.add(machine);
+                persistIdleMachines();
+            }
+        }
+        if (reset) {
+            LOG.debug("Returned machine {} to pool {}", machine, this);
+        } else {
+            releaseToTarget(machine);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void releaseToTarget(MachineLocation machine) {
+        try {
+            getTarget().release((T) machine);
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            LOG.warn("Failed to release "+machine+" from pool "+this+" (continuing): "+Exceptions.collapseText(e));
+        }
+    }
+
+    /** must be called when synchronized on {@link #pools} */
+    private void persistIdleMachines() {
+        List<MachineLocation> idle = MutableList.of();
+        for (Pool pool : pools.values()) {
+            idle.addAll(pool.available);
+        }
+        config().set(IDLE_MACHINES, idle);
+    }
+
+    private static Map<Object, Object> templateKey(Map<?, ?> flags) {
+        Map<Object, Object> result = MutableMap.copyOf(flags);
+        ConfigKey<?> callerContext = LocationConfigKeys.CALLER_CONTEXT;
+        result.remove(callerContext);
+        result.remove(callerContext.getName());
+        return result;
+    }
+}
@@ -35,6 +35,7 @@ import org.apache.brooklyn.core.catalog.internal.BasicBrooklynCatalog;
 import org.apache.brooklyn.core.catalog.internal.CatalogUtils;
 import org.apache.brooklyn.core.entity.EntityInternal;
 import org.apache.brooklyn.core.mgmt.classloading.BrooklynClassLoadingContextSequential;
+import org.apache.brooklyn.core.mgmt.ha.BundleClassLookupCache;
 import org.apache.brooklyn.core.mgmt.ha.OsgiManager;
 import org.apache.brooklyn.core.mgmt.internal.ManagementContextInternal;
 import org.apache.brooklyn.core.typereg.BundleUpgradeParser.CatalogUpgrades;
@@ -59,6 +60,7 @@ import com.google.common.base.Joiner;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Objects;
 import com.google.common.base.Predicate;
+import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableList;
 
 public class ClassLoaderUtils {
@@ -343,7 +345,7 @@ public class ClassLoaderUtils {
                         + " not found to load " + name);
                 }
             }
-            return dispatcher.tryLoadFrom(bundle.get(), name);
+            return tryLoadFrom(dispatcher, bundle.get(), name);
         } else {
             Maybe<T> result = dispatcher.tryLoadFrom(classLoader, name);
             if (result.isAbsent()) {
@@ -367,6 +369,31 @@ public class ClassLoaderUtils {
         return p.apply(bundle);
     }
 
+    /** Loads from the bundle, remembering the result in the OSGi manager's class lookup cache if loading classes */
+    @SuppressWarnings("unchecked")
+    private <T> Maybe<T> tryLoadFrom(LoaderDispatcher<T> dispatcher, Bundle bundle, String className) {
+        BundleClassLookupCache cache = getClassLookupCache();
+        if (cache != null && dispatcher == ClassLoaderDispatcher.INSTANCE) {
+            try {
+                return (Maybe<T>) Maybe.<Class<?>>of(cache.loadClass(bundle, className));
+            } catch (ClassNotFoundException | NoClassDefFoundError e) {
+                return Maybe.absent("Failed to load class " + className + " from bundle " + bundle, e);
+            }
+        }
+        return dispatcher.tryLoadFrom(bundle, className);
+    }
+
+    @Nullable
+    private BundleClassLookupCache getClassLookupCache() {
+        if (mgmt != null) {
+            Maybe<OsgiManager> osgiManager = ((ManagementContextInternal)mgmt).getOsgiManager();
+            if (osgiManager.isPresent()) {
+                return osgiManager.get().getClassLookupCache();
+            }
+        }
+        return null;
+    }
+
     private Framework getFramework() {
         if (mgmt != null) {
             Maybe<OsgiManager> osgiManager = ((ManagementContextInternal)mgmt).getOsgiManager();
@@ -408,15 +435,23 @@ public class ClassLoaderUtils {
         }
     }
 
+    @SuppressWarnings("unchecked")
     protected <T> Maybe<T> tryLoadFromBundleWhiteList(LoaderDispatcher<T> dispatcher, String className) {
-        Framework framework = getFramework();
+        final Framework framework = getFramework();
         if (framework == null) {
             return Maybe.absentNull();
         }
-        List<Bundle> bundles = Osgis.bundleFinder(framework)
-            .satisfying(createBundleMatchingPredicate())
-            .findAll();
-        for (Bundle b : bundles) {
+        BundleClassLookupCache cache = getClassLookupCache();
+        if (cache != null && dispatcher == ClassLoaderDispatcher.INSTANCE) {
+            // the white-listed bundles are only looked up if this class has not been looked up in them since they changed
+            return (Maybe<T>) (Maybe<?>) cache.tryLoadClass(WHITE_LIST_KEY + "=" + getWhiteList(), new Supplier<List<Bundle>>() {
+                @Override
+                public List<Bundle> get() {
+                    return findWhiteListedBundles(framework);
+                }
+            }, className);
+        }
+        for (Bundle b : findWhiteListedBundles(framework)) {
             Maybe<T> item = dispatcher.tryLoadFrom(b, className);
             if (item.isPresent()) {
                 return item;
@@ -425,8 +460,18 @@ public class ClassLoaderUtils {
         return Maybe.absentNull();
     }
 
+    private List<Bundle> findWhiteListedBundles(Framework framework) {
+        return Osgis.bundleFinder(framework)
+            .satisfying(createBundleMatchingPredicate())
+            .findAll();
+    }
+
+    private String getWhiteList() {
+        return System.getProperty(WHITE_LIST_KEY, WHITE_LIST_DEFAULT);
+    }
+
     protected WhiteListBundlePredicate createBundleMatchingPredicate() {
-        String whiteList = System.getProperty(WHITE_LIST_KEY, WHITE_LIST_DEFAULT);
+        String whiteList = getWhiteList();
         String[] arr = whiteList.split(":");
         String symbolicName = arr[0];
         String version = null;
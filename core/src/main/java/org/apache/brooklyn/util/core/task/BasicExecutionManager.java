@@ -359,21 +359,33 @@ public class BasicExecutionManager implements ExecutionManager {
     /** only works with at least one tag; returns empty if no tags */
     @Override
     public Set<Task<?>> getTasksWithAllTags(Iterable<?> tags) {
-        //NB: for this method retrieval for multiple tags could be made (much) more efficient (if/when it is used with multiple tags!)
-        //by first looking for the least-used tag, getting those tasks, and then for each of those tasks
-        //checking whether it contains the other tags (looking for second-least used, then third-least used, etc)
-        Set<Task<?>> result = new LinkedHashSet<Task<?>>();
-        boolean first = true;
-        Iterator<?> ti = tags.iterator();
-        while (ti.hasNext()) {
-            Object tag = ti.next();
-            if (first) { 
-                first = false;
-                result.addAll(getTasksWithTag(tag));
-            } else {
-                result.retainAll(getTasksWithTag(tag));
+        // start from the least-used tag, so we only copy and check the smallest candidate set,
+        // then keep those tasks which also carry all the other tags
+        List<Object> tagList = MutableList.copyOf(tags);
+        if (tagList.isEmpty()) return Collections.emptySet();
+        
+        Object smallestTag = null;
+        Set<Task<?>> smallest = null;
+        for (Object tag: tagList) {
+            Set<Task<?>> tasksForTag = tasksWithTagLiveOrNull(tag);
+            if (tasksForTag==null) return Collections.emptySet();
+            if (smallest==null || tasksForTag.size() < smallest.size()) {
+                smallestTag = tag;
+                smallest = tasksForTag;
             }
         }
+        
+        Set<Task<?>> candidates;
+        synchronized (smallest) {
+            candidates = new LinkedHashSet<Task<?>>(smallest);
+        }
+        tagList.remove(smallestTag);
+        if (tagList.isEmpty()) return Collections.unmodifiableSet(candidates);
+        
+        Set<Task<?>> result = new LinkedHashSet<Task<?>>();
+        for (Task<?> t: candidates) {
+            if (t.getTags().containsAll(tagList)) result.add(t);
+        }
         return Collections.unmodifiableSet(result);
     }
 
@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.catalog.internal;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.Hashtable;
+import java.util.Map;
+
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.osgi.framework.Constants;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+public class BundleDependencyWavesTest {
+
+    @Test
+    public void testParseHeaderIgnoresAttributesAndQuotedCommas() {
+        assertEquals(BundleDependencyWaves.parseHeader("a.b;c.d;version=\"[1.0,2.0)\",e.f;resolution:=optional"),
+                ImmutableSet.of("a.b", "c.d", "e.f"));
+        assertEquals(BundleDependencyWaves.parseHeader(null), ImmutableSet.of());
+    }
+
+    @Test
+    public void testIndependentBundlesInOneWave() {
+        Map<String, Hashtable<String, String>> headers = MutableMap.of(
+                "a", headers("a", null, null, "a.api"),
+                "b", headers("b", null, null, "b.api"));
+
+        assertEquals(BundleDependencyWaves.of(headers), ImmutableList.of(ImmutableList.of("a", "b")));
+    }
+
+    @Test
+    public void testDependentsStartAfterDependencies() {
+        Map<String, Hashtable<String, String>> headers = MutableMap.of(
+                "app", headers("app", "lib", null, null),
+                "lib", headers("lib", null, "api.pkg;version=\"[1,2)\"", null),
+                "api", headers("api", null, null, "api.pkg;version=1.0"),
+                "other", headers("other", null, "javax.foo", null));
+
+        assertEquals(BundleDependencyWaves.of(headers), ImmutableList.of(
+                ImmutableList.of("api", "other"),
+                ImmutableList.of("lib"),
+                ImmutableList.of("app")));
+    }
+
+    @Test
+    public void testCycleInFinalWave() {
+        Map<String, Hashtable<String, String>> headers = MutableMap.of(
+                "a", headers("a", "b", null, null),
+                "b", headers("b", "a;bundle-version=1.0", null, null),
+                "c", headers("c", null, null, null));
+
+        assertEquals(BundleDependencyWaves.of(headers), ImmutableList.of(
+                ImmutableList.of("c"),
+                ImmutableList.of("a", "b")));
+    }
+
+    private static Hashtable<String, String> headers(String name, String requireBundle, String importPackage, String exportPackage) {
+        Hashtable<String, String> result = new Hashtable<>();
+        result.put(Constants.BUNDLE_SYMBOLICNAME, name + ";singleton:=true");
+        if (requireBundle != null) result.put(Constants.REQUIRE_BUNDLE, requireBundle);
+        if (importPackage != null) result.put(Constants.IMPORT_PACKAGE, importPackage);
+        if (exportPackage != null) result.put(Constants.EXPORT_PACKAGE, exportPackage);
+        return result;
+    }
+}
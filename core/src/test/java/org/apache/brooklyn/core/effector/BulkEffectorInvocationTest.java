@@ -0,0 +1,182 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.effector;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.brooklyn.api.effector.Effector;
+import org.apache.brooklyn.api.entity.Entity;
+import org.apache.brooklyn.api.entity.EntitySpec;
+import org.apache.brooklyn.api.mgmt.Task;
+import org.apache.brooklyn.core.entity.EntityInternal;
+import org.apache.brooklyn.core.test.BrooklynAppUnitTestSupport;
+import org.apache.brooklyn.core.test.entity.TestEntity;
+import org.apache.brooklyn.entity.group.BasicGroup;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.core.config.ConfigBag;
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.time.Duration;
+import org.apache.brooklyn.util.time.Time;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Sets;
+
+public class BulkEffectorInvocationTest extends BrooklynAppUnitTestSupport {
+
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger maxRunning = new AtomicInteger();
+    private final List<Entity> invoked = Collections.synchronizedList(MutableList.<Entity>of());
+    private final Set<Entity> failing = Sets.newConcurrentHashSet();
+
+    /** Sleeps briefly, tracking how many are running at once, then returns the entity's display name or fails if told to. */
+    private final Effector<String> tracked = Effectors.effector(String.class, "tracked")
+            .parameter(String.class, "suffix")
+            .impl(new EffectorBody<String>() {
+                @Override
+                public String call(ConfigBag parameters) {
+                    int now = running.incrementAndGet();
+                    maxRunning.accumulateAndGet(now, Math::max);
+                    try {
+                        invoked.add(entity());
+                        Time.sleep(Duration.millis(20));
+                        if (failing.contains(entity())) {
+                            throw new IllegalStateException("Simulated failure on "+entity());
+                        }
+                        return entity().getDisplayName() + parameters.getStringKey("suffix");
+                    } finally {
+                        running.decrementAndGet();
+                    }
+                }
+            })
+            .build();
+
+    private BasicGroup group;
+    private List<Entity> members;
+
+    @BeforeMethod(alwaysRun=true)
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        running.set(0);
+        maxRunning.set(0);
+        invoked.clear();
+        failing.clear();
+        group = app.createAndManageChild(EntitySpec.create(BasicGroup.class));
+        members = MutableList.of();
+        for (int i = 0; i < 12; i++) {
+            TestEntity member = app.createAndManageChild(EntitySpec.create(TestEntity.class).displayName("member-"+i));
+            group.addMember(member);
+            members.add(member);
+        }
+    }
+
+    @Test
+    public void testReturnsResultsInOrderOfEntities() throws Exception {
+        List<Object> results = app.getExecutionContext().submit(BulkEffectorInvocation.of(tracked, ImmutableMap.of("suffix", "!"))
+                .newTask(members)).get();
+        assertEquals(results.size(), members.size());
+        for (int i = 0; i < members.size(); i++) {
+            assertEquals(results.get(i), "member-"+i+"!");
+        }
+        assertEquals(invoked.size(), members.size());
+    }
+
+    @Test
+    public void testLimitsConcurrency() throws Exception {
+        app.getExecutionContext().submit(BulkEffectorInvocation.of(tracked).maxConcurrency(3)
+                .newTask(members)).get();
+        assertEquals(invoked.size(), members.size());
+        assertTrue(maxRunning.get() <= 3, "maxRunning="+maxRunning.get());
+        assertTrue(maxRunning.get() > 1, "maxRunning="+maxRunning.get());
+    }
+
+    @Test
+    public void testRunsBatchesInOrder() throws Exception {
+        app.getExecutionContext().submit(BulkEffectorInvocation.of(tracked).batchSize(5)
+                .pauseBetweenBatches(Duration.millis(10))
+                .newTask(members)).get();
+        assertEquals(invoked.size(), members.size());
+        // each batch completes before the next starts
+        assertEquals(Sets.newHashSet(invoked.subList(0, 5)), Sets.newHashSet(members.subList(0, 5)));
+        assertEquals(Sets.newHashSet(invoked.subList(5, 10)), Sets.newHashSet(members.subList(5, 10)));
+        assertEquals(Sets.newHashSet(invoked.subList(10, 12)), Sets.newHashSet(members.subList(10, 12)));
+    }
+
+    @Test
+    public void testToleratesFailuresUpToThreshold() throws Exception {
+        failing.add(members.get(2));
+        List<Object> results = app.getExecutionContext().submit(BulkEffectorInvocation.of(tracked).maxFailures(1)
+                .newTask(members)).get();
+        assertEquals(invoked.size(), members.size());
+        assertTrue(results.get(2) instanceof Throwable, "result="+results.get(2));
+        assertEquals(results.get(3), "member-3null");
+    }
+
+    @Test
+    public void testStopsWhenFailureThresholdExceeded() throws Exception {
+        failing.add(members.get(0));
+        failing.add(members.get(1));
+        Task<List<Object>> task = app.getExecutionContext().submit(BulkEffectorInvocation.of(tracked)
+                .batchSize(4).maxConcurrency(2).maxFailures(1)
+                .newTask(members));
+        try {
+            task.get();
+            fail("Expected failure, but got "+task.getUnchecked());
+        } catch (Exception e) {
+            IllegalStateException cause = Exceptions.getFirstThrowableOfType(e, IllegalStateException.class);
+            assertTrue(cause != null && cause.getMessage().contains("Simulated failure"), "e="+e);
+        }
+        // the first batch is abandoned once the second failure is seen, and later batches never started
+        assertTrue(invoked.size() <= 4, "invoked="+invoked);
+    }
+
+    @Test
+    public void testUsesEachEntitysOwnEffector() throws Exception {
+        Effector<String> overridden = Effectors.effector(String.class, tracked.getName())
+                .impl(new EffectorBody<String>() {
+                    @Override
+                    public String call(ConfigBag parameters) {
+                        return "overridden-" + entity().getDisplayName();
+                    }
+                })
+                .build();
+        ((EntityInternal) members.get(1)).getMutableEntityType().addEffector(overridden);
+
+        List<Object> results = app.getExecutionContext().submit(BulkEffectorInvocation.of(tracked)
+                .newTask(members.subList(0, 3))).get();
+        assertEquals(results, ImmutableList.of("member-0null", "overridden-member-1", "member-2null"));
+    }
+
+    @Test
+    public void testInvokeOnMembers() throws Exception {
+        List<Object> results = group.invokeOnMembers(BulkEffectorInvocation.of(tracked).maxConcurrency(4)).get();
+        assertEquals(results.size(), members.size());
+        assertEquals(Sets.newHashSet(invoked), Sets.newHashSet(members));
+    }
+}
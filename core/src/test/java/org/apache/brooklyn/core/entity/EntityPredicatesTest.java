@@ -18,7 +18,9 @@
  */
 package org.apache.brooklyn.core.entity;
 
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 
 import org.apache.brooklyn.api.entity.EntitySpec;
@@ -33,7 +35,9 @@ import org.apache.brooklyn.util.text.StringPredicates;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import com.google.common.base.Predicates;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 
 public class EntityPredicatesTest extends BrooklynAppUnitTestSupport {
 
@@ -135,6 +139,44 @@ public class EntityPredicatesTest extends BrooklynAppUnitTestSupport {
         assertFalse(EntityPredicates.isChildOf(entity).apply(app));
     }
 
+    @Test
+    public void testIsInstanceOf() throws Exception {
+        assertTrue(EntityPredicates.isInstanceOf(TestEntity.class).apply(entity));
+        assertFalse(EntityPredicates.isInstanceOf(TestEntity.class).apply(group));
+        assertEquals(((IndexableEntityPredicate) EntityPredicates.isInstanceOf(TestEntity.class)).getEntityType(), TestEntity.class);
+    }
+
+    @Test
+    public void testHasTag() throws Exception {
+        entity.tags().addTag("mytag");
+        assertTrue(EntityPredicates.hasTag("mytag").apply(entity));
+        assertFalse(EntityPredicates.hasTag("mytag").apply(group));
+    }
+
+    @Test
+    public void testAllOfCombinesDimensions() throws Exception {
+        entity.sensors().set(TestEntity.NAME, "myname");
+        IndexableEntityPredicate predicate = (IndexableEntityPredicate) EntityPredicates.allOf(
+                EntityPredicates.isChildOf(app),
+                EntityPredicates.isInstanceOf(TestEntity.class),
+                EntityPredicates.attributeEqualTo(TestEntity.NAME, "myname"),
+                EntityPredicates.isServiceUp());
+        assertFalse(predicate.apply(entity));
+        entity.sensors().set(TestEntity.SERVICE_UP, true);
+        assertTrue(predicate.apply(entity));
+        assertFalse(predicate.apply(group));
+        
+        assertEquals(predicate.getParent(), app);
+        assertEquals(predicate.getEntityType(), TestEntity.class);
+        assertNull(predicate.getTag());
+        assertEquals(predicate.getSensors(), ImmutableSet.of(TestEntity.NAME, TestEntity.SERVICE_UP));
+    }
+
+    @Test(expectedExceptions=IllegalArgumentException.class)
+    public void testAllOfRejectsOpaquePredicate() throws Exception {
+        EntityPredicates.allOf(EntityPredicates.isChildOf(app), Predicates.alwaysTrue());
+    }
+
     @Test
     public void testIsMemberOf() throws Exception {
         group.addMember(entity);
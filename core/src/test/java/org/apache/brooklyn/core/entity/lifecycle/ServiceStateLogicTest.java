@@ -19,8 +19,12 @@
 package org.apache.brooklyn.core.entity.lifecycle;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.brooklyn.api.entity.Entity;
@@ -30,6 +34,7 @@ import org.apache.brooklyn.api.sensor.AttributeSensor;
 import org.apache.brooklyn.api.sensor.Enricher;
 import org.apache.brooklyn.api.sensor.EnricherSpec;
 import org.apache.brooklyn.api.sensor.SensorEvent;
+import org.apache.brooklyn.api.sensor.SensorEventListener;
 import org.apache.brooklyn.core.entity.Attributes;
 import org.apache.brooklyn.core.entity.Dumper;
 import org.apache.brooklyn.core.entity.Entities;
@@ -45,7 +50,9 @@ import org.apache.brooklyn.core.test.BrooklynAppUnitTestSupport;
 import org.apache.brooklyn.core.test.entity.TestEntity;
 import org.apache.brooklyn.core.test.entity.TestEntityImpl.TestEntityWithoutEnrichers;
 import org.apache.brooklyn.entity.group.DynamicCluster;
+import org.apache.brooklyn.test.Asserts;
 import org.apache.brooklyn.test.support.FlakyRetryAnalyser;
+import org.apache.brooklyn.util.collections.MutableList;
 import org.apache.brooklyn.util.collections.QuorumCheck.QuorumChecks;
 import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.time.Duration;
@@ -296,6 +303,53 @@ public class ServiceStateLogicTest extends BrooklynAppUnitTestSupport {
         EntityAsserts.assertAttributeEqualsContinually(cluster, Attributes.SERVICE_STATE_ACTUAL, Lifecycle.RUNNING);
     }
 
+    @Test
+    public void testDebouncedIndicatorsCoalesceChanges() throws Exception {
+        final String tag = "test-debounced";
+        List<Entity> children = MutableList.of();
+        for (int i = 0; i < 5; i++) {
+            Entity child = app.createAndManageChild(EntitySpec.create(TestEntity.class).impl(TestEntityWithoutEnrichers.class));
+            child.sensors().set(Attributes.SERVICE_UP, true);
+            child.sensors().set(Attributes.SERVICE_STATE_ACTUAL, Lifecycle.RUNNING);
+            children.add(child);
+        }
+        app.enrichers().add(ServiceStateLogic.newEnricherFromChildren()
+                .uniqueTag(tag)
+                .configure(ComputeServiceIndicatorsFromChildrenAndMembers.PUBLISH_DEBOUNCE, Duration.millis(500)));
+
+        final List<Object> published = Collections.synchronizedList(MutableList.of());
+        app.subscriptions().subscribe(app, Attributes.SERVICE_PROBLEMS, new SensorEventListener<Map<String, Object>>() {
+            @Override
+            public void onEvent(SensorEvent<Map<String, Object>> event) {
+                if (event.getValue()!=null && event.getValue().containsKey(tag)) published.add(event.getValue().get(tag));
+            }});
+
+        // a change which is reverted within the window is never published
+        for (Entity child : children) {
+            child.sensors().set(Attributes.SERVICE_STATE_ACTUAL, Lifecycle.ON_FIRE);
+        }
+        for (Entity child : children) {
+            child.sensors().set(Attributes.SERVICE_STATE_ACTUAL, Lifecycle.RUNNING);
+        }
+        Asserts.succeedsContinually(ImmutableMap.of("timeout", Duration.ONE_SECOND), new Runnable() {
+            @Override
+            public void run() {
+                assertEquals(published, ImmutableList.of());
+                assertNull(ServiceStateLogic.getMapSensorEntry(app, Attributes.SERVICE_PROBLEMS, tag));
+            }});
+
+        // whereas many changes in the window are published once
+        for (Entity child : children) {
+            child.sensors().set(Attributes.SERVICE_STATE_ACTUAL, Lifecycle.ON_FIRE);
+        }
+        Asserts.succeedsEventually(new Runnable() {
+            @Override
+            public void run() {
+                assertEquals(published.size(), 1, "published="+published);
+            }});
+        assertEquals(published.get(0), "Required entities not healthy: "+children.get(0).getDisplayName()+" ("+children.get(0).getId()+") and 4 others");
+    }
+
     public static class CountingComputeServiceState extends ComputeServiceState {
         AtomicInteger cntCalled = new AtomicInteger();
         AtomicInteger cntCalledWithNull = new AtomicInteger();
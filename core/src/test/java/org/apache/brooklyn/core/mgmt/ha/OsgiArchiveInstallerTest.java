@@ -23,15 +23,27 @@ import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import org.apache.brooklyn.api.mgmt.ManagementContext;
 import org.apache.brooklyn.api.typereg.ManagedBundle;
+import org.apache.brooklyn.core.mgmt.ha.OsgiArchiveInstaller.ArchiveScan;
 import org.apache.brooklyn.core.server.BrooklynServerConfig;
 import org.apache.brooklyn.core.test.BrooklynMgmtUnitTestSupport;
+import org.apache.brooklyn.util.os.Os;
 import org.apache.brooklyn.util.osgi.VersionedName;
 import org.mockito.Mockito;
+import org.osgi.framework.Constants;
 import org.testng.annotations.Test;
 
+import com.google.common.io.Files;
+
 public class OsgiArchiveInstallerTest extends BrooklynMgmtUnitTestSupport {
 
     // The tests here will so far not need an actual OSGi Framework! Therefore we're using the simple
@@ -78,6 +90,56 @@ public class OsgiArchiveInstallerTest extends BrooklynMgmtUnitTestSupport {
         assertEquals(OsgiArchiveInstaller.inferBundleNameFromMvnUrl("mvn:my.group.id/my.artifact.id/1.0.0").get(), new VersionedName("my.group.id.my.artifact.id", "1.0.0"));
     }
     
+    @Test
+    public void testArchiveScanMatchesCopy() throws Exception {
+        Manifest mf = new Manifest();
+        mf.getMainAttributes().putValue("Manifest-Version", "1.0");
+        mf.getMainAttributes().putValue(Constants.BUNDLE_SYMBOLICNAME, "org.example.scanned");
+        ByteArrayOutputStream manifestBytes = new ByteArrayOutputStream();
+        mf.write(manifestBytes);
+        
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        try (ZipOutputStream zout = new ZipOutputStream(zip)) {
+            putEntry(zout, "META-INF/", new byte[0]);
+            putEntry(zout, JarFile.MANIFEST_NAME, manifestBytes.toByteArray());
+            putEntry(zout, "catalog.bom", "brooklyn.catalog: { version: 1.0 }".getBytes());
+            putEntry(zout, "org/example/Scanned.class", new byte[100000]);
+        }
+        
+        File copy = Os.newTempFile(getClass(), "zip");
+        try {
+            ArchiveScan scan;
+            try (FileOutputStream fout = new FileOutputStream(copy)) {
+                scan = ArchiveScan.copyAndScan(new ByteArrayInputStream(zip.toByteArray()), fout);
+            }
+            assertEquals(Files.toByteArray(copy), zip.toByteArray());
+            assertEquals(scan.entryCount, 4);
+            assertEquals(scan.checksum, OsgiArchiveInstaller.getChecksum(copy));
+            assertEquals(scan.manifest.getMainAttributes().getValue(Constants.BUNDLE_SYMBOLICNAME), "org.example.scanned");
+            assertEquals(scan.catalogBom, "brooklyn.catalog: { version: 1.0 }");
+        } finally {
+            copy.delete();
+        }
+    }
+    
+    @Test
+    public void testArchiveScanOfNonZipStillCopies() throws Exception {
+        byte[] contents = "not a zip".getBytes();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ArchiveScan scan = ArchiveScan.copyAndScan(new ByteArrayInputStream(contents), out);
+        
+        assertEquals(out.toByteArray(), contents);
+        // either not readable as a zip at all, or read as one with nothing in it
+        assertTrue(scan==null || (scan.entryCount==0 && scan.manifest==null && scan.catalogBom==null), 
+                "scan="+(scan==null ? null : "entries="+scan.entryCount+", manifest="+scan.manifest+", bom="+scan.catalogBom));
+    }
+    
+    private static void putEntry(ZipOutputStream zout, String name, byte[] contents) throws Exception {
+        zout.putNextEntry(new ZipEntry(name));
+        zout.write(contents);
+        zout.closeEntry();
+    }
+    
     public OsgiManager newMockOsgiManager(ManagementContext mgmt) throws Exception {
         OsgiManager result = Mockito.mock(OsgiManager.class);
         Mockito.when(result.getManagementContext()).thenReturn(mgmt);
@@ -19,12 +19,16 @@
 package org.apache.brooklyn.core.mgmt.rebind;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
 
 import java.util.Collection;
 
 import org.apache.brooklyn.api.entity.Entity;
 import org.apache.brooklyn.api.entity.EntitySpec;
+import org.apache.brooklyn.api.sensor.AttributeSensor;
+import org.apache.brooklyn.core.entity.EntityPredicates;
 import org.apache.brooklyn.core.mgmt.rebind.RebindEntityTest.MyEntity;
+import org.apache.brooklyn.core.sensor.Sensors;
 import org.apache.brooklyn.entity.group.DynamicGroup;
 import org.apache.brooklyn.test.Asserts;
 import org.testng.annotations.Test;
@@ -36,6 +40,8 @@ import com.google.common.collect.Sets;
 
 public class RebindDynamicGroupTest extends RebindTestFixtureWithApp {
 
+    private static final AttributeSensor<String> MY_ATTRIBUTE = Sensors.newStringSensor("test.myAttribute", "My test attribute");
+
     @Test
     public void testRestoresDynamicGroup() throws Exception {
         origApp.createAndManageChild(EntitySpec.create(MyEntity.class));
@@ -56,6 +62,53 @@ public class RebindDynamicGroupTest extends RebindTestFixtureWithApp {
             }});
     }
 
+    @Test
+    public void testKeepsReboundMembersOfIndexableFilterWithoutRescanning() throws Exception {
+        final MyEntity origE = origApp.createAndManageChild(EntitySpec.create(MyEntity.class));
+        final DynamicGroup origG = origApp.createAndManageChild(EntitySpec.create(DynamicGroup.class)
+                .configure(DynamicGroup.ENTITY_FILTER, EntityPredicates.attributeEqualTo(MY_ATTRIBUTE, "yes")));
+        origE.sensors().set(MY_ATTRIBUTE, "yes");
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertGroupMembers(origG, ImmutableSet.of(origE));
+                assertNotNull(origG.getAttribute(DynamicGroup.RESCAN_COUNT));
+            }});
+        Long rescans = origG.getAttribute(DynamicGroup.RESCAN_COUNT);
+
+        newApp = rebind();
+        final DynamicGroup newG = (DynamicGroup) Iterables.find(newApp.getChildren(), Predicates.instanceOf(DynamicGroup.class));
+        final MyEntity newE = (MyEntity) Iterables.find(newApp.getChildren(), Predicates.instanceOf(MyEntity.class));
+        assertGroupMembers(newG, ImmutableSet.of(newE));
+        assertEquals(newG.getAttribute(DynamicGroup.RESCAN_COUNT), rescans);
+
+        // and changes are still applied from events
+        newE.sensors().set(MY_ATTRIBUTE, "no");
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertGroupMembers(newG, ImmutableSet.<Entity>of());
+            }});
+    }
+
+    @Test
+    public void testRescansIndexableFilterOnRebindIfConfigured() throws Exception {
+        origApp.createAndManageChild(EntitySpec.create(MyEntity.class));
+        final DynamicGroup origG = origApp.createAndManageChild(EntitySpec.create(DynamicGroup.class)
+                .configure(DynamicGroup.ENTITY_FILTER, EntityPredicates.attributeEqualTo(MY_ATTRIBUTE, "yes"))
+                .configure(DynamicGroup.RESCAN_ON_REBIND, true));
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertNotNull(origG.getAttribute(DynamicGroup.RESCAN_COUNT));
+            }});
+        final Long rescans = origG.getAttribute(DynamicGroup.RESCAN_COUNT);
+
+        newApp = rebind();
+        final DynamicGroup newG = (DynamicGroup) Iterables.find(newApp.getChildren(), Predicates.instanceOf(DynamicGroup.class));
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertEquals(newG.getAttribute(DynamicGroup.RESCAN_COUNT), (Long) (rescans + 1));
+            }});
+    }
+
     private void assertGroupMembers(DynamicGroup group, Collection<? extends Entity> expected) {
         assertEquals(Sets.newHashSet(group.getMembers()), ImmutableSet.copyOf(expected));
         assertEquals(group.getMembers().size(), expected.size(), "members=" + group.getMembers());
@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.test.qa.performance;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.brooklyn.api.entity.EntitySpec;
+import org.apache.brooklyn.api.sensor.AttributeSensor;
+import org.apache.brooklyn.api.sensor.SensorEvent;
+import org.apache.brooklyn.api.sensor.SensorEventListener;
+import org.apache.brooklyn.core.sensor.Sensors;
+import org.apache.brooklyn.core.test.entity.TestEntity;
+import org.apache.brooklyn.enricher.stock.Enrichers;
+import org.apache.brooklyn.test.performance.PerformanceTestDescriptor;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Measures the cost of each member change for an aggregating enricher, as the number of members grows;
+ * the cost per event should be roughly independent of the number of members.
+ */
+public class AggregatorPerformanceTest extends AbstractPerformanceTest {
+
+    private static final int NUM_ITERATIONS = 10000;
+
+    private static final AttributeSensor<Integer> TOTAL = Sensors.newIntegerSensor("test.total");
+
+    @Test(groups={"Integration", "Acceptance"})
+    public void testSumWith100Members() throws Exception {
+        runSumTest(100);
+    }
+
+    @Test(groups={"Integration", "Acceptance"})
+    public void testSumWith1000Members() throws Exception {
+        runSumTest(1000);
+    }
+
+    @Test(groups={"Integration", "Acceptance"})
+    public void testSumWith2000Members() throws Exception {
+        runSumTest(2000);
+    }
+
+    protected void runSumTest(int numMembers) throws Exception {
+        final List<TestEntity> members = Lists.newArrayList();
+        for (int i = 0; i < numMembers; i++) {
+            TestEntity member = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+            member.sensors().set(TestEntity.SEQUENCE, 0);
+            members.add(member);
+        }
+        app.enrichers().add(Enrichers.builder()
+                .aggregating(TestEntity.SEQUENCE)
+                .publishing(TOTAL)
+                .fromChildren()
+                .computingSum()
+                .build());
+
+        final int numIterations = NUM_ITERATIONS;
+        double minRatePerSec = 100 * PERFORMANCE_EXPECTATION;
+        final AtomicInteger iter = new AtomicInteger();
+        final CountDownLatch completionLatch = new CountDownLatch(1);
+
+        app.subscriptions().subscribe(app, TOTAL, new SensorEventListener<Integer>() {
+            @Override
+            public void onEvent(SensorEvent<Integer> event) {
+                if (event.getValue() != null && event.getValue() >= numIterations) completionLatch.countDown();
+            }});
+
+        measure(PerformanceTestDescriptor.create()
+                .summary("AggregatorPerformanceTest.testSumWith"+numMembers+"Members")
+                .iterations(numIterations)
+                .minAcceptablePerSecond(minRatePerSec)
+                .job(new Runnable() {
+                    @Override
+                    public void run() {
+                        // each iteration increments one member's value, so the total increases by one
+                        int i = iter.getAndIncrement();
+                        TestEntity member = members.get(i % members.size());
+                        member.sensors().set(TestEntity.SEQUENCE, i / members.size() + 1);
+                    }})
+                .completionLatch(completionLatch));
+    }
+}
@@ -160,4 +160,37 @@ public class MathAggregatorFunctionsTest {
         assertEquals(func.apply(MutableList.<Number>of(1, 3, 5)), (Integer)5);
         assertEquals(func.apply(MutableList.<Number>of(3, null, 1)), (Integer)3);
     }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testAccumulatorMatchesFunction() throws Exception {
+        List<Function<Collection<? extends Number>, Double>> funcs = new ArrayList<>();
+        funcs.add(MathAggregatorFunctions.computingSum(null, 999, Double.class));
+        funcs.add(MathAggregatorFunctions.computingAverage(null, 999, Double.class));
+        funcs.add(MathAggregatorFunctions.computingMin(0, 999, Double.class));
+        funcs.add(MathAggregatorFunctions.computingMax(null, 999, Double.class));
+        
+        for (Function<Collection<? extends Number>, Double> func : funcs) {
+            AccumulatingFunction.Accumulator<Double> accumulator = ((AccumulatingFunction<Double>)func).newAccumulator();
+            List<Object> current = new ArrayList<>();
+            assertEquals(accumulator.get(), func.apply(ImmutableList.<Number>of()), "func="+func);
+            
+            // duplicates, nulls and strings, and removing the smallest and largest values
+            for (Object v : ImmutableList.<Object>of(3, 1, 4, 1, 5, "9", 2, 6)) {
+                accumulator.add(v);
+                current.add(v);
+                assertEquals(accumulator.get(), func.apply((List<Number>)(List<?>)current), "func="+func+"; values="+current);
+            }
+            accumulator.add(null);
+            current.add(null);
+            assertEquals(accumulator.get(), func.apply((List<Number>)(List<?>)current), "func="+func+"; values="+current);
+            for (Object v : ImmutableList.<Object>of(1, "9", 3, 1, 6, 4, 5, 2)) {
+                accumulator.remove(v);
+                current.remove(v);
+                assertEquals(accumulator.get(), func.apply((List<Number>)(List<?>)current), "func="+func+"; values="+current);
+            }
+            accumulator.remove(null);
+            assertEquals(accumulator.get(), (Double)999d, "func="+func);
+        }
+    }
 }
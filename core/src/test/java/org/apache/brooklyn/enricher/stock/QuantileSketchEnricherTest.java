@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.enricher.stock;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Map;
+
+import org.apache.brooklyn.api.entity.EntitySpec;
+import org.apache.brooklyn.api.sensor.AttributeSensor;
+import org.apache.brooklyn.api.sensor.EnricherSpec;
+import org.apache.brooklyn.core.entity.EntityAsserts;
+import org.apache.brooklyn.core.sensor.Sensors;
+import org.apache.brooklyn.core.test.BrooklynAppUnitTestSupport;
+import org.apache.brooklyn.entity.stock.BasicEntity;
+import org.apache.brooklyn.test.Asserts;
+import org.apache.brooklyn.util.math.QuantileSketch;
+import org.apache.brooklyn.util.time.Duration;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.reflect.TypeToken;
+
+public class QuantileSketchEnricherTest extends BrooklynAppUnitTestSupport {
+
+    private static final AttributeSensor<Double> LATENCY = Sensors.newDoubleSensor("latency");
+    private static final AttributeSensor<QuantileSketch> LATENCY_SKETCH = Sensors.newSensor(QuantileSketch.class, "latency.sketch");
+    @SuppressWarnings("serial")
+    private static final AttributeSensor<Map<String, Double>> LATENCY_PERCENTILES = Sensors.newSensor(new TypeToken<Map<String, Double>>() {}, "latency.percentiles");
+
+    private QuantileSketchEnricher addEnricher(BasicEntity entity) {
+        return entity.enrichers().add(EnricherSpec.create(QuantileSketchEnricher.class)
+                .configure(QuantileSketchEnricher.SOURCE_SENSOR, LATENCY)
+                .configure(QuantileSketchEnricher.TARGET_SENSOR, LATENCY_SKETCH)
+                .configure(QuantileSketchEnricher.PERCENTILES_SENSOR, LATENCY_PERCENTILES)
+                .configure(QuantileSketchEnricher.PERCENTILES, ImmutableList.of(50d, 99.9d))
+                .configure(QuantileSketchEnricher.WINDOW_DURATION, Duration.ONE_MINUTE)
+                .configure(QuantileSketchEnricher.WINDOW_SLICES, 6));
+    }
+
+    @Test
+    public void testDiscardsSlicesOutsideWindow() {
+        BasicEntity entity = app.addChild(EntitySpec.create(BasicEntity.class));
+        QuantileSketchEnricher enricher = addEnricher(entity);
+
+        for (int i = 1; i <= 100; i++) {
+            enricher.record(i, 1000);
+        }
+        QuantileSketch sketch = enricher.record(1000, 35*1000);
+        assertEquals(sketch.getCount(), 101);
+        assertEquals(sketch.getMax(), 1000d);
+
+        // slices are 10s; the first slice (from 0s) is discarded once it is all more than a minute old
+        sketch = enricher.record(null, 69*1000);
+        assertEquals(sketch.getCount(), 101);
+        sketch = enricher.record(null, 70*1000);
+        assertEquals(sketch.getCount(), 1);
+        assertEquals(sketch.getQuantile(0.5), 1000d);
+    }
+
+    @Test
+    public void testDoesNotRecountRepublishedSketch() {
+        BasicEntity entity = app.addChild(EntitySpec.create(BasicEntity.class));
+        QuantileSketchEnricher enricher = addEnricher(entity);
+
+        enricher.record(1, 1000);
+        // an upstream sketch sensor republishes its whole (growing) window on each change
+        QuantileSketch upstream = new QuantileSketch().add(10).add(20);
+        enricher.record(upstream, 2000);
+        upstream.add(30);
+        QuantileSketch sketch = enricher.record(upstream, 3000);
+
+        assertEquals(sketch.getCount(), 1);
+        assertEquals(sketch.getMax(), 1d);
+    }
+
+    @Test
+    public void testPublishesSketchAndPercentiles() {
+        BasicEntity entity = app.addChild(EntitySpec.create(BasicEntity.class));
+        addEnricher(entity);
+
+        for (int i = 1; i <= 1000; i++) {
+            entity.sensors().set(LATENCY, (double) i);
+        }
+        EntityAsserts.assertPredicateEventuallyTrue(entity, e -> {
+            QuantileSketch sketch = e.getAttribute(LATENCY_SKETCH);
+            return sketch != null && sketch.getCount() == 1000;
+        });
+        Map<String, Double> percentiles = entity.getAttribute(LATENCY_PERCENTILES);
+        assertEquals(percentiles.keySet(), ImmutableList.of("p50", "p99.9"));
+        assertWithinOnePercent(percentiles.get("p50"), 500);
+        assertWithinOnePercent(percentiles.get("p99.9"), 999);
+    }
+
+    @Test
+    public void testMergesAcrossChildren() {
+        BasicEntity child1 = app.addChild(EntitySpec.create(BasicEntity.class));
+        BasicEntity child2 = app.addChild(EntitySpec.create(BasicEntity.class));
+        addEnricher(child1);
+        addEnricher(child2);
+
+        app.enrichers().add(Enrichers.builder()
+                .aggregating(LATENCY_SKETCH)
+                .publishing(LATENCY_SKETCH)
+                .fromChildren()
+                .computing(MathAggregatorFunctions.computingMergedSketch())
+                .build());
+        app.enrichers().add(Enrichers.builder()
+                .transforming(LATENCY_SKETCH)
+                .publishing(LATENCY_PERCENTILES)
+                .computing(QuantileSketchEnricher.percentiles(ImmutableList.of(50d, 99d)))
+                .build());
+
+        for (int i = 1; i <= 100; i++) {
+            child1.sensors().set(LATENCY, (double) i);
+            child2.sensors().set(LATENCY, (double) (100 + i));
+        }
+        Asserts.succeedsEventually(() -> {
+            QuantileSketch sketch = app.getAttribute(LATENCY_SKETCH);
+            assertNotNull(sketch);
+            assertEquals(sketch.getCount(), 200);
+            assertEquals(sketch.getMin(), 1d);
+            assertEquals(sketch.getMax(), 200d);
+        });
+        EntityAsserts.assertPredicateEventuallyTrue(app, e -> {
+            Map<String, Double> percentiles = e.getAttribute(LATENCY_PERCENTILES);
+            return percentiles != null && Math.abs(percentiles.get("p99") - 198) <= 1.98;
+        });
+        assertWithinOnePercent(app.getAttribute(LATENCY_PERCENTILES).get("p50"), 100);
+    }
+
+    @Test
+    public void testPercentilesFunctionOnEmptySketch() {
+        assertEquals(QuantileSketchEnricher.percentiles(ImmutableList.of(50d)).apply(new QuantileSketch()), ImmutableMap.of());
+    }
+
+    private static void assertWithinOnePercent(double actual, double expected) {
+        assertTrue(Math.abs(actual - expected) <= 0.01 * expected, "actual="+actual+"; expected="+expected);
+    }
+}
@@ -22,6 +22,7 @@ import static org.apache.brooklyn.entity.group.DynamicCluster.CLUSTER_MEMBER_ID;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
@@ -1372,6 +1373,80 @@ public class DynamicClusterTest extends AbstractDynamicClusterOrFabricTest {
         }, Asserts.DEFAULT_LONG_TIMEOUT);
     }
 
+    @Test
+    public void testGrowsInBatches() {
+        EntitySpec<ThrowOnAsyncStartEntity> memberSpec = EntitySpec.create(ThrowOnAsyncStartEntity.class)
+                .configure(ThrowOnAsyncStartEntity.MAX_CONCURRENCY, 3)
+                .configure(ThrowOnAsyncStartEntity.COUNTER, new AtomicInteger());
+        DynamicCluster cluster = app.createAndManageChild(EntitySpec.create(DynamicCluster.class)
+                .configure(DynamicCluster.GROW_BATCH_SIZE, 3)
+                .configure(DynamicCluster.INITIAL_SIZE, 10)
+                .configure(DynamicCluster.MEMBER_SPEC, memberSpec));
+        app.start(ImmutableList.of(app.newSimulatedLocation()));
+        assertEquals(cluster.sensors().get(Attributes.SERVICE_STATE_ACTUAL), Lifecycle.RUNNING);
+        assertEquals(cluster.getCurrentSize(), (Integer) 10);
+        assertEquals(cluster.sensors().get(DynamicCluster.GROW_QUEUED), (Integer) 0);
+        assertEquals(cluster.sensors().get(DynamicCluster.GROW_STARTING), (Integer) 0);
+        assertNull(cluster.sensors().get(DynamicCluster.GROW_FAILED));
+    }
+
+    @Test
+    public void testStartRateLimitedPerLocation() {
+        DynamicCluster cluster = app.createAndManageChild(EntitySpec.create(DynamicCluster.class)
+                .configure(DynamicCluster.MAX_START_RATE_PER_LOCATION, 10d)
+                .configure(DynamicCluster.INITIAL_SIZE, 0)
+                .configure(DynamicCluster.MEMBER_SPEC, EntitySpec.create(TestEntity.class)));
+        cluster.start(ImmutableList.of(loc));
+
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        cluster.resize(6);
+        // the first starts immediately, then one every 100ms
+        assertTrue(stopwatch.elapsed(TimeUnit.MILLISECONDS) >= 400, "elapsed="+stopwatch);
+        assertEquals(cluster.getCurrentSize(), (Integer) 6);
+    }
+
+    @Test
+    public void testStartRateLimitersDroppedWhenNoMembersInLocation() {
+        DynamicCluster cluster = app.createAndManageChild(EntitySpec.create(DynamicCluster.class)
+                .configure(DynamicCluster.MAX_START_RATE_PER_LOCATION, 100d)
+                .configure(DynamicCluster.INITIAL_SIZE, 0)
+                .configure(DynamicCluster.MEMBER_SPEC, EntitySpec.create(TestEntity.class)));
+        cluster.start(ImmutableList.of(loc));
+        DynamicClusterImpl clusterImpl = DynamicClusterImpl.class.cast(Entities.deproxy(cluster));
+
+        cluster.resize(2);
+        assertEquals(clusterImpl.getStartRateLimitedLocations(), ImmutableSet.of(loc));
+        cluster.resize(1);
+        assertEquals(clusterImpl.getStartRateLimitedLocations(), ImmutableSet.of(loc));
+        cluster.resize(0);
+        assertEquals(clusterImpl.getStartRateLimitedLocations(), ImmutableSet.of());
+    }
+
+    @Test
+    public void testGrowFailedCountsMembersWhichFailToStart() throws Exception {
+        final DynamicCluster cluster = app.createAndManageChild(EntitySpec.create(DynamicCluster.class)
+            .configure(DynamicCluster.MEMBER_SPEC, EntitySpec.create(FailingEntity.class)
+                    .configure(FailingEntity.FAIL_ON_START, true))
+            .configure(DynamicCluster.GROW_BATCH_SIZE, 1)
+            .configure(DynamicCluster.INITIAL_SIZE, 0));
+        cluster.start(ImmutableList.of(loc));
+
+        try {
+            cluster.resize(2);
+            Asserts.shouldHaveFailedPreviously();
+        } catch (Exception e) {
+            // expected
+        }
+        assertEquals(cluster.sensors().get(DynamicCluster.GROW_FAILED), (Integer) 2);
+        assertEquals(cluster.sensors().get(DynamicCluster.GROW_QUEUED), (Integer) 0);
+        assertEquals(cluster.sensors().get(DynamicCluster.GROW_STARTING), (Integer) 0);
+
+        // cleared once a later grow succeeds
+        cluster.config().set(DynamicCluster.MEMBER_SPEC, EntitySpec.create(TestEntity.class));
+        cluster.resize(1);
+        assertEquals(cluster.sensors().get(DynamicCluster.GROW_FAILED), (Integer) 0);
+    }
+
     @Test
     public void testChildCommandPermitNotReleasedWhenMemberStartTaskCancelledBeforeSubmission() {
         // Tests that permits are not released when their start task is cancelled.
@@ -36,6 +36,8 @@ import java.util.concurrent.atomic.AtomicReference;
 import org.apache.brooklyn.api.entity.Entity;
 import org.apache.brooklyn.api.entity.EntitySpec;
 import org.apache.brooklyn.api.entity.ImplementedBy;
+import org.apache.brooklyn.api.mgmt.SubscriptionHandle;
+import org.apache.brooklyn.api.mgmt.SubscriptionManager;
 import org.apache.brooklyn.api.sensor.AttributeSensor;
 import org.apache.brooklyn.api.sensor.Sensor;
 import org.apache.brooklyn.api.sensor.SensorEvent;
@@ -163,6 +165,119 @@ public class DynamicGroupTest extends BrooklynAppUnitTestSupport {
             }});
     }
     
+    @Test
+    public void testGroupWithIndexableFilterDetectsChangedEntitiesWithoutSubscription() throws Exception {
+        final AttributeSensor<String> MY_ATTRIBUTE = Sensors.newStringSensor("test.myAttribute", "My test attribute");
+        
+        group.setEntityFilter(EntityPredicates.attributeEqualTo(MY_ATTRIBUTE, "yes"));
+        assertEqualsIgnoringOrder(group.getMembers(), ImmutableSet.of());
+        
+        e1.sensors().set(MY_ATTRIBUTE, "yes");
+        Asserts.succeedsEventually(new Runnable() {
+            @Override
+            public void run() {
+                assertEqualsIgnoringOrder(group.getMembers(), ImmutableSet.of(e1));
+            }});
+
+        e1.sensors().set(MY_ATTRIBUTE, "no");
+        Asserts.succeedsEventually(new Runnable() {
+            @Override
+            public void run() {
+                assertEqualsIgnoringOrder(group.getMembers(), ImmutableSet.of());
+            }});
+    }
+    
+    @Test
+    public void testGroupWithIndexableFilterRescansOnlyChildrenOfParent() throws Exception {
+        final TestEntity parent = app.addChild(EntitySpec.create(TestEntity.class));
+        final TestEntity child1 = parent.addChild(EntitySpec.create(TestEntity.class));
+        parent.addChild(EntitySpec.create(TestEntity.class).displayName("other"));
+        
+        group.setEntityFilter(EntityPredicates.allOf(
+                EntityPredicates.isChildOf(parent), 
+                EntityPredicates.attributeEqualTo(TestEntity.NAME, "yes")));
+        assertEquals(group.getAttribute(DynamicGroup.RESCAN_ENTITIES_SCANNED), (Integer) 2);
+        assertEqualsIgnoringOrder(group.getMembers(), ImmutableSet.of());
+        
+        // detects children's sensors changing, and new children
+        child1.sensors().set(TestEntity.NAME, "yes");
+        final TestEntity child3 = parent.addChild(EntitySpec.create(TestEntity.class));
+        child3.sensors().set(TestEntity.NAME, "yes");
+        e1.sensors().set(TestEntity.NAME, "yes");
+        Asserts.succeedsEventually(new Runnable() {
+            @Override
+            public void run() {
+                assertEqualsIgnoringOrder(group.getMembers(), ImmutableSet.of(child1, child3));
+            }});
+        
+        Entities.unmanage(child3);
+        Asserts.succeedsEventually(new Runnable() {
+            @Override
+            public void run() {
+                assertEqualsIgnoringOrder(group.getMembers(), ImmutableSet.of(child1));
+            }});
+    }
+    
+    @Test
+    public void testGroupWithIndexableFilterRescansOnlyChildrenInApplication() throws Exception {
+        TestApplication app2 = TestApplication.Factory.newManagedInstanceForTests(app.getManagementContext());
+        TestEntity parent2 = app2.addChild(EntitySpec.create(TestEntity.class));
+        parent2.addChild(EntitySpec.create(TestEntity.class));
+        
+        group.setEntityFilter(EntityPredicates.isChildOf(parent2));
+        assertEquals(group.getAttribute(DynamicGroup.RESCAN_ENTITIES_SCANNED), (Integer) 0);
+        assertEqualsIgnoringOrder(group.getMembers(), ImmutableSet.of());
+    }
+    
+    @Test
+    public void testGroupWithParentlessIndexableFilterSubscribesOncePerSensor() throws Exception {
+        final AttributeSensor<String> MY_ATTRIBUTE = Sensors.newStringSensor("test.myAttribute", "My test attribute");
+        TestApplication app2 = TestApplication.Factory.newManagedInstanceForTests(app.getManagementContext());
+        TestEntity other = app2.addChild(EntitySpec.create(TestEntity.class));
+        
+        group.setEntityFilter(EntityPredicates.attributeEqualTo(MY_ATTRIBUTE, "yes"));
+        final TestEntity e3 = app.addChild(EntitySpec.create(TestEntity.class));
+        
+        // the same single subscription applies to every entity, however many there are
+        SubscriptionManager subscriptionManager = app.getManagementContext().getSubscriptionManager();
+        Set<SubscriptionHandle> subscriptions = subscriptionManager.getSubscriptionsForEntitySensor(e1, MY_ATTRIBUTE);
+        assertEquals(subscriptions.size(), 1);
+        assertEquals(subscriptionManager.getSubscriptionsForEntitySensor(e3, MY_ATTRIBUTE), subscriptions);
+        
+        // events from other applications are filtered out
+        other.sensors().set(MY_ATTRIBUTE, "yes");
+        e3.sensors().set(MY_ATTRIBUTE, "yes");
+        Asserts.succeedsEventually(new Runnable() {
+            @Override
+            public void run() {
+                assertEqualsIgnoringOrder(group.getMembers(), ImmutableSet.of(e3));
+            }});
+        
+        e3.sensors().set(MY_ATTRIBUTE, "no");
+        Asserts.succeedsEventually(new Runnable() {
+            @Override
+            public void run() {
+                assertEqualsIgnoringOrder(group.getMembers(), ImmutableSet.of());
+            }});
+        
+        group.stop();
+        assertEquals(subscriptionManager.getSubscriptionsForEntitySensor(e1, MY_ATTRIBUTE), ImmutableSet.of());
+    }
+    
+    @Test
+    public void testRescanPublishesMetrics() throws Exception {
+        group.setEntityFilter(EntityPredicates.idEqualTo(e1.getId()));
+        Long count = group.getAttribute(DynamicGroup.RESCAN_COUNT);
+        assertTrue(count != null && count >= 1, "count="+count);
+        
+        group.rescanEntities();
+        assertEquals(group.getAttribute(DynamicGroup.RESCAN_COUNT), (Long) (count + 1));
+        // app, group, e1 and e2
+        assertEquals(group.getAttribute(DynamicGroup.RESCAN_ENTITIES_SCANNED), (Integer) 4);
+        assertTrue(group.getAttribute(DynamicGroup.RESCAN_DURATION) != null);
+        assertTrue(group.getAttribute(DynamicGroup.RESCAN_TOTAL_DURATION).compareTo(group.getAttribute(DynamicGroup.RESCAN_DURATION)) >= 0);
+    }
+    
     @Test
     public void testGroupDetectsChangedEntitiesMatchingFilter() throws Exception {
         final AttributeSensor<String> MY_ATTRIBUTE = Sensors.newStringSensor("test.myAttribute", "My test attribute");
@@ -0,0 +1,261 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.location.pool;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.brooklyn.api.location.LocationSpec;
+import org.apache.brooklyn.api.location.NoMachinesAvailableException;
+import org.apache.brooklyn.core.location.LocationConfigKeys;
+import org.apache.brooklyn.core.test.BrooklynMgmtUnitTestSupport;
+import org.apache.brooklyn.location.byon.FixedListMachineProvisioningLocation;
+import org.apache.brooklyn.location.ssh.SshMachineLocation;
+import org.apache.brooklyn.test.Asserts;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.core.internal.ssh.RecordingSshTool;
+import org.apache.brooklyn.util.core.internal.ssh.RecordingSshTool.CustomResponse;
+import org.apache.brooklyn.util.core.internal.ssh.RecordingSshTool.ExecCmdPredicates;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+public class WarmMachinePoolLocationTest extends BrooklynMgmtUnitTestSupport {
+
+    private static final String RESET_SCRIPT = "echo resetting";
+
+    private FixedListMachineProvisioningLocation<SshMachineLocation> target;
+
+    @BeforeMethod(alwaysRun=true)
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        RecordingSshTool.clear();
+        target = newTarget(4);
+    }
+
+    @AfterMethod(alwaysRun=true)
+    @Override
+    public void tearDown() throws Exception {
+        try {
+            super.tearDown();
+        } finally {
+            RecordingSshTool.clear();
+        }
+    }
+
+    @Test
+    public void testFillsPoolForTemplatesOnInit() throws Exception {
+        WarmMachinePoolLocation<SshMachineLocation> pool = newPool(ImmutableMap.of(
+                WarmMachinePoolLocation.POOL_SIZE, 2,
+                WarmMachinePoolLocation.POOL_TEMPLATES, ImmutableList.of(ImmutableMap.of())));
+
+        assertAvailableEventually(pool, 2);
+        assertEquals(target.getInUse().size(), 2);
+    }
+
+    @Test
+    public void testObtainTakesPooledMachineAndReplenishes() throws Exception {
+        WarmMachinePoolLocation<SshMachineLocation> pool = newPool(ImmutableMap.of(
+                WarmMachinePoolLocation.POOL_SIZE, 1,
+                WarmMachinePoolLocation.POOL_TEMPLATES, ImmutableList.of(ImmutableMap.of())));
+        assertAvailableEventually(pool, 1);
+
+        SshMachineLocation machine = pool.obtain(ImmutableMap.of(LocationConfigKeys.CALLER_CONTEXT, "ignored"));
+
+        assertTrue(target.getInUse().contains(machine));
+        assertAvailableEventually(pool, 1);
+        assertEquals(target.getInUse().size(), 2);
+    }
+
+    @Test
+    public void testObtainsFromTargetWhenPoolEmpty() throws Exception {
+        WarmMachinePoolLocation<SshMachineLocation> pool = newPool(ImmutableMap.of(
+                WarmMachinePoolLocation.POOL_SIZE, 1));
+
+        SshMachineLocation machine = pool.obtain();
+
+        assertTrue(target.getInUse().contains(machine));
+        // the pool for that template is then filled
+        assertAvailableEventually(pool, 1);
+    }
+
+    @Test
+    public void testReleaseResetsAndRecyclesMachine() throws Exception {
+        // the pool can only be replenished by recycling once the target is exhausted
+        target = newTarget(2);
+        WarmMachinePoolLocation<SshMachineLocation> pool = newPool(ImmutableMap.of(
+                WarmMachinePoolLocation.POOL_SIZE, 1,
+                WarmMachinePoolLocation.RESET_SCRIPT, RESET_SCRIPT));
+        SshMachineLocation machine = pool.obtain();
+        assertAvailableEventually(pool, 1);
+        SshMachineLocation pooled = pool.obtain();
+        assertNothingPendingEventually(pool);
+        assertEquals(target.getInUse().size(), 2);
+
+        pool.release(machine);
+
+        assertAvailableEventually(pool, 1);
+        assertTrue(target.getInUse().contains(machine));
+        assertTrue(Iterables.any(RecordingSshTool.getExecCmds(), ExecCmdPredicates.containsCmd(RESET_SCRIPT)));
+        assertEquals(pool.obtain(), machine);
+        assertNothingPendingEventually(pool);
+
+        // once that is recycled the pool is full, so the other machine is released to the target
+        pool.release(machine);
+        assertAvailableEventually(pool, 1);
+        pool.release(pooled);
+        assertFalse(target.getInUse().contains(pooled));
+    }
+
+    @Test
+    public void testReleasesMachineToTargetWhenResetFails() throws Exception {
+        RecordingSshTool.setCustomResponse(".*"+RESET_SCRIPT+".*", new CustomResponse(1, "", "failed"));
+        target = newTarget(2);
+        WarmMachinePoolLocation<SshMachineLocation> pool = newPool(ImmutableMap.of(
+                WarmMachinePoolLocation.POOL_SIZE, 1,
+                WarmMachinePoolLocation.RESET_SCRIPT, RESET_SCRIPT));
+        SshMachineLocation machine = pool.obtain();
+        assertAvailableEventually(pool, 1);
+        pool.obtain();
+        assertNothingPendingEventually(pool);
+
+        pool.release(machine);
+
+        Asserts.succeedsEventually(() -> assertFalse(target.getInUse().contains(machine)));
+        assertEquals(pool.getAvailableCount(ImmutableMap.of()), 0);
+    }
+
+    @Test
+    public void testReleasesMachineToTargetWithoutResetScript() throws Exception {
+        WarmMachinePoolLocation<SshMachineLocation> pool = newPool(ImmutableMap.of(
+                WarmMachinePoolLocation.POOL_SIZE, 0));
+        SshMachineLocation machine = pool.obtain();
+
+        pool.release(machine);
+
+        assertFalse(target.getInUse().contains(machine));
+        assertEquals(pool.getAvailableCount(ImmutableMap.of()), 0);
+    }
+
+    @Test
+    public void testDrainReleasesIdleMachines() throws Exception {
+        WarmMachinePoolLocation<SshMachineLocation> pool = newPool(ImmutableMap.of(
+                WarmMachinePoolLocation.POOL_SIZE, 2,
+                WarmMachinePoolLocation.POOL_TEMPLATES, ImmutableList.of(ImmutableMap.of())));
+        assertAvailableEventually(pool, 2);
+
+        pool.drain();
+
+        assertEquals(pool.getAvailableCount(ImmutableMap.of()), 0);
+        assertEquals(target.getInUse().size(), 0);
+    }
+
+    @Test
+    public void testDrainReleasesMachineStillBeingObtained() throws Exception {
+        target = newTarget(2, BlockingTarget.class);
+        BlockingTarget.proceed = new CountDownLatch(1);
+        try {
+            WarmMachinePoolLocation<SshMachineLocation> pool = newPool(ImmutableMap.of(
+                    WarmMachinePoolLocation.POOL_SIZE, 1,
+                    WarmMachinePoolLocation.POOL_TEMPLATES, ImmutableList.of(ImmutableMap.of())));
+            assertEquals(pool.getPendingCount(ImmutableMap.of()), 1);
+
+            pool.drain();
+            BlockingTarget.proceed.countDown();
+
+            assertNothingPendingEventually(pool);
+            assertEquals(pool.getAvailableCount(ImmutableMap.of()), 0);
+            Asserts.succeedsEventually(() -> assertEquals(target.getInUse().size(), 0));
+            // and the pool is no longer replenished
+            SshMachineLocation machine = pool.obtain();
+            assertEquals(pool.getPendingCount(ImmutableMap.of()), 0);
+            pool.release(machine);
+            assertEquals(target.getInUse().size(), 0);
+        } finally {
+            BlockingTarget.proceed.countDown();
+        }
+    }
+
+    @Test
+    public void testSubLocationDoesNotFillPoolForTemplates() throws Exception {
+        WarmMachinePoolLocation<SshMachineLocation> pool = newPool(ImmutableMap.of(
+                WarmMachinePoolLocation.POOL_SIZE, 1,
+                WarmMachinePoolLocation.POOL_TEMPLATES, ImmutableList.of(ImmutableMap.of())));
+        assertAvailableEventually(pool, 1);
+
+        WarmMachinePoolLocation<?> sub = (WarmMachinePoolLocation<?>) pool.newSubLocation(ImmutableMap.of());
+
+        assertEquals(sub.getPendingCount(ImmutableMap.of()), 0);
+        assertEquals(sub.getAvailableCount(ImmutableMap.of()), 0);
+        assertEquals(target.getInUse().size(), 1);
+    }
+
+    /** Blocks obtaining machines until {@link #proceed} is counted down. */
+    public static class BlockingTarget extends FixedListMachineProvisioningLocation<SshMachineLocation> {
+        static volatile CountDownLatch proceed = new CountDownLatch(0);
+
+        @Override
+        public SshMachineLocation obtain(Map<?, ?> flags) throws NoMachinesAvailableException {
+            Uninterruptibles.awaitUninterruptibly(proceed);
+            return super.obtain(flags);
+        }
+    }
+
+    private FixedListMachineProvisioningLocation<SshMachineLocation> newTarget(int size) {
+        return newTarget(size, FixedListMachineProvisioningLocation.class);
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private FixedListMachineProvisioningLocation<SshMachineLocation> newTarget(int size, Class<? extends FixedListMachineProvisioningLocation> type) {
+        List<SshMachineLocation> machines = MutableList.of();
+        for (int i = 1; i <= size; i++) {
+            machines.add(mgmt.getLocationManager().createLocation(LocationSpec.create(SshMachineLocation.class)
+                    .configure("address", "1.2.3."+i)
+                    .configure(SshMachineLocation.SSH_TOOL_CLASS, RecordingSshTool.class.getName())));
+        }
+        return mgmt.getLocationManager().createLocation(LocationSpec.create(type)
+                .configure("machines", machines));
+    }
+
+    @SuppressWarnings("unchecked")
+    private WarmMachinePoolLocation<SshMachineLocation> newPool(Map<?, ?> config) {
+        return mgmt.getLocationManager().createLocation(LocationSpec.create(WarmMachinePoolLocation.class)
+                .configure(WarmMachinePoolLocation.TARGET, target)
+                .configure(config));
+    }
+
+    private void assertAvailableEventually(final WarmMachinePoolLocation<?> pool, final int expected) {
+        Asserts.succeedsEventually(() -> assertEquals(pool.getAvailableCount(ImmutableMap.of()), expected));
+    }
+
+    private void assertNothingPendingEventually(final WarmMachinePoolLocation<?> pool) {
+        Asserts.succeedsEventually(() -> assertEquals(pool.getPendingCount(ImmutableMap.of()), 0));
+    }
+}
@@ -44,6 +44,7 @@ import org.apache.brooklyn.core.catalog.internal.CatalogItemBuilder;
 import org.apache.brooklyn.core.entity.AbstractEntity;
 import org.apache.brooklyn.core.entity.Entities;
 import org.apache.brooklyn.core.entity.EntityInternal;
+import org.apache.brooklyn.core.mgmt.ha.BundleClassLookupCache;
 import org.apache.brooklyn.core.mgmt.ha.OsgiManager;
 import org.apache.brooklyn.core.mgmt.internal.LocalManagementContext;
 import org.apache.brooklyn.core.mgmt.internal.ManagementContextInternal;
@@ -146,7 +147,35 @@ public class ClassLoaderUtilsTest {
         BundledName bn = new BundledName(resource.bundle, resource.version, "/" + resource.name);
         Asserts.assertSize(cluEntity.getResources(bn.toString()), 1);
     }
-    
+
+    @Test
+    public void testWhiteListLookupsCachedUntilBundlesChange() throws Exception {
+        String bundlePath = OsgiStandaloneTest.BROOKLYN_TEST_OSGI_ENTITIES_PATH;
+        String bundleUrl = OsgiStandaloneTest.BROOKLYN_TEST_OSGI_ENTITIES_URL;
+        String classname = OsgiTestResources.BROOKLYN_TEST_OSGI_ENTITIES_SIMPLE_ENTITY;
+
+        TestResourceUnavailableException.throwIfResourceUnavailable(getClass(), bundlePath);
+
+        mgmt = LocalManagementContextForTests.builder(true).enableOsgiReusable().build();
+        BundleClassLookupCache cache = ((ManagementContextInternal)mgmt).getOsgiManager().get().getClassLookupCache();
+        System.setProperty(ClassLoaderUtils.WHITE_LIST_KEY, "org\\.apache\\.brooklyn\\.test\\.resources\\.osgi\\..*");
+        ClassLoaderUtils clu = new ClassLoaderUtils(getClass(), mgmt);
+
+        assertLoadFails(clu, classname);
+        long negativeHits = cache.getNegativeHitCount();
+        assertLoadFails(clu, classname);
+        assertEquals(cache.getNegativeHitCount(), negativeHits + 1);
+
+        // installing the bundle clears the remembered miss
+        Bundle bundle = installBundle(mgmt, bundleUrl);
+        assertEquals(cache.size(), 0);
+        Class<?> clazz = bundle.loadClass(classname);
+        assertLoadSucceeds(clu, classname, clazz);
+        long hits = cache.getStats().hitCount();
+        assertLoadSucceeds(clu, classname, clazz);
+        assertEquals(cache.getStats().hitCount(), hits + 1);
+    }
+
 
     @Test
     public void testVariousLoadersLoadClassInOsgiWhiteList() throws Exception {
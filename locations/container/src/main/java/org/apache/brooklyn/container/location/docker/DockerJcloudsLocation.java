@@ -27,8 +27,6 @@ import java.util.Map;
 import javax.annotation.Nullable;
 
 import org.apache.brooklyn.api.entity.Entity;
-import org.apache.brooklyn.api.location.MachineLocation;
-import org.apache.brooklyn.api.location.NoMachinesAvailableException;
 import org.apache.brooklyn.config.ConfigKey;
 import org.apache.brooklyn.container.entity.docker.DockerContainer;
 import org.apache.brooklyn.core.config.ConfigKeys;
@@ -87,7 +85,9 @@ public class DockerJcloudsLocation extends JcloudsLocation {
             new ImageMetadata(OsFamily.UBUNTU, "16.04", "brooklyncentral/ubuntu:16.04"));
 
     @Override
-    protected MachineLocation obtainOnce(ConfigBag setup) throws NoMachinesAvailableException {
+    protected void prepareSetup(ConfigBag setup) {
+        super.prepareSetup(setup);
+
         // Use the provider name that jclouds expects; rely on resolver to have validated this.
         setup.configure(JcloudsLocation.CLOUD_PROVIDER, "docker");
 
@@ -117,8 +117,6 @@ public class DockerJcloudsLocation extends JcloudsLocation {
                 setup.configure(JcloudsLocation.IMAGE_DESCRIPTION_REGEX, defaultImageDescriptionRegex);
             }
         }
-
-        return super.obtainOnce(setup);
     }
 
     @Override
@@ -40,6 +40,7 @@ import org.apache.brooklyn.container.entity.docker.DockerContainer;
 import org.apache.brooklyn.container.entity.kubernetes.KubernetesPod;
 import org.apache.brooklyn.container.entity.kubernetes.KubernetesResource;
 import org.apache.brooklyn.container.location.docker.DockerJcloudsLocation;
+import org.apache.brooklyn.container.location.kubernetes.KubernetesResourceWatcher.ResourceKind;
 import org.apache.brooklyn.container.location.kubernetes.machine.KubernetesEmptyMachineLocation;
 import org.apache.brooklyn.container.location.kubernetes.machine.KubernetesMachineLocation;
 import org.apache.brooklyn.container.location.kubernetes.machine.KubernetesSshMachineLocation;
@@ -62,6 +63,7 @@ import org.apache.brooklyn.util.core.config.ConfigBag;
 import org.apache.brooklyn.util.core.config.ResolvingConfigBag;
 import org.apache.brooklyn.util.core.internal.ssh.SshTool;
 import org.apache.brooklyn.util.core.text.TemplateProcessor;
+import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.exceptions.ReferenceWithError;
 import org.apache.brooklyn.util.net.Networking;
 import org.apache.brooklyn.util.repeat.Repeater;
@@ -133,6 +135,7 @@ public class KubernetesLocation extends AbstractLocation implements MachineProvi
     private static final Logger LOG = LoggerFactory.getLogger(KubernetesLocation.class);
     public static final String ADDRESS_KEY = "address";
     private ConfigBag currentConfig;
+    private transient KubernetesResourceWatcher resourceWatcher;
 
     public KubernetesLocation() {
         super();
@@ -163,6 +166,32 @@ public class KubernetesLocation extends AbstractLocation implements MachineProvi
         return client;
     }
 
+    /**
+     * The watcher used to wait for resources, if {@link #WATCH_RESOURCES enabled}; it is created on first use,
+     * with its own client, and closed when this location is unmanaged.
+     */
+    @Nullable
+    protected synchronized KubernetesResourceWatcher getResourceWatcher() {
+        if (!Boolean.TRUE.equals(getConfig(WATCH_RESOURCES))) {
+            return null;
+        }
+        if (resourceWatcher == null) {
+            resourceWatcher = new KubernetesResourceWatcher(getClient());
+        }
+        return resourceWatcher;
+    }
+
+    @Override
+    public void onManagementStopped() {
+        synchronized (this) {
+            if (resourceWatcher != null) {
+                resourceWatcher.close();
+                resourceWatcher = null;
+            }
+        }
+        super.onManagementStopped();
+    }
+
     @Override
     public KubernetesMachineLocation obtain(Map<?, ?> flags) {
         ConfigBag setupRaw = ConfigBag.newInstanceExtending(config().getBag(), flags);
@@ -205,7 +234,7 @@ public class KubernetesLocation extends AbstractLocation implements MachineProvi
                     return "No service with namespace=" + namespace + ", serviceName=" + service;
                 }
             };
-            waitForExitCondition(exitCondition);
+            awaitWatchedDeletion(ResourceKind.SERVICES, namespace, service, exitCondition);
             Boolean delete = machine.config().get(DELETE_EMPTY_NAMESPACE);
             if (Boolean.TRUE.equals(delete)) {
                 deleteEmptyNamespace(namespace);
@@ -263,7 +292,7 @@ public class KubernetesLocation extends AbstractLocation implements MachineProvi
                     return "No deployment with namespace=" + namespace + ", deployment=" + deployment;
                 }
             };
-            waitForExitCondition(exitCondition);
+            awaitWatchedDeletion(ResourceKind.DEPLOYMENTS, namespace, deployment, exitCondition);
         }
     }
 
@@ -573,7 +602,12 @@ public class KubernetesLocation extends AbstractLocation implements MachineProvi
                     return "Cannot find pod with name: " + name;
                 }
             };
-            waitForExitCondition(exitCondition);
+            Pod pod = awaitWatchedResource(ResourceKind.PODS, namespace,
+                    p -> name.equals(p.getMetadata().getName()) && p.getStatus().getPodIP() != null,
+                    exitCondition);
+            if (pod != null) {
+                return pod;
+            }
             return client.pods().inNamespace(namespace).withName(name).get();
         }
     }
@@ -592,7 +626,13 @@ public class KubernetesLocation extends AbstractLocation implements MachineProvi
                     return "Cannot find pod with metadata: " + Joiner.on(" ").withKeyValueSeparator("=").join(metadata);
                 }
             };
-            waitForExitCondition(exitCondition);
+            Pod pod = awaitWatchedResource(ResourceKind.PODS, namespace,
+                    p -> p.getMetadata().getLabels() != null && p.getMetadata().getLabels().entrySet().containsAll(metadata.entrySet())
+                            && p.getStatus().getPodIP() != null,
+                    exitCondition);
+            if (pod != null) {
+                return pod;
+            }
             PodList result = client.pods().inNamespace(namespace).withLabels(metadata).list();
             return result.getItems().get(0);
         }
@@ -726,7 +766,9 @@ public class KubernetesLocation extends AbstractLocation implements MachineProvi
                             + "; availableReplicas=" + (status == null ? "null" : status.getAvailableReplicas());
                 }
             };
-            waitForExitCondition(exitCondition);
+            awaitWatchedResource(ResourceKind.DEPLOYMENTS, namespace,
+                    d -> deploymentName.equals(d.getMetadata().getName()) && d.getStatus() != null && d.getStatus().getAvailableReplicas() != null,
+                    exitCondition);
         }
         LOG.debug("Deployed deployment {} in namespace {}.", deployment, namespace);
     }
@@ -761,15 +803,7 @@ public class KubernetesLocation extends AbstractLocation implements MachineProvi
                     return false;
                 }
                 Endpoints endpoints = client.endpoints().inNamespace(namespace).withName(serviceName).get();
-                if (endpoints == null || endpoints.getSubsets().isEmpty()) {
-                    return false;
-                }
-                for (EndpointSubset subset : endpoints.getSubsets()) {
-                    if (!subset.getNotReadyAddresses().isEmpty()) {
-                        return false;
-                    }
-                }
-                return true;
+                return isReady(endpoints);
             }
 
             @Override
@@ -778,11 +812,31 @@ public class KubernetesLocation extends AbstractLocation implements MachineProvi
                 return "Service endpoints in " + namespace + " for serviceName= " + serviceName + " not ready: " + endpoints;
             }
         };
-        waitForExitCondition(exitCondition);
+        Service service = awaitWatchedResource(ResourceKind.SERVICES, namespace,
+                svc -> serviceName.equals(svc.getMetadata().getName()) && svc.getStatus() != null,
+                exitCondition);
+        if (service != null) {
+            awaitWatchedResource(ResourceKind.ENDPOINTS, namespace,
+                    endpoints -> serviceName.equals(endpoints.getMetadata().getName()) && isReady(endpoints),
+                    exitCondition);
+            return service;
+        }
 
         return client.services().inNamespace(namespace).withName(serviceName).get();
     }
 
+    protected boolean isReady(Endpoints endpoints) {
+        if (endpoints == null || endpoints.getSubsets().isEmpty()) {
+            return false;
+        }
+        for (EndpointSubset subset : endpoints.getSubsets()) {
+            if (!subset.getNotReadyAddresses().isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     protected LocationSpec<KubernetesSshMachineLocation> prepareSshableLocationSpec(Entity entity, ConfigBag setup, Service service, Pod pod) {
         InetAddress node = Networking.getInetAddressWithFixedName(pod.getSpec().getNodeName());
         String podAddress = pod.getStatus().getPodIP();
@@ -1013,12 +1067,61 @@ public class KubernetesLocation extends AbstractLocation implements MachineProvi
                 .until(exitCondition)
                 .runKeepingError();
         if (!Boolean.TRUE.equals(result.get())) {
-            String err = String.format("Exit condition unsatisfied after %s: %s", duration, exitCondition.getFailureMessage());
-            LOG.info("{} (rethrowing)", err);
-            throw new IllegalStateException(err);
+            throw exitConditionUnsatisfied(exitCondition, duration);
         }
     }
 
+    /**
+     * Waits, using the {@link #getResourceWatcher() resource watcher}, for a resource satisfying the condition.
+     * If not watching, or the namespace cannot be watched, instead {@link #waitForExitCondition(ExitCondition) polls}
+     * until the exit condition is satisfied.
+     *
+     * @return the resource, or {@literal null} if polled
+     */
+    @Nullable
+    protected <T extends HasMetadata> T awaitWatchedResource(ResourceKind<T> kind, String namespace, Predicate<? super T> condition, ExitCondition exitCondition) {
+        KubernetesResourceWatcher watcher = getResourceWatcher();
+        if (watcher != null) {
+            try {
+                Optional<T> result = watcher.await(kind, namespace, condition, Duration.FIVE_MINUTES);
+                if (!result.isPresent()) {
+                    throw exitConditionUnsatisfied(exitCondition, Duration.FIVE_MINUTES);
+                }
+                return result.get();
+            } catch (KubernetesClientException e) {
+                LOG.warn("Cannot watch {} in namespace {}, polling instead: {}", new Object[] {kind, namespace, e.getMessage()});
+            } catch (InterruptedException e) {
+                throw Exceptions.propagate(e);
+            }
+        }
+        waitForExitCondition(exitCondition);
+        return null;
+    }
+
+    /** As {@link #awaitWatchedResource(ResourceKind, String, Predicate, ExitCondition)}, but waits for the named resource to be deleted. */
+    protected <T extends HasMetadata> void awaitWatchedDeletion(ResourceKind<T> kind, String namespace, String name, ExitCondition exitCondition) {
+        KubernetesResourceWatcher watcher = getResourceWatcher();
+        if (watcher != null) {
+            try {
+                if (!watcher.awaitDeleted(kind, namespace, name, Duration.FIVE_MINUTES)) {
+                    throw exitConditionUnsatisfied(exitCondition, Duration.FIVE_MINUTES);
+                }
+                return;
+            } catch (KubernetesClientException e) {
+                LOG.warn("Cannot watch {} in namespace {}, polling instead: {}", new Object[] {kind, namespace, e.getMessage()});
+            } catch (InterruptedException e) {
+                throw Exceptions.propagate(e);
+            }
+        }
+        waitForExitCondition(exitCondition);
+    }
+
+    private IllegalStateException exitConditionUnsatisfied(ExitCondition exitCondition, Duration duration) {
+        String err = String.format("Exit condition unsatisfied after %s: %s", duration, exitCondition.getFailureMessage());
+        LOG.info("{} (rethrowing)", err);
+        return new IllegalStateException(err);
+    }
+
     public interface ExitCondition extends Callable<Boolean> {
         String getFailureMessage();
     }
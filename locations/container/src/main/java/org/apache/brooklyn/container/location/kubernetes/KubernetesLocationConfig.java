@@ -28,6 +28,7 @@ import org.apache.brooklyn.core.location.LocationConfigKeys;
 import org.apache.brooklyn.core.location.cloud.CloudLocationConfig;
 import org.apache.brooklyn.util.time.Duration;
 
+import com.google.common.annotations.Beta;
 import com.google.common.base.Predicates;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.reflect.TypeToken;
@@ -115,6 +116,14 @@ public interface KubernetesLocationConfig extends CloudLocationConfig {
             .constraint(Predicates.<Duration>notNull())
             .build();
 
+    @Beta
+    ConfigKey<Boolean> WATCH_RESOURCES = ConfigKeys.builder(Boolean.class)
+            .name("kubernetes.watch")
+            .description("[Beta] Whether to wait for pods, deployments and services by watching the API server, "
+                    + "rather than by polling each resource; falls back to polling if the namespace cannot be watched")
+            .defaultValue(false)
+            .build();
+
     ConfigKey<Boolean> CREATE_NAMESPACE = ConfigKeys.builder(Boolean.class)
             .name("namespace.create")
             .description("Whether to create the namespace if it does not exist")
@@ -0,0 +1,390 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.container.location.kubernetes;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Function;
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Predicate;
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
+
+import io.fabric8.kubernetes.api.model.Endpoints;
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.KubernetesResourceList;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.Service;
+import io.fabric8.kubernetes.api.model.apps.Deployment;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
+
+/**
+ * Keeps a local cache of the pods, deployments, services and endpoints in the namespaces of interest,
+ * kept up to date by watching the API server, so that {@link KubernetesLocation} can wait for resources
+ * to become ready without polling each of them.
+ * <p>
+ * A namespace is listed, and then watched from the version of that listing, the first time a kind of
+ * resource is looked up in it. If the watch is closed (e.g. because its resource version has expired)
+ * it is re-established, with a fresh listing, on the next lookup. The listing is also refreshed every
+ * resync period, in case events were missed. Waiters are woken on every event, and re-check their
+ * condition against the cache.
+ * <p>
+ * The watcher owns its client, which it closes when it is {@link #close() closed}.
+ */
+@Beta
+public class KubernetesResourceWatcher implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(KubernetesResourceWatcher.class);
+
+    public static final Duration DEFAULT_RESYNC_PERIOD = Duration.ONE_MINUTE;
+
+    /** A kind of namespaced resource that can be listed and watched. */
+    public static abstract class ResourceKind<T extends HasMetadata> {
+        public static final ResourceKind<Pod> PODS = new ResourceKind<Pod>("pods") {
+            @Override
+            protected KubernetesResourceList<Pod> list(KubernetesClient client, String namespace) {
+                return client.pods().inNamespace(namespace).list();
+            }
+
+            @Override
+            protected Watch watch(KubernetesClient client, String namespace, String resourceVersion, Watcher<Pod> watcher) {
+                return client.pods().inNamespace(namespace).withResourceVersion(resourceVersion).watch(watcher);
+            }
+        };
+
+        public static final ResourceKind<Deployment> DEPLOYMENTS = new ResourceKind<Deployment>("deployments") {
+            @Override
+            protected KubernetesResourceList<Deployment> list(KubernetesClient client, String namespace) {
+                return client.apps().deployments().inNamespace(namespace).list();
+            }
+
+            @Override
+            protected Watch watch(KubernetesClient client, String namespace, String resourceVersion, Watcher<Deployment> watcher) {
+                return client.apps().deployments().inNamespace(namespace).withResourceVersion(resourceVersion).watch(watcher);
+            }
+        };
+
+        public static final ResourceKind<Service> SERVICES = new ResourceKind<Service>("services") {
+            @Override
+            protected KubernetesResourceList<Service> list(KubernetesClient client, String namespace) {
+                return client.services().inNamespace(namespace).list();
+            }
+
+            @Override
+            protected Watch watch(KubernetesClient client, String namespace, String resourceVersion, Watcher<Service> watcher) {
+                return client.services().inNamespace(namespace).withResourceVersion(resourceVersion).watch(watcher);
+            }
+        };
+
+        public static final ResourceKind<Endpoints> ENDPOINTS = new ResourceKind<Endpoints>("endpoints") {
+            @Override
+            protected KubernetesResourceList<Endpoints> list(KubernetesClient client, String namespace) {
+                return client.endpoints().inNamespace(namespace).list();
+            }
+
+            @Override
+            protected Watch watch(KubernetesClient client, String namespace, String resourceVersion, Watcher<Endpoints> watcher) {
+                return client.endpoints().inNamespace(namespace).withResourceVersion(resourceVersion).watch(watcher);
+            }
+        };
+
+        private final String name;
+
+        protected ResourceKind(String name) {
+            this.name = name;
+        }
+
+        protected abstract KubernetesResourceList<T> list(KubernetesClient client, String namespace);
+
+        protected abstract Watch watch(KubernetesClient client, String namespace, String resourceVersion, Watcher<T> watcher);
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private final KubernetesClient client;
+    private final Duration resyncPeriod;
+    private final ConcurrentMap<List<Object>, ResourceCache<?>> caches = Maps.newConcurrentMap();
+    private volatile boolean closed;
+
+    public KubernetesResourceWatcher(KubernetesClient client) {
+        this(client, DEFAULT_RESYNC_PERIOD);
+    }
+
+    public KubernetesResourceWatcher(KubernetesClient client, Duration resyncPeriod) {
+        this.client = Preconditions.checkNotNull(client, "client");
+        this.resyncPeriod = Preconditions.checkNotNull(resyncPeriod, "resyncPeriod");
+    }
+
+    /**
+     * The cached resource with the given name, if it exists.
+     *
+     * @throws KubernetesClientException if the namespace cannot be listed or watched
+     */
+    public <T extends HasMetadata> Optional<T> get(ResourceKind<T> kind, String namespace, String name) {
+        return getCache(kind, namespace).get(name);
+    }
+
+    /**
+     * Waits for a resource satisfying the condition, returning the first one found in the cache,
+     * or {@link Optional#absent() absent} if there is none within the timeout.
+     *
+     * @throws KubernetesClientException if the namespace cannot be listed or watched
+     */
+    public <T extends HasMetadata> Optional<T> await(ResourceKind<T> kind, String namespace, final Predicate<? super T> condition, Duration timeout)
+            throws InterruptedException {
+        return getCache(kind, namespace).await(new Function<Map<String, T>, Optional<T>>() {
+            @Override
+            public Optional<T> apply(Map<String, T> resources) {
+                return Iterables.tryFind(resources.values(), condition);
+            }
+        }, timeout);
+    }
+
+    /**
+     * Waits for the named resource to no longer exist, returning whether it was deleted within the timeout.
+     *
+     * @throws KubernetesClientException if the namespace cannot be listed or watched
+     */
+    public <T extends HasMetadata> boolean awaitDeleted(ResourceKind<T> kind, String namespace, final String name, Duration timeout)
+            throws InterruptedException {
+        return getCache(kind, namespace).await(new Function<Map<String, T>, Optional<Boolean>>() {
+            @Override
+            public Optional<Boolean> apply(Map<String, T> resources) {
+                return resources.containsKey(name) ? Optional.<Boolean>absent() : Optional.of(true);
+            }
+        }, timeout).isPresent();
+    }
+
+    /** Stops all watches, and closes the client. */
+    @Override
+    public void close() {
+        closed = true;
+        for (ResourceCache<?> cache : caches.values()) {
+            cache.stop();
+        }
+        caches.clear();
+        client.close();
+    }
+
+    @VisibleForTesting
+    int getWatchCount() {
+        int result = 0;
+        for (ResourceCache<?> cache : caches.values()) {
+            if (cache.isWatching()) result++;
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends HasMetadata> ResourceCache<T> getCache(ResourceKind<T> kind, String namespace) {
+        Preconditions.checkState(!closed, "Watcher closed");
+        List<Object> key = ImmutableList.<Object>of(kind, namespace);
+        ResourceCache<?> result = caches.get(key);
+        if (result == null) {
+            ResourceCache<?> existing = caches.putIfAbsent(key, result = new ResourceCache<T>(kind, namespace));
+            if (existing != null) result = existing;
+        }
+        return (ResourceCache<T>) result;
+    }
+
+    /** The resources of one kind in one namespace, keyed by name. */
+    private class ResourceCache<T extends HasMetadata> {
+        private final ResourceKind<T> kind;
+        private final String namespace;
+        private final Map<String, T> resources = Maps.newLinkedHashMap();
+        private Watch watch;
+        private Watcher<T> current;
+        private Stopwatch sinceListed;
+        private boolean refreshing;
+
+        ResourceCache(ResourceKind<T> kind, String namespace) {
+            this.kind = kind;
+            this.namespace = namespace;
+        }
+
+        Optional<T> get(String name) {
+            ensureWatching();
+            synchronized (this) {
+                return Optional.fromNullable(resources.get(name));
+            }
+        }
+
+        <R> Optional<R> await(Function<Map<String, T>, Optional<R>> check, Duration timeout) throws InterruptedException {
+            Stopwatch stopwatch = Stopwatch.createStarted();
+            while (true) {
+                ensureWatching();
+                synchronized (this) {
+                    Optional<R> result = check.apply(resources);
+                    if (result.isPresent()) {
+                        return result;
+                    }
+                    long remaining = timeout.toMilliseconds() - stopwatch.elapsed(TimeUnit.MILLISECONDS);
+                    if (remaining <= 0) {
+                        return Optional.absent();
+                    }
+                    wait(Math.max(1, Math.min(remaining, resyncPeriod.toMilliseconds())));
+                }
+            }
+        }
+
+        synchronized boolean isWatching() {
+            return watch != null;
+        }
+
+        /**
+         * Lists the resources and starts watching, if not already doing so and not due a resync.
+         * <p>
+         * The list and watch requests are made without holding the cache's lock, so that events for
+         * (and lookups in) the cache are not blocked on them; only one caller refreshes the cache at a
+         * time, and others wait for it. The listing is published before the watch is started, so that
+         * the watch's events are applied on top of it.
+         */
+        private void ensureWatching() {
+            synchronized (this) {
+                while (refreshing) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        throw Exceptions.propagate(e);
+                    }
+                }
+                if (watch != null && sinceListed.elapsed(TimeUnit.MILLISECONDS) < resyncPeriod.toMilliseconds()) {
+                    return;
+                }
+                Preconditions.checkState(!closed, "Watcher closed");
+                refreshing = true;
+            }
+            try {
+                stop();
+                KubernetesResourceList<T> listing = kind.list(client, namespace);
+                final Watcher<T> watcher = new Watcher<T>() {
+                    @Override
+                    public void eventReceived(Action action, T resource) {
+                        onEvent(this, action, resource);
+                    }
+
+                    @Override
+                    public void onClose(KubernetesClientException cause) {
+                        onWatchClosed(this, cause);
+                    }
+                };
+                synchronized (this) {
+                    resources.clear();
+                    for (T resource : listing.getItems()) {
+                        resources.put(resource.getMetadata().getName(), resource);
+                    }
+                    sinceListed = Stopwatch.createStarted();
+                    current = watcher;
+                }
+                Watch started = kind.watch(client, namespace, listing.getMetadata().getResourceVersion(), watcher);
+                synchronized (this) {
+                    if (watcher == current) {
+                        watch = started;
+                        started = null;
+                    }
+                }
+                if (started != null) {
+                    // stopped, or the watch closed, while it was being started; relist on the next lookup
+                    closeWatch(started);
+                }
+                LOG.debug("Watching {} in namespace {}, from {} listed", new Object[] {kind, namespace, listing.getItems().size()});
+            } finally {
+                synchronized (this) {
+                    refreshing = false;
+                    notifyAll();
+                }
+            }
+        }
+
+        private void onEvent(Watcher<T> watcher, Watcher.Action action, T resource) {
+            Watch failed = null;
+            synchronized (this) {
+                if (watcher != current) return;
+                switch (action) {
+                    case ADDED:
+                    case MODIFIED:
+                        resources.put(resource.getMetadata().getName(), resource);
+                        break;
+                    case DELETED:
+                        resources.remove(resource.getMetadata().getName());
+                        break;
+                    default:
+                        // relist on the next lookup
+                        LOG.debug("Error watching {} in namespace {}: {}", new Object[] {kind, namespace, resource});
+                        failed = watch;
+                        watch = null;
+                        current = null;
+                }
+                notifyAll();
+            }
+            if (failed != null) {
+                closeWatch(failed);
+            }
+        }
+
+        private synchronized void onWatchClosed(Watcher<T> watcher, KubernetesClientException cause) {
+            if (watcher != current) return;
+            LOG.debug("Watch of {} in namespace {} closed: {}", new Object[] {kind, namespace, cause});
+            watch = null;
+            current = null;
+            notifyAll();
+        }
+
+        private void stop() {
+            Watch old;
+            synchronized (this) {
+                old = watch;
+                watch = null;
+                current = null;
+            }
+            if (old != null) {
+                closeWatch(old);
+            }
+        }
+
+        private void closeWatch(Watch old) {
+            try {
+                old.close();
+            } catch (Exception e) {
+                Exceptions.propagateIfFatal(e);
+                LOG.debug("Error closing watch of {} in namespace {}: {}", new Object[] {kind, namespace, e});
+            }
+        }
+    }
+}
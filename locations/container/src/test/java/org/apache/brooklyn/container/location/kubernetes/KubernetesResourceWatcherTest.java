@@ -0,0 +1,247 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.container.location.kubernetes;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.brooklyn.container.location.kubernetes.KubernetesResourceWatcher.ResourceKind;
+import org.apache.brooklyn.test.Asserts;
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.time.Duration;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.Iterables;
+
+import io.fabric8.kubernetes.api.model.KubernetesResourceList;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.PodBuilder;
+import io.fabric8.kubernetes.api.model.PodListBuilder;
+import io.fabric8.kubernetes.client.ConfigBuilder;
+import io.fabric8.kubernetes.client.DefaultKubernetesClient;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
+import io.fabric8.kubernetes.client.Watcher.Action;
+
+public class KubernetesResourceWatcherTest {
+
+    private static final String NAMESPACE = "test";
+
+    private RecordingPodKind pods;
+    private KubernetesResourceWatcher watcher;
+
+    @BeforeMethod(alwaysRun = true)
+    public void setUp() {
+        pods = new RecordingPodKind();
+        watcher = newWatcher(Duration.ONE_MINUTE);
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown() {
+        if (watcher != null) watcher.close();
+    }
+
+    @Test
+    public void testGetListsOnceThenWatches() throws Exception {
+        pods.items.add(newPod("pod1", null));
+
+        assertTrue(watcher.get(pods, NAMESPACE, "pod1").isPresent());
+        assertFalse(watcher.get(pods, NAMESPACE, "pod2").isPresent());
+        pods.lastWatcher().eventReceived(Action.ADDED, newPod("pod2", null));
+        assertTrue(watcher.get(pods, NAMESPACE, "pod2").isPresent());
+
+        assertEquals(pods.listCount.get(), 1);
+        assertEquals(pods.watchers.size(), 1);
+        assertEquals(pods.lastResourceVersion, "42");
+        assertEquals(watcher.getWatchCount(), 1);
+    }
+
+    @Test
+    public void testAwaitWokenByEvent() throws Exception {
+        pods.items.add(newPod("pod1", null));
+        watcher.get(pods, NAMESPACE, "pod1");
+
+        Thread modifier = new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                return;
+            }
+            pods.lastWatcher().eventReceived(Action.MODIFIED, newPod("pod1", "10.0.0.1"));
+        });
+        modifier.start();
+        Optional<Pod> result = watcher.await(pods, NAMESPACE, p -> p.getStatus().getPodIP() != null, Duration.THIRTY_SECONDS);
+        modifier.join();
+
+        assertEquals(result.get().getStatus().getPodIP(), "10.0.0.1");
+        assertEquals(pods.listCount.get(), 1);
+    }
+
+    @Test
+    public void testAwaitTimesOut() throws Exception {
+        pods.items.add(newPod("pod1", null));
+
+        Optional<Pod> result = watcher.await(pods, NAMESPACE, p -> p.getStatus().getPodIP() != null, Duration.millis(100));
+
+        assertFalse(result.isPresent());
+    }
+
+    @Test
+    public void testAwaitDeleted() throws Exception {
+        pods.items.add(newPod("pod1", null));
+        assertFalse(watcher.awaitDeleted(pods, NAMESPACE, "pod1", Duration.millis(10)));
+
+        pods.lastWatcher().eventReceived(Action.DELETED, newPod("pod1", null));
+
+        assertTrue(watcher.awaitDeleted(pods, NAMESPACE, "pod1", Duration.millis(10)));
+    }
+
+    @Test
+    public void testRelistsWhenWatchClosed() throws Exception {
+        watcher.get(pods, NAMESPACE, "pod1");
+        Watcher<Pod> closed = pods.lastWatcher();
+        pods.items.add(newPod("pod1", null));
+
+        closed.onClose(new KubernetesClientException("too old resource version"));
+        // events from the closed watch are ignored
+        closed.eventReceived(Action.ADDED, newPod("pod2", null));
+
+        assertTrue(watcher.get(pods, NAMESPACE, "pod1").isPresent());
+        assertFalse(watcher.get(pods, NAMESPACE, "pod2").isPresent());
+        assertEquals(pods.listCount.get(), 2);
+        assertEquals(pods.watchers.size(), 2);
+    }
+
+    @Test
+    public void testCacheNotLockedWhileListing() throws Exception {
+        watcher.get(pods, NAMESPACE, "pod1");
+        pods.lastWatcher().onClose(new KubernetesClientException("too old resource version"));
+        pods.items.add(newPod("pod1", null));
+        pods.listLatch = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            Future<Optional<Pod>> first = executor.submit(() -> watcher.get(pods, NAMESPACE, "pod1"));
+            Future<Optional<Pod>> second = executor.submit(() -> watcher.get(pods, NAMESPACE, "pod1"));
+            Asserts.succeedsEventually(() -> assertEquals(pods.listCount.get(), 2));
+
+            // the relisting caller does not hold the cache while waiting for the server
+            assertEquals(executor.submit(() -> watcher.getWatchCount()).get(10, TimeUnit.SECONDS), (Integer) 0);
+
+            pods.listLatch.countDown();
+            assertTrue(first.get(10, TimeUnit.SECONDS).isPresent());
+            assertTrue(second.get(10, TimeUnit.SECONDS).isPresent());
+        } finally {
+            pods.listLatch.countDown();
+            executor.shutdownNow();
+        }
+        // the second caller waited for the first's listing rather than listing again
+        assertEquals(pods.listCount.get(), 2);
+        assertEquals(watcher.getWatchCount(), 1);
+    }
+
+    @Test
+    public void testRelistsAfterResyncPeriod() throws Exception {
+        watcher.close();
+        watcher = newWatcher(Duration.ZERO);
+
+        watcher.get(pods, NAMESPACE, "pod1");
+        watcher.get(pods, NAMESPACE, "pod1");
+
+        assertEquals(pods.listCount.get(), 2);
+        assertEquals(pods.closeCount.get(), 1);
+    }
+
+    @Test
+    public void testCloseStopsWatches() throws Exception {
+        watcher.get(pods, NAMESPACE, "pod1");
+        watcher.get(pods, "other", "pod1");
+        assertEquals(watcher.getWatchCount(), 2);
+
+        watcher.close();
+
+        assertEquals(pods.closeCount.get(), 2);
+        watcher = null;
+    }
+
+    private KubernetesResourceWatcher newWatcher(Duration resyncPeriod) {
+        KubernetesClient client = new DefaultKubernetesClient(new ConfigBuilder().withMasterUrl("http://localhost:1").build());
+        return new KubernetesResourceWatcher(client, resyncPeriod);
+    }
+
+    private static Pod newPod(String name, String podIp) {
+        return new PodBuilder()
+                .withNewMetadata().withName(name).withNamespace(NAMESPACE).endMetadata()
+                .withNewStatus().withPodIP(podIp).endStatus()
+                .build();
+    }
+
+    /** Serves a fixed listing, and records the watchers registered, rather than talking to a server. */
+    private static class RecordingPodKind extends ResourceKind<Pod> {
+        final List<Pod> items = new CopyOnWriteArrayList<>();
+        final List<Watcher<Pod>> watchers = new CopyOnWriteArrayList<>();
+        final AtomicInteger listCount = new AtomicInteger();
+        final AtomicInteger closeCount = new AtomicInteger();
+        volatile String lastResourceVersion;
+        volatile CountDownLatch listLatch;
+
+        RecordingPodKind() {
+            super("pods");
+        }
+
+        @Override
+        protected KubernetesResourceList<Pod> list(KubernetesClient client, String namespace) {
+            listCount.incrementAndGet();
+            if (listLatch != null) {
+                try {
+                    listLatch.await();
+                } catch (InterruptedException e) {
+                    throw Exceptions.propagate(e);
+                }
+            }
+            return new PodListBuilder().withNewMetadata().withResourceVersion("42").endMetadata().withItems(items).build();
+        }
+
+        @Override
+        protected Watch watch(KubernetesClient client, String namespace, String resourceVersion, Watcher<Pod> watcher) {
+            lastResourceVersion = resourceVersion;
+            watchers.add(watcher);
+            return closeCount::incrementAndGet;
+        }
+
+        Watcher<Pod> lastWatcher() {
+            return Iterables.getLast(watchers);
+        }
+    }
+}
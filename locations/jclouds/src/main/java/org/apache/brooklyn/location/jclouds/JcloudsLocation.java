@@ -34,6 +34,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -56,7 +57,9 @@ import org.apache.brooklyn.api.location.MachineManagementMixins;
 import org.apache.brooklyn.api.location.NoMachinesAvailableException;
 import org.apache.brooklyn.api.location.PortRange;
 import org.apache.brooklyn.api.mgmt.AccessController;
+import org.apache.brooklyn.api.mgmt.ExecutionContext;
 import org.apache.brooklyn.api.mgmt.Task;
+import org.apache.brooklyn.api.sensor.AttributeSensor;
 import org.apache.brooklyn.config.ConfigKey;
 import org.apache.brooklyn.config.ConfigKey.HasConfigKey;
 import org.apache.brooklyn.core.config.ConfigUtils;
@@ -78,6 +81,7 @@ import org.apache.brooklyn.core.location.internal.LocationInternal;
 import org.apache.brooklyn.core.mgmt.internal.LocalLocationManager;
 import org.apache.brooklyn.core.mgmt.persist.PersistenceObjectStore;
 import org.apache.brooklyn.core.mgmt.persist.jclouds.JcloudsBlobStoreBasedObjectStore;
+import org.apache.brooklyn.core.sensor.Sensors;
 import org.apache.brooklyn.location.jclouds.api.JcloudsLocationPublic;
 import org.apache.brooklyn.location.jclouds.networking.JcloudsPortForwarderExtension;
 import org.apache.brooklyn.location.jclouds.networking.creator.DefaultAzureArmNetworkCreator;
@@ -102,10 +106,12 @@ import org.apache.brooklyn.util.core.internal.ssh.ShellTool;
 import org.apache.brooklyn.util.core.internal.ssh.SshTool;
 import org.apache.brooklyn.util.core.internal.winrm.WinRmTool;
 import org.apache.brooklyn.util.core.internal.winrm.WinRmToolResponse;
+import org.apache.brooklyn.util.core.task.BasicExecutionContext;
 import org.apache.brooklyn.util.core.task.DynamicTasks;
 import org.apache.brooklyn.util.core.task.DynamicTasks.TaskQueueingResult;
 import org.apache.brooklyn.util.core.task.TaskBuilder;
 import org.apache.brooklyn.util.core.task.TaskInternal;
+import org.apache.brooklyn.util.core.task.TaskTags;
 import org.apache.brooklyn.util.core.task.Tasks;
 import org.apache.brooklyn.util.core.task.ssh.SshTasks;
 import org.apache.brooklyn.util.core.text.TemplateProcessor;
@@ -158,6 +164,7 @@ import org.jclouds.util.Predicates2;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.annotations.Beta;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
 import com.google.common.base.Joiner;
@@ -171,6 +178,8 @@ import com.google.common.base.Stopwatch;
 import com.google.common.base.Supplier;
 import com.google.common.base.Suppliers;
 import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
@@ -182,6 +191,7 @@ import com.google.common.collect.Sets;
 import com.google.common.collect.Sets.SetView;
 import com.google.common.net.HostAndPort;
 import com.google.common.primitives.Ints;
+import com.google.common.reflect.TypeToken;
 
 /**
  * For provisioning and managing VMs in a particular provider/region, using jclouds.
@@ -204,6 +214,18 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
 
     private static final int NOTES_MAX_LENGTH = 1000;
 
+    /**
+     * Published on the entity a machine is obtained for (the {@link #CALLER_CONTEXT}), with the time taken by each phase
+     * of provisioning: semaphore, template (including templateResolution), provision, usable, customized, and total.
+     * Also includes the stages of making the machine usable and customizing it, which are recorded on the machine
+     * as {@link JcloudsMachineLocation#PROVISIONING_TIMINGS}.
+     */
+    @Beta
+    @SuppressWarnings("serial")
+    public static final AttributeSensor<Map<String, Duration>> PROVISIONING_TIMINGS = Sensors.newSensor(
+            new TypeToken<Map<String, Duration>>() {},
+            "provisioning.timings", "Time taken by each phase of provisioning the machine");
+
     @VisibleForTesting
     static final String AWS_VPC_HELP_URL = "http://brooklyn.apache.org/v/latest/locations/#ec2-classic-problems-with-vpc-only-hardware-instance-types";
 
@@ -211,6 +233,14 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
 
     private final Map<String,Map<String, ? extends Object>> tagMapping = Maps.newLinkedHashMap();
 
+    private final MachineCreationBatcher machineCreationBatcher = new MachineCreationBatcher(this);
+
+    /**
+     * How each template returned by {@link #buildTemplate(ComputeService, ConfigBag, JcloudsLocationCustomizer)} was resolved,
+     * taken by the node creation which asked for it; keyed by identity, as each template handed out is a distinct instance.
+     */
+    private final Cache<Template, TemplateResolution> templateResolutions = CacheBuilder.newBuilder().weakKeys().build();
+
     @SetFromFlag // so it's persisted
     private final Map<MachineLocation,String> vmInstanceIds = Collections.synchronizedMap(Maps.newLinkedHashMap());
 
@@ -607,27 +637,103 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
      * (for initial login, and a user potentially to create for subsequent ie normal access) */
     @Override
     public MachineLocation obtain(Map<?,?> flags) throws NoMachinesAvailableException {
-        ConfigBag setupRaw = ConfigBag.newInstanceExtending(config().getBag(), flags);
-        ConfigBag setup = ResolvingConfigBag.newInstanceExtending(getManagementContext(), setupRaw);
-
-        Map<String, Object> flagTemplateOptions = ConfigBag.newInstance(flags).get(TEMPLATE_OPTIONS);
-        Map<String, Object> baseTemplateOptions = config().get(TEMPLATE_OPTIONS);
-        Map<String, Object> templateOptions = (Map<String, Object>) shallowMerge(Maybe.fromNullable(flagTemplateOptions), Maybe.fromNullable(baseTemplateOptions), TEMPLATE_OPTIONS).orNull();
-        setup.put(TEMPLATE_OPTIONS, templateOptions);
+        ConfigBag setup = newObtainSetup(flags);
 
+        Duration batchWindow = setup.get(MACHINE_CREATION_BATCH_WINDOW);
+        boolean batching = batchWindow != null && batchWindow.isPositive();
         Integer attempts = setup.get(MACHINE_CREATE_ATTEMPTS);
         List<Exception> exceptions = Lists.newArrayList();
         if (attempts == null || attempts < 1) attempts = 1;
         for (int i = 1; i <= attempts; i++) {
             try {
-                return obtainOnce(setup);
+                return batching
+                        ? machineCreationBatcher.obtain(flags, setup, batchWindow, setup.get(MACHINE_CREATION_MAX_BATCH_SIZE))
+                        : obtainOnce(setup);
             } catch (RuntimeException e) {
                 LOG.warn("Attempt #{}/{} to obtain machine threw error: {}", new Object[]{i, attempts, e});
                 exceptions.add(e);
             }
         }
-        String msg = String.format("Failed to get VM after %d attempt%s.", attempts, attempts == 1 ? "" : "s");
+        throw newObtainFailure(String.format("Failed to get VM after %d attempt%s.", attempts, attempts == 1 ? "" : "s"), exceptions);
+    }
+
+    /**
+     * Obtains the given number of machines, all with the same configuration, creating the nodes with a
+     * single call to jclouds and then setting them up in parallel. If some fail, more are created for those
+     * (up to {@link #MACHINE_CREATE_ATTEMPTS} attempts in total).
+     * <p>
+     * The nodes share the template and group derived from the flags, and each is named by the {@link CloudMachineNamer}
+     * (where the cloud supports naming nodes created together).
+     *
+     * @throws NoMachinesAvailableException if not all of the machines could be obtained,
+     *         in which case any which were obtained are released
+     */
+    @Beta
+    public List<MachineLocation> obtain(int count, Map<?,?> flags) throws NoMachinesAvailableException {
+        checkArgument(count > 0, "count must be positive");
+        ConfigBag setup = newObtainSetup(flags);
+
+        Integer attempts = setup.get(MACHINE_CREATE_ATTEMPTS);
+        List<MachineLocation> result = Lists.newArrayList();
+        List<Exception> exceptions = Lists.newArrayList();
+        if (attempts == null || attempts < 1) attempts = 1;
+        for (int i = 1; i <= attempts && result.size() < count; i++) {
+            try {
+                List<ConfigBag> nodeSetups = Lists.newArrayList();
+                for (int j = result.size(); j < count; j++) {
+                    // each with its own view of the setup, as that is updated with the machine's credentials
+                    nodeSetups.add(ResolvingConfigBag.newInstanceExtending(getManagementContext(), setup));
+                }
+                for (Object machineOrError : obtainNodesOnce(nodeSetups)) {
+                    if (machineOrError instanceof MachineLocation) {
+                        result.add((MachineLocation) machineOrError);
+                    } else if (machineOrError != null) {
+                        Throwable error = (Throwable) machineOrError;
+                        exceptions.add((error instanceof Exception) ? (Exception) error : new RuntimeException(error));
+                    }
+                }
+            } catch (RuntimeException e) {
+                exceptions.add(e);
+            }
+            if (result.size() < count) {
+                LOG.warn("Attempt #{}/{} to obtain {} machines got only {}{}", new Object[]{i, attempts, count, result.size(),
+                        exceptions.isEmpty() ? "" : "; last error: "+exceptions.get(exceptions.size()-1)});
+            }
+        }
+        if (result.size() < count) {
+            for (MachineLocation machine : result) {
+                releaseSafely(machine);
+            }
+            if (exceptions.isEmpty()) {
+                exceptions.add(new IllegalStateException("Fewer nodes returned by jclouds than requested"));
+            }
+            throw newObtainFailure(String.format("Failed to get %d VMs after %d attempt%s.", count, attempts, attempts == 1 ? "" : "s"), exceptions);
+        }
+        return result;
+    }
+
+    protected ConfigBag newObtainSetup(Map<?,?> flags) {
+        ConfigBag setupRaw = ConfigBag.newInstanceExtending(config().getBag(), flags);
+        ConfigBag setup = ResolvingConfigBag.newInstanceExtending(getManagementContext(), setupRaw);
+
+        Map<String, Object> flagTemplateOptions = ConfigBag.newInstance(flags).get(TEMPLATE_OPTIONS);
+        Map<String, Object> baseTemplateOptions = config().get(TEMPLATE_OPTIONS);
+        Map<String, Object> templateOptions = (Map<String, Object>) shallowMerge(Maybe.fromNullable(flagTemplateOptions), Maybe.fromNullable(baseTemplateOptions), TEMPLATE_OPTIONS).orNull();
+        setup.put(TEMPLATE_OPTIONS, templateOptions);
+        prepareSetup(setup);
+        return setup;
+    }
+
+    /**
+     * Adjusts the setup for obtaining machines, before any are created; applies to every way of obtaining them,
+     * whether singly with {@link #obtainOnce(ConfigBag)}, in a batch, or with {@link #obtain(int, Map)}.
+     * Subclasses can override this to supply defaults (the base implementation does nothing).
+     */
+    protected void prepareSetup(ConfigBag setup) {
+    }
 
+    /** @return the exception to throw, if the last failure was no machines being available; otherwise throws the cause */
+    private NoMachinesAvailableException newObtainFailure(String msg, List<Exception> exceptions) {
         Exception cause = (exceptions.size() == 1)
                 ? exceptions.get(0)
                 : new CompoundRuntimeException(msg + " - "
@@ -636,7 +742,7 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
                     exceptions.get(0), exceptions);
 
         if (exceptions.get(exceptions.size()-1) instanceof NoMachinesAvailableException) {
-            throw new NoMachinesAvailableException(msg, cause);
+            return new NoMachinesAvailableException(msg, cause);
         } else {
             throw Exceptions.propagate(cause);
         }
@@ -670,108 +776,303 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
     }
 
     protected MachineLocation obtainOnce(ConfigBag setup) throws NoMachinesAvailableException {
+        Object result = Iterables.getOnlyElement(obtainNodesOnce(ImmutableList.of(setup)));
+        if (result == null) {
+            throw new IllegalStateException("No node returned by jclouds create-nodes in " + getCreationString(setup));
+        }
+        if (result instanceof Throwable) {
+            throw Exceptions.propagate((Throwable) result);
+        }
+        return (MachineLocation) result;
+    }
+
+    /**
+     * Creates a node for each of the given setups with a single call to jclouds, all from the same template, and then
+     * sets up each node as a machine using its own setup. A single node is set up in the calling thread; several are
+     * set up in parallel.
+     * <p>
+     * The template, group and creation options come from the first setup. Each node is named by the
+     * {@link CloudMachineNamer} for its own setup (where the cloud supports naming nodes created together), and the
+     * cloud metadata derived from the {@link #CALLER_CONTEXT} is only included where it is the same for all of them.
+     * Nodes which jclouds reports as successfully created are used even if others failed.
+     *
+     * @return for each setup, in order, either its {@link JcloudsMachineLocation}, the exception which prevented its node
+     *         being set up (in which case it will have been destroyed, if {@link #DESTROY_ON_FAILURE}), or null if no node
+     *         was created for it
+     * @throws RuntimeException if no nodes could be created
+     */
+    protected List<Object> obtainNodesOnce(List<ConfigBag> setups) {
+        checkArgument(!setups.isEmpty(), "setups must not be empty");
+        ConfigBag setup = setups.get(0);
         AccessController.Response access = getManagementContext().getAccessController().canProvisionLocation(this);
         if (!access.isAllowed()) {
             throw new IllegalStateException("Access controller forbids provisioning in "+this+": "+access.getMsg());
         }
 
-        Predicate<? super HostAndPort> reachablePredicate = getReachableAddressesPredicate(setup);
-        ConnectivityResolverOptions options = getConnectivityOptionsBuilder(setup, false).build();
-
         // FIXME How do we influence the node.getLoginPort, so it is set correctly for Windows?
         // Setup port-forwarding, if required
-        JcloudsPortForwarderExtension portForwarder = setup.get(PORT_FORWARDER);
-        if (options.usePortForwarding()) checkNotNull(portForwarder, "portForwarder, when use-port-forwarding enabled");
+        final JcloudsPortForwarderExtension portForwarder = setup.get(PORT_FORWARDER);
+        final NodeCreation creation = new NodeCreation(getConnectivityOptionsBuilder(setup, false).build());
+        if (creation.options.usePortForwarding()) checkNotNull(portForwarder, "portForwarder, when use-port-forwarding enabled");
 
         final ComputeService computeService = getComputeService(setup);
         CloudMachineNamer cloudMachineNamer = getCloudMachineNamer(setup);
         String groupId = elvis(setup.get(GROUP_ID), cloudMachineNamer.generateNewGroupId(setup));
-        NodeMetadata node = null;
-        JcloudsMachineLocation machineLocation = null;
-        Duration semaphoreTimestamp = null;
-        Duration templateTimestamp = null;
-        Duration provisionTimestamp = null;
-        Duration usableTimestamp = null;
-        Duration customizedTimestamp = null;
-        Stopwatch provisioningStopwatch = Stopwatch.createStarted();
 
-        JcloudsLocationCustomizer customizersDelegate = LocationCustomizerDelegate.newInstance(getManagementContext(), setup);
+        final JcloudsLocationCustomizer customizersDelegate = LocationCustomizerDelegate.newInstance(getManagementContext(), setup);
 
+        int count = setups.size();
+        List<NodeMetadata> nodes;
         try {
-            LOG.info("Creating VM "+getCreationString(setup)+" in "+this);
+            LOG.info("Creating "+(count == 1 ? "VM " : count+" VMs ")+getCreationString(setup)+" in "+this);
+            nodes = createNodes(setups, groupId, computeService, cloudMachineNamer, customizersDelegate, creation);
+        } catch (Exception e) {
+            if (creation.templateCached) {
+                // the cached template may be stale (e.g. the image removed), so resolve it afresh on retry
+                invalidateTemplateCache(computeService);
+            }
+            NodeMetadata node = null;
+            if (e instanceof RunNodesException && ((RunNodesException)e).getNodeErrors().size() > 0) {
+                node = Iterables.get(((RunNodesException)e).getNodeErrors().keySet(), 0);
+            }
+            throw Exceptions.propagate(onObtainNodeFailure(e, node, null, setup, customizersDelegate, creation, null, null));
+        }
 
-            Semaphore machineCreationSemaphore = getMachineCreationSemaphore();
-            boolean acquired = machineCreationSemaphore.tryAcquire(0, TimeUnit.SECONDS);
-            if (!acquired) {
-                LOG.info("Waiting in {} for machine-creation permit ({} other queuing requests already)", new Object[] {this, machineCreationSemaphore.getQueueLength()});
-                Stopwatch blockStopwatch = Stopwatch.createStarted();
-                machineCreationSemaphore.acquire();
-                LOG.info("Acquired in {} machine-creation permit, after waiting {}", this, Time.makeTimeStringRounded(blockStopwatch));
+        if (count == 1) {
+            NodeMetadata node = Iterables.getOnlyElement(nodes);
+            try {
+                return MutableList.<Object>of(setUpNode(node, computeService, portForwarder, setup, customizersDelegate, creation));
+            } catch (Exception e) {
+                Exceptions.propagateIfFatal(e);
+                return MutableList.<Object>of(e);
+            }
+        }
+
+        // set up the nodes in parallel, each with its own setup
+        List<Task<JcloudsMachineLocation>> setUpTasks = Lists.newArrayList();
+        for (int i = 0; i < count; i++) {
+            final NodeMetadata node = nodes.get(i);
+            final ConfigBag nodeSetup = setups.get(i);
+            if (node == null) {
+                setUpTasks.add(null);
+                continue;
+            }
+            setUpTasks.add(Tasks.<JcloudsMachineLocation>builder()
+                    .displayName("Setting up machine for node "+node.getId())
+                    .dynamic(true)
+                    .body(new Callable<JcloudsMachineLocation>() {
+                        @Override
+                        public JcloudsMachineLocation call() throws Exception {
+                            return setUpNode(node, computeService, portForwarder, nodeSetup, customizersDelegate, creation);
+                        }
+                    })
+                    .build());
+        }
+        List<Task<JcloudsMachineLocation>> nodeTasks = MutableList.copyOf(Iterables.filter(setUpTasks, Predicates.notNull()));
+        Task<List<?>> setUpAll = TaskTags.markInessential(Tasks.parallel("Setting up "+nodeTasks.size()+" machines in "+this, nodeTasks));
+        startLocationTask(setUpAll);
+        String origDetails = Tasks.setBlockingDetails("waiting for "+nodeTasks.size()+" machines to be set up");
+        try {
+            setUpAll.blockUntilEnded();
+        } finally {
+            Tasks.setBlockingDetails(origDetails);
+        }
+
+        List<Object> result = Lists.newArrayList();
+        for (Task<JcloudsMachineLocation> task : setUpTasks) {
+            if (task == null) {
+                result.add(null);
             } else {
-                LOG.debug("Acquired in {} machine-creation permit immediately", this);
+                task.blockUntilEnded();
+                result.add(task.isError() ? Tasks.getError(task) : task.getUnchecked());
             }
-            semaphoreTimestamp = Duration.of(provisioningStopwatch);
-
-            LoginCredentials userCredentials = null;
-            Set<? extends NodeMetadata> nodes;
-            Template template;
+        }
+        return result;
+    }
 
-            try {
-                // Create default network for Azure ARM if necessary
-                if ("azurecompute-arm".equals(this.getProvider())) {
-                    DefaultAzureArmNetworkCreator.createDefaultNetworkAndAddToTemplateOptionsIfRequired(computeService, setup);
-                }
+    /** The template used to create nodes, and the progress of their creation; shared by the nodes created together. */
+    private static class NodeCreation {
+        final Stopwatch provisioningStopwatch = Stopwatch.createStarted();
+        ConnectivityResolverOptions options;
+        Duration semaphoreTimestamp;
+        Duration templateTimestamp;
+        Duration provisionTimestamp;
+        Duration templateResolutionTime;
+        boolean templateCached;
+        Template template;
+        LoginCredentials userCredentials;
+
+        NodeCreation(ConnectivityResolverOptions options) {
+            this.options = options;
+        }
+    }
+
+    /** @return the node created for each setup, in order, or null for any which jclouds did not create */
+    private List<NodeMetadata> createNodes(List<ConfigBag> setups, String groupId, ComputeService computeService, CloudMachineNamer cloudMachineNamer,
+            JcloudsLocationCustomizer customizersDelegate, NodeCreation creation) throws Exception {
+        ConfigBag setup = setups.get(0);
+        int count = setups.size();
+        Semaphore machineCreationSemaphore = getMachineCreationSemaphore();
+        boolean acquired = machineCreationSemaphore.tryAcquire(0, TimeUnit.SECONDS);
+        if (!acquired) {
+            LOG.info("Waiting in {} for machine-creation permit ({} other queuing requests already)", new Object[] {this, machineCreationSemaphore.getQueueLength()});
+            Stopwatch blockStopwatch = Stopwatch.createStarted();
+            machineCreationSemaphore.acquire();
+            LOG.info("Acquired in {} machine-creation permit, after waiting {}", this, Time.makeTimeStringRounded(blockStopwatch));
+        } else {
+            LOG.debug("Acquired in {} machine-creation permit immediately", this);
+        }
+        creation.semaphoreTimestamp = Duration.of(creation.provisioningStopwatch);
 
-                // Setup the template
-                template = buildTemplate(computeService, setup, ImmutableList.of(customizersDelegate));
-                boolean expectWindows = isWindows(template, setup);
-                if (!options.skipJcloudsSshing()) {
-                    if (expectWindows) {
-                        // TODO Was this too early to look at template.getImage? e.g. customizeTemplate could subsequently modify it.
-                        LOG.warn("Ignoring invalid configuration for Windows provisioning of "+template.getImage()+": "+USE_JCLOUDS_SSH_INIT.getName()+" should be false");
-                        options = options.toBuilder()
-                                .skipJcloudsSshing(true)
-                                .build();
-                    } else if (options.waitForConnectable()) {
-                        userCredentials = initTemplateForCreateUser(template, setup);
-                    }
+        Set<? extends NodeMetadata> nodes;
+        List<String> nodeNames = Lists.newArrayList();
+        try {
+            // Create default network for Azure ARM if necessary
+            if ("azurecompute-arm".equals(this.getProvider())) {
+                DefaultAzureArmNetworkCreator.createDefaultNetworkAndAddToTemplateOptionsIfRequired(computeService, setup);
+            }
+
+            // Setup the template
+            // through the collection overload, so subclasses overriding either overload take effect
+            Template template = buildTemplate(computeService, setup, ImmutableList.of(customizersDelegate));
+            creation.template = template;
+            TemplateResolution resolution = (template != null) ? templateResolutions.asMap().remove(template) : null;
+            if (resolution != null) {
+                creation.templateResolutionTime = resolution.time;
+                creation.templateCached = resolution.cached;
+            }
+            boolean expectWindows = isWindows(template, setup);
+            if (!creation.options.skipJcloudsSshing()) {
+                if (expectWindows) {
+                    // TODO Was this too early to look at template.getImage? e.g. customizeTemplate could subsequently modify it.
+                    LOG.warn("Ignoring invalid configuration for Windows provisioning of "+template.getImage()+": "+USE_JCLOUDS_SSH_INIT.getName()+" should be false");
+                    creation.options = creation.options.toBuilder()
+                            .skipJcloudsSshing(true)
+                            .build();
+                } else if (creation.options.waitForConnectable()) {
+                    creation.userCredentials = initTemplateForCreateUser(template, setup);
                 }
+            }
 
-                templateTimestamp = Duration.of(provisioningStopwatch);
+            creation.templateTimestamp = Duration.of(creation.provisioningStopwatch);
+            if (count == 1) {
                 // "Name" metadata seems to set the display name; at least in AWS
                 // TODO it would be nice if this salt comes from the location's ID (but we don't know that yet as the ssh machine location isn't created yet)
                 // TODO in softlayer we want to control the suffix of the hostname which is 3 random hex digits
                 template.getOptions().getUserMetadata().put("Name", cloudMachineNamer.generateNewMachineUniqueNameFromGroupId(setup, groupId));
+            } else {
+                // name each node as it would have been if created on its own; the nodes share the group
+                for (ConfigBag nodeSetup : setups) {
+                    String nodeGroupId = elvis(nodeSetup.get(GROUP_ID), cloudMachineNamer.generateNewGroupId(nodeSetup));
+                    nodeNames.add(cloudMachineNamer.generateNewMachineUniqueNameFromGroupId(nodeSetup, nodeGroupId));
+                }
+                template.getOptions().nodeNames(nodeNames);
+            }
 
-                if (setup.get(JcloudsLocationConfig.INCLUDE_BROOKLYN_USER_METADATA)) {
-                    template.getOptions().getUserMetadata().put("brooklyn-user", System.getProperty("user.name"));
-
-                    Object context = setup.get(CALLER_CONTEXT);
-                    if (context instanceof Entity) {
-                        Entity entity = (Entity)context;
-                        template.getOptions().getUserMetadata().put("brooklyn-app-id", entity.getApplicationId());
-                        template.getOptions().getUserMetadata().put("brooklyn-app-name", entity.getApplication().getDisplayName());
-                        template.getOptions().getUserMetadata().put("brooklyn-entity-id", entity.getId());
-                        template.getOptions().getUserMetadata().put("brooklyn-entity-name", entity.getDisplayName());
-                        template.getOptions().getUserMetadata().put("brooklyn-server-creation-date", Time.makeDateSimpleStampString());
+            if (setup.get(JcloudsLocationConfig.INCLUDE_BROOKLYN_USER_METADATA)) {
+                // the nodes share the template, so only the metadata which is the same for all of them
+                String creationDate = Time.makeDateSimpleStampString();
+                Map<String, String> userMetadata = null;
+                for (ConfigBag nodeSetup : setups) {
+                    Map<String, String> nodeMetadata = getBrooklynUserMetadata(nodeSetup, creationDate);
+                    if (userMetadata == null) {
+                        userMetadata = nodeMetadata;
+                    } else {
+                        userMetadata.entrySet().retainAll(nodeMetadata.entrySet());
                     }
                 }
+                template.getOptions().getUserMetadata().putAll(userMetadata);
+            }
 
-                customizeTemplate(computeService, template, customizersDelegate);
+            customizeTemplate(computeService, template, customizersDelegate);
 
-                LOG.debug("jclouds using template {} / options {} to provision machine in {}",
-                        new Object[] {template, template.getOptions(), getCreationString(setup)});
+            LOG.debug("jclouds using template {} / options {} to provision {} machine{} in {}",
+                    new Object[] {template, template.getOptions(), count, Strings.s(count), getCreationString(setup)});
 
-                nodes = computeService.createNodesInGroup(groupId, 1, template);
-                provisionTimestamp = Duration.of(provisioningStopwatch);
-            } finally {
-                machineCreationSemaphore.release();
+            try {
+                nodes = computeService.createNodesInGroup(groupId, count, template);
+            } catch (RunNodesException e) {
+                if (count == 1 || e.getSuccessfulNodes().isEmpty()) throw e;
+                LOG.warn("jclouds created only "+e.getSuccessfulNodes().size()+" of "+count+" nodes for "+getCreationString(setup)
+                        +"; continuing with those: "+e.getMessage());
+                if (Boolean.TRUE.equals(setup.get(DESTROY_ON_FAILURE))) {
+                    for (NodeMetadata failed : e.getNodeErrors().keySet()) {
+                        releaseNodeSafely(failed);
+                    }
+                }
+                nodes = e.getSuccessfulNodes();
+            }
+            creation.provisionTimestamp = Duration.of(creation.provisioningStopwatch);
+        } finally {
+            machineCreationSemaphore.release();
+        }
+
+        LOG.debug("jclouds created {} for {}", nodes, getCreationString(setup));
+        if (nodes.isEmpty())
+            throw new IllegalStateException("No nodes returned by jclouds create-nodes in " + getCreationString(setup));
+        return assignNodes(nodes, nodeNames, count);
+    }
+
+    private Map<String, String> getBrooklynUserMetadata(ConfigBag setup, String creationDate) {
+        Map<String, String> result = MutableMap.of("brooklyn-user", System.getProperty("user.name"));
+        Object context = setup.get(CALLER_CONTEXT);
+        if (context instanceof Entity) {
+            Entity entity = (Entity)context;
+            result.put("brooklyn-app-id", entity.getApplicationId());
+            result.put("brooklyn-app-name", entity.getApplication().getDisplayName());
+            result.put("brooklyn-entity-id", entity.getId());
+            result.put("brooklyn-entity-name", entity.getDisplayName());
+            result.put("brooklyn-server-creation-date", creationDate);
+        }
+        return result;
+    }
+
+    /**
+     * Matches the nodes created to the requests for them: by name where jclouds used the name requested,
+     * otherwise in order.
+     */
+    private static List<NodeMetadata> assignNodes(Collection<? extends NodeMetadata> nodes, List<String> nodeNames, int count) {
+        List<NodeMetadata> result = Lists.newArrayList(Collections.<NodeMetadata>nCopies(count, null));
+        List<NodeMetadata> unmatched = Lists.newArrayList();
+        for (NodeMetadata node : nodes) {
+            int index = nodeNames.indexOf(node.getName());
+            if (index >= 0 && result.get(index) == null) {
+                result.set(index, node);
+            } else {
+                unmatched.add(node);
             }
+        }
+        Iterator<NodeMetadata> unmatchedIter = unmatched.iterator();
+        for (int i = 0; i < count && unmatchedIter.hasNext(); i++) {
+            if (result.get(i) == null) result.set(i, unmatchedIter.next());
+        }
+        return result;
+    }
+
+    /**
+     * Sets up a node created by jclouds as a machine: waits for it to be reachable, creates the user,
+     * registers the machine location, and runs the customizers and any setup scripts.
+     * If that fails, the node is destroyed (if {@link #DESTROY_ON_FAILURE}) and the exception propagated.
+     */
+    private JcloudsMachineLocation setUpNode(NodeMetadata node, ComputeService computeService, JcloudsPortForwarderExtension portForwarder,
+            ConfigBag setup, JcloudsLocationCustomizer customizersDelegate, NodeCreation creation) {
+        ConnectivityResolverOptions options = creation.options;
+        Template template = creation.template;
+        LoginCredentials userCredentials = creation.userCredentials;
+        Stopwatch provisioningStopwatch = creation.provisioningStopwatch;
+        Duration semaphoreTimestamp = creation.semaphoreTimestamp;
+        Duration templateTimestamp = creation.templateTimestamp;
+        Duration provisionTimestamp = creation.provisionTimestamp;
+        Duration usableTimestamp = null;
+        Duration customizedTimestamp = null;
+        JcloudsMachineLocation machineLocation = null;
 
-            node = Iterables.getOnlyElement(nodes, null);
-            LOG.debug("jclouds created {} for {}", node, getCreationString(setup));
-            if (node == null)
-                throw new IllegalStateException("No nodes returned by jclouds create-nodes in " + getCreationString(setup));
+        Map<String, Duration> stages = MutableMap.of();
+        Stopwatch stageStopwatch = Stopwatch.createStarted();
+
+        try {
+            // fetch any setup scripts and keys while waiting for the machine to be reachable
+            Task<MachineSetupResources> setupResources = options.waitForConnectable() ? fetchMachineSetupResources(setup) : null;
 
             customizersDelegate.customize(this, node, setup);
 
@@ -846,6 +1147,7 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
             node = NodeMetadataBuilder.fromNodeMetadata(node).credentials(null).build();
 
             usableTimestamp = Duration.of(provisioningStopwatch);
+            recordStage(stages, "connectivity", stageStopwatch);
 
             // Create a JcloudsSshMachineLocation, and register it
             if (windows) {
@@ -877,268 +1179,376 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
                 }
             }
 
+            recordStage(stages, "register", stageStopwatch);
+
             List<String> customisationForLogging = new ArrayList<String>();
-            // Apply same securityGroups rules to iptables, if iptables is running on the node
             if (options.waitForConnectable()) {
+                MachineSetupResources resources = (setupResources != null) ? setupResources.getUnchecked() : MachineSetupResources.NONE;
+                customizeMachineOs(machineLocation, node, template, setup, windows, resources, customisationForLogging, stages);
+                stageStopwatch.reset().start();
+            } else {
+                // Otherwise we have deliberately not waited to be ssh'able, so don't try now to
+                // ssh to exec these commands!
+            }
+
+            customizersDelegate.customize(this, computeService, machineLocation);
+            recordStage(stages, "customizers", stageStopwatch);
+
+            customizedTimestamp = Duration.of(provisioningStopwatch);
+            String logMessage = "Finished VM "+getCreationString(setup)+" creation:"
+                    + " "+machineLocation.getUser()+"@"+machineLocation.getAddress()+":"+machineLocation.getPort()
+                    + (Boolean.TRUE.equals(setup.get(LOG_CREDENTIALS))
+                            ? "password=" + userCredentials.getOptionalPassword().or("<absent>")
+                            + " && key=" + userCredentials.getOptionalPrivateKey().or("<absent>")
+                            : "")
+                    + " ready after "+Duration.of(provisioningStopwatch).toStringRounded()
+                    + " ("
+                    + "semaphore obtained in "+Duration.of(semaphoreTimestamp).toStringRounded()+";"
+                    + template+" template built in "+Duration.of(templateTimestamp).subtract(semaphoreTimestamp).toStringRounded()
+                    + (creation.templateResolutionTime != null
+                            ? " (resolved "+(creation.templateCached ? "from cache " : "")+"in "+creation.templateResolutionTime.toStringRounded()+")"
+                            : "")+";"
+                    + " "+node+" provisioned in "+Duration.of(provisionTimestamp).subtract(templateTimestamp).toStringRounded()+";"
+                    + " "+machineLocation+" connection usable in "+Duration.of(usableTimestamp).subtract(provisionTimestamp).toStringRounded()+";"
+                    + " and os customized in "+Duration.of(customizedTimestamp).subtract(usableTimestamp).toStringRounded()+" - "+Joiner.on(", ").join(customisationForLogging)+")";
+            LOG.info(logMessage);
+
+            Map<String, Duration> timings = MutableMap.<String, Duration>builder()
+                    .put("semaphore", semaphoreTimestamp)
+                    .put("template", templateTimestamp.subtract(semaphoreTimestamp))
+                    .putIfNotNull("templateResolution", creation.templateResolutionTime)
+                    .put("provision", provisionTimestamp.subtract(templateTimestamp))
+                    .put("usable", usableTimestamp.subtract(provisionTimestamp))
+                    .put("customized", customizedTimestamp.subtract(usableTimestamp))
+                    .putAll(stages)
+                    .put("total", customizedTimestamp)
+                    .build();
+            machineLocation.config().set(JcloudsMachineLocation.PROVISIONING_TIMINGS, timings);
+            Object context = setup.get(CALLER_CONTEXT);
+            if (context instanceof Entity) {
+                ((Entity)context).sensors().set(PROVISIONING_TIMINGS, timings);
+            }
+
+            return machineLocation;
+
+        } catch (Exception e) {
+            throw Exceptions.propagate(onObtainNodeFailure(e, node, machineLocation, setup, customizersDelegate, creation, usableTimestamp, customizedTimestamp));
+        }
+    }
+
+    private static void recordStage(Map<String, Duration> stages, String stage, Stopwatch stageStopwatch) {
+        stages.put(stage, Duration.of(stageStopwatch));
+        stageStopwatch.reset().start();
+    }
 
-                String setupScript = setup.get(JcloudsLocationConfig.CUSTOM_MACHINE_SETUP_SCRIPT_URL);
-                List<String> setupScripts = setup.get(JcloudsLocationConfig.CUSTOM_MACHINE_SETUP_SCRIPT_URL_LIST);
-                Collection<String> allScripts = new MutableList<String>().appendIfNotNull(setupScript).appendAll(setupScripts);
-                for (String setupScriptItem : allScripts) {
-                    if (Strings.isNonBlank(setupScriptItem)) {
-                        customisationForLogging.add("custom setup script " + setupScriptItem);
+    /** The custom setup scripts (processed) and extra public keys to authorize, for setting up a machine. */
+    private static class MachineSetupResources {
+        static final MachineSetupResources NONE = new MachineSetupResources();
 
+        final Map<String, String> setupScripts = MutableMap.of();
+        final List<String> extraKeyDataFromUrls = MutableList.of();
+    }
+
+    /**
+     * Starts fetching the custom setup scripts and the extra public keys from their URLs, so that it can happen
+     * while waiting for the machine to be reachable.
+     * @return the task, or null if there is nothing to fetch
+     */
+    @Nullable
+    private Task<MachineSetupResources> fetchMachineSetupResources(final ConfigBag setup) {
+        final Collection<String> scriptUrls = MutableList.<String>of()
+                .appendIfNotNull(setup.get(JcloudsLocationConfig.CUSTOM_MACHINE_SETUP_SCRIPT_URL))
+                .appendAll(setup.get(JcloudsLocationConfig.CUSTOM_MACHINE_SETUP_SCRIPT_URL_LIST));
+        final List<String> keyUrls = setup.get(EXTRA_PUBLIC_KEY_URLS_TO_AUTH);
+        if (Iterables.isEmpty(Iterables.filter(scriptUrls, StringPredicates.isNonBlank())) && (keyUrls == null || keyUrls.isEmpty())) {
+            return null;
+        }
+        Task<MachineSetupResources> task = Tasks.<MachineSetupResources>builder()
+                .displayName("Fetching machine setup scripts and keys")
+                .body(new Callable<MachineSetupResources>() {
+                    @Override
+                    public MachineSetupResources call() {
+                        MachineSetupResources result = new MachineSetupResources();
                         String setupVarsString = setup.get(JcloudsLocationConfig.CUSTOM_MACHINE_SETUP_SCRIPT_VARS);
                         Map<String, String> substitutions = (setupVarsString != null)
                                 ? Splitter.on(",").withKeyValueSeparator(":").split(setupVarsString)
                                 : ImmutableMap.<String, String>of();
-                        String scriptContent = ResourceUtils.create(this).getResourceAsString(setupScriptItem);
-                        String script = TemplateProcessor.processTemplateContents(scriptContent, getManagementContext(), substitutions);
-                        if (windows) {
-                            WinRmToolResponse resp = ((WinRmMachineLocation)machineLocation).executeCommand(ImmutableList.copyOf((script.replace("\r", "").split("\n"))));
-                            if (resp.getStatusCode() != 0) {
-                                throw new IllegalStateException("Command 'Customizing node " + this + "' failed with exit code " + resp.getStatusCode() + " for location " + machineLocation);
+                        for (String setupScriptItem : scriptUrls) {
+                            if (Strings.isNonBlank(setupScriptItem) && !result.setupScripts.containsKey(setupScriptItem)) {
+                                String scriptContent = ResourceUtils.create(JcloudsLocation.this).getResourceAsString(setupScriptItem);
+                                result.setupScripts.put(setupScriptItem, TemplateProcessor.processTemplateContents(scriptContent, getManagementContext(), substitutions));
+                            }
+                        }
+                        if (keyUrls != null) {
+                            for (String keyUrl : keyUrls) {
+                                result.extraKeyDataFromUrls.add(ResourceUtils.create().getResourceAsString(keyUrl));
                             }
-                        } else {
-                            executeCommandThrowingOnError(
-                                    (SshMachineLocation)machineLocation,
-                                    "Customizing node " + this,
-                                    ImmutableList.of(script));
                         }
+                        return result;
                     }
-                }
-
-                Boolean dontRequireTtyForSudo = setup.get(JcloudsLocationConfig.DONT_REQUIRE_TTY_FOR_SUDO);
-                if (Boolean.TRUE.equals(dontRequireTtyForSudo) ||
-                        (dontRequireTtyForSudo == null && setup.get(DONT_CREATE_USER))) {
-                    if (windows) {
-                        LOG.warn("Ignoring flag DONT_REQUIRE_TTY_FOR_SUDO on Windows location {}", machineLocation);
-                    } else {
-                        customisationForLogging.add("patch /etc/sudoers to disable requiretty");
+                })
+                .build();
+        // any failure is reported when the result is used, rather than failing the calling task
+        return startLocationTask(TaskTags.markInessential(task));
+    }
 
-                        queueLocationTask("patch /etc/sudoers to disable requiretty",
-                                SshTasks.dontRequireTtyForSudo((SshMachineLocation)machineLocation, true).newTask().asTask());
+    /**
+     * Customizes the OS of a machine which has become reachable, as configured: runs the custom setup scripts,
+     * disables requiretty for sudo, and then in a single ssh session points /dev/random to urandom, sets the hostname
+     * and authorizes extra public keys, before opening or stopping iptables (which are deprecated).
+     * Records the time taken by each of these stages.
+     */
+    private void customizeMachineOs(JcloudsMachineLocation machineLocation, NodeMetadata node, Template template, ConfigBag setup,
+            boolean windows, MachineSetupResources resources, List<String> customisationForLogging, Map<String, Duration> stages) {
+        Stopwatch stageStopwatch = Stopwatch.createStarted();
+
+        Collection<String> allScripts = new MutableList<String>()
+                .appendIfNotNull(setup.get(JcloudsLocationConfig.CUSTOM_MACHINE_SETUP_SCRIPT_URL))
+                .appendAll(setup.get(JcloudsLocationConfig.CUSTOM_MACHINE_SETUP_SCRIPT_URL_LIST));
+        boolean ranScripts = false;
+        for (String setupScriptItem : allScripts) {
+            if (Strings.isNonBlank(setupScriptItem)) {
+                customisationForLogging.add("custom setup script " + setupScriptItem);
+                ranScripts = true;
+
+                String script = resources.setupScripts.get(setupScriptItem);
+                if (windows) {
+                    WinRmToolResponse resp = ((WinRmMachineLocation)machineLocation).executeCommand(ImmutableList.copyOf((script.replace("\r", "").split("\n"))));
+                    if (resp.getStatusCode() != 0) {
+                        throw new IllegalStateException("Command 'Customizing node " + this + "' failed with exit code " + resp.getStatusCode() + " for location " + machineLocation);
                     }
+                } else {
+                    executeCommandThrowingOnError(
+                            (SshMachineLocation)machineLocation,
+                            "Customizing node " + this,
+                            ImmutableList.of(script));
                 }
+            }
+        }
+        if (ranScripts) recordStage(stages, "setupScripts", stageStopwatch);
 
-                if (setup.get(JcloudsLocationConfig.MAP_DEV_RANDOM_TO_DEV_URANDOM)) {
-                    if (windows) {
-                        LOG.warn("Ignoring flag MAP_DEV_RANDOM_TO_DEV_URANDOM on Windows location {}", machineLocation);
-                    } else {
-                        customisationForLogging.add("point /dev/random to urandom");
+        Boolean dontRequireTtyForSudo = setup.get(JcloudsLocationConfig.DONT_REQUIRE_TTY_FOR_SUDO);
+        if (Boolean.TRUE.equals(dontRequireTtyForSudo) ||
+                (dontRequireTtyForSudo == null && setup.get(DONT_CREATE_USER))) {
+            if (windows) {
+                LOG.warn("Ignoring flag DONT_REQUIRE_TTY_FOR_SUDO on Windows location {}", machineLocation);
+            } else {
+                customisationForLogging.add("patch /etc/sudoers to disable requiretty");
 
-                        executeCommandThrowingOnError(
-                                (SshMachineLocation)machineLocation,
-                                "using urandom instead of random",
-                                Arrays.asList(
-                                        BashCommands.sudo("mv /dev/random /dev/random-real"),
-                                        BashCommands.sudo("ln -s /dev/urandom /dev/random")));
-                    }
-                }
+                queueLocationTask("patch /etc/sudoers to disable requiretty",
+                        SshTasks.dontRequireTtyForSudo((SshMachineLocation)machineLocation, true).newTask().asTask());
+                recordStage(stages, "sudoTty", stageStopwatch);
+            }
+        }
 
-                if (setup.get(GENERATE_HOSTNAME)) {
-                    if (windows) {
-                        // TODO: Generate Windows Hostname
-                        LOG.warn("Ignoring flag GENERATE_HOSTNAME on Windows location {}", machineLocation);
-                    } else {
-                        customisationForLogging.add("configure hostname");
+        // independent customizations, which all require success, are run in a single ssh session
+        List<String> customizations = MutableList.of();
+        List<String> commands = MutableList.of();
 
-                        // also see TODO in SetHostnameCustomizer - ideally we share code between here and there
-                        executeCommandThrowingOnError(
-                                (SshMachineLocation)machineLocation,
-                                "Generate hostname " + node.getName(),
-                                ImmutableList.of(BashCommands.chainGroup(
-                                        String.format("echo '127.0.0.1 %s' | ( %s )", node.getName(), BashCommands.sudo("tee -a /etc/hosts")),
-                                        "{ " + BashCommands.sudo("sed -i \"s/HOSTNAME=.*/HOSTNAME=" + node.getName() + "/g\" /etc/sysconfig/network") + " || true ; }",
-                                        BashCommands.sudo("hostname " + node.getName()))));
-                    }
-                }
+        if (setup.get(JcloudsLocationConfig.MAP_DEV_RANDOM_TO_DEV_URANDOM)) {
+            if (windows) {
+                LOG.warn("Ignoring flag MAP_DEV_RANDOM_TO_DEV_URANDOM on Windows location {}", machineLocation);
+            } else {
+                customisationForLogging.add("point /dev/random to urandom");
+                customizations.add("using urandom instead of random");
+                commands.add(BashCommands.sudo("mv /dev/random /dev/random-real"));
+                commands.add(BashCommands.sudo("ln -s /dev/urandom /dev/random"));
+            }
+        }
 
-                if (setup.get(OPEN_IPTABLES)) {
-                    if (windows) {
-                        LOG.warn("Ignoring DEPRECATED flag OPEN_IPTABLES on Windows location {}", machineLocation);
-                    } else {
-                        LOG.warn("Using DEPRECATED flag OPEN_IPTABLES (will not be supported in future versions) for {} at {}", machineLocation, this);
+        if (setup.get(GENERATE_HOSTNAME)) {
+            if (windows) {
+                // TODO: Generate Windows Hostname
+                LOG.warn("Ignoring flag GENERATE_HOSTNAME on Windows location {}", machineLocation);
+            } else {
+                customisationForLogging.add("configure hostname");
+                customizations.add("generate hostname " + node.getName());
 
-                        Iterable<Integer> inboundPorts = Ints.asList(template.getOptions().getInboundPorts());
+                // also see TODO in SetHostnameCustomizer - ideally we share code between here and there
+                commands.add(BashCommands.chainGroup(
+                        String.format("echo '127.0.0.1 %s' | ( %s )", node.getName(), BashCommands.sudo("tee -a /etc/hosts")),
+                        "{ " + BashCommands.sudo("sed -i \"s/HOSTNAME=.*/HOSTNAME=" + node.getName() + "/g\" /etc/sysconfig/network") + " || true ; }",
+                        BashCommands.sudo("hostname " + node.getName())));
+            }
+        }
 
-                        if (inboundPorts == null || Iterables.isEmpty(inboundPorts)) {
-                            LOG.info("No ports to open in iptables (no inbound ports) for {} at {}", machineLocation, this);
-                        } else {
-                            customisationForLogging.add("open iptables");
-
-                            List<String> iptablesRules = Lists.newArrayList();
-
-                            if (isLocationFirewalldEnabled((SshMachineLocation)machineLocation)) {
-                                for (Integer port : inboundPorts) {
-                                    iptablesRules.add(IptablesCommands.addFirewalldRule(Chain.INPUT, Protocol.TCP, port, Policy.ACCEPT));
-                                 }
-                            } else {
-                                iptablesRules = Lists.newArrayList();
-                                for (Integer port : inboundPorts) {
-                                   iptablesRules.add(IptablesCommands.insertIptablesRule(Chain.INPUT, Protocol.TCP, port, Policy.ACCEPT));
-                                }
-                                iptablesRules.add(IptablesCommands.saveIptablesRules());
-                            }
-                            List<String> batch = Lists.newArrayList();
-                            // Some entities, such as Riak (erlang based) have a huge range of ports, which leads to a script that
-                            // is too large to run (fails with a broken pipe). Batch the rules into batches of 50
-                            for (String rule : iptablesRules) {
-                                batch.add(rule);
-                                if (batch.size() == 50) {
-                                    executeCommandWarningOnError(
-                                            (SshMachineLocation)machineLocation,
-                                            "Inserting iptables rules, 50 command batch",
-                                            batch);
-                                    batch.clear();
-                                }
-                            }
-                            if (batch.size() > 0) {
-                                executeCommandWarningOnError(
-                                        (SshMachineLocation)machineLocation,
-                                        "Inserting iptables rules",
-                                        batch);
-                            }
-                            executeCommandWarningOnError(
-                                    (SshMachineLocation)machineLocation,
-                                    "List iptables rules",
-                                    ImmutableList.of(IptablesCommands.listIptablesRule()));
-                        }
-                    }
-                }
+        List<String> extraKeyUrlsToAuth = setup.get(EXTRA_PUBLIC_KEY_URLS_TO_AUTH);
+        if (extraKeyUrlsToAuth!=null && !extraKeyUrlsToAuth.isEmpty()) {
+            if (windows) {
+                LOG.warn("Ignoring flag EXTRA_PUBLIC_KEY_URLS_TO_AUTH on Windows location", machineLocation);
+            } else {
+                customizations.add("authorizing ssh keys from URLs");
+                commands.add(new AuthorizeRSAPublicKeys(resources.extraKeyDataFromUrls).render(org.jclouds.scriptbuilder.domain.OsFamily.UNIX));
+            }
+        }
 
-                if (setup.get(STOP_IPTABLES)) {
-                    if (windows) {
-                        LOG.warn("Ignoring DEPRECATED flag OPEN_IPTABLES on Windows location {}", machineLocation);
-                    } else {
-                        LOG.warn("Using DEPRECATED flag STOP_IPTABLES (will not be supported in future versions) for {} at {}", machineLocation, this);
+        String extraKeyDataToAuth = setup.get(EXTRA_PUBLIC_KEY_DATA_TO_AUTH);
+        if (extraKeyDataToAuth!=null && !extraKeyDataToAuth.isEmpty()) {
+            if (windows) {
+                LOG.warn("Ignoring flag EXTRA_PUBLIC_KEY_DATA_TO_AUTH on Windows location", machineLocation);
+            } else {
+                customizations.add("authorizing ssh keys from data");
+                commands.add(new AuthorizeRSAPublicKeys(Collections.singletonList(extraKeyDataToAuth)).render(org.jclouds.scriptbuilder.domain.OsFamily.UNIX));
+            }
+        }
 
-                        customisationForLogging.add("stop iptables");
+        if (!commands.isEmpty()) {
+            executeCommandThrowingOnError(
+                    (SshMachineLocation)machineLocation,
+                    "Customizing machine: " + Joiner.on(", ").join(customizations),
+                    commands);
+            recordStage(stages, "machineCustomization", stageStopwatch);
+        }
 
-                        List<String> cmds = ImmutableList.<String>of();
-                        if (isLocationFirewalldEnabled((SshMachineLocation)machineLocation)) {
-                            cmds = ImmutableList.of(IptablesCommands.firewalldServiceStop(), IptablesCommands.firewalldServiceStatus());
-                        } else {
-                            cmds = ImmutableList.of(IptablesCommands.iptablesServiceStop(), IptablesCommands.iptablesServiceStatus());
-                        }
-                        executeCommandWarningOnError(
-                                (SshMachineLocation)machineLocation,
-                                "Stopping iptables", cmds);
-                    }
-                }
+        // only checked (over ssh) if needed, and then only once
+        Boolean firewalldEnabled = null;
+
+        if (setup.get(OPEN_IPTABLES)) {
+            if (windows) {
+                LOG.warn("Ignoring DEPRECATED flag OPEN_IPTABLES on Windows location {}", machineLocation);
+            } else {
+                LOG.warn("Using DEPRECATED flag OPEN_IPTABLES (will not be supported in future versions) for {} at {}", machineLocation, this);
+
+                Iterable<Integer> inboundPorts = Ints.asList(template.getOptions().getInboundPorts());
+
+                if (inboundPorts == null || Iterables.isEmpty(inboundPorts)) {
+                    LOG.info("No ports to open in iptables (no inbound ports) for {} at {}", machineLocation, this);
+                } else {
+                    customisationForLogging.add("open iptables");
 
-                List<String> extraKeyUrlsToAuth = setup.get(EXTRA_PUBLIC_KEY_URLS_TO_AUTH);
-                if (extraKeyUrlsToAuth!=null && !extraKeyUrlsToAuth.isEmpty()) {
-                    if (windows) {
-                        LOG.warn("Ignoring flag EXTRA_PUBLIC_KEY_URLS_TO_AUTH on Windows location", machineLocation);
+                    List<String> iptablesRules = Lists.newArrayList();
+
+                    firewalldEnabled = isLocationFirewalldEnabled((SshMachineLocation)machineLocation);
+                    if (firewalldEnabled) {
+                        for (Integer port : inboundPorts) {
+                            iptablesRules.add(IptablesCommands.addFirewalldRule(Chain.INPUT, Protocol.TCP, port, Policy.ACCEPT));
+                         }
                     } else {
-                        List<String> extraKeyDataToAuth = MutableList.of();
-                        for (String keyUrl : extraKeyUrlsToAuth) {
-                            extraKeyDataToAuth.add(ResourceUtils.create().getResourceAsString(keyUrl));
+                        iptablesRules = Lists.newArrayList();
+                        for (Integer port : inboundPorts) {
+                           iptablesRules.add(IptablesCommands.insertIptablesRule(Chain.INPUT, Protocol.TCP, port, Policy.ACCEPT));
                         }
-                        executeCommandThrowingOnError(
-                                (SshMachineLocation)machineLocation,
-                                "Authorizing ssh keys from URLs",
-                                ImmutableList.of(new AuthorizeRSAPublicKeys(extraKeyDataToAuth).render(org.jclouds.scriptbuilder.domain.OsFamily.UNIX)));
+                        iptablesRules.add(IptablesCommands.saveIptablesRules());
                     }
-                }
-
-                String extraKeyDataToAuth = setup.get(EXTRA_PUBLIC_KEY_DATA_TO_AUTH);
-                if (extraKeyDataToAuth!=null && !extraKeyDataToAuth.isEmpty()) {
-                    if (windows) {
-                        LOG.warn("Ignoring flag EXTRA_PUBLIC_KEY_DATA_TO_AUTH on Windows location", machineLocation);
-                    } else {
-                        executeCommandThrowingOnError(
+                    List<String> batch = Lists.newArrayList();
+                    // Some entities, such as Riak (erlang based) have a huge range of ports, which leads to a script that
+                    // is too large to run (fails with a broken pipe). Batch the rules into batches of 50
+                    for (String rule : iptablesRules) {
+                        batch.add(rule);
+                        if (batch.size() == 50) {
+                            executeCommandWarningOnError(
+                                    (SshMachineLocation)machineLocation,
+                                    "Inserting iptables rules, 50 command batch",
+                                    batch);
+                            batch.clear();
+                        }
+                    }
+                    if (batch.size() > 0) {
+                        executeCommandWarningOnError(
                                 (SshMachineLocation)machineLocation,
-                                "Authorizing ssh keys from data",
-                                ImmutableList.of(new AuthorizeRSAPublicKeys(Collections.singletonList(extraKeyDataToAuth)).render(org.jclouds.scriptbuilder.domain.OsFamily.UNIX)));
+                                "Inserting iptables rules",
+                                batch);
                     }
+                    executeCommandWarningOnError(
+                            (SshMachineLocation)machineLocation,
+                            "List iptables rules",
+                            ImmutableList.of(IptablesCommands.listIptablesRule()));
+                    recordStage(stages, "iptables", stageStopwatch);
                 }
+            }
+        }
 
+        if (setup.get(STOP_IPTABLES)) {
+            if (windows) {
+                LOG.warn("Ignoring DEPRECATED flag OPEN_IPTABLES on Windows location {}", machineLocation);
             } else {
-                // Otherwise we have deliberately not waited to be ssh'able, so don't try now to
-                // ssh to exec these commands!
-            }
+                LOG.warn("Using DEPRECATED flag STOP_IPTABLES (will not be supported in future versions) for {} at {}", machineLocation, this);
 
-            customizersDelegate.customize(this, computeService, machineLocation);
+                customisationForLogging.add("stop iptables");
 
-            customizedTimestamp = Duration.of(provisioningStopwatch);
-            String logMessage = "Finished VM "+getCreationString(setup)+" creation:"
-                    + " "+machineLocation.getUser()+"@"+machineLocation.getAddress()+":"+machineLocation.getPort()
-                    + (Boolean.TRUE.equals(setup.get(LOG_CREDENTIALS))
-                            ? "password=" + userCredentials.getOptionalPassword().or("<absent>")
-                            + " && key=" + userCredentials.getOptionalPrivateKey().or("<absent>")
-                            : "")
-                    + " ready after "+Duration.of(provisioningStopwatch).toStringRounded()
-                    + " ("
-                    + "semaphore obtained in "+Duration.of(semaphoreTimestamp).toStringRounded()+";"
-                    + template+" template built in "+Duration.of(templateTimestamp).subtract(semaphoreTimestamp).toStringRounded()+";"
-                    + " "+node+" provisioned in "+Duration.of(provisionTimestamp).subtract(templateTimestamp).toStringRounded()+";"
-                    + " "+machineLocation+" connection usable in "+Duration.of(usableTimestamp).subtract(provisionTimestamp).toStringRounded()+";"
-                    + " and os customized in "+Duration.of(customizedTimestamp).subtract(usableTimestamp).toStringRounded()+" - "+Joiner.on(", ").join(customisationForLogging)+")";
-            LOG.info(logMessage);
+                if (firewalldEnabled == null) {
+                    firewalldEnabled = isLocationFirewalldEnabled((SshMachineLocation)machineLocation);
+                }
+                List<String> cmds;
+                if (firewalldEnabled) {
+                    cmds = ImmutableList.of(IptablesCommands.firewalldServiceStop(), IptablesCommands.firewalldServiceStatus());
+                } else {
+                    cmds = ImmutableList.of(IptablesCommands.iptablesServiceStop(), IptablesCommands.iptablesServiceStatus());
+                }
+                executeCommandWarningOnError(
+                        (SshMachineLocation)machineLocation,
+                        "Stopping iptables", cmds);
+                recordStage(stages, "stopIptables", stageStopwatch);
+            }
+        }
+    }
 
-            return machineLocation;
+    /**
+     * Reports the failure to obtain a machine, and destroys the node (if {@link #DESTROY_ON_FAILURE}).
+     * @return the exception to propagate
+     */
+    private Exception onObtainNodeFailure(Exception e, @Nullable NodeMetadata node, @Nullable JcloudsMachineLocation machineLocation,
+            ConfigBag setup, JcloudsLocationCustomizer customizersDelegate, NodeCreation creation,
+            @Nullable Duration usableTimestamp, @Nullable Duration customizedTimestamp) {
+        Stopwatch provisioningStopwatch = creation.provisioningStopwatch;
+        Duration semaphoreTimestamp = creation.semaphoreTimestamp;
+        Duration templateTimestamp = creation.templateTimestamp;
+        Duration provisionTimestamp = creation.provisionTimestamp;
+
+        // sometimes AWS nodes come up busted (eg ssh not allowed); just throw it back (and maybe try for another one)
+        boolean destroyNode = (node != null) && Boolean.TRUE.equals(setup.get(DESTROY_ON_FAILURE));
+
+        if (e.toString().contains("VPCResourceNotSpecified")) {
+            String message = "Detected that your EC2 account is a legacy 'EC2 Classic' account, "
+                + "but the most appropriate hardware instance type requires 'VPC'. "
+                + "One quick fix is to use the 'eu-central-1' region. "
+                + "Other remedies are described at "
+                + AWS_VPC_HELP_URL;
+            LOG.error(message);
+            e = new UserFacingException(message, e);
+        }
+
+        LOG.error("Failed to start VM for "+getCreationString(setup) + (destroyNode ? " (destroying)" : "")
+                + (node != null ? "; node "+node : "")
+                + " after "+Duration.of(provisioningStopwatch).toStringRounded()
+                + (semaphoreTimestamp != null ? " ("
+                        + "semaphore obtained in "+Duration.of(semaphoreTimestamp).toStringRounded()+";"
+                        + (templateTimestamp != null && semaphoreTimestamp != null ? " template built in "+Duration.of(templateTimestamp).subtract(semaphoreTimestamp).toStringRounded()+";" : "")
+                        + (provisionTimestamp != null && templateTimestamp != null ? " node provisioned in "+Duration.of(provisionTimestamp).subtract(templateTimestamp).toStringRounded()+";" : "")
+                        + (usableTimestamp != null && provisioningStopwatch != null ? " connection usable in "+Duration.of(usableTimestamp).subtract(provisionTimestamp).toStringRounded()+";" : "")
+                        + (customizedTimestamp != null && usableTimestamp != null ? " and OS customized in "+Duration.of(customizedTimestamp).subtract(usableTimestamp).toStringRounded() : "")
+                        + ")"
+                        : "")
+                + ": "+e.getMessage());
+        LOG.debug(Throwables.getStackTraceAsString(e));
 
-        } catch (Exception e) {
-            if (e instanceof RunNodesException && ((RunNodesException)e).getNodeErrors().size() > 0) {
-                node = Iterables.get(((RunNodesException)e).getNodeErrors().keySet(), 0);
-            }
-            // sometimes AWS nodes come up busted (eg ssh not allowed); just throw it back (and maybe try for another one)
-            boolean destroyNode = (node != null) && Boolean.TRUE.equals(setup.get(DESTROY_ON_FAILURE));
+        try {
+            customizersDelegate.preReleaseOnObtainError(this, machineLocation, e);
+        } catch (Exception customizerException) {
+            LOG.info("Got exception on calling customizer preReleaseOnObtainError, ignoring. Location is {}, machine location is {}, node is {}",
+                    new Object[] {this, machineLocation, node, customizerException});
+        }
 
-            if (e.toString().contains("VPCResourceNotSpecified")) {
-                String message = "Detected that your EC2 account is a legacy 'EC2 Classic' account, "
-                    + "but the most appropriate hardware instance type requires 'VPC'. "
-                    + "One quick fix is to use the 'eu-central-1' region. "
-                    + "Other remedies are described at "
-                    + AWS_VPC_HELP_URL;
-                LOG.error(message);
-                e = new UserFacingException(message, e);
+        if (destroyNode) {
+            Stopwatch destroyingStopwatch = Stopwatch.createStarted();
+            if (machineLocation != null) {
+                releaseSafely(machineLocation);
+            } else {
+                releaseNodeSafely(node);
             }
-
-            LOG.error("Failed to start VM for "+getCreationString(setup) + (destroyNode ? " (destroying)" : "")
-                    + (node != null ? "; node "+node : "")
-                    + " after "+Duration.of(provisioningStopwatch).toStringRounded()
-                    + (semaphoreTimestamp != null ? " ("
-                            + "semaphore obtained in "+Duration.of(semaphoreTimestamp).toStringRounded()+";"
-                            + (templateTimestamp != null && semaphoreTimestamp != null ? " template built in "+Duration.of(templateTimestamp).subtract(semaphoreTimestamp).toStringRounded()+";" : "")
-                            + (provisionTimestamp != null && templateTimestamp != null ? " node provisioned in "+Duration.of(provisionTimestamp).subtract(templateTimestamp).toStringRounded()+";" : "")
-                            + (usableTimestamp != null && provisioningStopwatch != null ? " connection usable in "+Duration.of(usableTimestamp).subtract(provisionTimestamp).toStringRounded()+";" : "")
-                            + (customizedTimestamp != null && usableTimestamp != null ? " and OS customized in "+Duration.of(customizedTimestamp).subtract(usableTimestamp).toStringRounded() : "")
-                            + ")"
-                            : "")
-                    + ": "+e.getMessage());
-            LOG.debug(Throwables.getStackTraceAsString(e));
+            LOG.info("Destroyed " + (machineLocation != null ? "machine " + machineLocation : "node " + node)
+                    + " in " + Duration.of(destroyingStopwatch).toStringRounded());
 
             try {
-                customizersDelegate.preReleaseOnObtainError(this, machineLocation, e);
+                customizersDelegate.postReleaseOnObtainError(this, machineLocation, e);
             } catch (Exception customizerException) {
-                LOG.info("Got exception on calling customizer preReleaseOnObtainError, ignoring. Location is {}, machine location is {}, node is {}",
+                LOG.debug("Got exception on calling customizer postReleaseOnObtainError, ignoring. Location is {}, machine Location is {}, node is {}",
                         new Object[] {this, machineLocation, node, customizerException});
             }
 
-            if (destroyNode) {
-                Stopwatch destroyingStopwatch = Stopwatch.createStarted();
-                if (machineLocation != null) {
-                    releaseSafely(machineLocation);
-                } else {
-                    releaseNodeSafely(node);
-                }
-                LOG.info("Destroyed " + (machineLocation != null ? "machine " + machineLocation : "node " + node)
-                        + " in " + Duration.of(destroyingStopwatch).toStringRounded());
-
-                try {
-                    customizersDelegate.postReleaseOnObtainError(this, machineLocation, e);
-                } catch (Exception customizerException) {
-                    LOG.debug("Got exception on calling customizer postReleaseOnObtainError, ignoring. Location is {}, machine Location is {}, node is {}",
-                            new Object[] {this, machineLocation, node, customizerException});
-                }
-
-            }
-
-            throw Exceptions.propagate(e);
         }
+
+        return e;
     }
 
     private void executeCommandThrowingOnError(SshMachineLocation loc, String name, List<String> commands) {
@@ -1155,6 +1565,15 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
         queueLocationTask("waiting for '" + name + "' on machine " + loc, task);
     }
 
+    /** Queues the task if possible, otherwise submits it in the current (or else the server) execution context. */
+    private <T> Task<T> startLocationTask(Task<T> task) {
+        ExecutionContext executionContext = BasicExecutionContext.getCurrentExecutionContext();
+        DynamicTasks.queueIfPossible(task)
+                .executionContext((executionContext != null) ? executionContext : getManagementContext().getServerExecutionContext())
+                .orSubmitAsync();
+        return task;
+    }
+
     protected <T> T queueLocationTask(String msg, Task<T> task) {
         TaskQueueingResult<T> queueResult = DynamicTasks.queueIfPossible(task);
         final String origDetails = Tasks.setBlockingDetails(msg);
@@ -1438,7 +1857,12 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
         Template template = null;
         Image image;
         try {
-            template = templateBuilder.build();
+            Stopwatch resolutionStopwatch = Stopwatch.createStarted();
+            AtomicBoolean resolved = new AtomicBoolean();
+            template = resolveTemplate(templateBuilder, computeService, config, customizersDelegate, resolved);
+            if (template != null) {
+                templateResolutions.put(template, new TemplateResolution(Duration.of(resolutionStopwatch), !resolved.get()));
+            }
             if (template==null) throw new IllegalStateException("No matching template; check image and hardware constraints (e.g. OS, RAM); using "+templateBuilder);
             image = template.getImage();
             LOG.debug("jclouds found template "+template+" (image "+image+") for provisioning in "+this+" for "+getCreationString(config));
@@ -1522,6 +1946,64 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
     }
 
 
+    /**
+     * Builds the template, or uses one cached for the same compute service and constraints (see {@link #TEMPLATE_CACHE_TTL}).
+     * @param resolved set if the template was built rather than taken from the cache
+     */
+    private Template resolveTemplate(final TemplateBuilder templateBuilder, ComputeService computeService, ConfigBag config,
+            JcloudsLocationCustomizer customizersDelegate, final AtomicBoolean resolved) throws Exception {
+        Duration ttl = config.get(TEMPLATE_CACHE_TTL);
+        Object key = (ttl != null && ttl.isPositive()) ? getTemplateCacheKey(templateBuilder, config, customizersDelegate) : null;
+        if (key == null) {
+            resolved.set(true);
+            return templateBuilder.build();
+        }
+        return JcloudsTemplateCache.forComputeService(computeService).getTemplate(key, ttl, new Callable<Template>() {
+            @Override
+            public Template call() {
+                resolved.set(true);
+                return templateBuilder.build();
+            }
+        });
+    }
+
+    /**
+     * The key for caching the template resolved by the given template builder: all of the config apart from the
+     * {@link #CALLER_CONTEXT}, since the template builder properties, image chooser and hardware transforms can read any of it.
+     * Null if the template cannot be cached, because location customizers could have changed the template builder.
+     */
+    protected Object getTemplateCacheKey(TemplateBuilder templateBuilder, ConfigBag config, JcloudsLocationCustomizer customizersDelegate) {
+        if (!(customizersDelegate instanceof LocationCustomizerDelegate) || ((LocationCustomizerDelegate)customizersDelegate).hasLocationCustomizers()) {
+            return null;
+        }
+        Map<String, Object> result = MutableMap.copyOf(config.getAllConfig());
+        result.remove(CALLER_CONTEXT.getName());
+        // a supplied template builder is compared by identity
+        result.put(TEMPLATE_BUILDER.getName(), config.get(TEMPLATE_BUILDER));
+        return result;
+    }
+
+    /** how a template was resolved: the time taken, and whether it came from the {@link JcloudsTemplateCache} */
+    private static class TemplateResolution {
+        final Duration time;
+        final boolean cached;
+
+        TemplateResolution(Duration time, boolean cached) {
+            this.time = time;
+            this.cached = cached;
+        }
+    }
+
+    /** Discards the templates, and listings of images and hardware, cached for this location's compute service. */
+    @Beta
+    public void invalidateTemplateCache() {
+        invalidateTemplateCache(getComputeService());
+    }
+
+    private void invalidateTemplateCache(ComputeService computeService) {
+        JcloudsTemplateCache.forComputeService(computeService).invalidate();
+    }
+
     /**
      * See {@link https://issues.apache.org/jira/browse/JCLOUDS-1108}.
      * 
@@ -1607,13 +2089,15 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
             m1.putStringKey("anyOwner", true);
         }
         ComputeService computeServiceLessRestrictive = getComputeService(m1);
-        Set<? extends Image> imgs = computeServiceLessRestrictive.listImages();
+        Duration ttl = config.get(TEMPLATE_CACHE_TTL);
+        JcloudsTemplateCache cache = (ttl != null && ttl.isPositive()) ? JcloudsTemplateCache.forComputeService(computeServiceLessRestrictive) : null;
+        Set<? extends Image> imgs = (cache != null) ? cache.listImages(ttl) : computeServiceLessRestrictive.listImages();
         LOG.info(""+imgs.size()+" available images at "+this);
         for (Image img: imgs) {
             LOG.info(" Image: "+img);
         }
 
-        Set<? extends Hardware> profiles = computeServiceLessRestrictive.listHardwareProfiles();
+        Set<? extends Hardware> profiles = (cache != null) ? cache.listHardwareProfiles(ttl) : computeServiceLessRestrictive.listHardwareProfiles();
         LOG.info(""+profiles.size()+" available profiles at "+this);
         for (Hardware profile: profiles) {
             LOG.info(" Profile: "+profile);
@@ -18,13 +18,31 @@
  */
 package org.apache.brooklyn.location.jclouds;
 
+import java.util.Map;
+
+import org.apache.brooklyn.config.ConfigKey;
+import org.apache.brooklyn.core.config.ConfigKeys;
 import org.apache.brooklyn.location.jclouds.api.JcloudsMachineLocationPublic;
+import org.apache.brooklyn.util.time.Duration;
 import org.jclouds.compute.domain.NodeMetadata;
 
+import com.google.common.annotations.Beta;
 import com.google.common.base.Optional;
+import com.google.common.reflect.TypeToken;
 
 public interface JcloudsMachineLocation extends JcloudsMachineLocationPublic {
-    
+
+    /**
+     * The time taken by each phase of provisioning the machine, including the stages of making it usable
+     * (connectivity, register) and of customizing it (e.g. setupScripts, sudoTty, machineCustomization, iptables,
+     * customizers); stages which did not apply are omitted.
+     */
+    @Beta
+    @SuppressWarnings("serial")
+    public static final ConfigKey<Map<String, Duration>> PROVISIONING_TIMINGS = ConfigKeys.newConfigKey(
+            new TypeToken<Map<String, Duration>>() {},
+            "provisioning.timings", "[Beta] Time taken by each phase of provisioning the machine");
+
     @Override
     public JcloudsLocation getParent();
     
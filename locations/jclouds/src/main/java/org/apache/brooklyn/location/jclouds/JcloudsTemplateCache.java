@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.location.jclouds;
+
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.time.Duration;
+import org.jclouds.compute.ComputeService;
+import org.jclouds.compute.domain.Hardware;
+import org.jclouds.compute.domain.Image;
+import org.jclouds.compute.domain.Template;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Caches, for a jclouds {@link ComputeService}, the templates resolved for given template constraints,
+ * and the listings of its images and hardware profiles.
+ * <p>
+ * Resolving a template lists the provider's images and hardware, and applies the image chooser, which can take
+ * longer than booting the VM. Entries are used for up to the time-to-live given when they are looked up
+ * (see {@link JcloudsLocationConfig#TEMPLATE_CACHE_TTL}), and can be discarded explicitly with {@link #invalidate()}
+ * or {@link #invalidateAll()}. Cached templates are never handed out: each lookup returns a {@link Template#clone() clone},
+ * so that callers can customize its options.
+ */
+@Beta
+public class JcloudsTemplateCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JcloudsTemplateCache.class);
+
+    private static final int MAX_TEMPLATES = 100;
+
+    // compute services are themselves cached (and shared) by the ComputeServiceRegistry, so weak keys suffice
+    private static final Cache<ComputeService, JcloudsTemplateCache> INSTANCES = CacheBuilder.newBuilder()
+            .weakKeys()
+            .build();
+
+    public static JcloudsTemplateCache forComputeService(final ComputeService computeService) {
+        try {
+            return INSTANCES.get(computeService, new Callable<JcloudsTemplateCache>() {
+                @Override
+                public JcloudsTemplateCache call() {
+                    return new JcloudsTemplateCache(computeService);
+                }
+            });
+        } catch (ExecutionException e) {
+            throw Exceptions.propagate(e.getCause());
+        }
+    }
+
+    /** Discards everything cached, for all compute services. */
+    public static void invalidateAll() {
+        for (JcloudsTemplateCache cache : INSTANCES.asMap().values()) {
+            cache.invalidate();
+        }
+    }
+
+    private static class Entry<T> {
+        final T value;
+        final long createdNanos = System.nanoTime();
+
+        Entry(T value) {
+            this.value = value;
+        }
+
+        boolean isFresh(Duration ttl) {
+            return System.nanoTime() - createdNanos < ttl.toNanoseconds();
+        }
+    }
+
+    private final ComputeService computeService;
+    private final Cache<Object, Entry<Template>> templates = CacheBuilder.newBuilder()
+            .maximumSize(MAX_TEMPLATES)
+            .build();
+    private volatile Entry<Set<? extends Image>> images;
+    private volatile Entry<Set<? extends Hardware>> hardwareProfiles;
+
+    protected JcloudsTemplateCache(ComputeService computeService) {
+        this.computeService = Preconditions.checkNotNull(computeService, "computeService");
+    }
+
+    /**
+     * Returns a clone of the template cached for the given key, if resolved within the time-to-live;
+     * otherwise resolves (and caches) it.
+     *
+     * @param key      the constraints which determine the template; must have value equality
+     * @param resolver builds the template, e.g. {@link org.jclouds.compute.domain.TemplateBuilder#build()}
+     */
+    public Template getTemplate(Object key, Duration ttl, Callable<? extends Template> resolver) throws Exception {
+        Entry<Template> entry = templates.getIfPresent(key);
+        if (entry != null && entry.isFresh(ttl)) {
+            LOG.debug("Using cached template {} for {}", entry.value, key);
+            return entry.value.clone();
+        }
+        Template result = resolver.call();
+        if (result != null) {
+            templates.put(key, new Entry<Template>(result.clone()));
+        }
+        return result;
+    }
+
+    /** The images of the compute service, if listed within the time-to-live; otherwise lists them. */
+    public Set<? extends Image> listImages(Duration ttl) {
+        Entry<Set<? extends Image>> entry = images;
+        if (entry == null || !entry.isFresh(ttl)) {
+            entry = new Entry<Set<? extends Image>>(ImmutableSet.copyOf(computeService.listImages()));
+            images = entry;
+        }
+        return entry.value;
+    }
+
+    /** The hardware profiles of the compute service, if listed within the time-to-live; otherwise lists them. */
+    public Set<? extends Hardware> listHardwareProfiles(Duration ttl) {
+        Entry<Set<? extends Hardware>> entry = hardwareProfiles;
+        if (entry == null || !entry.isFresh(ttl)) {
+            entry = new Entry<Set<? extends Hardware>>(ImmutableSet.copyOf(computeService.listHardwareProfiles()));
+            hardwareProfiles = entry;
+        }
+        return entry.value;
+    }
+
+    /** Discards the templates and listings cached for this compute service. */
+    public void invalidate() {
+        templates.invalidateAll();
+        images = null;
+        hardwareProfiles = null;
+    }
+
+    @Override
+    public String toString() {
+        return "JcloudsTemplateCache[" + computeService + "; " + templates.size() + " templates]";
+    }
+}
@@ -67,6 +67,19 @@ public class LocationCustomizerDelegate implements JcloudsLocationCustomizer {
         this.machineCustomizers = ImmutableList.of();
     }
 
+    /**
+     * Whether there are any {@link JcloudsLocationCustomizer}s, which could customize the template builder;
+     * looking inside any delegates given as customizers, which have none of their own.
+     */
+    boolean hasLocationCustomizers() {
+        for (JcloudsLocationCustomizer customizer : customizers) {
+            if (!(customizer instanceof LocationCustomizerDelegate) || ((LocationCustomizerDelegate)customizer).hasLocationCustomizers()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Override
     public void customize(JcloudsLocation location, ComputeService computeService, TemplateBuilder templateBuilder) {
         // Then apply any optional app-specific customization.
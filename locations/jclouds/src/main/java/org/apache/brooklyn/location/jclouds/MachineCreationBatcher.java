@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.location.jclouds;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.brooklyn.api.location.MachineLocation;
+import org.apache.brooklyn.api.location.NoMachinesAvailableException;
+import org.apache.brooklyn.config.ConfigKey;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.core.config.ConfigBag;
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Combines concurrent requests to a {@link JcloudsLocation} for machines with the same flags (other than the
+ * {@link JcloudsLocationConfig#CALLER_CONTEXT}) into a single request to jclouds for several nodes.
+ * <p>
+ * The first request waits for up to the {@link JcloudsLocationConfig#MACHINE_CREATION_BATCH_WINDOW} (or until the batch
+ * is full) for others to join it, then the nodes are created together from the first request's template, and each is
+ * named and set up using its own request's setup (see {@link JcloudsLocation#obtainNodesOnce(List)}); each request gets
+ * its machine, or the error from creating or setting it up.
+ */
+class MachineCreationBatcher {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MachineCreationBatcher.class);
+
+    private final JcloudsLocation location;
+
+    /** batches still accepting requests, keyed by their flags; guarded by itself */
+    private final Map<Map<Object, Object>, Batch> openBatches = Maps.newHashMap();
+
+    private static class Batch {
+        final List<ConfigBag> setups = Lists.newArrayList();
+        final CountDownLatch done = new CountDownLatch(1);
+        boolean closed;
+        List<Object> results;
+        RuntimeException error;
+    }
+
+    MachineCreationBatcher(JcloudsLocation location) {
+        this.location = location;
+    }
+
+    MachineLocation obtain(Map<?, ?> flags, ConfigBag setup, Duration window, Integer maxBatchSize) throws NoMachinesAvailableException {
+        Map<Object, Object> key = batchKey(flags);
+        int maxSize = (maxBatchSize != null && maxBatchSize > 0) ? maxBatchSize : Integer.MAX_VALUE;
+        Batch batch;
+        int index;
+        boolean leader;
+        synchronized (openBatches) {
+            batch = openBatches.get(key);
+            leader = (batch == null);
+            if (leader) {
+                batch = new Batch();
+                openBatches.put(key, batch);
+            }
+            index = batch.setups.size();
+            batch.setups.add(setup);
+            if (batch.setups.size() >= maxSize) {
+                close(key, batch);
+            }
+        }
+
+        if (leader) {
+            createBatch(key, batch, window);
+        } else {
+            try {
+                batch.done.await();
+            } catch (InterruptedException e) {
+                throw Exceptions.propagate(e);
+            }
+        }
+
+        if (batch.error != null) {
+            throw batch.error;
+        }
+        Object result = (index < batch.results.size()) ? batch.results.get(index) : null;
+        if (result == null) {
+            throw new NoMachinesAvailableException("Not all of the "+batch.setups.size()+" machines requested together "
+                    + "were created in "+location);
+        } else if (result instanceof Throwable) {
+            throw Exceptions.propagate((Throwable) result);
+        }
+        return (MachineLocation) result;
+    }
+
+    private void createBatch(Map<Object, Object> key, Batch batch, Duration window) {
+        try {
+            long deadline = System.currentTimeMillis() + window.toMilliseconds();
+            List<ConfigBag> setups;
+            synchronized (openBatches) {
+                long remaining;
+                while (!batch.closed && (remaining = deadline - System.currentTimeMillis()) > 0) {
+                    openBatches.wait(remaining);
+                }
+                close(key, batch);
+                setups = ImmutableList.copyOf(batch.setups);
+            }
+            if (setups.size() > 1) {
+                LOG.debug("Creating {} machines in {} for concurrent requests with the same flags", setups.size(), location);
+            }
+            batch.results = location.obtainNodesOnce(setups);
+        } catch (Exception e) {
+            synchronized (openBatches) {
+                close(key, batch);
+            }
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            batch.error = (e instanceof RuntimeException) ? (RuntimeException) e : new RuntimeException(e);
+        } finally {
+            batch.done.countDown();
+        }
+    }
+
+    /** must be called when synchronized on {@link #openBatches} */
+    private void close(Map<Object, Object> key, Batch batch) {
+        if (!batch.closed) {
+            batch.closed = true;
+            if (openBatches.get(key) == batch) openBatches.remove(key);
+            openBatches.notifyAll();
+        }
+    }
+
+    private static Map<Object, Object> batchKey(Map<?, ?> flags) {
+        Map<Object, Object> result = MutableMap.copyOf(flags);
+        ConfigKey<?> callerContext = JcloudsLocationConfig.CALLER_CONTEXT;
+        result.remove(callerContext);
+        result.remove(callerContext.getName());
+        return result;
+    }
+}
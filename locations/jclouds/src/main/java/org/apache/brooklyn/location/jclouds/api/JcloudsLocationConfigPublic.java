@@ -30,6 +30,7 @@ import org.apache.brooklyn.core.location.access.BrooklynAccessUtils;
 import org.apache.brooklyn.core.location.access.PortForwardManager;
 import org.apache.brooklyn.core.location.cloud.CloudLocationConfig;
 import org.apache.brooklyn.util.core.internal.ssh.SshTool;
+import org.apache.brooklyn.util.time.Duration;
 import org.jclouds.Constants;
 
 import com.google.common.annotations.Beta;
@@ -221,7 +222,27 @@ public interface JcloudsLocationConfigPublic extends CloudLocationConfig {
     
     public static final ConfigKey<Semaphore> MACHINE_DELETION_SEMAPHORE = ConfigKeys.newConfigKey(
             Semaphore.class, "machineDeletionSemaphore", "Semaphore for controlling concurrent machine deletion", null);
+
+    @Beta
+    public static final ConfigKey<Duration> MACHINE_CREATION_BATCH_WINDOW = ConfigKeys.newConfigKey(Duration.class,
+            "machineCreationBatchWindow",
+            "[Beta] Time to wait for further concurrent requests for machines with the same flags (other than the caller context), "
+            + "so that they are created with a single request for several nodes; the machines all get the cloud metadata "
+            + "of the first request. Zero (the default) disables this", Duration.ZERO);
+
+    @Beta
+    public static final ConfigKey<Integer> MACHINE_CREATION_MAX_BATCH_SIZE = ConfigKeys.newIntegerConfigKey(
+            "machineCreationMaxBatchSize",
+            "[Beta] Maximum number of concurrent requests for machines combined into a single request for several nodes, "
+            + "when machineCreationBatchWindow is set", 50);
     
+    @Beta
+    public static final ConfigKey<Duration> TEMPLATE_CACHE_TTL = ConfigKeys.newConfigKey(Duration.class,
+            "templateCacheTtl",
+            "[Beta] How long the template resolved for the same image and hardware constraints (and the listings of images "
+            + "and hardware) are reused, rather than resolved again from the cloud; not used if there are location customizers. "
+            + "Zero (the default) disables this", Duration.ZERO);
+
     @SuppressWarnings("serial")
     public static final ConfigKey<Map<String,Object>> TEMPLATE_OPTIONS = ConfigKeys.newConfigKey(
             new TypeToken<Map<String, Object>>() {}, "templateOptions", "Additional jclouds template options");
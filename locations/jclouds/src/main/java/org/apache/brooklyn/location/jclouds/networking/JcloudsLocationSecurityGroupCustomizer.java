@@ -26,6 +26,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nullable;
 
@@ -46,15 +47,19 @@ import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.google.common.collect.FluentIterable;
+import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
 import com.google.common.util.concurrent.UncheckedExecutionException;
 
 import org.jclouds.aws.AWSResponseException;
 import org.jclouds.compute.ComputeService;
 import org.jclouds.compute.domain.SecurityGroup;
+import org.jclouds.compute.domain.SecurityGroupBuilder;
 import org.jclouds.compute.domain.Template;
 import org.jclouds.compute.extensions.SecurityGroupExtension;
 import org.jclouds.domain.Location;
@@ -70,7 +75,6 @@ import org.apache.brooklyn.location.jclouds.JcloudsLocation;
 import org.apache.brooklyn.location.jclouds.JcloudsLocationConfig;
 import org.apache.brooklyn.location.jclouds.JcloudsLocationCustomizer;
 import org.apache.brooklyn.location.jclouds.JcloudsMachineLocation;
-import org.apache.brooklyn.util.collections.MutableList;
 import org.apache.brooklyn.util.core.task.Tasks;
 import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.net.Cidr;
@@ -108,6 +112,17 @@ public class JcloudsLocationSecurityGroupCustomizer extends BasicJcloudsLocation
     /** Caches security groups unique to instances */
     private final Cache<String, SecurityGroup> uniqueGroupCache = CacheBuilder.newBuilder().build();
 
+    /**
+     * Caches the latest known state of security groups by their (region-qualified) ID, so that machines
+     * sharing a group, such as the members of a cluster, only add the permissions it does not yet have.
+     * Entries expire so that changes made outside Brooklyn are picked up, and the group is then re-fetched
+     * from the cloud; they are also dropped when a change fails, as it may have been partly applied.
+     */
+    private final Cache<String, SecurityGroup> groupStateCache = CacheBuilder.newBuilder()
+            .maximumSize(1000)
+            .expireAfterWrite(10, TimeUnit.MINUTES)
+            .build();
+
     /** The context for this location customizer. */
     private final String applicationId;
 
@@ -203,6 +218,8 @@ public class JcloudsLocationSecurityGroupCustomizer extends BasicJcloudsLocation
                     if (sg == null) {
                         throw new IllegalStateException("Failed to find machine-unique group on node: " + nodeId);
                     }
+                    // the state recorded after our own changes is kept, as listings may be eventually consistent
+                    groupStateCache.asMap().putIfAbsent(sg.getId(), sg);
                     return sg;
                 }
             });
@@ -220,6 +237,8 @@ public class JcloudsLocationSecurityGroupCustomizer extends BasicJcloudsLocation
      * Applies the given security group permissions to the given location.
      * <p>
      * Takes no action if the location's compute service does not have a security group extension.
+     * Only the permissions which the group does not have (according to its last known state, shared with
+     * other machines in the same group) are added, combining those for the same ports into a single request.
      * <p>
      * The {@code synchronized} block is to serialize the permission changes, preventing race
      * conditions in some clouds. If multiple customizations of the same group are done in parallel
@@ -280,8 +299,51 @@ public class JcloudsLocationSecurityGroupCustomizer extends BasicJcloudsLocation
 
         final SecurityGroupEditor editor = createSecurityGroupEditor(securityApi.get(), location.getNode().getLocation());
         String locationId = computeService.getContext().unwrap().getId();
-        SecurityGroup machineUniqueSecurityGroup = getMachineUniqueSecurityGroup(nodeId, locationId, editor);
-        editor.removePermissions(machineUniqueSecurityGroup, permissions);
+        SecurityGroup machineUniqueSecurityGroup = getLatestGroupState(getMachineUniqueSecurityGroup(nodeId, locationId, editor), nodeId, editor);
+        try {
+            editor.removePermissions(machineUniqueSecurityGroup, permissions);
+        } catch (RuntimeException e) {
+            groupStateCache.invalidate(machineUniqueSecurityGroup.getId());
+            throw e;
+        }
+        recordGroupState(machineUniqueSecurityGroup, withoutPermissions(machineUniqueSecurityGroup.getIpPermissions(), permissions));
+    }
+
+    /**
+     * @return the given permissions less those removed, where a permission which the cloud has merged with others
+     *         for the same protocol and ports keeps the CIDR blocks and groups which were not removed
+     */
+    private static Set<IpPermission> withoutPermissions(Set<IpPermission> existing, Iterable<IpPermission> removed) {
+        Set<IpPermission> result = Sets.newLinkedHashSet(existing);
+        for (IpPermission permission : removed) {
+            if (result.remove(permission) || !permission.getExclusionCidrBlocks().isEmpty()) {
+                continue;
+            }
+            for (IpPermission other : ImmutableList.copyOf(result)) {
+                if (other.getIpProtocol() != permission.getIpProtocol() || other.getFromPort() != permission.getFromPort()
+                        || other.getToPort() != permission.getToPort() || !other.getExclusionCidrBlocks().isEmpty()) {
+                    continue;
+                }
+                Multimap<String, String> tenantIdGroupNamePairs = HashMultimap.create(other.getTenantIdGroupNamePairs());
+                for (Map.Entry<String, String> pair : permission.getTenantIdGroupNamePairs().entries()) {
+                    tenantIdGroupNamePairs.remove(pair.getKey(), pair.getValue());
+                }
+                Set<String> cidrBlocks = Sets.difference(other.getCidrBlocks(), permission.getCidrBlocks());
+                Set<String> groupIds = Sets.difference(other.getGroupIds(), permission.getGroupIds());
+                result.remove(other);
+                if (!cidrBlocks.isEmpty() || !groupIds.isEmpty() || !tenantIdGroupNamePairs.isEmpty()) {
+                    result.add(IpPermission.builder()
+                            .ipProtocol(other.getIpProtocol())
+                            .fromPort(other.getFromPort())
+                            .toPort(other.getToPort())
+                            .cidrBlocks(cidrBlocks)
+                            .groupIds(groupIds)
+                            .tenantIdGroupNamePairs(tenantIdGroupNamePairs)
+                            .build());
+                }
+            }
+        }
+        return result;
     }
 
 
@@ -314,11 +376,52 @@ public class JcloudsLocationSecurityGroupCustomizer extends BasicJcloudsLocation
         // Relies on customize having been called before. This should be safe because the arguments
         // needed to call this method are not available until post-instance creation.
         String locationId = computeService.getContext().unwrap().getId();
-        SecurityGroup machineUniqueSecurityGroup = getMachineUniqueSecurityGroup(nodeId, locationId, groupEditor);
-        MutableList<IpPermission> newPermissions = MutableList.copyOf(permissions);
-        Iterables.removeAll(newPermissions, machineUniqueSecurityGroup.getIpPermissions());
-        machineUniqueSecurityGroup = groupEditor.addPermissions(machineUniqueSecurityGroup, newPermissions);
-        return MutableMap.of(machineUniqueSecurityGroup.getId(), machineUniqueSecurityGroup);
+        SecurityGroup machineUniqueSecurityGroup = getLatestGroupState(getMachineUniqueSecurityGroup(nodeId, locationId, groupEditor), nodeId, groupEditor);
+        SecurityGroup updatedGroup;
+        try {
+            updatedGroup = groupEditor.addMissingPermissions(machineUniqueSecurityGroup, permissions);
+        } catch (RuntimeException e) {
+            groupStateCache.invalidate(machineUniqueSecurityGroup.getId());
+            throw e;
+        }
+        recordGroupState(machineUniqueSecurityGroup,
+                Sets.union(machineUniqueSecurityGroup.getIpPermissions(), ImmutableSet.copyOf(permissions)));
+        return MutableMap.of(updatedGroup.getId(), updatedGroup);
+    }
+
+    /**
+     * @return the latest known state of the given group, which may have been changed for another machine sharing it;
+     *         if it is not known (or no longer), the group is re-fetched from the cloud
+     */
+    private SecurityGroup getLatestGroupState(final SecurityGroup group, final String nodeId, final SecurityGroupEditor groupEditor) {
+        try {
+            return groupStateCache.get(group.getId(), new Callable<SecurityGroup>() {
+                @Override public SecurityGroup call() throws Exception {
+                    for (SecurityGroup current : groupEditor.listSecurityGroupsForNode(nodeId)) {
+                        if (group.getId().equals(current.getId())) {
+                            return current;
+                        }
+                    }
+                    LOG.debug("Security group {} no longer listed for node {}; using its state as cached", group.getId(), nodeId);
+                    return group;
+                }
+            });
+        } catch (UncheckedExecutionException e) {
+            throw Throwables.propagate(new Exception(e.getCause()));
+        } catch (ExecutionException e) {
+            throw Throwables.propagate(new Exception(e.getCause()));
+        }
+    }
+
+    /**
+     * Records the permissions of the given group once it has been updated (rather than relying on the provider
+     * returning the updated group). The group is copied with its constructor, as {@link SecurityGroupBuilder}
+     * only adds to the permissions of the group it is built from.
+     */
+    private void recordGroupState(SecurityGroup group, Set<IpPermission> permissions) {
+        groupStateCache.put(group.getId(), new SecurityGroup(group.getProviderId(), group.getName(), group.getId(),
+                group.getLocation(), group.getUri(), group.getUserMetadata(), group.getTags(),
+                ImmutableSet.copyOf(permissions), group.getOwnerId()));
     }
 
     /**
@@ -573,7 +676,7 @@ public class JcloudsLocationSecurityGroupCustomizer extends BasicJcloudsLocation
     }
 
     /**
-     * Invalidates all entries in {@link #sharedGroupCache} and {@link #uniqueGroupCache}.
+     * Invalidates all entries in {@link #sharedGroupCache}, {@link #uniqueGroupCache} and {@link #groupStateCache}.
      * Use to simulate the effects of rebinding Brooklyn to a deployment.
      */
     @VisibleForTesting
@@ -581,6 +684,7 @@ public class JcloudsLocationSecurityGroupCustomizer extends BasicJcloudsLocation
         LOG.info("Clearing security group caches");
         sharedGroupCache.invalidateAll();
         uniqueGroupCache.invalidateAll();
+        groupStateCache.invalidateAll();
     }
 
 
@@ -21,8 +21,13 @@ package org.apache.brooklyn.location.jclouds.networking;
 import com.google.common.base.Optional;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
+import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
+import org.apache.brooklyn.util.collections.MutableList;
 import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.jclouds.aws.AWSResponseException;
 import org.jclouds.compute.domain.SecurityGroup;
@@ -32,6 +37,8 @@ import org.jclouds.net.domain.IpPermission;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.regex.Pattern;
@@ -192,6 +199,116 @@ public class SecurityGroupEditor {
         return lastGroup;
     }
 
+    /**
+     * Add those of the given permissions which the group does not already have, according to the permissions
+     * of the given group (so it should be up-to-date). Permissions for the same protocol and ports are combined,
+     * so that their CIDR blocks and groups are added in a single request. If a combined request fails because
+     * some of it already exists, its permissions are added individually.
+     * @param group The group to update
+     * @param permissions The new permissions
+     * @return The updated group with the added permissions.
+     */
+    public SecurityGroup addMissingPermissions(final SecurityGroup group, final Iterable<IpPermission> permissions) {
+        Map<List<Object>, List<IpPermission>> missingByPorts = Maps.newLinkedHashMap();
+        for (IpPermission permission : permissions) {
+            IpPermission missing = getMissingPermission(group.getIpPermissions(), permission);
+            if (missing == null) continue;
+            // permissions with exclusions are not combined, as the exclusions apply to all their sources
+            List<Object> key = missing.getExclusionCidrBlocks().isEmpty()
+                    ? ImmutableList.<Object>of(missing.getIpProtocol(), missing.getFromPort(), missing.getToPort())
+                    : ImmutableList.<Object>of(missing);
+            List<IpPermission> samePorts = missingByPorts.get(key);
+            if (samePorts == null) {
+                samePorts = MutableList.of();
+                missingByPorts.put(key, samePorts);
+            }
+            samePorts.add(missing);
+        }
+
+        SecurityGroup lastGroup = group;
+        for (List<IpPermission> samePorts : missingByPorts.values()) {
+            if (samePorts.size() == 1) {
+                lastGroup = addPermission(group, samePorts.get(0));
+            } else {
+                lastGroup = addCombinedPermission(group, samePorts);
+            }
+        }
+        return lastGroup;
+    }
+
+    /**
+     * @return the part of the permission (i.e. the CIDR blocks and groups it allows) not in the existing permissions,
+     *         or null if it is covered by them
+     */
+    private static IpPermission getMissingPermission(Set<IpPermission> existing, IpPermission permission) {
+        if (existing.contains(permission)) {
+            return null;
+        }
+        if (!permission.getExclusionCidrBlocks().isEmpty()
+                || (permission.getCidrBlocks().isEmpty() && permission.getGroupIds().isEmpty() && permission.getTenantIdGroupNamePairs().isEmpty())) {
+            return permission;
+        }
+        Set<String> cidrBlocks = Sets.newLinkedHashSet(permission.getCidrBlocks());
+        Set<String> groupIds = Sets.newLinkedHashSet(permission.getGroupIds());
+        Multimap<String, String> tenantIdGroupNamePairs = HashMultimap.create(permission.getTenantIdGroupNamePairs());
+        for (IpPermission other : existing) {
+            if (other.getIpProtocol() == permission.getIpProtocol() && other.getFromPort() == permission.getFromPort()
+                    && other.getToPort() == permission.getToPort() && other.getExclusionCidrBlocks().isEmpty()) {
+                cidrBlocks.removeAll(other.getCidrBlocks());
+                groupIds.removeAll(other.getGroupIds());
+                for (Map.Entry<String, String> pair : other.getTenantIdGroupNamePairs().entries()) {
+                    tenantIdGroupNamePairs.remove(pair.getKey(), pair.getValue());
+                }
+            }
+        }
+        if (cidrBlocks.isEmpty() && groupIds.isEmpty() && tenantIdGroupNamePairs.isEmpty()) {
+            return null;
+        }
+        return IpPermission.builder()
+                .ipProtocol(permission.getIpProtocol())
+                .fromPort(permission.getFromPort())
+                .toPort(permission.getToPort())
+                .cidrBlocks(cidrBlocks)
+                .groupIds(groupIds)
+                .tenantIdGroupNamePairs(tenantIdGroupNamePairs)
+                .build();
+    }
+
+    private SecurityGroup addCombinedPermission(final SecurityGroup group, final List<IpPermission> permissions) {
+        IpPermission first = permissions.get(0);
+        IpPermission.Builder combinedBuilder = IpPermission.builder()
+                .ipProtocol(first.getIpProtocol())
+                .fromPort(first.getFromPort())
+                .toPort(first.getToPort());
+        for (IpPermission permission : permissions) {
+            combinedBuilder.cidrBlocks(permission.getCidrBlocks())
+                    .groupIds(permission.getGroupIds())
+                    .tenantIdGroupNamePairs(permission.getTenantIdGroupNamePairs());
+        }
+        final IpPermission combined = combinedBuilder.build();
+        LOG.debug("Adding combined permission to security group {}: {}", group.getName(), combined);
+        Callable<SecurityGroup> callable = new Callable<SecurityGroup>() {
+            @Override
+            public SecurityGroup call() throws Exception {
+                return securityApi.addIpPermission(combined, group);
+            }
+
+            @Override
+            public String toString() {
+                return "Add permission " + combined + " to security group " + group;
+            }
+        };
+        try {
+            return runOperationWithRetry(callable);
+        } catch (RuntimeException e) {
+            if (isDuplicate(e) || (e.getCause() instanceof Exception && isDuplicate((Exception) e.getCause()))) {
+                LOG.debug("Part of combined permission already in security group {}; adding individually: {}", group.getName(), permissions);
+                return addPermissions(group, permissions);
+            }
+            throw e;
+        }
+    }
+
     /**
      * Add a permission to the security group. This operation is idempotent (will return the group unmodified if the
      * permission already exists on it).
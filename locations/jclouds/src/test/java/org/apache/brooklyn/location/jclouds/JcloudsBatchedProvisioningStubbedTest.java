@@ -0,0 +1,225 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.location.jclouds;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+
+import org.apache.brooklyn.api.location.LocationSpec;
+import org.apache.brooklyn.api.location.MachineLocation;
+import org.apache.brooklyn.location.jclouds.StubbedComputeServiceRegistry.BasicNodeCreator;
+import org.apache.brooklyn.util.collections.MutableSet;
+import org.apache.brooklyn.util.core.config.ConfigBag;
+import org.apache.brooklyn.util.time.Duration;
+import org.jclouds.compute.RunNodesException;
+import org.jclouds.compute.domain.NodeMetadata;
+import org.jclouds.compute.domain.NodeMetadataBuilder;
+import org.jclouds.compute.domain.Template;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+
+public class JcloudsBatchedProvisioningStubbedTest extends AbstractJcloudsStubbedUnitTest {
+
+    /**
+     * Records the count of each call to create nodes, and creates at most {@link #maxNodesPerCall} nodes in each.
+     * Names the nodes from the template's node names, in reverse order (as jclouds does not guarantee the order).
+     */
+    private static class RecordingNodeCreator extends BasicNodeCreator {
+        final List<Integer> createCounts = Lists.newCopyOnWriteArrayList();
+        final List<String> groups = Lists.newCopyOnWriteArrayList();
+        final Deque<String> nodeNames = new ConcurrentLinkedDeque<>();
+        volatile int maxNodesPerCall = Integer.MAX_VALUE;
+
+        @Override
+        public synchronized Set<? extends NodeMetadata> createNodesInGroup(String group, int count, Template template) throws RunNodesException {
+            createCounts.add(count);
+            groups.add(group);
+            nodeNames.clear();
+            for (String name : template.getOptions().getNodeNames()) {
+                nodeNames.push(name);
+            }
+            return super.createNodesInGroup(group, Math.min(count, maxNodesPerCall), template);
+        }
+
+        @Override
+        protected NodeMetadata newNode(String group, Template template) {
+            NodeMetadata result = super.newNode(group, template);
+            String name = nodeNames.poll();
+            return (name == null) ? result : NodeMetadataBuilder.fromNodeMetadata(result).name(name).build();
+        }
+    }
+
+    private ListeningExecutorService executor;
+    private RecordingNodeCreator recordingNodeCreator;
+
+    @BeforeMethod(alwaysRun=true)
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        executor = MoreExecutors.listeningDecorator(Executors.newCachedThreadPool());
+        recordingNodeCreator = new RecordingNodeCreator();
+    }
+
+    @AfterMethod(alwaysRun=true)
+    @Override
+    public void tearDown() throws Exception {
+        try {
+            super.tearDown();
+        } finally {
+            if (executor != null) executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testObtainSeveralMachinesWithSingleCreateCall() throws Exception {
+        initNodeCreatorAndJcloudsLocation(recordingNodeCreator, ImmutableMap.of());
+
+        List<MachineLocation> obtained = obtainMachines(3);
+
+        assertEquals(recordingNodeCreator.createCounts, ImmutableList.of(3));
+        assertDistinctMachines(obtained, 3);
+    }
+
+    @Test
+    public void testObtainSeveralMachinesCreatesMoreForShortfall() throws Exception {
+        recordingNodeCreator.maxNodesPerCall = 2;
+        initNodeCreatorAndJcloudsLocation(recordingNodeCreator, ImmutableMap.of());
+
+        List<MachineLocation> obtained = obtainMachines(3);
+
+        assertEquals(recordingNodeCreator.createCounts, ImmutableList.of(3, 1));
+        assertDistinctMachines(obtained, 3);
+    }
+
+    @Test
+    public void testConcurrentObtainsCombinedIntoSingleCreateCall() throws Exception {
+        initNodeCreatorAndJcloudsLocation(recordingNodeCreator, ImmutableMap.of(
+                JcloudsLocation.MACHINE_CREATION_BATCH_WINDOW, Duration.ONE_MINUTE,
+                JcloudsLocation.MACHINE_CREATION_MAX_BATCH_SIZE, 3));
+
+        List<ListenableFuture<JcloudsSshMachineLocation>> futures = Lists.newArrayList();
+        for (int i = 0; i < 3; i++) {
+            futures.add(executor.submit(new Callable<JcloudsSshMachineLocation>() {
+                @Override
+                public JcloudsSshMachineLocation call() throws Exception {
+                    return obtainMachine();
+                }}));
+        }
+        List<JcloudsSshMachineLocation> obtained = Futures.allAsList(futures).get();
+
+        // the batch is full, so is created without waiting for the window
+        assertEquals(recordingNodeCreator.createCounts, ImmutableList.of(3));
+        assertDistinctMachines(obtained, 3);
+    }
+
+    @Test
+    public void testConcurrentObtainsForDifferentCallersUseOwnSetup() throws Exception {
+        initNodeCreatorAndJcloudsLocation(recordingNodeCreator, ImmutableMap.of(
+                JcloudsLocation.MACHINE_CREATION_BATCH_WINDOW, Duration.ONE_MINUTE,
+                JcloudsLocation.MACHINE_CREATION_MAX_BATCH_SIZE, 2));
+
+        List<String> callers = ImmutableList.of("caller-one", "caller-two");
+        List<ListenableFuture<JcloudsSshMachineLocation>> futures = Lists.newArrayList();
+        for (final String caller : callers) {
+            futures.add(executor.submit(new Callable<JcloudsSshMachineLocation>() {
+                @Override
+                public JcloudsSshMachineLocation call() throws Exception {
+                    return obtainMachine(ImmutableMap.of(JcloudsLocation.CALLER_CONTEXT, caller));
+                }}));
+        }
+        List<JcloudsSshMachineLocation> obtained = Futures.allAsList(futures).get();
+
+        assertEquals(recordingNodeCreator.createCounts, ImmutableList.of(2));
+        assertDistinctMachines(obtained, 2);
+        for (int i = 0; i < callers.size(); i++) {
+            JcloudsSshMachineLocation machine = obtained.get(i);
+            assertEquals(machine.config().get(JcloudsLocation.CALLER_CONTEXT), callers.get(i));
+            String nodeName = machine.getOptionalNode().get().getName();
+            assertTrue(nodeName.contains(callers.get(i)), "node="+nodeName+"; caller="+callers.get(i));
+        }
+    }
+
+    @Test
+    public void testSingleObtainCreatedAfterBatchWindow() throws Exception {
+        initNodeCreatorAndJcloudsLocation(recordingNodeCreator, ImmutableMap.of(
+                JcloudsLocation.MACHINE_CREATION_BATCH_WINDOW, Duration.millis(10)));
+
+        obtainMachine();
+        obtainMachine();
+
+        assertEquals(recordingNodeCreator.createCounts, ImmutableList.of(1, 1));
+        assertDistinctMachines(machines, 2);
+    }
+
+    @Test
+    public void testSubclassSetupAppliesToBatchedAndMultipleObtains() throws Exception {
+        initNodeCreatorAndJcloudsLocation(recordingNodeCreator, ImmutableMap.of(
+                JcloudsLocation.MACHINE_CREATION_BATCH_WINDOW, Duration.millis(10)));
+        jcloudsLocation = mgmt().getLocationManager().createLocation(LocationSpec.create(PreparingJcloudsLocation.class)
+                .configure(jcloudsLocation.config().getBag().getAllConfig()));
+
+        obtainMachine();
+        obtainMachines(2);
+
+        assertEquals(recordingNodeCreator.createCounts, ImmutableList.of(1, 2));
+        assertEquals(recordingNodeCreator.groups, ImmutableList.of("prepared", "prepared"));
+    }
+
+    /** Adjusts the setup in {@link #prepareSetup(ConfigBag)}, as e.g. the Docker location does to set its defaults. */
+    public static class PreparingJcloudsLocation extends JcloudsLocation {
+        @Override
+        protected void prepareSetup(ConfigBag setup) {
+            super.prepareSetup(setup);
+            setup.configure(GROUP_ID, "prepared");
+        }
+    }
+
+    private List<MachineLocation> obtainMachines(int count) throws Exception {
+        List<MachineLocation> result = jcloudsLocation.obtain(count, ImmutableMap.of());
+        for (MachineLocation machine : result) {
+            machines.add((JcloudsMachineLocation) machine);
+        }
+        return result;
+    }
+
+    private void assertDistinctMachines(List<? extends MachineLocation> obtained, int expectedCount) {
+        assertEquals(obtained.size(), expectedCount, "machines="+obtained);
+        Set<String> addresses = MutableSet.of();
+        for (MachineLocation machine : obtained) {
+            addresses.add(machine.getAddress().getHostAddress());
+        }
+        assertEquals(addresses.size(), expectedCount, "addresses="+addresses);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.location.jclouds;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.core.internal.ssh.RecordingSshTool;
+import org.apache.brooklyn.util.core.internal.ssh.RecordingSshTool.ExecCmd;
+import org.apache.brooklyn.util.time.Duration;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Files;
+
+public class JcloudsPostProvisioningStubbedTest extends AbstractJcloudsStubbedUnitTest {
+
+    private File keyFile;
+
+    @BeforeMethod(alwaysRun=true)
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        keyFile = File.createTempFile("extra-key", ".pub");
+        Files.write("ssh-rsa key-from-url", keyFile, Charsets.UTF_8);
+    }
+
+    @AfterMethod(alwaysRun=true)
+    @Override
+    public void tearDown() throws Exception {
+        try {
+            super.tearDown();
+        } finally {
+            if (keyFile != null) keyFile.delete();
+        }
+    }
+
+    @Test
+    public void testMachineCustomizationsRunInSingleSshSession() throws Exception {
+        initNodeCreatorAndJcloudsLocation(newNodeCreator(), ImmutableMap.of(
+                JcloudsLocationConfig.MAP_DEV_RANDOM_TO_DEV_URANDOM, true,
+                JcloudsLocationConfig.GENERATE_HOSTNAME, true,
+                JcloudsLocationConfig.EXTRA_PUBLIC_KEY_URLS_TO_AUTH, ImmutableList.of(keyFile.toURI().toString()),
+                JcloudsLocationConfig.EXTRA_PUBLIC_KEY_DATA_TO_AUTH, "ssh-rsa key-from-data"));
+
+        obtainMachine();
+
+        List<ExecCmd> customizations = MutableList.of();
+        for (ExecCmd cmd : RecordingSshTool.getExecCmds()) {
+            String commands = Joiner.on("\n").join(cmd.commands);
+            if (commands.contains("urandom") || commands.contains("hostname") || commands.contains("authorized_keys")) {
+                customizations.add(cmd);
+            }
+        }
+        assertEquals(customizations.size(), 1, "cmds="+customizations);
+        String commands = Joiner.on("\n").join(customizations.get(0).commands);
+        assertTrue(commands.contains("ln -s /dev/urandom /dev/random"), commands);
+        assertTrue(commands.contains("key-from-url"), commands);
+        assertTrue(commands.contains("key-from-data"), commands);
+    }
+
+    @Test
+    public void testRecordsProvisioningStagesOnMachine() throws Exception {
+        initNodeCreatorAndJcloudsLocation(newNodeCreator(), ImmutableMap.of(
+                JcloudsLocationConfig.MAP_DEV_RANDOM_TO_DEV_URANDOM, true));
+
+        JcloudsSshMachineLocation machine = obtainMachine();
+
+        Map<String, Duration> timings = machine.config().get(JcloudsMachineLocation.PROVISIONING_TIMINGS);
+        assertNotNull(timings);
+        assertTrue(timings.keySet().containsAll(ImmutableList.of("connectivity", "register", "machineCustomization", "customizers", "total")), "timings="+timings);
+    }
+}
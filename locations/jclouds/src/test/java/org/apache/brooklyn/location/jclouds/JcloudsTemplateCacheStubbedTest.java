@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.location.jclouds;
+
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Collection;
+import java.util.Map;
+
+import org.apache.brooklyn.api.entity.EntitySpec;
+import org.apache.brooklyn.api.location.LocationSpec;
+import org.apache.brooklyn.core.test.entity.TestApplication;
+import org.apache.brooklyn.location.jclouds.StubbedComputeServiceRegistry.NodeCreator;
+import org.apache.brooklyn.util.core.config.ConfigBag;
+import org.apache.brooklyn.util.time.Duration;
+import org.jclouds.compute.ComputeService;
+import org.jclouds.compute.domain.Template;
+import org.jclouds.compute.domain.TemplateBuilder;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+public class JcloudsTemplateCacheStubbedTest extends AbstractJcloudsStubbedUnitTest {
+
+    private TemplateBuilder templateBuilder;
+
+    @BeforeMethod(alwaysRun=true)
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        templateBuilder = spy(JcloudsStubTemplateBuilder.create(getProvider(), getRegion()));
+    }
+
+    @Override
+    protected void initNodeCreatorAndJcloudsLocation(NodeCreator nodeCreator, Map<?, ?> jcloudsLocationConfig) throws Exception {
+        // like the real registry, reuse the compute service (which is what the cache is for)
+        final ComputeService computeService = new StubbedComputeServiceRegistry(nodeCreator, false).findComputeService(null, true);
+        super.initNodeCreatorAndJcloudsLocation(nodeCreator, ImmutableMap.builder()
+                .putAll(jcloudsLocationConfig)
+                .put(JcloudsLocationConfig.COMPUTE_SERVICE_REGISTRY, new ComputeServiceRegistry() {
+                    @Override
+                    public ComputeService findComputeService(ConfigBag conf, boolean allowReuse) {
+                        return computeService;
+                    }
+                })
+                .build());
+    }
+
+    @Test
+    public void testResolvesTemplateEachTimeByDefault() throws Exception {
+        initNodeCreatorAndJcloudsLocation(newNodeCreator(), ImmutableMap.of(
+                JcloudsLocationConfig.TEMPLATE_BUILDER, templateBuilder));
+
+        obtainMachine();
+        obtainMachine();
+
+        verify(templateBuilder, times(2)).build();
+    }
+
+    @Test
+    public void testReusesResolvedTemplate() throws Exception {
+        initNodeCreatorAndJcloudsLocation(newNodeCreator(), ImmutableMap.of(
+                JcloudsLocationConfig.TEMPLATE_BUILDER, templateBuilder,
+                JcloudsLocationConfig.TEMPLATE_CACHE_TTL, Duration.ONE_MINUTE));
+
+        obtainMachine();
+        obtainMachine();
+
+        verify(templateBuilder, times(1)).build();
+        assertEquals(machines.size(), 2);
+    }
+
+    @Test
+    public void testResolvesTemplateForDifferentConstraints() throws Exception {
+        initNodeCreatorAndJcloudsLocation(newNodeCreator(), ImmutableMap.of(
+                JcloudsLocationConfig.TEMPLATE_BUILDER, templateBuilder,
+                JcloudsLocationConfig.TEMPLATE_CACHE_TTL, Duration.ONE_MINUTE));
+
+        obtainMachine(ImmutableMap.of(JcloudsLocationConfig.MIN_RAM, 512));
+        obtainMachine(ImmutableMap.of(JcloudsLocationConfig.MIN_RAM, 1024));
+        obtainMachine(ImmutableMap.of(JcloudsLocationConfig.MIN_RAM, 512));
+
+        verify(templateBuilder, times(2)).build();
+    }
+
+    @Test
+    public void testResolvesTemplateForDifferentOtherConfig() throws Exception {
+        // any config can be read when building the template (e.g. by a template builder property), so all of it is in the key
+        initNodeCreatorAndJcloudsLocation(newNodeCreator(), ImmutableMap.of(
+                JcloudsLocationConfig.TEMPLATE_BUILDER, templateBuilder,
+                JcloudsLocationConfig.TEMPLATE_CACHE_TTL, Duration.ONE_MINUTE));
+
+        obtainMachine(ImmutableMap.of("my.custom.key", "a"));
+        obtainMachine(ImmutableMap.of("my.custom.key", "b"));
+
+        verify(templateBuilder, times(2)).build();
+    }
+
+    @Test
+    public void testSubclassTemplateOverrideApplies() throws Exception {
+        initNodeCreatorAndJcloudsLocation(newNodeCreator(), ImmutableMap.of(
+                JcloudsLocationConfig.TEMPLATE_BUILDER, templateBuilder,
+                JcloudsLocationConfig.TEMPLATE_CACHE_TTL, Duration.ONE_MINUTE));
+        jcloudsLocation = mgmt().getLocationManager().createLocation(LocationSpec.create(TemplateAdjustingJcloudsLocation.class)
+                .configure(jcloudsLocation.config().getBag().getAllConfig()));
+
+        obtainMachine();
+        obtainMachine();
+
+        // the adjustment is made to each template handed out, whether or not it was resolved from the cache
+        assertEquals(((TemplateAdjustingJcloudsLocation)jcloudsLocation).adjusted, 2);
+        verify(templateBuilder, times(1)).build();
+    }
+
+    /** Adjusts the template in the (deprecated) collection overload of buildTemplate, as e.g. the Docker location does. */
+    public static class TemplateAdjustingJcloudsLocation extends JcloudsLocation {
+        int adjusted;
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public Template buildTemplate(ComputeService computeService, ConfigBag config, Collection<JcloudsLocationCustomizer> customizers) {
+            Template result = super.buildTemplate(computeService, config, customizers);
+            adjusted++;
+            return result;
+        }
+    }
+
+    @Test
+    public void testInvalidateTemplateCache() throws Exception {
+        initNodeCreatorAndJcloudsLocation(newNodeCreator(), ImmutableMap.of(
+                JcloudsLocationConfig.TEMPLATE_BUILDER, templateBuilder,
+                JcloudsLocationConfig.TEMPLATE_CACHE_TTL, Duration.ONE_MINUTE));
+
+        obtainMachine();
+        jcloudsLocation.invalidateTemplateCache();
+        obtainMachine();
+
+        verify(templateBuilder, times(2)).build();
+    }
+
+    @Test
+    public void testNotCachedWithLocationCustomizers() throws Exception {
+        initNodeCreatorAndJcloudsLocation(newNodeCreator(), ImmutableMap.of(
+                JcloudsLocationConfig.TEMPLATE_BUILDER, templateBuilder,
+                JcloudsLocationConfig.TEMPLATE_CACHE_TTL, Duration.ONE_MINUTE,
+                JcloudsLocationConfig.JCLOUDS_LOCATION_CUSTOMIZERS, ImmutableList.of(new BasicJcloudsLocationCustomizer())));
+
+        obtainMachine();
+        obtainMachine();
+
+        verify(templateBuilder, times(2)).build();
+    }
+
+    @Test
+    public void testPublishesProvisioningTimings() throws Exception {
+        TestApplication app = mgmt().getEntityManager().createEntity(EntitySpec.create(TestApplication.class));
+        initNodeCreatorAndJcloudsLocation(newNodeCreator(), ImmutableMap.of(
+                JcloudsLocationConfig.TEMPLATE_BUILDER, templateBuilder));
+
+        obtainMachine(ImmutableMap.of(JcloudsLocationConfig.CALLER_CONTEXT, app));
+
+        Map<String, Duration> timings = app.sensors().get(JcloudsLocation.PROVISIONING_TIMINGS);
+        assertNotNull(timings);
+        assertTrue(timings.keySet().containsAll(ImmutableSet.of("semaphore", "template", "templateResolution", "provision", "usable", "customized", "total")), "timings="+timings);
+    }
+}
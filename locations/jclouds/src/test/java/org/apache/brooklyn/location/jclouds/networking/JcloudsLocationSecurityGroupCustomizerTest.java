@@ -60,6 +60,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 
 import org.apache.brooklyn.location.jclouds.JcloudsLocation;
+import org.apache.brooklyn.test.Asserts;
 import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.net.Cidr;
 
@@ -268,15 +269,108 @@ public class JcloudsLocationSecurityGroupCustomizerTest {
         SecurityGroup updatedUniqueSecurityGroup = newGroup(uniqueGroup.getId(), ImmutableSet.of(ssh));
         when(securityApi.addIpPermission(ssh, updatedUniqueSecurityGroup)).thenReturn(updatedUniqueSecurityGroup);
 
-        // Expect first call to list security groups on nodeId, second to use cached version
+        // Expect first call to list security groups on nodeId, second to use cached version (which has the permission)
         customizer.addPermissionsToLocation(jcloudsMachineLocation, ImmutableSet.of(ssh));
         customizer.addPermissionsToLocation(jcloudsMachineLocation, ImmutableSet.of(ssh));
 
         verify(securityApi, times(1)).listSecurityGroupsForNode(NODE_ID);
-        verify(securityApi, times(2)).addIpPermission(ssh, uniqueGroup);
+        verify(securityApi, times(1)).addIpPermission(ssh, uniqueGroup);
         verify(securityApi, never()).addIpPermission(any(IpPermission.class), eq(sharedGroup));
     }
 
+    @Test
+    public void testPermissionsAddedOnceToGroupSharedByMachines() {
+        IpPermission ssh = newPermission(22);
+        SecurityGroup sharedGroup = newGroup(customizer.getNameForSharedSecurityGroup());
+        JcloudsMachineLocation otherMachineLocation = mock(JcloudsMachineLocation.class, Answers.RETURNS_DEEP_STUBS.get());
+        when(otherMachineLocation.getNode().getId()).thenReturn("otherNode");
+        when(otherMachineLocation.getNode().getLocation()).thenReturn(location);
+        when(otherMachineLocation.getParent().getComputeService()).thenReturn(computeService);
+        // outside of aws-ec2, the only group on each node is the shared group
+        when(computeService.getContext().unwrap().getId()).thenReturn("openstack-nova");
+        when(securityApi.listSecurityGroupsForNode(NODE_ID)).thenReturn(ImmutableSet.of(sharedGroup));
+        when(securityApi.listSecurityGroupsForNode("otherNode")).thenReturn(ImmutableSet.of(sharedGroup));
+        when(securityApi.addIpPermission(ssh, sharedGroup)).thenReturn(newGroup(sharedGroup.getId(), ImmutableSet.of(ssh)));
+
+        customizer.addPermissionsToLocation(jcloudsMachineLocation, ImmutableSet.of(ssh));
+        customizer.addPermissionsToLocation(otherMachineLocation, ImmutableSet.of(ssh));
+
+        verify(securityApi, times(1)).addIpPermission(ssh, sharedGroup);
+    }
+
+    @Test
+    public void testPermissionsForSamePortsCombined() {
+        SecurityGroup sharedGroup = newGroup(customizer.getNameForSharedSecurityGroup());
+        SecurityGroup uniqueGroup = newGroup("unique");
+        when(securityApi.listSecurityGroupsForNode(NODE_ID)).thenReturn(ImmutableSet.of(sharedGroup, uniqueGroup));
+        when(computeService.getContext().unwrap().getId()).thenReturn("aws-ec2");
+        IpPermission fromA = newPermission(8080, "10.0.0.0/24");
+        IpPermission fromB = newPermission(8080, "10.0.1.0/24");
+        IpPermission combined = IpPermission.builder()
+                .ipProtocol(IpProtocol.TCP)
+                .fromPort(8080)
+                .toPort(8080)
+                .cidrBlocks(ImmutableList.of("10.0.0.0/24", "10.0.1.0/24"))
+                .build();
+        when(securityApi.addIpPermission(combined, uniqueGroup)).thenReturn(uniqueGroup);
+
+        customizer.addPermissionsToLocation(jcloudsMachineLocation, ImmutableList.of(fromA, fromB));
+        // already covered by the combined permission
+        customizer.addPermissionsToLocation(jcloudsMachineLocation, ImmutableList.of(fromB));
+
+        verify(securityApi, times(1)).addIpPermission(combined, uniqueGroup);
+        verify(securityApi, never()).addIpPermission(fromA, uniqueGroup);
+        verify(securityApi, never()).addIpPermission(fromB, uniqueGroup);
+    }
+
+    @Test
+    public void testRemovingPartOfMergedPermissionKeepsTheRest() {
+        IpPermission fromA = newPermission(8080, "10.0.0.0/24");
+        IpPermission fromB = newPermission(8080, "10.0.1.0/24");
+        IpPermission merged = IpPermission.builder()
+                .ipProtocol(IpProtocol.TCP)
+                .fromPort(8080)
+                .toPort(8080)
+                .cidrBlocks(ImmutableList.of("10.0.0.0/24", "10.0.1.0/24"))
+                .build();
+        SecurityGroup sharedGroup = newGroup(customizer.getNameForSharedSecurityGroup());
+        SecurityGroup uniqueGroup = newGroup("unique", ImmutableSet.of(merged));
+        when(securityApi.listSecurityGroupsForNode(NODE_ID)).thenReturn(ImmutableSet.of(sharedGroup, uniqueGroup));
+        when(computeService.getContext().unwrap().getId()).thenReturn("aws-ec2");
+        when(securityApi.addIpPermission(eq(fromA), any(SecurityGroup.class))).thenReturn(uniqueGroup);
+
+        customizer.removePermissionsFromLocation(jcloudsMachineLocation, ImmutableList.of(fromA));
+        customizer.addPermissionsToLocation(jcloudsMachineLocation, ImmutableList.of(fromA, fromB));
+
+        verify(securityApi, times(1)).removeIpPermission(eq(fromA), any(SecurityGroup.class));
+        verify(securityApi, times(1)).addIpPermission(eq(fromA), any(SecurityGroup.class));
+        verify(securityApi, never()).addIpPermission(eq(fromB), any(SecurityGroup.class));
+    }
+
+    @Test
+    public void testGroupStateReloadedAfterFailedChange() {
+        IpPermission ssh = newPermission(22);
+        SecurityGroup sharedGroup = newGroup(customizer.getNameForSharedSecurityGroup());
+        SecurityGroup uniqueGroup = newGroup("unique");
+        when(securityApi.listSecurityGroupsForNode(NODE_ID)).thenReturn(ImmutableSet.of(sharedGroup, uniqueGroup));
+        when(securityApi.addIpPermission(eq(ssh), any(SecurityGroup.class)))
+                .thenThrow(new RuntimeException("exception creating " + ssh))
+                .thenReturn(uniqueGroup);
+        when(computeService.getContext().unwrap().getId()).thenReturn("aws-ec2");
+
+        try {
+            customizer.addPermissionsToLocation(jcloudsMachineLocation, ImmutableList.of(ssh));
+            Asserts.shouldHaveFailedPreviously();
+        } catch (Exception e) {
+            Asserts.expectedFailureContains(e, "exception creating");
+        }
+        customizer.addPermissionsToLocation(jcloudsMachineLocation, ImmutableList.of(ssh));
+
+        // once to find the node's group, and again to reload its state after the failure
+        verify(securityApi, times(2)).listSecurityGroupsForNode(NODE_ID);
+        verify(securityApi, times(2)).addIpPermission(eq(ssh), any(SecurityGroup.class));
+    }
+
     @Test
     public void testAddRuleNotRetriedByDefault() {
         IpPermission ssh = newPermission(22);
@@ -381,11 +475,15 @@ public class JcloudsLocationSecurityGroupCustomizerTest {
     }
 
     private IpPermission newPermission(int port) {
+        return newPermission(port, "0.0.0.0/0");
+    }
+
+    private IpPermission newPermission(int port, String cidrBlock) {
         return IpPermission.builder()
                 .ipProtocol(IpProtocol.TCP)
                 .fromPort(port)
                 .toPort(port)
-                .cidrBlock("0.0.0.0/0")
+                .cidrBlock(cidrBlock)
                 .build();
     }
 
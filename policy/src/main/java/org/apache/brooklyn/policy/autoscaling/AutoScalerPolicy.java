@@ -48,6 +48,7 @@ import org.apache.brooklyn.core.entity.trait.Startable;
 import org.apache.brooklyn.core.mgmt.BrooklynTaskTags;
 import org.apache.brooklyn.core.policy.AbstractPolicy;
 import org.apache.brooklyn.core.sensor.BasicNotificationSensor;
+import org.apache.brooklyn.core.sensor.Sensors;
 import org.apache.brooklyn.entity.group.DynamicCluster;
 import org.apache.brooklyn.policy.autoscaling.SizeHistory.WindowSummary;
 import org.apache.brooklyn.policy.loadbalancing.LoadBalancingPolicy;
@@ -55,6 +56,7 @@ import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.core.flags.SetFromFlag;
 import org.apache.brooklyn.util.core.flags.TypeCoercions;
 import org.apache.brooklyn.util.core.task.Tasks;
+import org.apache.brooklyn.util.guava.Maybe;
 import org.apache.brooklyn.util.text.Strings;
 import org.apache.brooklyn.util.time.Duration;
 import org.slf4j.Logger;
@@ -77,6 +79,10 @@ import groovy.lang.Closure;
  * This policy does not itself determine whether the pool is hot or cold, but instead relies on these
  * events being emitted by the monitored entity itself, or by another policy that is attached to it; see, 
  * for example, {@link LoadBalancingPolicy}.)
+ * <p>
+ * Optionally (with {@link #FORECAST_METHOD}) the policy forecasts the workload a short time ahead, using a
+ * {@link MetricForecaster}, and resizes for the forecast workload when that is higher than the current one,
+ * so that new members are ready by the time they are needed.
  */
 @SuppressWarnings({"rawtypes", "unchecked"})
 @Catalog(name="Auto-scaler", description="Policy that is attached to a Resizable entity and dynamically "
@@ -113,6 +119,11 @@ public class AutoScalerPolicy extends AbstractPolicy {
         private BasicNotificationSensor<?> poolColdSensor;
         private BasicNotificationSensor<?> poolOkSensor;
         private BasicNotificationSensor<? super MaxPoolSizeReachedEvent> maxSizeReachedSensor;
+        private MetricForecaster.Method forecastMethod;
+        private Duration forecastHorizon;
+        private Duration forecastHistory;
+        private Duration forecastPeriod;
+        private Double forecastMinConfidence;
         private Duration maxReachedNotificationDelay;
         
         public Builder id(String val) {
@@ -193,6 +204,21 @@ public class AutoScalerPolicy extends AbstractPolicy {
         public Builder maxReachedNotificationDelay(Duration val) {
             this.maxReachedNotificationDelay = val; return this;
         }
+        public Builder forecastMethod(MetricForecaster.Method val) {
+            this.forecastMethod = val; return this;
+        }
+        public Builder forecastHorizon(Duration val) {
+            this.forecastHorizon = val; return this;
+        }
+        public Builder forecastHistory(Duration val) {
+            this.forecastHistory = val; return this;
+        }
+        public Builder forecastPeriod(Duration val) {
+            this.forecastPeriod = val; return this;
+        }
+        public Builder forecastMinConfidence(Double val) {
+            this.forecastMinConfidence = val; return this;
+        }
         /**
          * @deprecated since 0.12.0; use {@link #buildSpec()}, or use {@link PolicySpec} directly
          */
@@ -228,6 +254,11 @@ public class AutoScalerPolicy extends AbstractPolicy {
                     .putIfNotNull("poolOkSensor", poolOkSensor)
                     .putIfNotNull("maxSizeReachedSensor", maxSizeReachedSensor)
                     .putIfNotNull("maxReachedNotificationDelay", maxReachedNotificationDelay)
+                    .putIfNotNull("forecastMethod", forecastMethod)
+                    .putIfNotNull("forecastHorizon", forecastHorizon)
+                    .putIfNotNull("forecastHistory", forecastHistory)
+                    .putIfNotNull("forecastPeriod", forecastPeriod)
+                    .putIfNotNull("forecastMinConfidence", forecastMinConfidence)
                     .build();
         }
     }
@@ -264,6 +295,13 @@ public class AutoScalerPolicy extends AbstractPolicy {
     public static BasicNotificationSensor<MaxPoolSizeReachedEvent> DEFAULT_MAX_SIZE_REACHED_SENSOR = new BasicNotificationSensor<MaxPoolSizeReachedEvent>(
             MaxPoolSizeReachedEvent.class, "resizablepool.maxSizeReached", "Consistently wanted to resize the pool above the max allowed size");
 
+    /** Default sensor for the forecast value of the metric per member (at the current size), if forecasting. */
+    public static AttributeSensor<Double> DEFAULT_FORECAST_SENSOR = Sensors.newDoubleSensor(
+            "autoscaler.forecast.metric", "Forecast value of the auto-scaler's metric at the forecast horizon, per member at the current pool size");
+    /** Default sensor for the confidence (0 to 1) in the forecast, if forecasting. */
+    public static AttributeSensor<Double> DEFAULT_FORECAST_CONFIDENCE_SENSOR = Sensors.newDoubleSensor(
+            "autoscaler.forecast.confidence", "Confidence, between 0 and 1, in the auto-scaler's forecast of its metric");
+
     public static final String POOL_CURRENT_SIZE_KEY = "pool.current.size";
     public static final String POOL_HIGH_THRESHOLD_KEY = "pool.high.threshold";
     public static final String POOL_LOW_THRESHOLD_KEY = "pool.low.threshold";
@@ -444,6 +482,59 @@ public class AutoScalerPolicy extends AbstractPolicy {
             .defaultValue(Duration.ZERO)
             .build();
     
+    @SetFromFlag("forecastMethod")
+    public static final ConfigKey<MetricForecaster.Method> FORECAST_METHOD = BasicConfigKey.builder(MetricForecaster.Method.class)
+            .name("autoscaler.forecast.method")
+            .description("[Beta] If set, the policy forecasts the total workload (the metric times the pool size, or the workrate "
+                    + "reported with pool hot/cold events) using this method (LINEAR_TREND or SEASONAL), and resizes for the forecast "
+                    + "workload at the forecast horizon if that is higher than the current workload; by default only the current workload is used")
+            .build();
+
+    @SetFromFlag("forecastHorizon")
+    public static final ConfigKey<Duration> FORECAST_HORIZON = BasicConfigKey.builder(Duration.class)
+            .name("autoscaler.forecast.horizon")
+            .description("[Beta] How far ahead to forecast, if forecasting; typically how long it takes to add a member to the pool")
+            .defaultValue(Duration.FIVE_MINUTES)
+            .build();
+
+    @SetFromFlag("forecastHistory")
+    public static final ConfigKey<Duration> FORECAST_HISTORY = BasicConfigKey.builder(Duration.class)
+            .name("autoscaler.forecast.history")
+            .description("[Beta] The window of recent workload used for a linear trend, or to compare with the previous period if seasonal")
+            .defaultValue(Duration.ONE_HOUR)
+            .build();
+
+    @SetFromFlag("forecastPeriod")
+    public static final ConfigKey<Duration> FORECAST_PERIOD = BasicConfigKey.builder(Duration.class)
+            .name("autoscaler.forecast.period")
+            .description("[Beta] The period over which the workload repeats, for a seasonal forecast")
+            .defaultValue(Duration.ONE_DAY)
+            .build();
+
+    @SetFromFlag("forecastMinConfidence")
+    public static final ConfigKey<Double> FORECAST_MIN_CONFIDENCE = BasicConfigKey.builder(Double.class)
+            .name("autoscaler.forecast.minConfidence")
+            .description("[Beta] The minimum confidence (between 0 and 1) in a forecast for it to be acted on")
+            .defaultValue(0.8)
+            .reconfigurable(true)
+            .build();
+
+    @SuppressWarnings("serial")
+    @SetFromFlag("forecastSensor")
+    public static final ConfigKey<AttributeSensor<Double>> FORECAST_SENSOR = BasicConfigKey.builder(new TypeToken<AttributeSensor<Double>>() {})
+            .name("autoscaler.forecast.sensor")
+            .description("[Beta] Sensor on the pool entity to publish the forecast metric to, if forecasting")
+            .defaultValue(DEFAULT_FORECAST_SENSOR)
+            .build();
+
+    @SuppressWarnings("serial")
+    @SetFromFlag("forecastConfidenceSensor")
+    public static final ConfigKey<AttributeSensor<Double>> FORECAST_CONFIDENCE_SENSOR = BasicConfigKey.builder(new TypeToken<AttributeSensor<Double>>() {})
+            .name("autoscaler.forecast.confidenceSensor")
+            .description("[Beta] Sensor on the pool entity to publish the confidence in the forecast to, if forecasting")
+            .defaultValue(DEFAULT_FORECAST_CONFIDENCE_SENSOR)
+            .build();
+
     private Entity poolEntity;
     
     private final AtomicBoolean executorQueued = new AtomicBoolean(false);
@@ -455,6 +546,9 @@ public class AutoScalerPolicy extends AbstractPolicy {
     private SizeHistory recentDesiredResizes;
     
     private long maxReachedLastNotifiedTime;
+
+    /** Set if forecasting; the history is not persisted, so after rebind it builds up again. */
+    private MetricForecaster forecaster;
     
     private final SensorEventListener<Map> utilizationEventHandler = new SensorEventListener<Map>() {
         @Override
@@ -540,6 +634,9 @@ public class AutoScalerPolicy extends AbstractPolicy {
         long maxResizeStabilizationDelay = Math.max(getResizeUpStabilizationDelay().toMilliseconds(), getResizeDownStabilizationDelay().toMilliseconds());
         recentDesiredResizes = new SizeHistory(maxResizeStabilizationDelay);
         
+        MetricForecaster.Method forecastMethod = getConfig(FORECAST_METHOD);
+        forecaster = (forecastMethod == null) ? null : new MetricForecaster(forecastMethod, getConfig(FORECAST_HISTORY), getConfig(FORECAST_PERIOD));
+        
         // TODO Should re-use the execution manager's thread pool, somehow
         executor = Executors.newSingleThreadScheduledExecutor(newThreadFactory());
     }
@@ -686,6 +783,8 @@ public class AutoScalerPolicy extends AbstractPolicy {
             // and same for those below...
         } else if (key.equals(METRIC_UPPER_BOUND)) {
             // see above
+        } else if (key.equals(FORECAST_MIN_CONFIDENCE)) {
+            // used on the next metric-change
         } else if (key.equals(RESIZE_UP_ITERATION_INCREMENT) || key.equals(RESIZE_UP_ITERATION_MAX) || key.equals(RESIZE_DOWN_ITERATION_INCREMENT) || key.equals(RESIZE_DOWN_ITERATION_MAX)) {
             // no special actions needed
         } else if (key.equals(MIN_POOL_SIZE)) {
@@ -794,6 +893,7 @@ public class AutoScalerPolicy extends AbstractPolicy {
         double currentMetricValue;
         Double metricUpperBound;
         Double metricLowerBound;
+        boolean forecast;
         
         public double getCurrentTotalActivity() {
             return currentMetricValue * currentSize;
@@ -850,6 +950,9 @@ public class AutoScalerPolicy extends AbstractPolicy {
     }
     
     private void analyze(ScalingData data, String description) {
+        if (forecaster != null) {
+            applyForecast(data);
+        }
         int desiredSizeUnconstrained;
         
         /* We always scale out (modulo stabilization delay) if:
@@ -868,7 +971,7 @@ public class AutoScalerPolicy extends AbstractPolicy {
          */
         if (data.isHot()) {
             // scale out
-            highlightViolation("Metric "+String.format("%.02f", data.currentMetricValue)+" too hot "
+            highlightViolation((data.forecast ? "Forecast metric " : "Metric ")+String.format("%.02f", data.currentMetricValue)+" too hot "
                 + "(target range "+String.format("%.02f", data.metricLowerBound)+"-"+String.format("%.02f", data.metricUpperBound)+")");
             desiredSizeUnconstrained = (int)Math.ceil(data.getCurrentTotalActivity() / data.metricUpperBound);
             data.scalingMode = ScalingType.HOT;
@@ -946,6 +1049,31 @@ public class AutoScalerPolicy extends AbstractPolicy {
         onNewUnboundedPoolSize(desiredSizeUnconstrained, "ideal unconstrained size is "+desiredSizeUnconstrained);
     }
 
+    /**
+     * Records the current total workload for forecasting, and publishes the forecast; if the forecast is
+     * confident and higher than the current workload, then uses it instead, so that the pool is resized
+     * ahead of demand (and is not shrunk just before the demand is expected).
+     */
+    private void applyForecast(ScalingData data) {
+        long now = System.currentTimeMillis();
+        forecaster.record(data.getCurrentTotalActivity(), now);
+        Maybe<MetricForecaster.Forecast> forecast = forecaster.forecast(now, getConfig(FORECAST_HORIZON));
+        if (forecast.isAbsent()) {
+            if (LOG.isTraceEnabled()) LOG.trace("{} not forecasting for {}: {}", new Object[] {this, poolEntity, Maybe.getException(forecast)});
+            return;
+        }
+        MetricForecaster.Forecast f = forecast.get();
+        double forecastMetric = Math.max(0, f.value) / Math.max(1, data.currentSize);
+        entity.sensors().set(getConfig(FORECAST_SENSOR), forecastMetric);
+        entity.sensors().set(getConfig(FORECAST_CONFIDENCE_SENSOR), f.confidence);
+
+        if (f.confidence >= getConfig(FORECAST_MIN_CONFIDENCE) && forecastMetric > data.currentMetricValue) {
+            if (LOG.isTraceEnabled()) LOG.trace("{} using forecast metric {} for {}, rather than current {} ({})", new Object[] {this, forecastMetric, poolEntity, data.currentMetricValue, f});
+            data.currentMetricValue = forecastMetric;
+            data.forecast = true;
+        }
+    }
+
     private int applyMinMaxConstraints(long desiredSize) {
         return applyMinMaxConstraints(desiredSize > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int)desiredSize);
     }
@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.policy.autoscaling;
+
+import javax.annotation.Nullable;
+
+import org.apache.brooklyn.util.collections.TimeWindowedDoubles;
+import org.apache.brooklyn.util.guava.Maybe;
+import org.apache.brooklyn.util.time.Duration;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+
+/**
+ * Keeps the recent history of a metric, to forecast its value a short time ahead,
+ * as used by the {@link AutoScalerPolicy} to resize ahead of demand.
+ * <p>
+ * Timestamps are supplied by the caller, so recorded traces can be replayed.
+ * <p>
+ * The forecast is either a least-squares {@link Method#LINEAR_TREND linear trend} over the history window,
+ * or {@link Method#SEASONAL seasonal}, where the value one period before the target time is adjusted by how much
+ * the metric has changed since one period ago (e.g. with a period of a day, tomorrow's peak is expected at the same time
+ * as today's). The confidence is between 0 and 1, and is the R-squared of the linear fit, or for seasonal
+ * one minus the relative error of the same seasonal prediction over the history window.
+ */
+@Beta
+public class MetricForecaster {
+
+    public enum Method {
+        LINEAR_TREND,
+        SEASONAL
+    }
+
+    public static class Forecast {
+        public final double value;
+        public final double confidence;
+
+        public Forecast(double value, double confidence) {
+            this.value = value;
+            this.confidence = confidence;
+        }
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(this).add("value", value).add("confidence", confidence).toString();
+        }
+    }
+
+    /** minimum number of values in the history window before forecasting */
+    private static final int MIN_VALUES = 3;
+
+    private final Method method;
+    private final Duration history;
+    private final Duration period;
+    private final TimeWindowedDoubles values = new TimeWindowedDoubles();
+
+    /**
+     * @param method   how to forecast
+     * @param history  the window of recent values used for the trend (or for the confidence if seasonal)
+     * @param period   the period of the seasonality; required if seasonal (values are kept for the period plus the history)
+     */
+    public MetricForecaster(Method method, Duration history, @Nullable Duration period) {
+        this.method = Preconditions.checkNotNull(method, "method");
+        this.history = Preconditions.checkNotNull(history, "history");
+        Preconditions.checkArgument(method != Method.SEASONAL || (period != null && period.isPositive()), "Seasonal forecast requires a period");
+        this.period = period;
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    public synchronized void record(double value, long timestamp) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) return;
+        values.add(value, timestamp);
+        long retention = history.toMilliseconds() + (method == Method.SEASONAL ? period.toMilliseconds() : 0);
+        values.pruneBefore(timestamp - retention);
+    }
+
+    public synchronized void clear() {
+        values.clear();
+    }
+
+    /**
+     * Forecasts the value {@code horizon} after the given time (normally now),
+     * or absent if there is not yet enough history.
+     */
+    public synchronized Maybe<Forecast> forecast(long timestamp, Duration horizon) {
+        if (values.isEmpty()) return Maybe.absent("No values recorded");
+        switch (method) {
+        case LINEAR_TREND: return forecastLinear(timestamp, horizon.toMilliseconds());
+        case SEASONAL:     return forecastSeasonal(timestamp, horizon.toMilliseconds());
+        default:           throw new IllegalStateException("Unexpected method "+method);
+        }
+    }
+
+    private Maybe<Forecast> forecastLinear(long timestamp, long horizon) {
+        int from = values.indexOfFirstAtOrAfter(timestamp - history.toMilliseconds());
+        int n = values.size() - from;
+        if (n < MIN_VALUES) return Maybe.absent("Insufficient values for linear trend ("+n+")");
+
+        // x in seconds relative to the target time, for precision
+        long origin = timestamp + horizon;
+        double sumX = 0, sumY = 0, sumXX = 0, sumXY = 0;
+        for (int i = from; i < values.size(); i++) {
+            double x = (values.getTimestamp(i) - origin) / 1000.0;
+            double y = values.getValue(i);
+            sumX += x;
+            sumY += y;
+            sumXX += x * x;
+            sumXY += x * y;
+        }
+        double denominator = n * sumXX - sumX * sumX;
+        if (denominator <= 0) return Maybe.absent("All values at the same time");
+        double slope = (n * sumXY - sumX * sumY) / denominator;
+        double intercept = (sumY - slope * sumX) / n;
+
+        double mean = sumY / n;
+        double residuals = 0, total = 0;
+        for (int i = from; i < values.size(); i++) {
+            double x = (values.getTimestamp(i) - origin) / 1000.0;
+            double y = values.getValue(i);
+            residuals += square(y - (intercept + slope * x));
+            total += square(y - mean);
+        }
+        double confidence = (total == 0) ? 1 : Math.max(0, 1 - residuals / total);
+        return Maybe.of(new Forecast(intercept, confidence));
+    }
+
+    private Maybe<Forecast> forecastSeasonal(long timestamp, long horizon) {
+        long periodMillis = period.toMilliseconds();
+        if (values.getTimestamp(0) > timestamp - periodMillis) return Maybe.absent("Less than one period of values");
+
+        int from = values.indexOfFirstAtOrAfter(timestamp - history.toMilliseconds());
+        int n = values.size() - from;
+        if (n < MIN_VALUES) return Maybe.absent("Insufficient recent values for seasonal forecast ("+n+")");
+
+        // the level shift is how much higher values in the history window are than one period before
+        double sumRecent = 0, sumPrevious = 0;
+        for (int i = from; i < values.size(); i++) {
+            sumRecent += values.getValue(i);
+            sumPrevious += valueAt(values.getTimestamp(i) - periodMillis);
+        }
+        double shift = (sumRecent - sumPrevious) / n;
+
+        double errors = 0, magnitudes = 0;
+        for (int i = from; i < values.size(); i++) {
+            double actual = values.getValue(i);
+            errors += Math.abs(actual - (valueAt(values.getTimestamp(i) - periodMillis) + shift));
+            magnitudes += Math.abs(actual);
+        }
+        double confidence = (magnitudes == 0) ? (errors == 0 ? 1 : 0) : Math.max(0, 1 - errors / magnitudes);
+        return Maybe.of(new Forecast(valueAt(timestamp + horizon - periodMillis) + shift, confidence));
+    }
+
+    /** value at the given time, interpolating between the values either side */
+    private double valueAt(long timestamp) {
+        int i = values.indexOfFirstAtOrAfter(timestamp);
+        if (i >= values.size()) return values.getLatestValue();
+        if (i == 0) return values.getValue(0);
+        long t0 = values.getTimestamp(i-1), t1 = values.getTimestamp(i);
+        double v0 = values.getValue(i-1), v1 = values.getValue(i);
+        if (t1 == t0) return v1;
+        return v0 + (v1 - v0) * (timestamp - t0) / (t1 - t0);
+    }
+
+    private static double square(double x) {
+        return x * x;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return MoreObjects.toStringHelper(this).add("method", method).add("history", history).add("period", period)
+                .add("size", values.size()).toString();
+    }
+}
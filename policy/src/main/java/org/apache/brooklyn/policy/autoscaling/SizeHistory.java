@@ -18,17 +18,13 @@
  */
 package org.apache.brooklyn.policy.autoscaling;
 
-import java.util.List;
-
-import org.apache.brooklyn.util.collections.MutableMap;
-import org.apache.brooklyn.util.collections.TimeWindowedList;
-import org.apache.brooklyn.util.collections.TimestampedValue;
+import org.apache.brooklyn.util.collections.TimeWindowedDoubles;
 import org.apache.brooklyn.util.time.Duration;
 
 import com.google.common.base.MoreObjects;
 
 /**
- * Using a {@link TimeWindowedList}, tracks the recent history of values to allow a summary of 
+ * Using a {@link TimeWindowedDoubles}, tracks the recent history of values to allow a summary of 
  * those values to be obtained. 
  *   
  * @author aled
@@ -66,18 +62,24 @@ public class SizeHistory {
         }
     }
     
-    private final TimeWindowedList<Number> recentDesiredResizes;
+    private final TimeWindowedDoubles recentDesiredResizes = new TimeWindowedDoubles();
+    private volatile Duration windowSize;
     
     public SizeHistory(long windowSize) {
-        recentDesiredResizes = new TimeWindowedList<Number>(MutableMap.of("timePeriod", windowSize, "minExpiredVals", 1));
+        this.windowSize = Duration.millis(windowSize);
     }
 
     public void add(final int val) {
-        recentDesiredResizes.add(val);
+        long now = System.currentTimeMillis();
+        synchronized (recentDesiredResizes) {
+            recentDesiredResizes.add(val, now);
+            // keeps the most recent value from before the window, as that was the size at the start of the window
+            recentDesiredResizes.pruneBefore(now - windowSize.toMilliseconds());
+        }
     }
 
     public void setWindowSize(Duration newWindowSize) {
-        recentDesiredResizes.setTimePeriod(newWindowSize);
+        windowSize = newWindowSize;
     }
     
     /**
@@ -92,12 +94,30 @@ public class SizeHistory {
      */
     public WindowSummary summarizeWindow(Duration windowSize) {
         long now = System.currentTimeMillis();
-        List<TimestampedValue<Number>> windowVals = recentDesiredResizes.getValuesInWindow(now, windowSize);
+        long epoch = now - windowSize.toMilliseconds();
         
-        Number latestObj = latestInWindow(windowVals);
-        long latest = (latestObj == null) ? -1: latestObj.longValue();
-        long max = maxInWindow(windowVals, windowSize).longValue();
-        long min = minInWindow(windowVals, windowSize).longValue();
+        long latest;
+        long max;
+        long min;
+        synchronized (recentDesiredResizes) {
+            if (recentDesiredResizes.isEmpty()) {
+                latest = -1;
+                max = Integer.MAX_VALUE;
+                min = Integer.MIN_VALUE;
+            } else {
+                latest = (long) recentDesiredResizes.getLatestValue();
+                // include the most recent value from before the window, as that was the size at the start of the window
+                int from = Math.max(0, recentDesiredResizes.indexOfFirstAtOrAfter(epoch) - 1);
+                if (recentDesiredResizes.getTimestamp(from) > epoch) {
+                    // the entire time-window is not covered
+                    max = Integer.MAX_VALUE;
+                    min = Integer.MIN_VALUE;
+                } else {
+                    max = (long) recentDesiredResizes.getMax(from);
+                    min = (long) recentDesiredResizes.getMin(from);
+                }
+            }
+        }
         
         // TODO Could do more sophisticated "stable" check; this is the easiest code - correct but not most efficient
         // in terms of the caller having to schedule additional stability checks.
@@ -105,62 +125,4 @@ public class SizeHistory {
         
         return new WindowSummary(latest, min, max, stable, stable);
     }
-    
-    /**
-     * If the entire time-window is not covered by the given values, then returns Integer.MAX_VALUE.
-     */
-    private <T extends Number> T maxInWindow(List<TimestampedValue<T>> vals, Duration timeWindow) {
-        // TODO bad casting from Integer default result to T
-        long now = System.currentTimeMillis();
-        long epoch = now - timeWindow.toMilliseconds();
-        T result = null;
-        double resultAsDouble = Integer.MAX_VALUE;
-        for (TimestampedValue<T> val : vals) {
-            T valAsNum = val.getValue();
-            double valAsDouble = (valAsNum != null) ? valAsNum.doubleValue() : 0;
-            if (result == null && val.getTimestamp() > epoch) {
-                result = withDefault(null, Integer.MAX_VALUE);
-                resultAsDouble = result.doubleValue();
-            }
-            if (result == null || (valAsNum != null && valAsDouble > resultAsDouble)) {
-                result = valAsNum;
-                resultAsDouble = valAsDouble;
-            }
-        }
-        return withDefault(result, Integer.MAX_VALUE);
-    }
-    
-    /**
-     * If the entire time-window is not covered by the given values, then returns Integer.MIN_VALUE
-     */
-    private <T extends Number> T minInWindow(List<TimestampedValue<T>> vals, Duration timeWindow) {
-        long now = System.currentTimeMillis();
-        long epoch = now - timeWindow.toMilliseconds();
-        T result = null;
-        double resultAsDouble = Integer.MIN_VALUE;
-        for (TimestampedValue<T> val : vals) {
-            T valAsNum = val.getValue();
-            double valAsDouble = (valAsNum != null) ? valAsNum.doubleValue() : 0;
-            if (result == null && val.getTimestamp() > epoch) {
-                result = withDefault(null, Integer.MIN_VALUE);
-                resultAsDouble = result.doubleValue();
-            }
-            if (result == null || (val.getValue() != null && valAsDouble < resultAsDouble)) {
-                result = valAsNum;
-                resultAsDouble = valAsDouble;
-            }
-        }
-        return withDefault(result, Integer.MIN_VALUE);
-    }
-
-    @SuppressWarnings("unchecked")
-    private <T> T withDefault(T result, Integer defaultValue) {
-        return result!=null ? result : (T) defaultValue;
-    }
-    /**
-     * @return null if empty, or the most recent value
-     */
-    private <T extends Number> T latestInWindow(List<TimestampedValue<T>> vals) {
-        return vals.isEmpty() ? null : vals.get(vals.size()-1).getValue();
-    }
 }
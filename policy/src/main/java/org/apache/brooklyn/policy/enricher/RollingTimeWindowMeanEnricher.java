@@ -18,9 +18,6 @@
  */
 package org.apache.brooklyn.policy.enricher;
 
-import java.util.Iterator;
-import java.util.LinkedList;
-
 import org.apache.brooklyn.api.catalog.Catalog;
 import org.apache.brooklyn.api.entity.Entity;
 import org.apache.brooklyn.api.sensor.AttributeSensor;
@@ -31,6 +28,7 @@ import org.apache.brooklyn.config.ConfigKey;
 import org.apache.brooklyn.core.config.ConfigKeys;
 import org.apache.brooklyn.enricher.stock.AbstractTypeTransformingEnricher;
 import org.apache.brooklyn.enricher.stock.YamlRollingTimeWindowMeanEnricher;
+import org.apache.brooklyn.util.collections.TimeWindowedDoubles;
 import org.apache.brooklyn.util.core.flags.SetFromFlag;
 import org.apache.brooklyn.util.javalang.JavaClassNames;
 import org.apache.brooklyn.util.time.Duration;
@@ -88,8 +86,7 @@ public class RollingTimeWindowMeanEnricher<T extends Number> extends AbstractTyp
         
     }
     
-    private final LinkedList<T> values = new LinkedList<T>();
-    private final LinkedList<Long> timestamps = new LinkedList<Long>();
+    private final TimeWindowedDoubles values = new TimeWindowedDoubles();
     volatile ConfidenceQualifiedNumber lastAverage = new ConfidenceQualifiedNumber(0d,0d);
     
     @SetFromFlag
@@ -122,8 +119,10 @@ public class RollingTimeWindowMeanEnricher<T extends Number> extends AbstractTyp
     }
     
     public void onEvent(SensorEvent<T> event, long eventTime) {
-        values.addLast(event.getValue());
-        timestamps.addLast(eventTime);
+        // null values are not recorded; the time until the next value is attributed to that value
+        if (event.getValue()!=null) {
+            values.add(event.getValue().doubleValue(), eventTime);
+        }
         if (eventTime>0) {
             ConfidenceQualifiedNumber average = getAverage(eventTime, 0);
 
@@ -139,68 +138,41 @@ public class RollingTimeWindowMeanEnricher<T extends Number> extends AbstractTyp
     }
     
     public ConfidenceQualifiedNumber getAverage(long fromTime, long graceAllowed) {
-        if (timestamps.isEmpty()) {
-            return lastAverage = new ConfidenceQualifiedNumber(lastAverage.value, 0.0d);
-        }
-        
-        long firstTimestamp = -1;
-        Iterator<Long> ti = timestamps.iterator();
-        while (ti.hasNext()) {
-            firstTimestamp = ti.next();
-            if (firstTimestamp>0) break;
-        }
-        if (firstTimestamp<=0) {
-            // no values with reasonable timestamps
-            return lastAverage = new ConfidenceQualifiedNumber(values.get(values.size()-1).doubleValue(), 0.0d);
-        }
-
-        long lastTimestamp = timestamps.get(timestamps.size()-1);
-
-        long now = fromTime;
-        if (lastTimestamp > fromTime - graceAllowed) {
-            // without this, if the computation takes place X seconds after the publish,
-            // we treat X seconds as time for which we have no confidence in the data
-            now = lastTimestamp;
-        }
-        pruneValues(now);
-        
-        long windowStart = Math.max(now-timePeriod.toMilliseconds(), firstTimestamp);
-        long windowEnd = Math.max(now-timePeriod.toMilliseconds(), lastTimestamp);
-        Double confidence = ((double)(windowEnd - windowStart)) / timePeriod.toMilliseconds();
-        if (confidence <= 0.0000001d) {
-            // not enough timestamps in window 
-            double lastValue = values.get(values.size()-1).doubleValue();
-            return lastAverage = new ConfidenceQualifiedNumber(lastValue, 0.0d);
-        }
-        
-        long start = windowStart;
-        long end;
-        double weightedAverage = 0.0d;
-        
-        Iterator<T> valuesIter = values.iterator();
-        Iterator<Long> timestampsIter = timestamps.iterator();
-        while (valuesIter.hasNext()) {
-            // Ignores null and out-of-date values (and also values that are received out-of-order, but that shouldn't happen!)
-            Number val = valuesIter.next();
-            Long timestamp = timestampsIter.next();
-            if (val!=null && timestamp >= start) {
-                end = timestamp;
-                weightedAverage += ((end - start) / (confidence * timePeriod.toMilliseconds())) * val.doubleValue();
-                start = timestamp;
+        synchronized (values) {
+            if (values.isEmpty()) {
+                return lastAverage = new ConfidenceQualifiedNumber(lastAverage.value, 0.0d);
             }
-        }
-        
-        return lastAverage = new ConfidenceQualifiedNumber(weightedAverage, confidence);
-    }
+            
+            int firstIndex = values.indexOfFirstAtOrAfter(1);
+            if (firstIndex >= values.size()) {
+                // no values with reasonable timestamps
+                return lastAverage = new ConfidenceQualifiedNumber(values.getLatestValue(), 0.0d);
+            }
+            long firstTimestamp = values.getTimestamp(firstIndex);
+            long lastTimestamp = values.getLatestTimestamp();
     
-    /**
-     * Discards out-of-date values, but keeps at least one value.
-     */
-    private void pruneValues(long now) {
-        // keep one value from before the period, so that we can tell the window's start time 
-        while(timestamps.size() > 1 && timestamps.get(1) < (now - timePeriod.toMilliseconds())) {
-            timestamps.removeFirst();
-            values.removeFirst();
+            long now = fromTime;
+            if (lastTimestamp > fromTime - graceAllowed) {
+                // without this, if the computation takes place X seconds after the publish,
+                // we treat X seconds as time for which we have no confidence in the data
+                now = lastTimestamp;
+            }
+            // keep one value from before the period, so that we can tell the window's start time
+            values.pruneBefore(now - timePeriod.toMilliseconds());
+            
+            long windowStart = Math.max(now-timePeriod.toMilliseconds(), firstTimestamp);
+            long windowEnd = Math.max(now-timePeriod.toMilliseconds(), lastTimestamp);
+            Double confidence = ((double)(windowEnd - windowStart)) / timePeriod.toMilliseconds();
+            if (confidence <= 0.0000001d) {
+                // not enough timestamps in window 
+                return lastAverage = new ConfidenceQualifiedNumber(values.getLatestValue(), 0.0d);
+            }
+            
+            // each value is weighted by the time since the previous value (or the window start);
+            // out-of-date values are ignored
+            double weightedAverage = values.getTimeWeightedSum(windowStart) / (confidence * timePeriod.toMilliseconds());
+            
+            return lastAverage = new ConfidenceQualifiedNumber(weightedAverage, confidence);
         }
     }
 }
@@ -24,6 +24,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
@@ -35,14 +36,31 @@ import org.slf4j.LoggerFactory;
 import org.apache.brooklyn.api.location.Location;
 import org.apache.brooklyn.core.location.AbstractLocation;
 
+import com.google.common.annotations.Beta;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Objects;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Maps;
+import com.google.common.collect.SetMultimap;
 
 public class DefaultFollowTheSunModel<ContainerType, ItemType> implements FollowTheSunModel<ContainerType, ItemType> {
     
     private static final Logger LOG = LoggerFactory.getLogger(DefaultFollowTheSunModel.class);
     
+    /*
+     * Performance comments.
+     *  - For thousands of items, recomputing every item's usage by location (iterating over all of its senders)
+     *    on every rebalance made the policy CPU-bound. Hence each item's usage by location is aggregated as events
+     *    arrive: when its usage is updated, it is recomputed from its own senders; when a sender's location changes,
+     *    the items it sends to are recomputed (found from the senderToTargets index).
+     *  - The items whose usage by location (or own location) changed, and whether any containers changed, are 
+     *    recorded so that the FollowTheSunStrategy need only reconsider those items.
+     *  - The aggregates and indexes are guarded by indexLock (updated by the event thread, queried by the 
+     *    rebalancer thread).
+     */
+    
     // Concurrent maps cannot have null value; use this to represent when no container is supplied for an item 
     private static final String NULL = "null-val";
     private static final Location NULL_LOCATION = new AbstractLocation(newHashMap("name","null-location")) {};
@@ -55,6 +73,12 @@ public class DefaultFollowTheSunModel<ContainerType, ItemType> implements Follow
     private final Map<ItemType, Map<? extends ItemType, Double>> itemUsage = new ConcurrentHashMap<ItemType, Map<? extends ItemType,Double>>();
     private final Set<ItemType> immovableItems = Collections.newSetFromMap(new ConcurrentHashMap<ItemType, Boolean>());
 
+    private final Object indexLock = new Object();
+    private final Map<ItemType, Map<Location, Double>> itemToUsageByLocation = new HashMap<ItemType, Map<Location, Double>>();
+    private final SetMultimap<ItemType, ItemType> senderToTargets = HashMultimap.create();
+    private final Set<ItemType> changedItems = new LinkedHashSet<ItemType>();
+    private boolean containersChanged = true;
+
     public DefaultFollowTheSunModel(String name) {
         this.name = name;
     }
@@ -107,32 +131,48 @@ public class DefaultFollowTheSunModel<ContainerType, ItemType> implements Follow
     }
     
     @Override
-    // FIXME Too expensive to compute; store in a different data structure?
     public Map<ItemType, Map<Location, Double>> getDirectSendsToItemByLocation() {
-        Map<ItemType, Map<Location, Double>> result = new LinkedHashMap<ItemType, Map<Location,Double>>(getNumItems());
-        
-        for (Map.Entry<ItemType, Map<? extends ItemType, Double>> entry : itemUsage.entrySet()) {
-            ItemType targetItem = entry.getKey();
-            Map<? extends ItemType, Double> sources = entry.getValue();
-            if (sources.isEmpty()) continue; // no-one talking to us
-            
-            Map<Location, Double> targetUsageByLocation = new LinkedHashMap<Location, Double>();
-            result.put(targetItem, targetUsageByLocation);
-
-            for (Map.Entry<? extends ItemType, Double> entry2 : sources.entrySet()) {
-                ItemType sourceItem = entry2.getKey();
-                Location sourceLocation = getItemLocation(sourceItem);
-                double usageVal = (entry.getValue() != null) ? entry2.getValue() : 0d;
-                if (sourceLocation == null) continue; // don't know where to attribute this load; e.g. item may have just terminated
-                if (sourceItem.equals(targetItem)) continue; // ignore msgs to self
-                
-                Double usageValTotal = targetUsageByLocation.get(sourceLocation);
-                double newUsageValTotal = (usageValTotal != null ? usageValTotal : 0d) + usageVal;
-                targetUsageByLocation.put(sourceLocation, newUsageValTotal);
-            }
+        synchronized (indexLock) {
+            return new LinkedHashMap<ItemType, Map<Location, Double>>(itemToUsageByLocation);
+        }
+    }
+    
+    /**
+     * The usage of the given item by location, as an entry of {@link #getDirectSendsToItemByLocation()}
+     * (but without copying the usage of all items); empty if no usage is known.
+     */
+    @Beta
+    public Map<Location, Double> getDirectSendsToItemByLocation(ItemType item) {
+        synchronized (indexLock) {
+            Map<Location, Double> result = itemToUsageByLocation.get(item);
+            return (result != null) ? result : ImmutableMap.<Location, Double>of();
+        }
+    }
+    
+    /**
+     * Returns, and forgets, the items whose usage by location or own location has changed (or which have been 
+     * added or removed) since the last call. Intended for a single consumer, such as the {@link FollowTheSunStrategy}.
+     */
+    @Beta
+    public Set<ItemType> takeChangedItems() {
+        synchronized (indexLock) {
+            Set<ItemType> result = ImmutableSet.copyOf(changedItems);
+            changedItems.clear();
+            return result;
+        }
+    }
+    
+    /**
+     * Returns, and resets, whether any containers have been added or removed or changed location since the last call
+     * (initially true). Intended for a single consumer, such as the {@link FollowTheSunStrategy}.
+     */
+    @Beta
+    public boolean takeContainersChanged() {
+        synchronized (indexLock) {
+            boolean result = containersChanged;
+            containersChanged = false;
+            return result;
         }
-        
-        return result;
     }
     
     @Override
@@ -147,27 +187,37 @@ public class DefaultFollowTheSunModel<ContainerType, ItemType> implements Follow
     @Override
     public void onItemMoved(ItemType item, ContainerType newContainer) {
         // idempotent, as may be called multiple times
-        Location newLocation = (newContainer != null) ? containerToLocation.get(newContainer) : null;
-        ContainerType newContainerNonNull = toNonNullContainer(newContainer);
-        Location newLocationNonNull = toNonNullLocation(newLocation);
-        ContainerType oldContainer = itemToContainer.put(item, newContainerNonNull);
-        Location oldLocation = itemToLocation.put(item, newLocationNonNull);
+        synchronized (indexLock) {
+            Location newLocation = (newContainer != null) ? containerToLocation.get(newContainer) : null;
+            ContainerType newContainerNonNull = toNonNullContainer(newContainer);
+            Location newLocationNonNull = toNonNullLocation(newLocation);
+            itemToContainer.put(item, newContainerNonNull);
+            Location oldLocation = itemToLocation.put(item, newLocationNonNull);
+            if (!newLocationNonNull.equals(oldLocation)) onItemLocationChanged(item);
+        }
     }
     
     @Override
     public void onContainerAdded(ContainerType container, Location location) {
-        Location locationNonNull = toNonNullLocation(location);
-        containers.add(container);
-        containerToLocation.put(container, locationNonNull);
-        for (ItemType item : getItemsOnContainer(container)) {
-            itemToLocation.put(item, locationNonNull);
+        synchronized (indexLock) {
+            Location locationNonNull = toNonNullLocation(location);
+            containers.add(container);
+            containerToLocation.put(container, locationNonNull);
+            containersChanged = true;
+            for (ItemType item : getItemsOnContainer(container)) {
+                Location oldLocation = itemToLocation.put(item, locationNonNull);
+                if (!locationNonNull.equals(oldLocation)) onItemLocationChanged(item);
+            }
         }
     }
     
     @Override
     public void onContainerRemoved(ContainerType container) {
-        containers.remove(container);
-        containerToLocation.remove(container);
+        synchronized (indexLock) {
+            containers.remove(container);
+            containerToLocation.remove(container);
+            containersChanged = true;
+        }
     }
     
     @Override
@@ -178,10 +228,14 @@ public class DefaultFollowTheSunModel<ContainerType, ItemType> implements Follow
             if (LOG.isDebugEnabled()) LOG.debug("Ignoring setting of location for unknown container {}, to {}", container, location);
             return;
         }
-        Location locationNonNull = toNonNullLocation(location);
-        containerToLocation.put(container, locationNonNull);
-        for (ItemType item : getItemsOnContainer(container)) {
-            itemToLocation.put(item, locationNonNull);
+        synchronized (indexLock) {
+            Location locationNonNull = toNonNullLocation(location);
+            containerToLocation.put(container, locationNonNull);
+            containersChanged = true;
+            for (ItemType item : getItemsOnContainer(container)) {
+                Location oldLocation = itemToLocation.put(item, locationNonNull);
+                if (!locationNonNull.equals(oldLocation)) onItemLocationChanged(item);
+            }
         }
     }
 
@@ -192,29 +246,55 @@ public class DefaultFollowTheSunModel<ContainerType, ItemType> implements Follow
         if (immovable) {
             immovableItems.add(item);
         }
-        Location location = (container != null) ? containerToLocation.get(container) : null;
-        ContainerType containerNonNull = toNonNullContainer(container);
-        Location locationNonNull = toNonNullLocation(location);
-        ContainerType oldContainer = itemToContainer.put(item, containerNonNull);
-        Location oldLocation = itemToLocation.put(item, locationNonNull);
+        synchronized (indexLock) {
+            Location location = (container != null) ? containerToLocation.get(container) : null;
+            ContainerType containerNonNull = toNonNullContainer(container);
+            Location locationNonNull = toNonNullLocation(location);
+            itemToContainer.put(item, containerNonNull);
+            Location oldLocation = itemToLocation.put(item, locationNonNull);
+            changedItems.add(item);
+            if (!locationNonNull.equals(oldLocation)) onItemLocationChanged(item);
+        }
     }
     
     @Override
     public void onItemRemoved(ItemType item) {
-        itemToContainer.remove(item);
-        itemToLocation.remove(item);
-        itemUsage.remove(item);
-        immovableItems.remove(item);
+        synchronized (indexLock) {
+            itemToContainer.remove(item);
+            itemToLocation.remove(item);
+            Map<? extends ItemType, Double> oldUsage = itemUsage.remove(item);
+            immovableItems.remove(item);
+            if (oldUsage != null) {
+                for (ItemType sender : oldUsage.keySet()) {
+                    senderToTargets.remove(sender, item);
+                }
+            }
+            itemToUsageByLocation.remove(item);
+            changedItems.add(item);
+            // its messages to others are no longer attributable to a location
+            onItemLocationChanged(item);
+        }
     }
     
     @Override
     public void onItemUsageUpdated(ItemType item, Map<? extends ItemType, Double> newValue) {
-        if (hasItem(item)) {
-            itemUsage.put(item, newValue);
-        } else {
-            // Can happen when item removed - get notification of removal and workrate from group and item
-            // respectively, so can overtake each other
-            if (LOG.isDebugEnabled()) LOG.debug("Ignoring setting of usage for unknown item {}, to {}", item, newValue);
+        synchronized (indexLock) {
+            if (hasItem(item)) {
+                Map<? extends ItemType, Double> oldUsage = itemUsage.put(item, newValue);
+                if (oldUsage != null) {
+                    for (ItemType sender : oldUsage.keySet()) {
+                        senderToTargets.remove(sender, item);
+                    }
+                }
+                for (ItemType sender : newValue.keySet()) {
+                    senderToTargets.put(sender, item);
+                }
+                updateUsageByLocation(item);
+            } else {
+                // Can happen when item removed - get notification of removal and workrate from group and item
+                // respectively, so can overtake each other
+                if (LOG.isDebugEnabled()) LOG.debug("Ignoring setting of usage for unknown item {}, to {}", item, newValue);
+            }
         }
     }
     
@@ -259,6 +339,47 @@ public class DefaultFollowTheSunModel<ContainerType, ItemType> implements Follow
         out.flush();
     }
     
+    /**
+     * Records that the item's location has changed, so the usage by location of the items it sends to 
+     * must be recomputed. Must be called holding the indexLock.
+     */
+    private void onItemLocationChanged(ItemType item) {
+        changedItems.add(item);
+        for (ItemType target : ImmutableSet.copyOf(senderToTargets.get(item))) {
+            updateUsageByLocation(target);
+        }
+    }
+    
+    /**
+     * Recomputes the usage by location of the given item from its senders, recording it as changed if different.
+     * Must be called holding the indexLock.
+     */
+    private void updateUsageByLocation(ItemType targetItem) {
+        Map<? extends ItemType, Double> sources = itemUsage.get(targetItem);
+        Map<Location, Double> oldUsageByLocation;
+        if (sources == null || sources.isEmpty()) {
+            // no-one talking to us
+            oldUsageByLocation = itemToUsageByLocation.remove(targetItem);
+        } else {
+            Map<Location, Double> targetUsageByLocation = new LinkedHashMap<Location, Double>();
+            for (Map.Entry<? extends ItemType, Double> entry : sources.entrySet()) {
+                ItemType sourceItem = entry.getKey();
+                Location sourceLocation = getItemLocation(sourceItem);
+                double usageVal = (entry.getValue() != null) ? entry.getValue() : 0d;
+                if (sourceLocation == null) continue; // don't know where to attribute this load; e.g. item may have just terminated
+                if (sourceItem.equals(targetItem)) continue; // ignore msgs to self
+                
+                Double usageValTotal = targetUsageByLocation.get(sourceLocation);
+                double newUsageValTotal = (usageValTotal != null ? usageValTotal : 0d) + usageVal;
+                targetUsageByLocation.put(sourceLocation, newUsageValTotal);
+            }
+            oldUsageByLocation = itemToUsageByLocation.put(targetItem, Collections.unmodifiableMap(targetUsageByLocation));
+        }
+        if (!Objects.equal(oldUsageByLocation, itemToUsageByLocation.get(targetItem))) {
+            changedItems.add(targetItem);
+        }
+    }
+    
     private boolean hasItem(ItemType item) {
         return itemToContainer.containsKey(item);
     }
@@ -287,10 +408,6 @@ public class DefaultFollowTheSunModel<ContainerType, ItemType> implements Follow
         return result;
     }
     
-    private int getNumItems() {
-        return itemToContainer.size();
-    }
-    
     @SuppressWarnings("unchecked")
     private ContainerType nullContainer() {
         return (ContainerType) NULL; // relies on erasure
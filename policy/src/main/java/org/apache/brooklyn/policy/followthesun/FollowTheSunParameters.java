@@ -19,6 +19,7 @@
 package org.apache.brooklyn.policy.followthesun;
 
 import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
 
 import org.slf4j.Logger;
@@ -54,6 +55,12 @@ public class FollowTheSunParameters {
     /** as corresponding majority and total fields, with x_A-x_B on the LHS of inequality */
     public double triggerAbsoluteMajority = 4;
     
+    /** for an item whose usage has changed since it was last considered, with x and x_L as above when it was last considered
+     * and x' and x'_L now (for each location L), this parameter T defines a number such that the sum over L of |x'_L - x_L| > T*max(x,x')
+     * in order for X to be reconsidered (when using a {@link DefaultFollowTheSunModel});
+     * 0 reconsiders an item on any change, and items are always reconsidered when they or any containers move */
+    public double reconsiderPercentChange = 0;
+
     /** a list of excluded locations */
     public Set<Location> excludedLocations = new LinkedHashSet<Location>();
 
@@ -86,11 +93,26 @@ public class FollowTheSunParameters {
         return true;
     }
     
+    /** whether an item's usage by location has changed enough since it was last considered to reconsider it; see {@link #reconsiderPercentChange} */
+    public boolean isChangeSignificant(Map<Location, Double> previous, Map<Location, Double> current) {
+        double change = 0;
+        for (Map.Entry<Location, Double> entry : current.entrySet()) {
+            Double old = previous.get(entry.getKey());
+            change += Math.abs(entry.getValue() - (old != null ? old : 0d));
+        }
+        for (Map.Entry<Location, Double> entry : previous.entrySet()) {
+            if (!current.containsKey(entry.getKey())) change += Math.abs(entry.getValue());
+        }
+        double total = Math.max(DefaultFollowTheSunModel.sum(previous.values()), DefaultFollowTheSunModel.sum(current.values()));
+        return change > total*reconsiderPercentChange;
+    }
+    
     @Override
     public String toString() {
         return "Inter-geography policy params: percentTotal="+triggerPercentTotal+"; deltaAbovePercentTotal="+triggerDeltaAbovePercentTotal+
                 "; absoluteTotal="+triggerAbsoluteTotal+"; percentMajority="+triggerPercentMajority+
-                "; deltaAbovePercentMajority="+triggerDeltaAbovePercentMajority+"; absoluteMajority="+triggerAbsoluteMajority;
+                "; deltaAbovePercentMajority="+triggerDeltaAbovePercentMajority+"; absoluteMajority="+triggerAbsoluteMajority+
+                "; reconsiderPercentChange="+reconsiderPercentChange;
 
     }
 }
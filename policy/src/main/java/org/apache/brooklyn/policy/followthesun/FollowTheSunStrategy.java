@@ -21,6 +21,8 @@ package org.apache.brooklyn.policy.followthesun;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -32,6 +34,7 @@ import org.slf4j.LoggerFactory;
 
 import org.apache.brooklyn.policy.loadbalancing.Movable;
 
+import com.google.common.base.Objects;
 import com.google.common.collect.Iterables;
 
 // TODO: extract interface
@@ -47,106 +50,170 @@ public class FollowTheSunStrategy<ContainerType extends Entity, ItemType extends
     private final FollowTheSunModel<ContainerType,ItemType> model;
     private final String name;
     
+    // when the model supports it, only items whose usage has changed are reconsidered (accessed only by the rebalancer thread)
+    private final DefaultFollowTheSunModel<ContainerType,ItemType> incrementalModel;
+    private final Map<ItemType, UsageSnapshot> lastConsidered = new HashMap<ItemType, UsageSnapshot>();
+    private final Set<ItemType> retryItems = new LinkedHashSet<ItemType>();
+    
     public FollowTheSunStrategy(FollowTheSunModel<ContainerType,ItemType> model, FollowTheSunParameters parameters) {
         this.model = model;
         this.parameters = parameters;
         this.name = model.getName();
+        this.incrementalModel = (model instanceof DefaultFollowTheSunModel) ? (DefaultFollowTheSunModel<ContainerType,ItemType>) model : null;
     }
     
     public void rebalance() {
         try {
+            if (incrementalModel != null) {
+                rebalanceChanged();
+                return;
+            }
             Set<ItemType> items = model.getItems();
             Map<ItemType, Map<Location, Double>> directSendsToItemByLocation = model.getDirectSendsToItemByLocation();
             
             for (ItemType item : items) {
-                String itemName = model.getName(item);
-                Location activeLocation = model.getItemLocation(item);
-                ContainerType activeContainer = model.getItemContainer(item);
                 Map<Location, Double> sendsByLocation = directSendsToItemByLocation.get(item);
                 if (sendsByLocation == null) sendsByLocation = Collections.emptyMap();
-                
-                if (parameters.excludedLocations.contains(activeLocation)) {
-                    if (LOG.isTraceEnabled()) LOG.trace("Ignoring segment {} as it is in {}", itemName, activeLocation);
-                    continue;
-                }
-                if (!model.isItemMoveable(item)) {
-                    if (LOG.isDebugEnabled()) LOG.debug("POLICY {} skipping any migration of {}, it is not moveable", name, itemName);
-                    continue;
-                }
-                if (model.hasActiveMigration(item)) {
-                    LOG.info("POLICY {} skipping any migration of {}, it is involved in an active migration already", name, itemName);
-                    continue;
-                }
-                
-                double total = DefaultFollowTheSunModel.sum(sendsByLocation.values());
+                rebalance(item, sendsByLocation);
+            }
+        } catch (Exception e) {
+            LOG.warn("Error in policy "+name+" (ignoring): "+e, e);
+        }
+    }
 
-                if (LOG.isTraceEnabled()) LOG.trace("POLICY {} detected {} msgs/sec in {}, split up as: {}", new Object[] {name, total, itemName, sendsByLocation});
-                
-                Double current = sendsByLocation.get(activeLocation);
-                if (current == null) current=0d;
-                List<WeightedObject<Location>> locationsWtd = new ArrayList<WeightedObject<Location>>();
-                if (total > 0) {
-                    for (Map.Entry<Location, Double> entry : sendsByLocation.entrySet()) {
-                        Location l = entry.getKey();
-                        Double d = entry.getValue();
-                        if (d > current) locationsWtd.add(new WeightedObject<Location>(l, d));
-                    }
-                }
-                Collections.sort(locationsWtd);
-                Collections.reverse(locationsWtd);
-                
-                double highestMsgRate = -1;
-                Location highestLocation = null;
-                ContainerType optimalContainerInHighest = null;
-                while (!locationsWtd.isEmpty()) {
-                    WeightedObject<Location> weightedObject = locationsWtd.remove(0);
-                    highestMsgRate = weightedObject.getWeight();
-                    highestLocation = weightedObject.getObject();
-                    optimalContainerInHighest = findOptimal(model.getAvailableContainersFor(item, highestLocation));
-                    if (optimalContainerInHighest != null) {
-                        break;
-                    }
-                }
-                if (optimalContainerInHighest == null) {
-                    if (LOG.isDebugEnabled()) LOG.debug("POLICY {} detected {} is already in optimal permitted location ({} of {} msgs/sec)", new Object[] {name, itemName, highestMsgRate, total});
-                    continue;                   
-                }
-                
-                double nextHighestMsgRate = -1;
-                ContainerType optimalContainerInNextHighest = null;
-                while (!locationsWtd.isEmpty()) {
-                    WeightedObject<Location> weightedObject = locationsWtd.remove(0);
-                    nextHighestMsgRate = weightedObject.getWeight();
-                    Location nextHighestLocation = weightedObject.getObject();
-                    optimalContainerInNextHighest = findOptimal(model.getAvailableContainersFor(item, nextHighestLocation));
-                    if (optimalContainerInNextHighest != null) {
-                        break;
-                    }
-                }
-                if (optimalContainerInNextHighest == null) {
-                    nextHighestMsgRate = current;
-                }
-                
-                if (parameters.isTriggered(highestMsgRate, total, nextHighestMsgRate, current)) {
-                    LOG.info("POLICY "+name+" detected "+itemName+" should be in location "+highestLocation+" on "+optimalContainerInHighest+" ("+highestMsgRate+" of "+total+" msgs/sec), migrating");
-                    try {
-                        if (activeContainer.equals(optimalContainerInHighest)) {
-                            //shouldn't happen
-                            LOG.warn("POLICY "+name+" detected "+itemName+" should move to "+optimalContainerInHighest+" ("+highestMsgRate+" of "+total+" msgs/sec) but it is already there with "+current+" msgs/sec");
-                        } else {
-                            item.move(optimalContainerInHighest);
-                            model.onItemMoved(item, optimalContainerInHighest);
-                        }
-                    } catch (Exception e) {
-                        LOG.warn("POLICY "+name+" detected "+itemName+" should be on "+optimalContainerInHighest+", but can't move it: "+e, e);
-                    }
+    /**
+     * Reconsiders only those items whose usage by location has changed significantly since they were last considered
+     * (see {@link FollowTheSunParameters#reconsiderPercentChange}), or which have moved, or which could not be moved
+     * last time; or all items if any containers have changed.
+     */
+    private void rebalanceChanged() {
+        boolean containersChanged = incrementalModel.takeContainersChanged();
+        Set<ItemType> changedItems = incrementalModel.takeChangedItems();
+        Set<ItemType> items = model.getItems();
+        
+        Set<ItemType> retrying = new LinkedHashSet<ItemType>(retryItems);
+        retryItems.clear();
+        Set<ItemType> candidates = new LinkedHashSet<ItemType>(retrying);
+        if (containersChanged) {
+            candidates.addAll(items);
+            lastConsidered.keySet().retainAll(items);
+        } else {
+            candidates.addAll(changedItems);
+        }
+        
+        int considered = 0;
+        for (ItemType item : candidates) {
+            if (!items.contains(item)) {
+                lastConsidered.remove(item);
+                continue;
+            }
+            Map<Location, Double> sendsByLocation = incrementalModel.getDirectSendsToItemByLocation(item);
+            Location location = model.getItemLocation(item);
+            UsageSnapshot previous = lastConsidered.get(item);
+            if (!containersChanged && !retrying.contains(item) && previous != null && Objects.equal(previous.location, location) 
+                    && !parameters.isChangeSignificant(previous.sendsByLocation, sendsByLocation)) {
+                continue;
+            }
+            lastConsidered.put(item, new UsageSnapshot(location, sendsByLocation));
+            considered++;
+            if (!rebalance(item, sendsByLocation)) {
+                retryItems.add(item);
+            }
+        }
+        if (LOG.isTraceEnabled()) LOG.trace("POLICY {} reconsidered {} of {} items ({} changed{})", 
+                new Object[] {name, considered, items.size(), changedItems.size(), (containersChanged ? ", containers changed" : "")});
+    }
+
+    /**
+     * Moves the item to the best location for its usage, if that is sufficiently better than its current location.
+     * 
+     * @return false if the item should be reconsidered even if its usage does not change (e.g. because it could not be moved)
+     */
+    private boolean rebalance(ItemType item, Map<Location, Double> sendsByLocation) {
+        String itemName = model.getName(item);
+        Location activeLocation = model.getItemLocation(item);
+        ContainerType activeContainer = model.getItemContainer(item);
+        
+        if (parameters.excludedLocations.contains(activeLocation)) {
+            if (LOG.isTraceEnabled()) LOG.trace("Ignoring segment {} as it is in {}", itemName, activeLocation);
+            return true;
+        }
+        if (!model.isItemMoveable(item)) {
+            if (LOG.isDebugEnabled()) LOG.debug("POLICY {} skipping any migration of {}, it is not moveable", name, itemName);
+            return true;
+        }
+        if (model.hasActiveMigration(item)) {
+            LOG.info("POLICY {} skipping any migration of {}, it is involved in an active migration already", name, itemName);
+            return false;
+        }
+        
+        double total = DefaultFollowTheSunModel.sum(sendsByLocation.values());
+
+        if (LOG.isTraceEnabled()) LOG.trace("POLICY {} detected {} msgs/sec in {}, split up as: {}", new Object[] {name, total, itemName, sendsByLocation});
+        
+        Double current = sendsByLocation.get(activeLocation);
+        if (current == null) current=0d;
+        List<WeightedObject<Location>> locationsWtd = new ArrayList<WeightedObject<Location>>();
+        if (total > 0) {
+            for (Map.Entry<Location, Double> entry : sendsByLocation.entrySet()) {
+                Location l = entry.getKey();
+                Double d = entry.getValue();
+                if (d > current) locationsWtd.add(new WeightedObject<Location>(l, d));
+            }
+        }
+        Collections.sort(locationsWtd);
+        Collections.reverse(locationsWtd);
+        
+        double highestMsgRate = -1;
+        Location highestLocation = null;
+        ContainerType optimalContainerInHighest = null;
+        while (!locationsWtd.isEmpty()) {
+            WeightedObject<Location> weightedObject = locationsWtd.remove(0);
+            highestMsgRate = weightedObject.getWeight();
+            highestLocation = weightedObject.getObject();
+            optimalContainerInHighest = findOptimal(model.getAvailableContainersFor(item, highestLocation));
+            if (optimalContainerInHighest != null) {
+                break;
+            }
+        }
+        if (optimalContainerInHighest == null) {
+            if (LOG.isDebugEnabled()) LOG.debug("POLICY {} detected {} is already in optimal permitted location ({} of {} msgs/sec)", new Object[] {name, itemName, highestMsgRate, total});
+            return true;
+        }
+        
+        double nextHighestMsgRate = -1;
+        ContainerType optimalContainerInNextHighest = null;
+        while (!locationsWtd.isEmpty()) {
+            WeightedObject<Location> weightedObject = locationsWtd.remove(0);
+            nextHighestMsgRate = weightedObject.getWeight();
+            Location nextHighestLocation = weightedObject.getObject();
+            optimalContainerInNextHighest = findOptimal(model.getAvailableContainersFor(item, nextHighestLocation));
+            if (optimalContainerInNextHighest != null) {
+                break;
+            }
+        }
+        if (optimalContainerInNextHighest == null) {
+            nextHighestMsgRate = current;
+        }
+        
+        if (parameters.isTriggered(highestMsgRate, total, nextHighestMsgRate, current)) {
+            LOG.info("POLICY "+name+" detected "+itemName+" should be in location "+highestLocation+" on "+optimalContainerInHighest+" ("+highestMsgRate+" of "+total+" msgs/sec), migrating");
+            try {
+                if (activeContainer.equals(optimalContainerInHighest)) {
+                    //shouldn't happen
+                    LOG.warn("POLICY "+name+" detected "+itemName+" should move to "+optimalContainerInHighest+" ("+highestMsgRate+" of "+total+" msgs/sec) but it is already there with "+current+" msgs/sec");
                 } else {
-                    if (LOG.isTraceEnabled()) LOG.trace("POLICY "+name+" detected "+itemName+" need not move to "+optimalContainerInHighest+" ("+highestMsgRate+" of "+total+" msgs/sec not much better than "+current+" at "+activeContainer+")");
+                    item.move(optimalContainerInHighest);
+                    model.onItemMoved(item, optimalContainerInHighest);
                 }
+            } catch (Exception e) {
+                LOG.warn("POLICY "+name+" detected "+itemName+" should be on "+optimalContainerInHighest+", but can't move it: "+e, e);
+                return false;
             }
-        } catch (Exception e) {
-            LOG.warn("Error in policy "+name+" (ignoring): "+e, e);
+        } else {
+            if (LOG.isTraceEnabled()) LOG.trace("POLICY "+name+" detected "+itemName+" need not move to "+optimalContainerInHighest+" ("+highestMsgRate+" of "+total+" msgs/sec not much better than "+current+" at "+activeContainer+")");
         }
+        return true;
     }
 
     private ContainerType findOptimal(Collection<ContainerType> contenders) {
@@ -158,4 +225,15 @@ public class FollowTheSunStrategy<ContainerType extends Entity, ItemType extends
          */
         return (contenders.isEmpty() ? null : Iterables.get(contenders, 0));
     }
+    
+    /** The location and usage of an item when it was last considered. */
+    private static class UsageSnapshot {
+        final Location location;
+        final Map<Location, Double> sendsByLocation;
+        
+        UsageSnapshot(Location location, Map<Location, Double> sendsByLocation) {
+            this.location = location;
+            this.sendsByLocation = sendsByLocation;
+        }
+    }
 }
@@ -52,6 +52,8 @@ public class BalancingStrategy<NodeType extends Entity, ItemType extends Movable
     private final String name;
     private final BalanceablePoolModel<NodeType, ItemType> model;
     private final PolicyUtilForPool<NodeType, ItemType> helper;
+    /** the model, if it is indexed so items to move can be found without taking a copy of each node's items */
+    private final DefaultBalanceablePoolModel<NodeType, ItemType> indexedModel;
 //    private boolean loggedColdestTooHigh = false;
 //    private boolean loggedHottestTooLow = false;
     
@@ -60,6 +62,7 @@ public class BalancingStrategy<NodeType extends Entity, ItemType extends Movable
         this.name = name;
         this.model = model;
         this.helper = new PolicyUtilForPool<NodeType, ItemType>(model);
+        this.indexedModel = (model instanceof DefaultBalanceablePoolModel) ? (DefaultBalanceablePoolModel<NodeType, ItemType>) model : null;
     }
     
     public String getName() {
@@ -270,18 +273,25 @@ public class BalancingStrategy<NodeType extends Entity, ItemType extends Movable
                     (nodeWorkrate - coldNodeWorkrate)*0.9);
             double maxSizeToMoveIfNoSmallButLarger = nodeWorkrate*3/4;
             
-            Map<ItemType, Double> questionedNodeItems = getDataProvider().getItemWorkrates(node);
-            if (questionedNodeItems == null) {
-                if (LOG.isDebugEnabled())
-                    LOG.debug(MessageFormat.format(
-                            "policy "+getDataProvider().getName()+" balancing hot node "+questionedNodeName+" " +
-                            "("+node+", workrate {0,number,#.##}), abandoned; " +
-                            "item report for " + questionedNodeName + " unavailable",
-                            nodeWorkrate));
-                break;
+            Map<ItemType, Double> questionedNodeItems = null;
+            ItemType itemToMove;
+            if (indexedModel != null) {
+                itemToMove = indexedModel.findBestItemToMove(node, idealSizeToMove, maxSizeToMoveIdeally,
+                        maxSizeToMoveIfNoSmallButLarger, itemsMoved, coldNodeLocation);
+            } else {
+                questionedNodeItems = getDataProvider().getItemWorkrates(node);
+                if (questionedNodeItems == null) {
+                    if (LOG.isDebugEnabled())
+                        LOG.debug(MessageFormat.format(
+                                "policy "+getDataProvider().getName()+" balancing hot node "+questionedNodeName+" " +
+                                "("+node+", workrate {0,number,#.##}), abandoned; " +
+                                "item report for " + questionedNodeName + " unavailable",
+                                nodeWorkrate));
+                    break;
+                }
+                itemToMove = findBestItemToMove(questionedNodeItems, idealSizeToMove, maxSizeToMoveIdeally,
+                        maxSizeToMoveIfNoSmallButLarger, itemsMoved, coldNodeLocation);
             }
-            ItemType itemToMove = findBestItemToMove(questionedNodeItems, idealSizeToMove, maxSizeToMoveIdeally,
-                    maxSizeToMoveIfNoSmallButLarger, itemsMoved, coldNodeLocation);
             
             if (itemToMove == null) {
                 if (LOG.isDebugEnabled())
@@ -291,12 +301,13 @@ public class BalancingStrategy<NodeType extends Entity, ItemType extends Movable
                             "no suitable segment found " +
                             "(ideal transition item size {1,number,#.##}, max {2,number,#.##}, " +
                             "moving to coldest node "+coldNodeName+" ("+coldNode+", workrate {3,number,#.##}); available items: {4}",
-                            nodeWorkrate, idealSizeToMove, maxSizeToMoveIdeally, coldNodeWorkrate, questionedNodeItems) );
+                            nodeWorkrate, idealSizeToMove, maxSizeToMoveIdeally, coldNodeWorkrate,
+                            (questionedNodeItems != null) ? questionedNodeItems : getDataProvider().getItemWorkrates(node)) );
                 break;
             }
             
             itemsMoved.add(itemToMove);
-            double itemWorkrate = questionedNodeItems.get(itemToMove);
+            double itemWorkrate = getItemWorkrate(questionedNodeItems, itemToMove);
             
 //            if (LOG.isLoggable(Level.FINE))
 //                LOG.fine( MessageFormat.format(
@@ -464,20 +475,26 @@ public class BalancingStrategy<NodeType extends Entity, ItemType extends Movable
                     (hotNodeWorkrate - questionedNodeTotalWorkrate)*0.6);
             double maxSizeToMoveIfNoSmallButLarger = questionedNodeTotalWorkrate*3/4;
             
-            Map<ItemType, Double> hotNodeItems = getDataProvider().getItemWorkrates(hotNode);
-            if (hotNodeItems == null) {
-                if (LOG.isDebugEnabled())
-                    LOG.debug(MessageFormat.format(
-                            "policy "+getDataProvider().getName()+" balancing cold node "+questionedNodeName+" " +
-                            "("+questionedNode+", workrate {0,number,#.##}), " +
-                            "excluding hot node "+hotNodeName+" because its item report unavailable",
-                            questionedNodeTotalWorkrate));
-                nodesChecked.add(hotNode);
-                continue;
+            Map<ItemType, Double> hotNodeItems = null;
+            ItemType itemToMove;
+            if (indexedModel != null) {
+                itemToMove = indexedModel.findBestItemToMove(hotNode, idealSizeToMove, maxSizeToMoveIdeally,
+                        maxSizeToMoveIfNoSmallButLarger, itemsMoved, questionedLocation);
+            } else {
+                hotNodeItems = getDataProvider().getItemWorkrates(hotNode);
+                if (hotNodeItems == null) {
+                    if (LOG.isDebugEnabled())
+                        LOG.debug(MessageFormat.format(
+                                "policy "+getDataProvider().getName()+" balancing cold node "+questionedNodeName+" " +
+                                "("+questionedNode+", workrate {0,number,#.##}), " +
+                                "excluding hot node "+hotNodeName+" because its item report unavailable",
+                                questionedNodeTotalWorkrate));
+                    nodesChecked.add(hotNode);
+                    continue;
+                }
+                itemToMove = findBestItemToMove(hotNodeItems, idealSizeToMove, maxSizeToMoveIdeally,
+                        maxSizeToMoveIfNoSmallButLarger, itemsMoved, questionedLocation);
             }
-            
-            ItemType itemToMove = findBestItemToMove(hotNodeItems, idealSizeToMove, maxSizeToMoveIdeally,
-                    maxSizeToMoveIfNoSmallButLarger, itemsMoved, questionedLocation);
             if (itemToMove == null) {
                 if (LOG.isDebugEnabled())
                     LOG.debug(MessageFormat.format(
@@ -486,14 +503,15 @@ public class BalancingStrategy<NodeType extends Entity, ItemType extends Movable
                             "excluding hot node "+hotNodeName+" because it has no appilcable items " +
                             "(ideal transition item size {1,number,#.##}, max {2,number,#.##}, " +
                             "moving from hot node "+hotNodeName+" ("+hotNode+", workrate {3,number,#.##}); available items: {4}",
-                            questionedNodeTotalWorkrate, idealSizeToMove, maxSizeToMoveIdeally, hotNodeWorkrate, hotNodeItems) );
+                            questionedNodeTotalWorkrate, idealSizeToMove, maxSizeToMoveIdeally, hotNodeWorkrate,
+                            (hotNodeItems != null) ? hotNodeItems : getDataProvider().getItemWorkrates(hotNode)) );
                 
                 nodesChecked.add(hotNode);
                 continue;
             }
             
             itemsMoved.add(itemToMove);
-            double segmentRate = hotNodeItems.get(itemToMove);
+            double segmentRate = getItemWorkrate(hotNodeItems, itemToMove);
             
 //            if (LOG.isLoggable(Level.FINE))
 //                LOG.fine( MessageFormat.format(
@@ -540,6 +558,13 @@ public class BalancingStrategy<NodeType extends Entity, ItemType extends Movable
         return !itemsMoved.isEmpty();
     }
     
+    /** the item's workrate, from the given report if there is one, otherwise from the indexed model */
+    private double getItemWorkrate(Map<ItemType, Double> itemWorkrates, ItemType item) {
+        Double result = (itemWorkrates != null) ? itemWorkrates.get(item) : indexedModel.getItemWorkrate(item);
+        // the item may have been removed concurrently, since it was chosen from the indexed model
+        return (result != null) ? result : 0;
+    }
+    
     protected void moveItem(ItemType item, NodeType oldNode, NodeType newNode) {
         item.move(newNode);
         model.onItemMoved(item, newNode);
@@ -21,10 +21,15 @@ package org.apache.brooklyn.policy.loadbalancing;
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.NavigableSet;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -53,6 +58,11 @@ public class DefaultBalanceablePoolModel<ContainerType, ItemType> implements Bal
      *  - Unfortunately changing threading model (so have a "rebalancer" thread, and a thread that 
      *    processes events to update the model), get ConcurrentModificationException if don't take
      *    copy of containerToItems.get(node)...
+     *  - For pools of thousands of items across hundreds of containers, recomputing each container's total
+     *    (to find the hottest/coldest) on every migration dominated rebalancing. Hence container totals are cached,
+     *    containers are indexed by spare capacity, and each container's items are indexed by workrate, so that
+     *    each balancing iteration is logarithmic rather than a scan of the whole pool; see BalancingStrategy.
+     *    The indexes are guarded by indexLock (updated by the event thread, queried by the rebalancer thread).
      */
     
     // Concurrent maps cannot have null value; use this to represent when no container is supplied for an item 
@@ -67,6 +77,14 @@ public class DefaultBalanceablePoolModel<ContainerType, ItemType> implements Bal
     private final Map<ItemType, Double> itemToWorkrate = new ConcurrentHashMap<ItemType, Double>();
     private final Set<ItemType> immovableItems = Collections.newSetFromMap(new ConcurrentHashMap<ItemType, Boolean>());
     
+    private final Object indexLock = new Object();
+    private final AtomicLong nextSequence = new AtomicLong();
+    private final Map<ContainerType, Double> containerToWorkrate = new ConcurrentHashMap<ContainerType, Double>();
+    private final Map<ContainerType, ContainerEntry<ContainerType>> containerEntries = new HashMap<ContainerType, ContainerEntry<ContainerType>>();
+    private final NavigableSet<ContainerEntry<ContainerType>> containersBySpareCapacity = new TreeSet<ContainerEntry<ContainerType>>(ContainerEntry.BY_SPARE_CAPACITY);
+    private final Map<ItemType, ItemEntry<ItemType>> itemEntries = new HashMap<ItemType, ItemEntry<ItemType>>();
+    private final Map<ContainerType, NavigableSet<ItemEntry<ItemType>>> containerToItemsByWorkrate = new HashMap<ContainerType, NavigableSet<ItemEntry<ItemType>>>();
+    
     private volatile double poolLowThreshold = 0;
     private volatile double poolHighThreshold = 0;
     private volatile double currentPoolWorkrate = 0;
@@ -117,13 +135,8 @@ public class DefaultBalanceablePoolModel<ContainerType, ItemType> implements Bal
     }
     
     @Override public double getTotalWorkrate(ContainerType container) {
-        double totalWorkrate = 0;
-        for (ItemType item : getItemsForContainer(container)) {
-            Double workrate = itemToWorkrate.get(item);
-            if (workrate != null)
-                totalWorkrate += Math.abs(workrate);
-        }
-        return totalWorkrate;
+        Double result = containerToWorkrate.get(container);
+        return (result != null) ? result : 0;
     }
     
     @Override public Map<ContainerType, Double> getContainerWorkrates() {
@@ -162,9 +175,12 @@ public class DefaultBalanceablePoolModel<ContainerType, ItemType> implements Bal
             return;
         }
         ContainerType newNodeNonNull = toNonNullContainer(newNode);
-        ContainerType oldNode = itemToContainer.put(item, newNodeNonNull);
-        if (oldNode != null && oldNode != NULL_CONTAINER) containerToItems.remove(oldNode, item);
-        if (newNode != null) containerToItems.put(newNode, item);
+        synchronized (indexLock) {
+            ContainerType oldNode = itemToContainer.put(item, newNodeNonNull);
+            if (oldNode != null && oldNode != NULL_CONTAINER) containerToItems.remove(oldNode, item);
+            if (newNode != null) containerToItems.put(newNode, item);
+            indexItemMoved(item, oldNode, newNodeNonNull);
+        }
     }
     
     @Override
@@ -177,6 +193,12 @@ public class DefaultBalanceablePoolModel<ContainerType, ItemType> implements Bal
         }
         containerToLowThreshold.put(newContainer, lowThreshold);
         containerToHighThreshold.put(newContainer, highThreshold);
+        synchronized (indexLock) {
+            ContainerEntry<ContainerType> entry = new ContainerEntry<ContainerType>(newContainer, nextSequence.getAndIncrement(), highThreshold);
+            entry.workrate = getTotalWorkrate(newContainer);
+            containerEntries.put(newContainer, entry);
+            containersBySpareCapacity.add(entry);
+        }
         poolLowThreshold += lowThreshold;
         poolHighThreshold += highThreshold;
     }
@@ -186,6 +208,10 @@ public class DefaultBalanceablePoolModel<ContainerType, ItemType> implements Bal
         containers.remove(oldContainer);
         Double containerLowThreshold = containerToLowThreshold.remove(oldContainer);
         Double containerHighThresold = containerToHighThreshold.remove(oldContainer);
+        synchronized (indexLock) {
+            ContainerEntry<ContainerType> entry = containerEntries.remove(oldContainer);
+            if (entry != null) containersBySpareCapacity.remove(entry);
+        }
         poolLowThreshold -= (containerLowThreshold != null ? containerLowThreshold : 0);
         poolHighThreshold -= (containerHighThresold != null ? containerHighThresold : 0);
         
@@ -206,27 +232,39 @@ public class DefaultBalanceablePoolModel<ContainerType, ItemType> implements Bal
             immovableItems.add(item);
         
         ContainerType parentContainerNonNull = toNonNullContainer(parentContainer);
-        ContainerType oldNode = itemToContainer.put(item, parentContainerNonNull);
-        if (oldNode != null && oldNode != NULL_CONTAINER) containerToItems.remove(oldNode, item);
-        if (parentContainer != null) containerToItems.put(parentContainer, item);
+        synchronized (indexLock) {
+            ContainerType oldNode = itemToContainer.put(item, parentContainerNonNull);
+            if (oldNode != null && oldNode != NULL_CONTAINER) containerToItems.remove(oldNode, item);
+            if (parentContainer != null) containerToItems.put(parentContainer, item);
+            indexItemMoved(item, oldNode, parentContainerNonNull);
+        }
     }
     
     @Override
     public void onItemRemoved(ItemType item) {
-        ContainerType oldNode = itemToContainer.remove(item);
-        if (oldNode != null && oldNode != NULL_CONTAINER) containerToItems.remove(oldNode, item);
-        Double workrate = itemToWorkrate.remove(item);
-        if (workrate != null)
-            currentPoolWorkrate -= workrate;
+        synchronized (indexLock) {
+            ContainerType oldNode = itemToContainer.remove(item);
+            if (oldNode != null && oldNode != NULL_CONTAINER) containerToItems.remove(oldNode, item);
+            indexItemMoved(item, oldNode, null);
+            itemEntries.remove(item);
+            Double workrate = itemToWorkrate.remove(item);
+            if (workrate != null)
+                currentPoolWorkrate -= workrate;
+        }
         immovableItems.remove(item);
     }
     
     @Override
     public void onItemWorkrateUpdated(ItemType item, double newValue) {
         if (hasItem(item)) {
-            Double oldValue = itemToWorkrate.put(item, newValue);
-            double delta = ( newValue - (oldValue != null ? oldValue : 0) );
-            currentPoolWorkrate += delta;
+            synchronized (indexLock) {
+                ContainerType container = itemToContainer.get(item);
+                indexItemMoved(item, container, null);
+                Double oldValue = itemToWorkrate.put(item, newValue);
+                double delta = ( newValue - (oldValue != null ? oldValue : 0) );
+                currentPoolWorkrate += delta;
+                indexItemMoved(item, null, container);
+            }
         } else {
             // Can happen when item removed - get notification of removal and workrate from group and item
             // respectively, so can overtake each other
@@ -239,6 +277,197 @@ public class DefaultBalanceablePoolModel<ContainerType, ItemType> implements Bal
     }
     
     
+    // Indexed queries, for use by the BalancingStrategy (via PolicyUtilForPool).
+    
+    /**
+     * As {@link PolicyUtilForPool#findColdestContainer(Set, LocationConstraint)}: the container with the maximum spare capacity
+     * (highThreshold - currentWorkrate), or null if none has spare capacity; but found from the index of containers.
+     */
+    public ContainerType findColdestContainer(Set<ContainerType> excludedContainers, LocationConstraint locationConstraint) {
+        synchronized (indexLock) {
+            for (ContainerEntry<ContainerType> entry : containersBySpareCapacity.descendingSet()) {
+                if (entry.spareCapacity() <= 0) break;
+                if (excludedContainers.contains(entry.container)) continue;
+                if (locationConstraint != null && !locationConstraint.isPermitted(getLocation(entry.container))) continue;
+                return entry.container;
+            }
+            return null;
+        }
+    }
+    
+    /**
+     * As {@link PolicyUtilForPool#findHottestContainer(Set)}: the container with the maximum overshoot
+     * (currentWorkrate - highThreshold), or null if none has an overshoot; but found from the index of containers.
+     */
+    public ContainerType findHottestContainer(Set<ContainerType> excludedContainers) {
+        synchronized (indexLock) {
+            for (ContainerEntry<ContainerType> entry : containersBySpareCapacity) {
+                if (entry.spareCapacity() >= 0) break;
+                if (excludedContainers.contains(entry.container)) continue;
+                return entry.container;
+            }
+            return null;
+        }
+    }
+    
+    /**
+     * As {@link BalancingStrategy#findBestItemToMove(Map, double, double, double, Set, Location)} for the items in the
+     * given container, but searching outwards from the target cost in the container's items ordered by workrate
+     * (rather than considering every item).
+     */
+    public ItemType findBestItemToMove(ContainerType container, double targetCost, double maxCost,
+            double maxCostIfNothingSmallerButLarger, Set<ItemType> excludedItems, Location locationIfKnown) {
+        synchronized (indexLock) {
+            NavigableSet<ItemEntry<ItemType>> items = containerToItemsByWorkrate.get(container);
+            if (items == null) return null;
+            
+            boolean exclusions = false;
+            for (ItemType item : excludedItems) {
+                ItemEntry<ItemType> entry = itemEntries.get(item);
+                if (entry != null && items.contains(entry) && entry.workrate >= 0 && isItemMoveable(item)) {
+                    exclusions = true;
+                    break;
+                }
+            }
+            
+            ItemEntry<ItemType> below = null;
+            for (ItemEntry<ItemType> entry : items.headSet(ItemEntry.<ItemType>probeAfter(Math.min(targetCost, maxCost)), true).descendingSet()) {
+                if (entry.workrate <= 0) break;
+                if (isCandidate(entry, excludedItems, locationIfKnown)) {
+                    below = entry;
+                    break;
+                }
+            }
+            ItemEntry<ItemType> above = null;
+            if (targetCost < maxCost) {
+                for (ItemEntry<ItemType> entry : items.tailSet(ItemEntry.<ItemType>probeAfter(Math.max(targetCost, 0)), true)) {
+                    if (entry.workrate > maxCost) break;
+                    if (isCandidate(entry, excludedItems, locationIfKnown)) {
+                        above = entry;
+                        break;
+                    }
+                }
+            }
+            if (below != null && (above == null || targetCost - below.workrate <= above.workrate - targetCost)) return below.item;
+            if (above != null) return above.item;
+            
+            if (exclusions) return null;
+            ItemEntry<ItemType> smallestMoveable = null;
+            for (ItemEntry<ItemType> entry : items.tailSet(ItemEntry.<ItemType>probeAfter(0), true)) {
+                if (isCandidate(entry, excludedItems, locationIfKnown)) {
+                    smallestMoveable = entry;
+                    break;
+                }
+            }
+            if (smallestMoveable == null || smallestMoveable.workrate >= maxCostIfNothingSmallerButLarger) return null;
+            for (ItemEntry<ItemType> entry : items.descendingSet()) {
+                if (entry.workrate <= smallestMoveable.workrate) break;
+                if (isCandidate(entry, excludedItems, null)) return smallestMoveable.item;
+            }
+            return null;
+        }
+    }
+    
+    private boolean isCandidate(ItemEntry<ItemType> entry, Set<ItemType> excludedItems, Location locationIfKnown) {
+        return entry.workrate > 0 && isItemMoveable(entry.item) && !excludedItems.contains(entry.item)
+                && (locationIfKnown == null || isItemAllowedIn(entry.item, locationIfKnown));
+    }
+    
+    /**
+     * Updates the indexes for the item (with its current workrate) no longer being in oldNode and instead being in newNode,
+     * either of which may be null or the null-container. Must be called holding the indexLock.
+     */
+    private void indexItemMoved(ItemType item, ContainerType oldNode, ContainerType newNode) {
+        Double workrate = itemToWorkrate.get(item);
+        if (workrate == null || oldNode == newNode) return;
+        ItemEntry<ItemType> entry = itemEntries.get(item);
+        if (entry == null) {
+            entry = new ItemEntry<ItemType>(item, nextSequence.getAndIncrement());
+            itemEntries.put(item, entry);
+        }
+        if (oldNode != null && oldNode != NULL_CONTAINER) {
+            NavigableSet<ItemEntry<ItemType>> items = containerToItemsByWorkrate.get(oldNode);
+            if (items != null) {
+                items.remove(entry);
+                if (items.isEmpty()) containerToItemsByWorkrate.remove(oldNode);
+            }
+            // reset when empty, rather than accumulating rounding errors
+            updateContainerWorkrate(oldNode, (items == null || items.isEmpty()) ? 0 : getTotalWorkrate(oldNode) - Math.abs(entry.workrate));
+        }
+        entry.workrate = workrate;
+        if (newNode != null && newNode != NULL_CONTAINER) {
+            NavigableSet<ItemEntry<ItemType>> items = containerToItemsByWorkrate.get(newNode);
+            if (items == null) {
+                items = new TreeSet<ItemEntry<ItemType>>(ItemEntry.BY_WORKRATE);
+                containerToItemsByWorkrate.put(newNode, items);
+            }
+            items.add(entry);
+            updateContainerWorkrate(newNode, getTotalWorkrate(newNode) + Math.abs(workrate));
+        }
+    }
+    
+    private void updateContainerWorkrate(ContainerType container, double workrate) {
+        containerToWorkrate.put(container, workrate);
+        ContainerEntry<ContainerType> entry = containerEntries.get(container);
+        if (entry != null) {
+            containersBySpareCapacity.remove(entry);
+            entry.workrate = workrate;
+            containersBySpareCapacity.add(entry);
+        }
+    }
+    
+    /** Mutable entry in the index of containers; must be removed from the index before changing its workrate. */
+    private static class ContainerEntry<ContainerType> {
+        static final Comparator<ContainerEntry<?>> BY_SPARE_CAPACITY = new Comparator<ContainerEntry<?>>() {
+            @Override public int compare(ContainerEntry<?> o1, ContainerEntry<?> o2) {
+                int result = Double.compare(o1.spareCapacity(), o2.spareCapacity());
+                return (result != 0) ? result : Long.compare(o1.sequence, o2.sequence);
+            }
+        };
+        
+        final ContainerType container;
+        final long sequence;
+        final double highThreshold;
+        double workrate;
+        
+        ContainerEntry(ContainerType container, long sequence, double highThreshold) {
+            this.container = container;
+            this.sequence = sequence;
+            this.highThreshold = highThreshold;
+        }
+        
+        double spareCapacity() {
+            return highThreshold - workrate;
+        }
+    }
+    
+    /** Mutable entry in the index of a container's items; must be removed from the index before changing its workrate. */
+    private static class ItemEntry<ItemType> {
+        static final Comparator<ItemEntry<?>> BY_WORKRATE = new Comparator<ItemEntry<?>>() {
+            @Override public int compare(ItemEntry<?> o1, ItemEntry<?> o2) {
+                int result = Double.compare(o1.workrate, o2.workrate);
+                return (result != 0) ? result : Long.compare(o1.sequence, o2.sequence);
+            }
+        };
+        
+        /** an entry ordered after all entries with the given workrate (for navigating the index) */
+        static <ItemType> ItemEntry<ItemType> probeAfter(double workrate) {
+            ItemEntry<ItemType> result = new ItemEntry<ItemType>(null, Long.MAX_VALUE);
+            result.workrate = workrate;
+            return result;
+        }
+        
+        final ItemType item;
+        final long sequence;
+        double workrate;
+        
+        ItemEntry(ItemType item, long sequence) {
+            this.item = item;
+            this.sequence = sequence;
+        }
+    }
+    
+    
     // Additional methods for tests.
 
     /**
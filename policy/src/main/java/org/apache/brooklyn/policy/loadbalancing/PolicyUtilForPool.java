@@ -23,6 +23,8 @@ import java.util.Set;
 /**
  * Provides conveniences for searching for hot/cold containers in a provided pool model.
  * Ported from Monterey v3, with irrelevant bits removed.
+ * <p>
+ * Delegates to the indexed search of a {@link DefaultBalanceablePoolModel}, and otherwise scans all containers.
  */
 public class PolicyUtilForPool<ContainerType, ItemType> {
     
@@ -42,6 +44,10 @@ public class PolicyUtilForPool<ContainerType, ItemType> {
      * returns null if none of the model's nodes has spare capacity.
      */
     public ContainerType findColdestContainer(Set<ContainerType> excludedContainers, LocationConstraint locationConstraint) {
+        if (model instanceof DefaultBalanceablePoolModel) {
+            return ((DefaultBalanceablePoolModel<ContainerType, ItemType>) model).findColdestContainer(excludedContainers, locationConstraint);
+        }
+        
         double maxSpareCapacity = 0;
         ContainerType coldest = null;
         
@@ -71,6 +77,10 @@ public class PolicyUtilForPool<ContainerType, ItemType> {
      * returns null if none of the model's  nodes has an overshoot.
      */
     public ContainerType findHottestContainer(Set<ContainerType> excludedContainers) {
+        if (model instanceof DefaultBalanceablePoolModel) {
+            return ((DefaultBalanceablePoolModel<ContainerType, ItemType>) model).findHottestContainer(excludedContainers);
+        }
+        
         double maxOvershoot = 0;
         ContainerType hottest = null;
         
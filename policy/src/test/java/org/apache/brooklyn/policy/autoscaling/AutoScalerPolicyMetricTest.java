@@ -99,6 +99,53 @@ public class AutoScalerPolicyMetricTest {
         Asserts.succeedsEventually(currentSizeAsserter(tc, 1));
     }
     
+    @Test
+    public void testIncrementsSizeAheadOfForecastTrend() throws Exception {
+        tc.resize(1);
+        
+        tc.policies().add(AutoScalerPolicy.builder()
+                .metric(MY_ATTRIBUTE)
+                .metricLowerBound(50)
+                .metricUpperBound(100)
+                .forecastMethod(MetricForecaster.Method.LINEAR_TREND)
+                .forecastHorizon(Duration.ONE_SECOND)
+                .forecastHistory(Duration.TEN_SECONDS)
+                .forecastMinConfidence(0.5)
+                .buildSpec());
+
+        // rising by about 100 per second, so forecast to exceed the upper bound within the horizon
+        for (int val = 10; val <= 30; val += 10) {
+            tc.sensors().set(MY_ATTRIBUTE, val);
+            Thread.sleep(100);
+        }
+        Asserts.succeedsEventually(currentSizeAsserter(tc, 2));
+        assertTrue(tc.sensors().get(MY_ATTRIBUTE) < 100);
+        assertTrue(tc.sensors().get(AutoScalerPolicy.DEFAULT_FORECAST_SENSOR) > 100, "forecast="+tc.sensors().get(AutoScalerPolicy.DEFAULT_FORECAST_SENSOR));
+        assertTrue(tc.sensors().get(AutoScalerPolicy.DEFAULT_FORECAST_CONFIDENCE_SENSOR) >= 0.5);
+    }
+    
+    @Test
+    public void testIgnoresForecastWithLowConfidence() throws Exception {
+        tc.resize(1);
+        
+        tc.policies().add(AutoScalerPolicy.builder()
+                .metric(MY_ATTRIBUTE)
+                .metricLowerBound(10)
+                .metricUpperBound(100)
+                .forecastMethod(MetricForecaster.Method.LINEAR_TREND)
+                .forecastHorizon(Duration.ONE_SECOND)
+                .forecastHistory(Duration.TEN_SECONDS)
+                .forecastMinConfidence(0.9)
+                .buildSpec());
+
+        for (int val : new int[] {10, 90, 20, 80, 30, 95}) {
+            tc.sensors().set(MY_ATTRIBUTE, val);
+            Thread.sleep(20);
+        }
+        Asserts.succeedsContinually(ImmutableMap.of("timeout", SHORT_WAIT_MS), currentSizeAsserter(tc, 1));
+        assertTrue(tc.sensors().get(AutoScalerPolicy.DEFAULT_FORECAST_CONFIDENCE_SENSOR) < 0.9);
+    }
+    
     @Test(groups="Integration")
     public void testIncrementsSizeInProportionToMetric() {
         tc.resize(5);
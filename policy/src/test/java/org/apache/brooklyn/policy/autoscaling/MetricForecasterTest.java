@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.policy.autoscaling;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.apache.brooklyn.policy.autoscaling.MetricForecaster.Forecast;
+import org.apache.brooklyn.policy.autoscaling.MetricForecaster.Method;
+import org.apache.brooklyn.util.guava.Maybe;
+import org.apache.brooklyn.util.time.Duration;
+import org.testng.annotations.Test;
+
+public class MetricForecasterTest {
+
+    private static final long MINUTE = 60*1000;
+    private static final int MINUTES_PER_DAY = 24*60;
+
+    @Test
+    public void testLinearTrend() {
+        MetricForecaster forecaster = new MetricForecaster(Method.LINEAR_TREND, Duration.ONE_HOUR, null);
+        assertFalse(forecaster.forecast(0, Duration.FIVE_MINUTES).isPresent());
+        for (int i = 0; i < 10; i++) {
+            forecaster.record(100 + 2*i, i*MINUTE);
+        }
+        Forecast forecast = forecaster.forecast(9*MINUTE, Duration.FIVE_MINUTES).get();
+        assertEquals(forecast.value, 100 + 2*14, 0.000001);
+        assertEquals(forecast.confidence, 1, 0.000001);
+    }
+
+    @Test
+    public void testLinearTrendOnlyUsesHistoryWindow() {
+        MetricForecaster forecaster = new MetricForecaster(Method.LINEAR_TREND, Duration.minutes(5), null);
+        for (int i = 0; i < 20; i++) {
+            // falling, then flat for the last 5 minutes
+            forecaster.record(i < 14 ? 1000 - 50*i : 300, i*MINUTE);
+        }
+        Forecast forecast = forecaster.forecast(19*MINUTE, Duration.FIVE_MINUTES).get();
+        assertEquals(forecast.value, 300, 0.000001);
+    }
+
+    @Test
+    public void testSeasonalNeedsOnePeriod() {
+        MetricForecaster forecaster = new MetricForecaster(Method.SEASONAL, Duration.ONE_HOUR, Duration.ONE_DAY);
+        double[] trace = dailyTrace(2, 0);
+        for (int i = 0; i < MINUTES_PER_DAY - 1; i++) {
+            forecaster.record(trace[i], i*MINUTE);
+        }
+        Maybe<Forecast> forecast = forecaster.forecast((MINUTES_PER_DAY - 2)*MINUTE, Duration.FIVE_MINUTES);
+        assertFalse(forecast.isPresent(), "forecast="+forecast);
+
+        for (int i = MINUTES_PER_DAY - 1; i < trace.length; i++) {
+            forecaster.record(trace[i], i*MINUTE);
+        }
+        long now = (trace.length - 1)*MINUTE;
+        forecast = forecaster.forecast(now, Duration.ONE_HOUR);
+        double expected = dailyTrace(3, 0)[trace.length - 1 + 60];
+        assertEquals(forecast.get().value, expected, 0.01 * expected, "forecast="+forecast);
+        assertTrue(forecast.get().confidence > 0.99, "forecast="+forecast);
+    }
+
+    @Test
+    public void testSeasonalFollowsGrowthBetweenPeriods() {
+        MetricForecaster forecaster = new MetricForecaster(Method.SEASONAL, Duration.ONE_HOUR, Duration.ONE_DAY);
+        double[] trace = dailyTrace(2, 0);
+        for (int i = 0; i < trace.length; i++) {
+            // growing by 100 each day
+            forecaster.record(trace[i] + 100.0 * i / MINUTES_PER_DAY, i*MINUTE);
+        }
+        Forecast forecast = forecaster.forecast((trace.length - 1)*MINUTE, Duration.ONE_HOUR).get();
+        int target = trace.length - 1 + 60;
+        double expected = dailyTrace(3, 0)[target] + 100.0 * target / MINUTES_PER_DAY;
+        assertEquals(forecast.value, expected, 0.01 * expected, "forecast="+forecast);
+    }
+
+    @Test
+    public void testPredictiveScalingReducesUnderProvisioning() {
+        // three days of a daily cycle with noise, sampled every minute, and members taking 15 minutes to provision
+        double[] trace = dailyTrace(3, 20);
+        int provisioningMinutes = 15;
+
+        int reactive = simulate(trace, null, provisioningMinutes);
+        int linear = simulate(trace, new MetricForecaster(Method.LINEAR_TREND, Duration.minutes(30), null), provisioningMinutes);
+        int seasonal = simulate(trace, new MetricForecaster(Method.SEASONAL, Duration.ONE_HOUR, Duration.ONE_DAY), provisioningMinutes);
+
+        assertTrue(reactive > 0, "reactive="+reactive);
+        assertTrue(linear < reactive, "linear="+linear+"; reactive="+reactive);
+        assertTrue(seasonal < reactive / 4, "seasonal="+seasonal+"; reactive="+reactive);
+    }
+
+    /**
+     * Replays a trace of total workload, sampled each minute, against a simulated pool where each member handles 100
+     * and takes the given time to provision; sizes the pool as the {@link AutoScalerPolicy} does, using the forecast
+     * (at a horizon of the provisioning time) if there is one and it is confident and higher than the current workload,
+     * and only shrinking to the largest size wanted over the provisioning time (as with a resize-down stabilization delay).
+     *
+     * @return the number of minutes in the last two days of the trace for which the pool was too small for the workload
+     */
+    private static int simulate(double[] trace, MetricForecaster forecaster, int provisioningMinutes) {
+        double capacityPerMember = 100;
+        int[] arriving = new int[trace.length + provisioningMinutes + 1];
+        int size = (int) Math.ceil(trace[0] / capacityPerMember);
+        int pending = 0;
+        int underProvisioned = 0;
+        int[] desiredHistory = new int[trace.length];
+
+        for (int t = 0; t < trace.length; t++) {
+            size += arriving[t];
+            pending -= arriving[t];
+            if (t >= MINUTES_PER_DAY && size * capacityPerMember < trace[t]) underProvisioned++;
+
+            double workload = trace[t];
+            if (forecaster != null) {
+                forecaster.record(trace[t], t*MINUTE);
+                Maybe<Forecast> forecast = forecaster.forecast(t*MINUTE, Duration.minutes(provisioningMinutes));
+                if (forecast.isPresent() && forecast.get().confidence >= 0.8) {
+                    workload = Math.max(workload, forecast.get().value);
+                }
+            }
+            int desired = (int) Math.ceil(workload / capacityPerMember);
+            desiredHistory[t] = desired;
+            if (desired > size + pending) {
+                arriving[t + provisioningMinutes] += desired - size - pending;
+                pending = desired - size;
+            } else {
+                int sustained = desired;
+                for (int i = Math.max(0, t - provisioningMinutes + 1); i < t; i++) {
+                    sustained = Math.max(sustained, desiredHistory[i]);
+                }
+                size = Math.min(size, sustained);
+            }
+        }
+        return underProvisioned;
+    }
+
+    /** a daily cycle between 100 and 900, one value per minute, with the given amount of noise */
+    private static double[] dailyTrace(int days, double noise) {
+        Random random = new Random(1234);
+        double[] result = new double[days * MINUTES_PER_DAY];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = 500 + 400 * Math.sin(2 * Math.PI * i / MINUTES_PER_DAY) + noise * (random.nextDouble() - 0.5);
+        }
+        return result;
+    }
+}
@@ -22,6 +22,11 @@ import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
 import org.apache.brooklyn.api.entity.EntitySpec;
 import org.apache.brooklyn.api.location.Location;
 import org.apache.brooklyn.api.location.LocationSpec;
@@ -32,8 +37,12 @@ import org.apache.brooklyn.policy.loadbalancing.MockItemEntity;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 
 public class FollowTheSunModelTest extends BrooklynAppUnitTestSupport {
 
@@ -198,4 +207,97 @@ public class FollowTheSunModelTest extends BrooklynAppUnitTestSupport {
         
         assertFalse(model.getDirectSendsToItemByLocation().containsKey(item1));
     }
+    
+    @Test
+    public void testRecordsChangedItems() throws Exception {
+        assertTrue(model.takeContainersChanged());
+        assertFalse(model.takeContainersChanged());
+        model.onContainerAdded(container1, loc1);
+        model.onContainerAdded(container2, loc2);
+        assertTrue(model.takeContainersChanged());
+        
+        model.onItemAdded(item1, container1, false);
+        model.onItemAdded(item2, container2, false);
+        model.onItemAdded(item3, container2, false);
+        model.onItemUsageUpdated(item1, ImmutableMap.of(item2, 12d));
+        assertEquals(model.takeChangedItems(), ImmutableSet.of(item1, item2, item3));
+        assertEquals(model.takeChangedItems(), ImmutableSet.of());
+        
+        // same usage by location (item3 is in the same location as item2)
+        model.onItemUsageUpdated(item1, ImmutableMap.of(item3, 12d));
+        assertEquals(model.takeChangedItems(), ImmutableSet.of());
+        
+        model.onItemUsageUpdated(item1, ImmutableMap.of(item3, 13d));
+        assertEquals(model.takeChangedItems(), ImmutableSet.of(item1));
+        assertEquals(model.getDirectSendsToItemByLocation(item1), ImmutableMap.of(loc2, 13d));
+        
+        // moving a sender changes the usage by location of the items it sends to
+        model.onItemMoved(item3, container1);
+        assertEquals(model.takeChangedItems(), ImmutableSet.of(item3, item1));
+        assertEquals(model.getDirectSendsToItemByLocation(item1), ImmutableMap.of(loc1, 13d));
+        
+        model.onItemRemoved(item3);
+        assertEquals(model.takeChangedItems(), ImmutableSet.of(item3, item1));
+        assertEquals(model.getDirectSendsToItemByLocation(item1), ImmutableMap.of());
+        assertFalse(model.takeContainersChanged());
+    }
+    
+    @Test
+    public void testUsageByLocationAgreesWithRecomputation() throws Exception {
+        Random random = new Random(1234);
+        List<MockContainerEntity> containers = ImmutableList.of(container1, container2);
+        List<Location> locations = ImmutableList.of(loc1, loc2);
+        List<MockItemEntity> items = Lists.newArrayList(item1, item2, item3);
+        for (int i = 0; i < 5; i++) {
+            items.add(app.addChild(EntitySpec.create(MockItemEntity.class)));
+        }
+        Map<MockItemEntity, Map<MockItemEntity, Double>> usages = Maps.newHashMap();
+        Set<MockItemEntity> present = Sets.newHashSet();
+        for (MockContainerEntity container : containers) {
+            model.onContainerAdded(container, null);
+        }
+        
+        for (int i = 0; i < 1000; i++) {
+            MockItemEntity item = items.get(random.nextInt(items.size()));
+            switch (random.nextInt(5)) {
+            case 0:
+                model.onItemAdded(item, containers.get(random.nextInt(containers.size())), false);
+                present.add(item);
+                break;
+            case 1:
+                model.onItemRemoved(item);
+                present.remove(item);
+                usages.remove(item);
+                break;
+            case 2:
+                // also records the item, if not known
+                model.onItemMoved(item, containers.get(random.nextInt(containers.size())));
+                present.add(item);
+                break;
+            case 3:
+                model.onContainerLocationUpdated(containers.get(random.nextInt(containers.size())), locations.get(random.nextInt(locations.size())));
+                break;
+            default:
+                Map<MockItemEntity, Double> usage = Maps.newHashMap();
+                for (int j = random.nextInt(4); j > 0; j--) {
+                    usage.put(items.get(random.nextInt(items.size())), (double) random.nextInt(10));
+                }
+                model.onItemUsageUpdated(item, usage);
+                if (present.contains(item)) usages.put(item, usage);
+            }
+            
+            Map<MockItemEntity, Map<Location, Double>> expected = Maps.newHashMap();
+            for (Map.Entry<MockItemEntity, Map<MockItemEntity, Double>> entry : usages.entrySet()) {
+                if (entry.getValue().isEmpty()) continue;
+                Map<Location, Double> byLocation = Maps.newHashMap();
+                for (Map.Entry<MockItemEntity, Double> usage : entry.getValue().entrySet()) {
+                    Location location = model.getItemLocation(usage.getKey());
+                    if (location == null || usage.getKey().equals(entry.getKey())) continue;
+                    byLocation.put(location, (byLocation.containsKey(location) ? byLocation.get(location) : 0d) + usage.getValue());
+                }
+                expected.put(entry.getKey(), byLocation);
+            }
+            assertEquals(model.getDirectSendsToItemByLocation(), expected, "iteration "+i);
+        }
+    }
 }
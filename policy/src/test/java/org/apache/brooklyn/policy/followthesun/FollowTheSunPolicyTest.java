@@ -22,6 +22,7 @@ import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.Semaphore;
@@ -225,6 +226,35 @@ public class FollowTheSunPolicyTest extends AbstractFollowTheSunPolicyTest {
         assertItemDistributionEventually(ImmutableMap.of(containerA, ImmutableList.of(item1, item2), containerB, ImmutableList.<MockItemEntity>of()));
     }
 
+    @Test
+    public void testOnlyReconsidersItemWhenUsageChangesSignificantly() throws Exception {
+        pool.policies().remove(policy);
+        FollowTheSunParameters parameters = FollowTheSunParameters.newDefault();
+        parameters.reconsiderPercentChange = 0.5;
+        model = new DefaultFollowTheSunModel<Entity, Movable>("pool-model");
+        policy = new FollowTheSunPolicy(MockItemEntity.ITEM_USAGE_METRIC, model, parameters);
+        pool.policies().add(policy);
+        
+        MockContainerEntity containerA = newContainer(app, loc1, "A");
+        MockContainerEntity containerB = newContainer(app, loc2, "B");
+        MockItemEntity item1 = newItem(app, containerA, "1");
+        MockItemEntity item2 = newItem(app, containerB, "2");
+        MockItemEntity item3 = newItem(app, containerA, "3");
+        
+        // demand is balanced, so no move
+        item1.sensors().set(MockItemEntity.ITEM_USAGE_METRIC, ImmutableMap.<Entity,Double>of(item2, 100d, item3, 100d));
+        Thread.sleep(SHORT_WAIT_MS);
+        assertItemDistributionContinually(ImmutableMap.<MockContainerEntity, Collection<MockItemEntity>>of(containerA, ImmutableList.of(item1, item3), containerB, ImmutableList.of(item2)));
+        
+        // would trigger a move if reconsidered, but changed by less than half since last considered
+        item1.sensors().set(MockItemEntity.ITEM_USAGE_METRIC, ImmutableMap.<Entity,Double>of(item2, 250d, item3, 100d));
+        assertItemDistributionContinually(ImmutableMap.<MockContainerEntity, Collection<MockItemEntity>>of(containerA, ImmutableList.of(item1, item3), containerB, ImmutableList.of(item2)));
+        
+        // changed by more than half since last considered
+        item1.sensors().set(MockItemEntity.ITEM_USAGE_METRIC, ImmutableMap.<Entity,Double>of(item2, 400d, item3, 100d));
+        assertItemDistributionEventually(ImmutableMap.of(containerA, ImmutableList.of(item3), containerB, ImmutableList.of(item1, item2)));
+    }
+
     // Marked as "Acceptance" due to time-sensitive nature :-(
     @Test(groups={"Integration", "Acceptance"}, invocationCount=20)
     public void testRepeatedRespectsMinPeriodBetweenExecs() throws Exception {
@@ -19,8 +19,13 @@
 package org.apache.brooklyn.policy.loadbalancing;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
 
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
 
 import org.apache.brooklyn.api.entity.EntitySpec;
 import org.apache.brooklyn.core.test.BrooklynAppUnitTestSupport;
@@ -29,6 +34,8 @@ import org.testng.annotations.Test;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 
 public class LoadBalancingModelTest extends BrooklynAppUnitTestSupport {
 
@@ -114,4 +121,78 @@ public class LoadBalancingModelTest extends BrooklynAppUnitTestSupport {
         assertEquals(model.getContainerWorkrates(), ImmutableMap.of(container1, 0d, container2, 123d));
         assertEquals(model.getCurrentPoolWorkrate(), 123d);
     }
+    
+    @Test
+    public void testIndexesAgreeWithRecomputation() throws Exception {
+        Random random = new Random(1234);
+        List<MockContainerEntity> containers = Lists.newArrayList();
+        List<MockItemEntity> items = Lists.newArrayList();
+        for (int i = 0; i < 5; i++) {
+            containers.add(app.addChild(EntitySpec.create(MockContainerEntity.class)));
+        }
+        for (int i = 0; i < 40; i++) {
+            items.add(app.addChild(EntitySpec.create(MockItemEntity.class)));
+        }
+        BalancingStrategy<MockContainerEntity, MockItemEntity> strategy = new BalancingStrategy<MockContainerEntity, MockItemEntity>("mystrategy", model);
+        
+        for (int i = 0; i < 2000; i++) {
+            MockContainerEntity container = containers.get(random.nextInt(containers.size()));
+            MockItemEntity item = items.get(random.nextInt(items.size()));
+            switch (random.nextInt(7)) {
+            case 0: model.onContainerAdded(container, 10 + random.nextInt(20), 40 + random.nextInt(40)); break;
+            case 1: model.onContainerRemoved(container); break;
+            case 2: model.onItemAdded(item, random.nextBoolean() ? container : null, random.nextInt(10) == 0); break;
+            case 3: model.onItemRemoved(item); break;
+            case 4: model.onItemMoved(item, container); break;
+            default: model.onItemWorkrateUpdated(item, random.nextInt(30) - 2);
+            }
+            
+            Set<MockContainerEntity> excluded = ImmutableSet.of(containers.get(random.nextInt(containers.size())));
+            assertIndexesAgree(containers, excluded);
+            
+            Set<MockItemEntity> excludedItems = Sets.newHashSet(items.get(random.nextInt(items.size())));
+            double target = random.nextInt(30);
+            double max = target + random.nextInt(10);
+            double maxIfNothingSmaller = random.nextInt(60);
+            Map<MockItemEntity, Double> itemWorkrates = model.getItemWorkrates(container);
+            MockItemEntity expected = strategy.findBestItemToMove(itemWorkrates, target, max, maxIfNothingSmaller, excludedItems, null);
+            MockItemEntity actual = model.findBestItemToMove(container, target, max, maxIfNothingSmaller, excludedItems, null);
+            if (expected == null) {
+                assertNull(actual, "iteration "+i);
+            } else {
+                // can differ when items are equally good
+                assertEquals(Math.abs(itemWorkrates.get(actual) - target), Math.abs(itemWorkrates.get(expected) - target), PRECISION, "iteration "+i);
+            }
+        }
+    }
+    
+    private void assertIndexesAgree(List<MockContainerEntity> containers, Set<MockContainerEntity> excluded) {
+        double maxSpareCapacity = 0;
+        double maxOvershoot = 0;
+        for (MockContainerEntity container : containers) {
+            double total = 0;
+            for (Double workrate : model.getItemWorkrates(container).values()) {
+                if (workrate != null) total += Math.abs(workrate);
+            }
+            assertEquals(model.getTotalWorkrate(container), total, PRECISION);
+            
+            if (model.getPoolContents().contains(container) && !excluded.contains(container)) {
+                maxSpareCapacity = Math.max(maxSpareCapacity, model.getHighThreshold(container) - total);
+                maxOvershoot = Math.max(maxOvershoot, total - model.getHighThreshold(container));
+            }
+        }
+        
+        MockContainerEntity coldest = model.findColdestContainer(excluded, null);
+        if (maxSpareCapacity == 0) {
+            assertNull(coldest);
+        } else {
+            assertEquals(model.getHighThreshold(coldest) - model.getTotalWorkrate(coldest), maxSpareCapacity, PRECISION);
+        }
+        MockContainerEntity hottest = model.findHottestContainer(excluded);
+        if (maxOvershoot == 0) {
+            assertNull(hottest);
+        } else {
+            assertEquals(model.getTotalWorkrate(hottest) - model.getHighThreshold(hottest), maxOvershoot, PRECISION);
+        }
+    }
 }
@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.policy.loadbalancing;
+
+import static org.testng.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.Random;
+import java.util.Set;
+
+import org.apache.brooklyn.core.test.qa.performance.AbstractPerformanceTest;
+import org.apache.brooklyn.test.performance.PerformanceTestDescriptor;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+/**
+ * Measures balancing iterations against the {@link DefaultBalanceablePoolModel} for synthetic pools:
+ * each iteration finds the hottest and coldest containers, chooses an item to move between them, and moves it.
+ */
+public class LoadBalancingPoolModelPerformanceTest extends AbstractPerformanceTest {
+
+    private static final int NUM_ITERATIONS = 10000;
+
+    @DataProvider(name = "poolSizes")
+    public Object[][] poolSizes() {
+        return new Object[][] {
+                {10, 100},
+                {100, 1000},
+                {500, 10000},
+        };
+    }
+
+    @Test(groups={"Integration", "Acceptance"}, dataProvider="poolSizes")
+    public void testBalancingIterations(int numContainers, final int numItems) {
+        final Random random = new Random(1234);
+        final DefaultBalanceablePoolModel<String, String> model = new DefaultBalanceablePoolModel<String, String>("perf");
+        for (int i = 0; i < numContainers; i++) {
+            model.onContainerAdded("container-"+i, 0, 100);
+        }
+        for (int i = 0; i < numItems; i++) {
+            String item = "item-"+i;
+            model.onItemAdded(item, "container-"+random.nextInt(numContainers));
+            model.onItemWorkrateUpdated(item, 1 + random.nextInt(2 * 100 * numContainers / numItems));
+        }
+
+        final Set<String> excluded = Collections.emptySet();
+        final int[] moves = {0};
+        double minRatePerSec = 1000 * PERFORMANCE_EXPECTATION;
+        measure(PerformanceTestDescriptor.create()
+                .summary("LoadBalancingPoolModelPerformanceTest.balancingIteration("+numContainers+" containers, "+numItems+" items)")
+                .iterations(NUM_ITERATIONS)
+                .minAcceptablePerSecond(minRatePerSec)
+                .job(new Runnable() {
+                    @Override public void run() {
+                        // keep the pool unbalanced, by changing the workrate of a random item
+                        model.onItemWorkrateUpdated("item-"+random.nextInt(numItems), random.nextInt(200));
+                        String hottest = model.findHottestContainer(excluded);
+                        String coldest = model.findColdestContainer(excluded, null);
+                        if (hottest == null || coldest == null) return;
+                        double ideal = (model.getTotalWorkrate(hottest) - model.getTotalWorkrate(coldest)) / 2;
+                        String item = model.findBestItemToMove(hottest, ideal, ideal * 1.5, 0, Collections.<String>emptySet(), null);
+                        if (item != null) {
+                            model.onItemMoved(item, coldest);
+                            moves[0]++;
+                        }
+                    }}));
+
+        assertTrue(moves[0] > 0, "moves="+moves[0]);
+    }
+}
@@ -23,6 +23,7 @@ import java.util.Map;
 
 import javax.validation.Valid;
 import javax.ws.rs.Consumes;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
@@ -90,4 +91,53 @@ public interface EffectorApi {
                     value = "Effector parameters (as key value pairs)", required = false)
             @Valid 
             Map<String, Object> parameters);
+
+    @POST
+    @Path("/{effector}/members")
+    @ApiOperation(value = "Trigger an effector on all members of a group, in batches and with limited concurrency",
+            notes="Returns the list of results for each member (status 200) if it completes, or an activity task ID (status 202) if it times out; "
+                    + "progress is reported in the status of the activity task", response = String.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 400, message = "Entity is not a group, or a member does not have the effector"),
+            @ApiResponse(code = 404, message = "Could not find application or entity")
+    })
+    @Consumes({MediaType.APPLICATION_JSON, MediaType.APPLICATION_FORM_URLENCODED})
+    public Response invokeOnMembers(
+            @ApiParam(name = "application", value = "Application ID or name", required = true)
+            @PathParam("application") String application,
+            
+            @ApiParam(name = "entity", value = "Group entity ID or name", required = true)
+            @PathParam("entity") String entityToken,
+            
+            @ApiParam(name = "effector", value = "Name of the effector to trigger on each member", required = true)
+            @PathParam("effector") String effectorName,
+            
+            @ApiParam(name = "timeout", value = "Delay before server should respond with activity task ID rather than result, as for a single effector invocation", 
+                    required = false, defaultValue = "never")
+            @QueryParam("timeout")
+            String timeout,
+            
+            @ApiParam(name = "maxConcurrency", value = "Maximum number of members on which the effector runs at once; 0 for no limit", 
+                    required = false, defaultValue = "0")
+            @QueryParam("maxConcurrency") @DefaultValue("0")
+            int maxConcurrency,
+            
+            @ApiParam(name = "batchSize", value = "Number of members in each batch, each batch completing before the next starts; 0 for a single batch", 
+                    required = false, defaultValue = "0")
+            @QueryParam("batchSize") @DefaultValue("0")
+            int batchSize,
+            
+            @ApiParam(name = "maxFailures", value = "Number of failed invocations tolerated; when exceeded no more are started", 
+                    required = false, defaultValue = "0")
+            @QueryParam("maxFailures") @DefaultValue("0")
+            int maxFailures,
+            
+            @ApiParam(name = "pauseBetweenBatches", value = "Delay after each batch before starting the next (in millis if no unit specified)", 
+                    required = false)
+            @QueryParam("pauseBetweenBatches")
+            String pauseBetweenBatches,
+            
+            @ApiParam(name = "parameters", value = "Effector parameters (as key value pairs)", required = false)
+            @Valid 
+            Map<String, Object> parameters);
 }
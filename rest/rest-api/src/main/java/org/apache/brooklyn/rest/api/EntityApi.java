@@ -22,6 +22,7 @@ import io.swagger.annotations.Api;
 import org.apache.brooklyn.rest.domain.EntitySummary;
 import org.apache.brooklyn.rest.domain.LocationSummary;
 import org.apache.brooklyn.rest.domain.TaskSummary;
+import org.apache.brooklyn.rest.domain.TaskSummaryPage;
 
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
@@ -117,6 +118,30 @@ public interface EntityApi {
             @ApiParam(value = "Whether to include subtasks recursively across different entities (default false)", required = false)
             @QueryParam("recurse") @DefaultValue("false") Boolean recurse);
 
+    @GET
+    @Path("/{entity}/activities/page")
+    @ApiOperation(value = "Fetch a page of tasks for this entity, most recently submitted first, optionally filtered",
+            response = org.apache.brooklyn.rest.domain.TaskSummaryPage.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 404, message = "Could not find application or entity"),
+            @ApiResponse(code = 400, message = "Invalid cursor or status")
+    })
+    public TaskSummaryPage listTasksPage(
+            @ApiParam(value = "Application ID or name", required = true) @PathParam("application") String applicationId,
+            @ApiParam(value = "Entity ID or name", required = true) @PathParam("entity") String entityId,
+            @ApiParam(value = "Max number of tasks in the page, or -1 for all (default 200)", required = false) 
+            @QueryParam("limit") @DefaultValue("200") int limit,
+            @ApiParam(value = "Cursor returned as 'nextCursor' by a previous call, to fetch the following page", required = false)
+            @QueryParam("cursor") String cursor,
+            @ApiParam(value = "Only include tasks with this status: one of 'queued', 'active', 'done', 'failed' or 'succeeded'", required = false)
+            @QueryParam("status") String status,
+            @ApiParam(value = "Only include tasks having this tag", required = false)
+            @QueryParam("tag") String tag,
+            @ApiParam(value = "Only include tasks submitted at or after this time (UTC millis)", required = false)
+            @QueryParam("submittedAfter") Long submittedAfter,
+            @ApiParam(value = "Only include tasks submitted before this time (UTC millis)", required = false)
+            @QueryParam("submittedBefore") Long submittedBefore);
+
     /** @deprecated since 0.12.0 use {@link #listTasks(String, String, int, Boolean)} */
     @GET
     @Path("/{entity}/activities/deprecated")
@@ -32,6 +32,7 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
 
 import org.apache.brooklyn.rest.domain.SensorSummary;
 
@@ -70,6 +71,34 @@ public interface SensorApi {
             @ApiParam(value = "Return raw sensor data instead of display values", required = false)
             @QueryParam("raw") @DefaultValue("false") final Boolean raw);
 
+    @GET
+    @Path("/current-state/stream")
+    @ApiOperation(value = "Stream changes to sensor values as server-sent events", 
+            notes="Each event is a map of entity ID to a map of sensor name to value. "
+                + "The first event gives the current values; subsequent events give only the values which changed, "
+                + "coalesced over the given period so only the latest value of each sensor is sent. "
+                + "Each open stream holds a server thread, so the number of concurrent streams is limited.")
+    @ApiResponses(value = {
+            @ApiResponse(code = 404, message = "Could not find application or entity"),
+            @ApiResponse(code = 503, message = "Too many sensor streams are already open")
+    })
+    @Produces("text/event-stream")
+    public Response streamSensorChanges(
+            @ApiParam(value = "Application ID or name", required = true)
+            @PathParam("application") final String application,
+            @ApiParam(value = "Entity ID or name", required = true)
+            @PathParam("entity") final String entityToken,
+            @ApiParam(value = "Glob for the names of sensors to include, e.g. 'service.*' or '{host.name,service.isUp}' (default all)", required = false)
+            @QueryParam("sensors") @DefaultValue("*") final String sensorGlob,
+            @ApiParam(value = "Whether to include all descendants of the entity (default false)", required = false)
+            @QueryParam("includeDescendants") @DefaultValue("false") final Boolean includeDescendants,
+            @ApiParam(value = "How long to coalesce changes before sending them (default 1s)", required = false)
+            @QueryParam("period") @DefaultValue("1s") final String period,
+            @ApiParam(value = "How long to keep the stream open before the client should reconnect (default 5m, and at most the server's limit)", required = false)
+            @QueryParam("maxDuration") @DefaultValue("5m") final String maxDuration,
+            @ApiParam(value = "Return raw sensor data instead of display values", required = false)
+            @QueryParam("raw") @DefaultValue("false") final Boolean raw);
+
     @GET
     @Path("/{sensor}")
     @ApiOperation(value = "Fetch sensor value (json)", response = Object.class)
@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.rest.domain;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Objects;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * One page of tasks, with an opaque cursor to pass back to fetch the next page.
+ * <p>
+ * The list of tasks is not copied, so that the server can supply a lazily-transformed view
+ * which is serialized one task at a time rather than building all summaries up front.
+ */
+public class TaskSummaryPage implements Serializable {
+
+    private static final long serialVersionUID = -6387430295018423613L;
+
+    private final List<TaskSummary> tasks;
+    @JsonInclude(Include.NON_NULL)
+    private final String nextCursor;
+
+    public TaskSummaryPage(
+            @JsonProperty("tasks") List<TaskSummary> tasks,
+            @JsonProperty("nextCursor") String nextCursor) {
+        this.tasks = tasks == null ? ImmutableList.<TaskSummary>of() : tasks;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<TaskSummary> getTasks() {
+        return tasks;
+    }
+
+    /** cursor to request the following page, or null if this is the last page */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof TaskSummaryPage)) return false;
+        TaskSummaryPage that = (TaskSummaryPage) o;
+        return Objects.equals(tasks, that.tasks) &&
+                Objects.equals(nextCursor, that.nextCursor);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(tasks, nextCursor);
+    }
+
+    @Override
+    public String toString() {
+        return "TaskSummaryPage{" +
+                "tasks=" + tasks +
+                ", nextCursor='" + nextCursor + '\'' +
+                '}';
+    }
+}
@@ -22,19 +22,33 @@ import javax.annotation.Priority;
 import javax.ws.rs.container.ContainerRequestContext;
 import javax.ws.rs.container.ContainerResponseContext;
 import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
 import javax.ws.rs.ext.Provider;
 
 @Provider
 @Priority(200)
 public class NoCacheFilter implements ContainerResponseFilter {
 
+    /** request attribute where a resource can record an {@link EntityTag} for the response,
+     * in which case clients may store the response but must revalidate it */
+    public static final String ATT_ENTITY_TAG = NoCacheFilter.class.getName() + ".etag";
+
     @Override
     public void filter(ContainerRequestContext request, ContainerResponseContext response) {
         //https://developer.mozilla.org/en-US/docs/Web/HTTP/Caching_FAQ
         MultivaluedMap<String, Object> headers = response.getHeaders();
-        headers.putSingle(HttpHeaders.CACHE_CONTROL, "no-cache, no-store");
+        Object tag = request.getProperty(ATT_ENTITY_TAG);
+        if (tag instanceof EntityTag && response.getStatusInfo().getFamily() == Response.Status.Family.SUCCESSFUL) {
+            headers.putSingle(HttpHeaders.ETAG, tag);
+        }
+        if (headers.containsKey(HttpHeaders.ETAG)) {
+            headers.putSingle(HttpHeaders.CACHE_CONTROL, "no-cache");
+        } else {
+            headers.putSingle(HttpHeaders.CACHE_CONTROL, "no-cache, no-store");
+        }
         headers.putSingle("Pragma", "no-cache");
         headers.putSingle(HttpHeaders.EXPIRES, "0");
     }
@@ -18,29 +18,43 @@
  */
 package org.apache.brooklyn.rest.resources;
 
+import java.util.List;
+import java.util.function.BiFunction;
+
 import javax.annotation.Nullable;
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
 import javax.ws.rs.ext.ContextResolver;
 
 import org.apache.brooklyn.api.entity.Entity;
 import org.apache.brooklyn.api.mgmt.ManagementContext;
+import org.apache.brooklyn.api.mgmt.entitlement.EntitlementContext;
 import org.apache.brooklyn.core.config.render.RendererHints;
+import org.apache.brooklyn.core.mgmt.entitlement.Entitlements;
 import org.apache.brooklyn.core.mgmt.internal.ManagementContextInternal;
 import org.apache.brooklyn.rest.domain.ApiError;
+import org.apache.brooklyn.rest.filter.NoCacheFilter;
 import org.apache.brooklyn.rest.util.BrooklynRestResourceUtils;
 import org.apache.brooklyn.rest.util.DefaultExceptionMapper;
 import org.apache.brooklyn.rest.util.ManagementContextProvider;
 import org.apache.brooklyn.rest.util.WebResourceUtils;
 import org.apache.brooklyn.rest.util.json.BrooklynJacksonJsonProvider;
 import org.apache.brooklyn.util.core.task.Tasks;
+import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.guava.Maybe;
 import org.apache.brooklyn.util.time.Duration;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
 
 public abstract class AbstractBrooklynRestResource {
 
@@ -49,6 +63,15 @@ public abstract class AbstractBrooklynRestResource {
     @Context
     private ContextResolver<ManagementContext> mgmt;
 
+    @Context
+    private Request request;
+
+    @Context
+    private HttpHeaders httpHeaders;
+
+    @Context
+    private HttpServletRequest httpServletRequest;
+
     private BrooklynRestResourceUtils brooklynRestResourceUtils;
     private ObjectMapper mapper;
 
@@ -81,6 +104,81 @@ public abstract class AbstractBrooklynRestResource {
         return ApiError.of(e).asBadRequestResponseJson();
     }
     
+    /**
+     * Supports conditional GET for responses which are derived only from the state of the given entities
+     * (and the request URI, accepted types and current user), using their change versions as a weak ETag.
+     * If the request's If-None-Match matches, this throws so that the caller responds 304 Not Modified
+     * without rendering anything; otherwise the tag is recorded so that {@link NoCacheFilter} includes it in the response.
+     * <p>
+     * Values which are resolved lazily (such as deferred suppliers in config) are not tracked, 
+     * so this should only be used where the response reflects the entities' own state.
+     */
+    protected void checkNotModified(Iterable<? extends Entity> entities) {
+        checkNotModified(entities, false);
+    }
+
+    /**
+     * As {@link #checkNotModified(Iterable)}, for responses derived from the state of anything in the given applications,
+     * using their application change versions rather than visiting every entity in them.
+     * Callers should include the applications of any members of groups in them which are in other applications,
+     * if the response depends on those members.
+     */
+    protected void checkApplicationsNotModified(Iterable<? extends Entity> applications) {
+        checkNotModified(applications, true);
+    }
+
+    private void checkNotModified(Iterable<? extends Entity> entities, boolean wholeApplications) {
+        if (request==null) return;
+        EntityTag tag = WebResourceUtils.entityTag(entities, wholeApplications, mgmt().getManagementNodeId(), 
+                Entitlements.getEntitlementContext()==null ? null : Entitlements.getEntitlementContext().user(),
+                ui==null ? null : ui.getRequestUri(),
+                httpHeaders==null ? null : httpHeaders.getHeaderString(HttpHeaders.ACCEPT));
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(tag);
+        if (notModified!=null) {
+            throw new WebApplicationException(notModified.tag(tag).build());
+        }
+        if (httpServletRequest!=null) {
+            httpServletRequest.setAttribute(NoCacheFilter.ATT_ENTITY_TAG, tag);
+        }
+    }
+
+    /**
+     * Returns a view of the given list whose elements are converted only as they are accessed, 
+     * normally as each is written to the response, so that large responses need not be built in memory all at once.
+     * The caller's entitlement context is applied while converting, as it is cleared before the response is written
+     * (so entitlement checks can be made in the function, but should preferably be made when filtering the list).
+     * <p>
+     * As the response status has normally been sent by the time an element is converted, a failure converting it
+     * (e.g. because an entity has been unmanaged) cannot be reported as an error; instead the element is replaced
+     * by the result of {@code onFailure}, so that the rest of the response is still well-formed.
+     */
+    protected <F,T> List<T> transformLazily(List<F> from, final Function<? super F, ? extends T> function,
+            final BiFunction<? super F, ? super Exception, ? extends T> onFailure) {
+        final EntitlementContext entitlementContext = Entitlements.getEntitlementContext();
+        return Lists.transform(from, new Function<F, T>() {
+            @Override
+            public T apply(F input) {
+                if (entitlementContext==null || Entitlements.getEntitlementContext()!=null) {
+                    return applyOrFallBack(input);
+                }
+                Entitlements.setEntitlementContext(entitlementContext);
+                try {
+                    return applyOrFallBack(input);
+                } finally {
+                    Entitlements.clearEntitlementContext();
+                }
+            }
+            private T applyOrFallBack(F input) {
+                try {
+                    return function.apply(input);
+                } catch (Exception e) {
+                    Exceptions.propagateIfFatal(e);
+                    return onFailure.apply(input, e);
+                }
+            }
+        });
+    }
+
     protected ObjectMapper mapper() {
         return mapper(mgmt());
     }
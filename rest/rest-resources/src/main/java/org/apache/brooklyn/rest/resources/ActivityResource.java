@@ -83,8 +83,9 @@ public class ActivityResource extends AbstractBrooklynRestResource implements Ac
             Set<Task<?>> thisLayer = nextLayer;
             nextLayer = MutableSet.of();
             for (final Task<?> childTask : thisLayer) {
-                TaskSummary wasThere = result.put(childTask.getId(), TaskTransformer.fromTask(ui.getBaseUriBuilder()).apply(childTask));
-                if (wasThere==null) {
+                // only build the summary for tasks not already included
+                if (!result.containsKey(childTask.getId())) {
+                    result.put(childTask.getId(), TaskTransformer.fromTask(ui.getBaseUriBuilder()).apply(childTask));
                     if (--limit == 0) {
                         break outer;
                     }
@@ -31,6 +31,7 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.stream.Collectors;
 
@@ -53,6 +54,7 @@ import org.apache.brooklyn.config.ConfigKey;
 import org.apache.brooklyn.core.config.ConfigPredicates;
 import org.apache.brooklyn.core.config.ConstraintViolationException;
 import org.apache.brooklyn.core.entity.Attributes;
+import org.apache.brooklyn.core.entity.Entities;
 import org.apache.brooklyn.core.entity.EntityInternal;
 import org.apache.brooklyn.core.entity.EntityPredicates;
 import org.apache.brooklyn.core.entity.lifecycle.Lifecycle;
@@ -82,6 +84,7 @@ import org.apache.brooklyn.rest.util.BrooklynRestResourceUtils;
 import org.apache.brooklyn.rest.util.WebResourceUtils;
 import org.apache.brooklyn.util.collections.MutableList;
 import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.collections.MutableSet;
 import org.apache.brooklyn.util.core.ResourceUtils;
 import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.exceptions.UserFacingException;
@@ -101,6 +104,7 @@ import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
 import com.google.common.collect.FluentIterable;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
@@ -136,14 +140,13 @@ public class ApplicationResource extends AbstractBrooklynRestResource implements
                 iconUrl = EntityTransformer.entityUri(entity, ui.getBaseUriBuilder())+"/icon";
         }
 
-        List<EntitySummary> children = Lists.newArrayList();
-        if (!entity.getChildren().isEmpty()) {
-            for (Entity child : entity.getChildren()) {
-                if (Entitlements.isEntitled(mgmt().getEntitlementManager(), Entitlements.SEE_ENTITY, child)) {
-                    children.add(fromEntity(child, includeTags, detailDepth-1, extraSensorGlobs, extraConfigGlobs));
-                }
-            }
-        }
+        // children are converted as they are written, so a large tree is not held in memory all at once
+        List<Entity> visibleChildren = FluentIterable.from(entity.getChildren())
+                .filter(EntitlementPredicates.isEntitled(mgmt().getEntitlementManager(), Entitlements.SEE_ENTITY))
+                .toList();
+        List<EntitySummary> children = transformLazily(visibleChildren, 
+                (child) -> fromEntity(child, includeTags, detailDepth-1, extraSensorGlobs, extraConfigGlobs),
+                this::placeholderFor);
 
         String parentId = null;
         if (entity.getParent()!= null) {
@@ -208,15 +211,44 @@ public class ApplicationResource extends AbstractBrooklynRestResource implements
         return ids;
     }
 
+    /** the applications (or other root entities) whose state might be included when rendering the given entities
+     * or any of their ancestors in full */
+    private Set<Entity> applicationsRenderedFrom(boolean includeAllApps, String entityIds) {
+        Set<Entity> roots = MutableSet.of();
+        if (includeAllApps) {
+            roots.addAll(mgmt().getApplications());
+        }
+        if (Strings.isNonBlank(entityIds)) {
+            for (String entityId: JavaStringEscapes.unwrapOptionallyQuotedJavaStringList(entityIds)) {
+                Entity entity = mgmt().getEntityManager().getEntity(entityId.trim());
+                while (entity != null && entity.getParent() != null) {
+                    entity = entity.getParent();
+                }
+                if (entity != null) roots.add(entity);
+            }
+        }
+        if (!includeAllApps) {
+            // groups can have members in other applications, which are included (e.g. by name) in their details
+            for (Entity root: MutableList.copyOf(roots)) {
+                for (Entity entity: Entities.descendantsAndSelf(root)) {
+                    if (entity instanceof Group) {
+                        for (Entity member: ((Group)entity).getMembers()) {
+                            if (member.getApplication() != null) roots.add(member.getApplication());
+                        }
+                    }
+                }
+            }
+        }
+        return roots;
+    }
+
     @Override
     public List<EntityDetail> fetch(String entityIds, String extraSensorsS) {
         List<String> extraSensorNames = JavaStringEscapes.unwrapOptionallyQuotedJavaStringList(extraSensorsS);
         List<AttributeSensor<?>> extraSensors = extraSensorNames.stream().map((s) -> Sensors.newSensor(Object.class, s)).collect(Collectors.toList());
+        checkApplicationsNotModified(applicationsRenderedFrom(true, entityIds));
         
-        List<EntityDetail> entitySummaries = Lists.newArrayList();
-        for (Entity application : mgmt().getApplications()) {
-            entitySummaries.add(addSensorsByName((EntityDetail)fromEntity(application, false, -1, null, null), application, extraSensors));
-        }
+        List<Entity> entities = MutableList.copyOf(mgmt().getApplications());
 
         if (Strings.isNonBlank(entityIds)) {
             List<String> extraEntities = JavaStringEscapes.unwrapOptionallyQuotedJavaStringList(entityIds);
@@ -224,26 +256,29 @@ public class ApplicationResource extends AbstractBrooklynRestResource implements
                 Entity entity = mgmt().getEntityManager().getEntity(entityId.trim());
                 while (entity != null && entity.getParent() != null) {
                     if (Entitlements.isEntitled(mgmt().getEntitlementManager(), Entitlements.SEE_ENTITY, entity)) {
-                        entitySummaries.add(addSensorsByName((EntityDetail)fromEntity(entity, false, -1, null, null), entity, extraSensors));
+                        entities.add(entity);
                     }
                     entity = entity.getParent();
                 }
             }
         }
-        return entitySummaries;
+        return transformLazily(entities, 
+                (entity) -> addSensorsByName((EntityDetail)fromEntity(entity, false, -1, null, null), entity, extraSensors),
+                this::placeholderFor);
     }
     
     @Override
     public List<EntitySummary> details(String entityIds, boolean includeAllApps, String extraSensorsGlobsS, String extraConfigGlobsS, int depth) {
         List<String> extraSensorGlobs = JavaStringEscapes.unwrapOptionallyQuotedJavaStringList(extraSensorsGlobsS);
         List<String> extraConfigGlobs = JavaStringEscapes.unwrapOptionallyQuotedJavaStringList(extraConfigGlobsS);
+        checkApplicationsNotModified(applicationsRenderedFrom(includeAllApps, entityIds));
 
-        Map<String, EntitySummary> entitySummaries = MutableMap.of();
+        Map<String, Entity> entities = MutableMap.of();
 
         if (includeAllApps) {
             for (Entity application : mgmt().getApplications()) {
                 if (Entitlements.isEntitled(mgmt().getEntitlementManager(), Entitlements.SEE_ENTITY, application)) {
-                    entitySummaries.put(application.getId(), fromEntity(application, true, depth, extraSensorGlobs, extraConfigGlobs));
+                    entities.put(application.getId(), application);
                 }
             }
         }
@@ -252,15 +287,39 @@ public class ApplicationResource extends AbstractBrooklynRestResource implements
             List<String> extraEntities = JavaStringEscapes.unwrapOptionallyQuotedJavaStringList(entityIds);
             for (String entityId: extraEntities) {
                 Entity entity = mgmt().getEntityManager().getEntity(entityId.trim());
-                while (entity != null && !entitySummaries.containsKey(entity.getId())) {
+                while (entity != null && !entities.containsKey(entity.getId())) {
                     if (Entitlements.isEntitled(mgmt().getEntitlementManager(), Entitlements.SEE_ENTITY, entity)) {
-                        entitySummaries.put(entity.getId(), fromEntity(entity, true, depth, extraSensorGlobs, extraConfigGlobs));
+                        entities.put(entity.getId(), entity);
                     }
                     entity = entity.getParent();
                 }
             }
         }
-        return MutableList.copyOf(entitySummaries.values());
+        return transformLazily(MutableList.copyOf(entities.values()), 
+                (entity) -> fromEntity(entity, true, depth, extraSensorGlobs, extraConfigGlobs),
+                this::placeholderFor);
+    }
+
+    /** what is written in place of an entity which could not be converted as the response was written,
+     * with just its identity and the error (which is logged) */
+    private EntityDetail placeholderFor(Entity entity, Exception error) {
+        log.debug("Unable to render "+entity+" in REST response (writing placeholder): "+Exceptions.collapseText(error), error);
+        EntityDetail result = new EntityDetail(
+                entity.getApplicationId(),
+                entity.getId(),
+                null,
+                entity.getDisplayName(),
+                null,
+                null,
+                null,
+                null,
+                entity.getCatalogItemId(),
+                ImmutableList.<EntitySummary>of(),
+                ImmutableList.<String>of(),
+                ImmutableList.<Map<String, String>>of(),
+                MutableMap.of("self", EntityTransformer.entityUri(entity, ui.getBaseUriBuilder())) );
+        result.setExtraField("error", Exceptions.collapseText(error));
+        return result;
     }
 
     private EntityDetail addSensorsByName(EntityDetail result, Entity entity, List<AttributeSensor<?>> extraSensors) {
@@ -28,8 +28,10 @@ import javax.ws.rs.core.Response;
 
 import org.apache.brooklyn.api.effector.Effector;
 import org.apache.brooklyn.api.entity.Entity;
+import org.apache.brooklyn.api.entity.Group;
 import org.apache.brooklyn.api.mgmt.Task;
 import org.apache.brooklyn.core.config.Sanitizer;
+import org.apache.brooklyn.core.effector.BulkEffectorInvocation;
 import org.apache.brooklyn.core.mgmt.entitlement.Entitlements;
 import org.apache.brooklyn.core.mgmt.entitlement.Entitlements.StringAndArgument;
 import org.apache.brooklyn.core.mgmt.internal.EffectorUtils;
@@ -40,8 +42,11 @@ import org.apache.brooklyn.rest.filter.HaHotStateRequired;
 import org.apache.brooklyn.rest.transform.EffectorTransformer;
 import org.apache.brooklyn.rest.transform.TaskTransformer;
 import org.apache.brooklyn.rest.util.WebResourceUtils;
+import org.apache.brooklyn.util.core.task.DynamicTasks;
 import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.guava.Maybe;
+import org.apache.brooklyn.util.text.Strings;
+import org.apache.brooklyn.util.time.Duration;
 import org.apache.brooklyn.util.time.Time;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -49,6 +54,7 @@ import org.slf4j.LoggerFactory;
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
 import com.google.common.collect.FluentIterable;
+import com.google.common.collect.ImmutableList;
 
 @HaHotStateRequired
 public class EffectorResource extends AbstractBrooklynRestResource implements EffectorApi {
@@ -93,7 +99,59 @@ public class EffectorResource extends AbstractBrooklynRestResource implements Ef
         String userInfo = Entitlements.getEntitlementContext() != null ? "by user " + Entitlements.getEntitlementContext().user() : "(no user info available)";
         log.info("REST invocation of " + entity + "." + effector.get() + " " + Sanitizer.sanitize(parameters) + " " + userInfo);
         Task<?> t = entity.invoke(effector.get(), parameters);
+        return waitForResult(t, timeout);
+    }
+
+    @Override
+    public Response invokeOnMembers(String application, String entityToken, String effectorName,
+            String timeout, int maxConcurrency, int batchSize, int maxFailures, String pauseBetweenBatches,
+            Map<String, Object> parameters) {
+        final Entity entity = brooklyn().getEntity(application, entityToken);
+        if (!(entity instanceof Group)) {
+            throw WebResourceUtils.badRequest("Entity '%s' is not a group", entityToken);
+        }
+        if (!Entitlements.isEntitled(mgmt().getEntitlementManager(), Entitlements.INVOKE_EFFECTOR,
+                Entitlements.EntityAndItem.of(entity, StringAndArgument.of(effectorName, null)))) {
+            throw WebResourceUtils.forbidden("User '%s' is not authorized to invoke effector %s on the members of entity %s",
+                    Entitlements.getEntitlementContext().user(), effectorName, entity);
+        }
+        List<Entity> members = ImmutableList.copyOf(((Group) entity).getMembers());
+
+        Effector<?> effector = null;
+        for (Entity member : members) {
+            Maybe<Effector<?>> memberEffector = EffectorUtils.findEffectorDeclared(member, effectorName);
+            if (memberEffector.isAbsentOrNull()) {
+                throw WebResourceUtils.badRequest("Member '%s' of '%s' has no effector with name '%s'", member.getId(), entityToken, effectorName);
+            } else if (!Entitlements.isEntitled(mgmt().getEntitlementManager(), Entitlements.INVOKE_EFFECTOR,
+                    Entitlements.EntityAndItem.of(member, StringAndArgument.of(effectorName, null)))) {
+                throw WebResourceUtils.forbidden("User '%s' is not authorized to invoke effector %s on entity %s",
+                        Entitlements.getEntitlementContext().user(), effectorName, member);
+            }
+            // each member's own effector of that name is invoked; see BulkEffectorInvocation
+            if (effector == null) effector = memberEffector.get();
+        }
+        if (effector == null) {
+            return Response.status(Response.Status.ACCEPTED).entity(ImmutableList.of()).build();
+        }
+
+        BulkEffectorInvocation invocation;
+        try {
+            invocation = BulkEffectorInvocation.of(effector, parameters)
+                    .maxConcurrency(maxConcurrency)
+                    .batchSize(batchSize)
+                    .maxFailures(maxFailures)
+                    .pauseBetweenBatches(Strings.isBlank(pauseBetweenBatches) ? null : Duration.of(pauseBetweenBatches));
+        } catch (IllegalArgumentException e) {
+            throw WebResourceUtils.badRequest(e);
+        }
+        String userInfo = Entitlements.getEntitlementContext() != null ? "by user " + Entitlements.getEntitlementContext().user() : "(no user info available)";
+        log.info("REST invocation of " + effector + " on " + members.size() + " members of " + entity + " (" + invocation + ") "
+                + Sanitizer.sanitize(parameters) + " " + userInfo);
+        Task<?> t = DynamicTasks.submit(invocation.newTask(members), entity);
+        return waitForResult(t, timeout);
+    }
 
+    private Response waitForResult(Task<?> t, String timeout) {
         try {
             Object result;
             if (timeout == null || timeout.isEmpty() || "never".equalsIgnoreCase(timeout)) {
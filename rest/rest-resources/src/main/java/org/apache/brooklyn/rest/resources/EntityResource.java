@@ -27,6 +27,7 @@ import java.net.URI;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
@@ -50,6 +51,7 @@ import org.apache.brooklyn.rest.api.EntityApi;
 import org.apache.brooklyn.rest.domain.EntitySummary;
 import org.apache.brooklyn.rest.domain.LocationSummary;
 import org.apache.brooklyn.rest.domain.TaskSummary;
+import org.apache.brooklyn.rest.domain.TaskSummaryPage;
 import org.apache.brooklyn.rest.filter.HaHotStateRequired;
 import org.apache.brooklyn.rest.transform.EntityTransformer;
 import org.apache.brooklyn.rest.transform.LocationTransformer;
@@ -58,13 +60,16 @@ import org.apache.brooklyn.rest.transform.TaskTransformer;
 import org.apache.brooklyn.rest.util.WebResourceUtils;
 import org.apache.brooklyn.util.collections.MutableList;
 import org.apache.brooklyn.util.core.ResourceUtils;
+import org.apache.brooklyn.util.text.Strings;
 import org.apache.brooklyn.util.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.annotations.Beta;
 import com.google.common.base.Objects;
+import com.google.common.base.Predicate;
 import com.google.common.collect.FluentIterable;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.io.Files;
@@ -91,6 +96,7 @@ public class EntityResource extends AbstractBrooklynRestResource implements Enti
     public EntitySummary get(String application, String entityName) {
         Entity entity = brooklyn().getEntity(application, entityName);
         if (Entitlements.isEntitled(mgmt().getEntitlementManager(), Entitlements.SEE_ENTITY, entity)) {
+            checkNotModified(ImmutableList.of(entity));
             return EntityTransformer.entitySummary(entity, ui.getBaseUriBuilder());
         }
         throw WebResourceUtils.forbidden("User '%s' is not authorized to get entity '%s'",
@@ -135,6 +141,46 @@ public class EntityResource extends AbstractBrooklynRestResource implements Enti
             limit, recurse, entity, ui);
     }
 
+    @Override
+    public TaskSummaryPage listTasksPage(String applicationId, String entityId, int limit, String cursor, 
+            String status, String tag, Long submittedAfter, Long submittedBefore) {
+        Entity entity = brooklyn().getEntity(applicationId, entityId);
+        // use the execution manager's tag index to narrow the tasks, rather than filtering all tasks for the entity
+        Set<Task<?>> tasks = Strings.isNonBlank(tag)
+                ? mgmt().getExecutionManager().getTasksWithAllTags(ImmutableList.of(BrooklynTaskTags.tagForContextEntity(entity), tag))
+                : BrooklynTaskTags.getTasksInEntityContext(mgmt().getExecutionManager(), entity);
+        try {
+            return TaskTransformer.fromTasksPage(tasks, limit, cursor, 
+                taskFilter(status, submittedAfter, submittedBefore), ui.getBaseUriBuilder());
+        } catch (IllegalArgumentException e) {
+            throw WebResourceUtils.badRequest(e);
+        }
+    }
+
+    private static Predicate<Task<?>> taskFilter(final String status, final Long submittedAfter, final Long submittedBefore) {
+        if (Strings.isNonBlank(status) && !TASK_STATUS_FILTERS.contains(status.toLowerCase())) {
+            throw WebResourceUtils.badRequest("Invalid status '%s'; must be one of %s", status, TASK_STATUS_FILTERS);
+        }
+        return new Predicate<Task<?>>() {
+            @Override
+            public boolean apply(Task<?> t) {
+                if (submittedAfter!=null && t.getSubmitTimeUtc() < submittedAfter) return false;
+                if (submittedBefore!=null && t.getSubmitTimeUtc() >= submittedBefore) return false;
+                if (Strings.isBlank(status)) return true;
+                switch (status.toLowerCase()) {
+                case "queued": return !t.isBegun();
+                case "active": return t.isBegun() && !t.isDone();
+                case "done": return t.isDone();
+                case "failed": return t.isDone() && t.isError();
+                case "succeeded": return t.isDone() && !t.isError();
+                default: return false;
+                }
+            }
+        };
+    }
+    
+    private static final List<String> TASK_STATUS_FILTERS = ImmutableList.of("queued", "active", "done", "failed", "succeeded");
+
     /** API does not guarantee order, but this is a the one we use (when there are lots of tasks):
      * prefer top-level tasks and to recent tasks, 
      * balanced such that the following are equal:
@@ -23,10 +23,16 @@ import static com.google.common.collect.Iterables.filter;
 import java.util.List;
 import java.util.Map;
 
+import javax.ws.rs.core.Response;
+
 import org.apache.brooklyn.api.entity.Entity;
 import org.apache.brooklyn.api.sensor.AttributeSensor;
 import org.apache.brooklyn.api.sensor.Sensor;
+import org.apache.brooklyn.config.ConfigKey;
+import org.apache.brooklyn.core.config.ConfigKeys;
+import org.apache.brooklyn.core.entity.Entities;
 import org.apache.brooklyn.core.entity.EntityInternal;
+import org.apache.brooklyn.core.mgmt.entitlement.EntitlementPredicates;
 import org.apache.brooklyn.core.mgmt.entitlement.Entitlements;
 import org.apache.brooklyn.core.mgmt.entitlement.Entitlements.EntityAndItem;
 import org.apache.brooklyn.core.sensor.BasicAttributeSensor;
@@ -34,12 +40,16 @@ import org.apache.brooklyn.rest.api.SensorApi;
 import org.apache.brooklyn.rest.domain.SensorSummary;
 import org.apache.brooklyn.rest.filter.HaHotStateRequired;
 import org.apache.brooklyn.rest.transform.SensorTransformer;
+import org.apache.brooklyn.rest.util.SensorEventStreamingOutput;
 import org.apache.brooklyn.rest.util.WebResourceUtils;
+import org.apache.brooklyn.util.collections.MutableList;
 import org.apache.brooklyn.util.text.Strings;
 import org.apache.brooklyn.util.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.annotations.Beta;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
@@ -78,6 +88,7 @@ public class SensorResource extends AbstractBrooklynRestResource implements Sens
             throw WebResourceUtils.forbidden("User '%s' is not authorized to see entity '%s'",
                     Entitlements.getEntitlementContext().user(), entity);
         }
+        checkNotModified(ImmutableList.of(entity));
 
         Map<String, Object> sensorMap = Maps.newHashMap();
         @SuppressWarnings("rawtypes")
@@ -98,6 +109,53 @@ public class SensorResource extends AbstractBrooklynRestResource implements Sens
         return sensorMap;
     }
 
+    /** the shortest period accepted for {@link #streamSensorChanges(String, String, String, Boolean, String, String, Boolean)} */
+    public static final Duration MIN_STREAM_PERIOD = Duration.millis(100);
+
+    @Beta
+    public static final ConfigKey<Integer> MAX_CONCURRENT_STREAMS = ConfigKeys.newIntegerConfigKey(
+            "brooklyn.rest.sensors.stream.maxConcurrent",
+            "[Beta] Maximum number of sensor streams open at once; each holds a server thread while open, "
+            + "so further requests are refused (503) until one closes",
+            16);
+
+    @Beta
+    public static final ConfigKey<Duration> MAX_STREAM_DURATION = ConfigKeys.newConfigKey(Duration.class,
+            "brooklyn.rest.sensors.stream.maxDuration",
+            "[Beta] Longest a sensor stream is kept open, whatever the client requests; the client is expected to reconnect",
+            Duration.minutes(5));
+
+    @Override
+    public Response streamSensorChanges(String application, String entityToken, String sensorGlob, Boolean includeDescendants, 
+            String period, String maxDuration, Boolean raw) {
+        final Entity entity = brooklyn().getEntity(application, entityToken);
+        if (!Entitlements.isEntitled(mgmt().getEntitlementManager(), Entitlements.SEE_ENTITY, entity)) {
+            throw WebResourceUtils.forbidden("User '%s' is not authorized to see entity '%s'",
+                    Entitlements.getEntitlementContext().user(), entity);
+        }
+        Duration periodD;
+        Duration maxDurationD;
+        try {
+            periodD = Duration.of(period).lowerBound(MIN_STREAM_PERIOD);
+            maxDurationD = Duration.of(maxDuration).upperBound(mgmt().getConfig().getConfig(MAX_STREAM_DURATION));
+        } catch (IllegalArgumentException e) {
+            throw WebResourceUtils.badRequest(e);
+        }
+        
+        List<Entity> entities = Boolean.TRUE.equals(includeDescendants)
+                ? MutableList.copyOf(Entities.descendantsAndSelf(entity, 
+                        EntitlementPredicates.isEntitled(mgmt().getEntitlementManager(), Entitlements.SEE_ENTITY)))
+                : MutableList.of(entity);
+        
+        int maxStreams = mgmt().getConfig().getConfig(MAX_CONCURRENT_STREAMS);
+        if (SensorEventStreamingOutput.getActiveStreamCount(mgmt()) >= maxStreams) {
+            throw WebResourceUtils.serviceUnavailable("Too many sensor streams open (limit %s); try again later", maxStreams);
+        }
+        SensorEventStreamingOutput output = new SensorEventStreamingOutput(mgmt(), mapper(), entities, 
+                sensorGlob, periodD, maxDurationD, Boolean.TRUE.equals(raw), maxStreams);
+        return Response.ok(output, "text/event-stream").build();
+    }
+
     protected Object get(boolean preferJson, String application, String entityToken, String sensorName, Boolean raw) {
         final Entity entity = brooklyn().getEntity(application, entityToken);
         AttributeSensor<?> sensor = findSensor(entity, sensorName);
@@ -110,6 +168,7 @@ public class SensorResource extends AbstractBrooklynRestResource implements Sens
             throw WebResourceUtils.forbidden("User '%s' is not authorized to see entity '%s' sensor '%s'",
                     Entitlements.getEntitlementContext().user(), entity, sensor.getName());
         }
+        checkNotModified(ImmutableList.of(entity));
         
         Object value = entity.getAttribute(sensor);
         return resolving(value).preferJson(preferJson).asJerseyOutermostReturnValue(true).raw(raw).context(entity).immediately(true).renderAs(sensor).resolve();
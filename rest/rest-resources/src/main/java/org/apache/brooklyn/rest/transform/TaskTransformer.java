@@ -20,8 +20,12 @@ package org.apache.brooklyn.rest.transform;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -37,6 +41,7 @@ import org.apache.brooklyn.core.mgmt.BrooklynTaskTags;
 import org.apache.brooklyn.core.mgmt.BrooklynTaskTags.WrappedStream;
 import org.apache.brooklyn.rest.domain.LinkWithMetadata;
 import org.apache.brooklyn.rest.domain.TaskSummary;
+import org.apache.brooklyn.rest.domain.TaskSummaryPage;
 import org.apache.brooklyn.rest.resources.EntityResource.InterestingTasksFirstComparator;
 import org.apache.brooklyn.rest.util.WebResourceUtils;
 import org.apache.brooklyn.util.collections.MutableList;
@@ -47,8 +52,10 @@ import org.apache.brooklyn.util.text.Strings;
 
 import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Predicate;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Ordering;
 
 import javax.ws.rs.core.UriBuilder;
@@ -167,16 +174,18 @@ public class TaskTransformer {
             tasksToScan = MutableList.copyOf(Ordering.from(new InterestingTasksFirstComparator(entity)).leastOf(tasksToScan, limit));
         }
         Map<String,Task<?>> tasksLoaded = MutableMap.of();
+        // a deque so that taking from the head is cheap however many tasks there are
+        Deque<Task<?>> queue = new ArrayDeque<Task<?>>(tasksToScan);
         
-        while (!tasksToScan.isEmpty()) {
-            Task<?> t = tasksToScan.remove(0);
+        while (!queue.isEmpty()) {
+            Task<?> t = queue.removeFirst();
             if (tasksLoaded.put(t.getId(), t)==null) {
                 if (--sizeRemaining==0) {
                     break;
                 }
                 if (Boolean.TRUE.equals(recurse)) {
                     if (t instanceof HasTaskChildren) {
-                        Iterables.addAll(tasksToScan, ((HasTaskChildren) t).getChildren() );
+                        Iterables.addAll(queue, ((HasTaskChildren) t).getChildren() );
                     }
                 }
             }
@@ -184,4 +193,75 @@ public class TaskTransformer {
         return new LinkedList<TaskSummary>(Collections2.transform(tasksLoaded.values(), 
             TaskTransformer.fromTask(ui.getBaseUriBuilder())));
     }
+
+    /** Orders tasks most recently submitted first, with ID as a tie-breaker so that the order is total (as needed for cursors). */
+    public static final Comparator<Task<?>> MOST_RECENTLY_SUBMITTED_FIRST = new Comparator<Task<?>>() {
+        @Override
+        public int compare(Task<?> o1, Task<?> o2) {
+            long t1 = o1.getSubmitTimeUtc();
+            long t2 = o2.getSubmitTimeUtc();
+            if (t1!=t2) return t1 > t2 ? -1 : 1;
+            return o1.getId().compareTo(o2.getId());
+        }
+    };
+
+    /** the cursor identifying the position of the given task in {@link #MOST_RECENTLY_SUBMITTED_FIRST} order */
+    public static String cursorFor(Task<?> t) {
+        return t.getSubmitTimeUtc()+"-"+t.getId();
+    }
+
+    /**
+     * Returns one page of the given tasks which match the filter, in {@link #MOST_RECENTLY_SUBMITTED_FIRST} order,
+     * starting after the given cursor (if any).
+     * <p>
+     * When a limit is given the tasks are not sorted in full: a single pass keeps the best <code>limit+1</code>
+     * (the extra one tells us whether there is a next page), so cost is linear in the number of tasks.
+     * The summaries in the returned page are computed lazily, as the page is serialized.
+     * 
+     * @throws IllegalArgumentException if the cursor is not one returned by {@link #cursorFor(Task)}
+     */
+    public static TaskSummaryPage fromTasksPage(Collection<Task<?>> tasks, int limit, @Nullable String cursor, 
+            @Nullable final Predicate<? super Task<?>> filter, UriBuilder ub) {
+        final Long cursorTime;
+        final String cursorId;
+        if (Strings.isNonBlank(cursor)) {
+            int split = cursor.indexOf('-', 1);
+            if (split<0) throw new IllegalArgumentException("Invalid cursor '"+cursor+"'");
+            try {
+                cursorTime = Long.parseLong(cursor.substring(0, split));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cursor '"+cursor+"'", e);
+            }
+            cursorId = cursor.substring(split+1);
+        } else {
+            cursorTime = null;
+            cursorId = null;
+        }
+        
+        Iterable<Task<?>> candidates = Iterables.filter(tasks, new Predicate<Task<?>>() {
+            @Override
+            public boolean apply(Task<?> t) {
+                if (cursorTime!=null) {
+                    long time = t.getSubmitTimeUtc();
+                    if (time > cursorTime) return false;
+                    if (time == cursorTime && t.getId().compareTo(cursorId) <= 0) return false;
+                }
+                return filter==null || filter.apply(t);
+            }
+        });
+        
+        Ordering<Task<?>> order = Ordering.from(MOST_RECENTLY_SUBMITTED_FIRST);
+        List<Task<?>> page;
+        String nextCursor = null;
+        if (limit>0) {
+            page = order.leastOf(candidates, limit+1);
+            if (page.size() > limit) {
+                page = page.subList(0, limit);
+                nextCursor = cursorFor(page.get(limit-1));
+            }
+        } else {
+            page = order.sortedCopy(candidates);
+        }
+        return new TaskSummaryPage(Lists.transform(page, fromTask(ub)), nextCursor);
+    }
 }
@@ -0,0 +1,279 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.rest.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.ws.rs.core.StreamingOutput;
+
+import org.apache.brooklyn.api.entity.Entity;
+import org.apache.brooklyn.api.mgmt.ManagementContext;
+import org.apache.brooklyn.api.mgmt.SubscriptionHandle;
+import org.apache.brooklyn.api.mgmt.entitlement.EntitlementContext;
+import org.apache.brooklyn.api.sensor.AttributeSensor;
+import org.apache.brooklyn.api.sensor.Sensor;
+import org.apache.brooklyn.api.sensor.SensorEvent;
+import org.apache.brooklyn.api.sensor.SensorEventListener;
+import org.apache.brooklyn.config.ConfigKey;
+import org.apache.brooklyn.core.config.ConfigKeys;
+import org.apache.brooklyn.core.entity.Entities;
+import org.apache.brooklyn.core.mgmt.entitlement.Entitlements;
+import org.apache.brooklyn.core.mgmt.entitlement.Entitlements.EntityAndItem;
+import org.apache.brooklyn.rest.resources.AbstractBrooklynRestResource.RestValueResolver;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.text.WildcardGlobs;
+import org.apache.brooklyn.util.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.google.common.base.Predicate;
+import com.google.common.base.Stopwatch;
+
+/**
+ * Writes changes to attribute sensors on a set of entities as a stream of
+ * <a href="https://html.spec.whatwg.org/multipage/server-sent-events.html">server-sent events</a>.
+ * <p>
+ * Each event is a JSON map of entity ID to a map of sensor name to (display) value.
+ * The first event contains the current values of all matching sensors; subsequent events contain
+ * only the sensors which changed during the coalescing period.
+ * <p>
+ * Changes are coalesced per entity and sensor, keeping only the latest value, so the memory held for a
+ * connection is bounded by the number of sensors watched however slowly the client reads: a slow
+ * client simply sees fewer intermediate values.
+ * <p>
+ * Subscriptions are made for the entities given when the stream starts; entities added later are not included.
+ * <p>
+ * Writing holds the request thread for as long as the stream is open, so callers should limit the duration
+ * and the number of streams; a stream takes one of the management context's slots only while it is being written,
+ * and if none is free it asks the client to retry later and ends.
+ */
+public class SensorEventStreamingOutput implements StreamingOutput {
+
+    private static final Logger log = LoggerFactory.getLogger(SensorEventStreamingOutput.class);
+
+    private static final AtomicLong STREAM_COUNTER = new AtomicLong();
+    private static final ConfigKey<AtomicInteger> ACTIVE_STREAMS = ConfigKeys.newConfigKey(AtomicInteger.class,
+            "brooklyn.rest.sensors.stream.active");
+
+    /** how often to send a comment line when there are no changes, so dead connections are noticed */
+    public static final Duration KEEP_ALIVE_PERIOD = Duration.seconds(15);
+
+    private final ManagementContext mgmt;
+    private final ObjectMapper mapper;
+    private final Collection<Entity> entities;
+    private final String sensorGlob;
+    private final Duration period;
+    private final Duration maxDuration;
+    private final boolean raw;
+    private final int maxStreams;
+    private final EntitlementContext entitlementContext;
+    private final String subscriber = "rest-sensor-stream-"+STREAM_COUNTER.incrementAndGet();
+
+    private final Object pendingLock = new Object[0];
+    private Map<Entity, Map<AttributeSensor<?>, Object>> pending = MutableMap.of();
+
+    /**
+     * @param sensorGlob glob (as per {@link WildcardGlobs}) for the names of sensors to include
+     * @param period how long to coalesce changes before sending them
+     * @param maxDuration how long to keep the stream open, after which the client is expected to reconnect
+     * @param maxStreams how many streams can be open at once in the management context, including this one
+     */
+    public SensorEventStreamingOutput(ManagementContext mgmt, ObjectMapper mapper, Collection<Entity> entities, 
+            String sensorGlob, Duration period, Duration maxDuration, boolean raw, int maxStreams) {
+        this.mgmt = mgmt;
+        this.mapper = mapper;
+        this.entities = MutableList.copyOf(entities);
+        this.sensorGlob = sensorGlob;
+        this.period = period;
+        this.maxDuration = maxDuration;
+        this.raw = raw;
+        this.maxStreams = maxStreams;
+        // the REST entitlement context is cleared once the resource returns, so keep it for checks while streaming
+        this.entitlementContext = Entitlements.getEntitlementContext();
+    }
+
+    /** the number of streams being written in the given management context */
+    public static int getActiveStreamCount(ManagementContext mgmt) {
+        return activeStreams(mgmt).get();
+    }
+
+    private static AtomicInteger activeStreams(ManagementContext mgmt) {
+        synchronized (mgmt) {
+            AtomicInteger result = mgmt.getScratchpad().get(ACTIVE_STREAMS);
+            if (result == null) {
+                result = new AtomicInteger();
+                mgmt.getScratchpad().put(ACTIVE_STREAMS, result);
+            }
+            return result;
+        }
+    }
+
+    private static boolean tryReserve(AtomicInteger active, int max) {
+        while (true) {
+            int current = active.get();
+            if (current >= max) return false;
+            if (active.compareAndSet(current, current+1)) return true;
+        }
+    }
+
+    @Override
+    public void write(OutputStream out) throws IOException {
+        AtomicInteger active = activeStreams(mgmt);
+        if (!tryReserve(active, maxStreams)) {
+            // other streams started since this one was accepted; have the client reconnect later
+            out.write(("retry: "+KEEP_ALIVE_PERIOD.toMilliseconds()+"\n: too many sensor streams open\n\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            return;
+        }
+        try {
+            writeStream(out);
+        } finally {
+            active.decrementAndGet();
+        }
+    }
+
+    protected void writeStream(OutputStream out) throws IOException {
+        List<SubscriptionHandle> subscriptions = subscribe();
+        try {
+            writeEvent(out, snapshot());
+            
+            Stopwatch stopwatch = Stopwatch.createStarted();
+            Duration sinceLastWrite = Duration.ZERO;
+            while (maxDuration.isLongerThan(stopwatch)) {
+                Map<Entity, Map<AttributeSensor<?>, Object>> changes = awaitChanges(period);
+                if (changes==null) break;
+                if (!changes.isEmpty()) {
+                    writeEvent(out, changes);
+                    sinceLastWrite = Duration.ZERO;
+                } else {
+                    sinceLastWrite = sinceLastWrite.add(period);
+                    if (!sinceLastWrite.isShorterThan(KEEP_ALIVE_PERIOD)) {
+                        out.write(": keep-alive\n\n".getBytes(StandardCharsets.UTF_8));
+                        out.flush();
+                        sinceLastWrite = Duration.ZERO;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // normal when the client goes away
+            if (log.isDebugEnabled()) log.debug("Sensor stream "+subscriber+" closed: "+e);
+        } finally {
+            for (SubscriptionHandle handle: subscriptions) {
+                mgmt.getSubscriptionManager().unsubscribe(handle);
+            }
+        }
+    }
+
+    protected boolean isIncluded(Entity entity, Sensor<?> sensor) {
+        return sensor instanceof AttributeSensor 
+                && WildcardGlobs.isGlobMatched(sensorGlob, sensor.getName())
+                && mgmt.getEntitlementManager().isEntitled(entitlementContext, Entitlements.SEE_SENSOR, 
+                        new EntityAndItem<String>(entity, sensor.getName()));
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    protected List<SubscriptionHandle> subscribe() {
+        List<SubscriptionHandle> result = MutableList.of();
+        SensorEventListener<Object> listener = new SensorEventListener<Object>() {
+            @Override
+            public void onEvent(SensorEvent<Object> event) {
+                synchronized (pendingLock) {
+                    Map<AttributeSensor<?>, Object> values = pending.get(event.getSource());
+                    if (values==null) {
+                        values = MutableMap.of();
+                        pending.put(event.getSource(), values);
+                    }
+                    values.put((AttributeSensor<?>) event.getSensor(), event.getValue());
+                }
+            }
+        };
+        Predicate<SensorEvent<?>> filter = new Predicate<SensorEvent<?>>() {
+            @Override
+            public boolean apply(SensorEvent<?> input) {
+                return isIncluded(input.getSource(), input.getSensor());
+            }
+        };
+        for (Entity entity: entities) {
+            result.add(mgmt.getSubscriptionManager().subscribe(
+                    MutableMap.<String,Object>of("subscriber", subscriber, "eventFilter", filter), 
+                    entity, (Sensor) null, listener));
+        }
+        return result;
+    }
+
+    protected Map<Entity, Map<AttributeSensor<?>, Object>> snapshot() {
+        Map<Entity, Map<AttributeSensor<?>, Object>> result = MutableMap.of();
+        for (Entity entity: entities) {
+            if (!Entities.isManaged(entity)) continue;
+            Map<AttributeSensor<?>, Object> values = MutableMap.of();
+            for (Map.Entry<AttributeSensor<?>, Object> entry: entity.sensors().getAll().entrySet()) {
+                if (isIncluded(entity, entry.getKey())) {
+                    values.put(entry.getKey(), entry.getValue());
+                }
+            }
+            result.put(entity, values);
+        }
+        return result;
+    }
+
+    /** waits for the given period, then returns (and clears) the changes accumulated; or null if interrupted */
+    protected Map<Entity, Map<AttributeSensor<?>, Object>> awaitChanges(Duration period) {
+        try {
+            Thread.sleep(period.toMilliseconds());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        synchronized (pendingLock) {
+            Map<Entity, Map<AttributeSensor<?>, Object>> result = pending;
+            pending = MutableMap.of();
+            return result;
+        }
+    }
+
+    protected void writeEvent(OutputStream out, Map<Entity, Map<AttributeSensor<?>, Object>> changes) throws IOException {
+        Map<String, Map<String, Object>> data = MutableMap.of();
+        for (Map.Entry<Entity, Map<AttributeSensor<?>, Object>> entityChanges: changes.entrySet()) {
+            Entity entity = entityChanges.getKey();
+            Map<String, Object> values = MutableMap.of();
+            for (Map.Entry<AttributeSensor<?>, Object> change: entityChanges.getValue().entrySet()) {
+                values.put(change.getKey().getName(), RestValueResolver.resolving(change.getValue())
+                        .mapper(mapper).preferJson(true).asJerseyOutermostReturnValue(false).raw(raw)
+                        .context(entity).timeout(Duration.ZERO).renderAs(change.getKey()).resolve());
+            }
+            data.put(entity.getId(), values);
+        }
+        StringBuilder event = new StringBuilder("event: sensors\n");
+        // data must be on a single line
+        event.append("data: ").append(mapper.writer().without(SerializationFeature.INDENT_OUTPUT).writeValueAsString(data)).append("\n\n");
+        out.write(event.toString().getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+}
@@ -23,12 +23,15 @@ import java.util.Map;
 
 import javax.servlet.http.HttpServletResponse;
 import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriBuilder;
 
+import org.apache.brooklyn.api.entity.Entity;
 import org.apache.brooklyn.api.mgmt.ManagementContext;
 import org.apache.brooklyn.core.catalog.internal.CatalogUtils;
+import org.apache.brooklyn.core.entity.EntityInternal;
 import org.apache.brooklyn.core.typereg.RegisteredTypeNaming;
 import org.apache.brooklyn.rest.domain.ApiError;
 import org.apache.brooklyn.rest.util.json.BrooklynJacksonJsonProvider;
@@ -41,6 +44,8 @@ import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 
 public class WebResourceUtils {
 
@@ -116,11 +121,38 @@ public class WebResourceUtils {
         return throwWebApplicationException(Response.Status.NOT_FOUND, format, args);
     }
 
+    /** @throws WebApplicationException With code 503 service unavailable */
+    public static WebApplicationException serviceUnavailable(String format, Object... args) {
+        return throwWebApplicationException(Response.Status.SERVICE_UNAVAILABLE, format, args);
+    }
+
     /** @throws WebApplicationException With code 412 precondition failed */
     public static WebApplicationException preconditionFailed(String format, Object... args) {
         return throwWebApplicationException(Response.Status.PRECONDITION_FAILED, format, args);
     }
 
+    /** Computes a weak {@link EntityTag} which changes whenever any of the given entities changes
+     * (according to their change version) or any of the other parts (e.g. request URI and user) differs.
+     * If {@code wholeApplications} is set, the entities are expected to be applications, and the tag changes
+     * whenever anything in them does (according to their application change version). */
+    public static EntityTag entityTag(Iterable<? extends Entity> entities, boolean wholeApplications, Object... otherParts) {
+        Hasher hasher = Hashing.murmur3_128().newHasher();
+        for (Object part: otherParts) {
+            hasher.putUnencodedChars(String.valueOf(part)).putChar('\n');
+        }
+        for (Entity entity: entities) {
+            hasher.putUnencodedChars(entity.getId()).putChar(':');
+            if (!(entity instanceof EntityInternal)) {
+                hasher.putLong(-1);
+            } else if (wholeApplications) {
+                hasher.putLong(((EntityInternal)entity).getManagementSupport().getApplicationChangeVersion());
+            } else {
+                hasher.putLong(((EntityInternal)entity).getManagementSupport().getChangeVersion());
+            }
+        }
+        return new EntityTag(hasher.hash().toString(), true);
+    }
+
     public final static Map<String,com.google.common.net.MediaType> IMAGE_FORMAT_MIME_TYPES = ImmutableMap.<String, com.google.common.net.MediaType>builder()
             .put("jpg", com.google.common.net.MediaType.JPEG)
             .put("jpeg", com.google.common.net.MediaType.JPEG)
@@ -191,7 +223,7 @@ public class WebResourceUtils {
         target.setStatus(source.getStatus());
         target.setContentType(MediaType.APPLICATION_JSON);
         target.setCharacterEncoding("UTF-8");
-        target.getWriter().write(BrooklynJacksonJsonProvider.findAnyObjectMapper(mgmt).writeValueAsString(source.getEntity()));
+        BrooklynJacksonJsonProvider.findAnyObjectMapper(mgmt).writeValue(target.getWriter(), source.getEntity());
     }
 
     /**
@@ -20,9 +20,17 @@ package org.apache.brooklyn.rest.util.json;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.Collection;
+
 import javax.servlet.ServletContext;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.ext.ContextResolver;
 import javax.ws.rs.ext.MessageBodyReader;
 import javax.ws.rs.ext.MessageBodyWriter;
@@ -132,4 +140,31 @@ public class BrooklynJacksonJsonProvider extends JacksonJsonProvider implements
         return BrooklynObjectsJsonMapper.newMapper(mgmt);
     }
 
+    @Override
+    public void writeTo(Object value, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+            MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) throws IOException {
+        // lists (e.g. of entities) can be long and converted as they are written; the generator is flushed when
+        // recovering from each unserializable element, but that need not flush the response in many small chunks
+        super.writeTo(value, type, genericType, annotations, mediaType, httpHeaders,
+                (value instanceof Collection) ? new NonFlushingOutputStream(entityStream) : entityStream);
+    }
+
+    /** ignores {@link #flush()}, leaving the underlying stream to be flushed when the response is complete */
+    private static class NonFlushingOutputStream extends FilterOutputStream {
+        NonFlushingOutputStream(OutputStream out) {
+            super(out);
+        }
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+        @Override
+        public void flush() {
+        }
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
 }
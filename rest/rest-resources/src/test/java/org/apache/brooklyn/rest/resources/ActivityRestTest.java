@@ -40,14 +40,17 @@ import org.apache.brooklyn.core.mgmt.EntityManagementUtils.CreationResult;
 import org.apache.brooklyn.core.mgmt.internal.TestEntityWithEffectors;
 import org.apache.brooklyn.entity.stock.BasicApplication;
 import org.apache.brooklyn.rest.domain.TaskSummary;
+import org.apache.brooklyn.rest.domain.TaskSummaryPage;
 import org.apache.brooklyn.rest.testing.BrooklynRestResourceTest;
 import org.apache.brooklyn.test.Asserts;
 import org.apache.brooklyn.util.collections.MutableList;
 import org.apache.brooklyn.util.core.config.ConfigBag;
+import org.apache.brooklyn.util.core.task.Tasks;
 import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.http.HttpAsserts;
 import org.apache.brooklyn.util.time.CountdownTimer;
 import org.apache.brooklyn.util.time.Duration;
+import org.apache.cxf.jaxrs.client.WebClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.testng.Assert;
@@ -56,6 +59,7 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.Runnables;
 
 /** Tests {@link ActivityResource} and activity methods on {@link EntityResource} */
 public class ActivityRestTest extends BrooklynRestResourceTest {
@@ -291,6 +295,64 @@ Task[eatand]@J90TKfIX: Waiting on Task[eat-sleep-rave-repeat]@QPa5o4kF
         Assert.assertFalse(tasksContain(tasks, leaf), "tasks should not have included leaf "+leaf+"; was "+tasks);
     }
 
+    @Test
+    public void testGetEntityActivitiesPaged() {
+        // use short tasks rather than the effector, so the set of tasks is stable while we page through it
+        List<Task<?>> submitted = MutableList.of();
+        for (int i=0; i<10; i++) {
+            submitted.add(Entities.submit(entity, Tasks.builder().displayName("paged-"+i).body(Runnables.doNothing()).build()));
+        }
+        for (Task<?> t: submitted) t.blockUntilEnded(Duration.TEN_SECONDS);
+        Task<?> t = submitted.get(0);
+        
+        List<TaskSummary> all = listPage(-1, null, null).getTasks();
+        Assert.assertTrue(all.size() > 4, "tasks should have been big; was "+all);
+        for (int i=1; i<all.size(); i++) {
+            Assert.assertTrue(all.get(i-1).getSubmitTimeUtc() >= all.get(i).getSubmitTimeUtc(), "not most recent first: "+all);
+        }
+        
+        // walk the pages, expecting to see every task exactly once in the same order
+        List<String> pagedIds = MutableList.of();
+        String cursor = null;
+        do {
+            TaskSummaryPage page = listPage(3, cursor, null);
+            Assert.assertTrue(page.getTasks().size() <= 3, "page too big: "+page);
+            for (TaskSummary ts: page.getTasks()) pagedIds.add(ts.getId());
+            cursor = page.getNextCursor();
+        } while (cursor!=null);
+        List<String> allIds = MutableList.of();
+        for (TaskSummary ts: all) allIds.add(ts.getId());
+        Assert.assertEquals(pagedIds, allIds);
+        
+        // filtering on status
+        List<TaskSummary> done = listPage(-1, null, "done").getTasks();
+        Assert.assertTrue(tasksContain(done, t), "done tasks should have included "+t+"; was "+done);
+        for (TaskSummary ts: done) {
+            Assert.assertNotNull(ts.getEndTimeUtc(), "task not done: "+ts);
+        }
+    }
+
+    @Test
+    public void testGetEntityActivitiesPagedRejectsBadCursor() {
+        Response response = client().path("/applications/"+entity.getApplicationId()+
+                "/entities/"+entity.getId()+"/activities/page")
+            .query("cursor", "not-a-cursor")
+            .accept(MediaType.APPLICATION_JSON)
+            .get();
+        Assert.assertEquals(response.getStatus(), 400);
+    }
+
+    private TaskSummaryPage listPage(int limit, String cursor, String status) {
+        WebClient request = client().path("/applications/"+entity.getApplicationId()+
+                "/entities/"+entity.getId()+"/activities/page")
+            .query("limit", limit);
+        if (cursor!=null) request.query("cursor", cursor);
+        if (status!=null) request.query("status", status);
+        Response response = request.accept(MediaType.APPLICATION_JSON).get();
+        assertHealthy(response);
+        return response.readEntity(TaskSummaryPage.class);
+    }
+
     private void assertHealthy(Response response) {
         if (!HttpAsserts.isHealthyStatusCode(response.getStatus())) {
             Asserts.fail("Bad response: "+response.getStatus()+" "+response.readEntity(String.class));
@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.rest.resources;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.ws.rs.core.GenericType;
+
+import org.apache.brooklyn.api.entity.Entity;
+import org.apache.brooklyn.api.entity.EntitySpec;
+import org.apache.brooklyn.core.entity.Attributes;
+import org.apache.brooklyn.core.entity.lifecycle.Lifecycle;
+import org.apache.brooklyn.core.test.entity.TestApplication;
+import org.apache.brooklyn.core.test.entity.TestEntity;
+import org.apache.brooklyn.core.test.qa.performance.AbstractPerformanceTest;
+import org.apache.brooklyn.rest.domain.EntitySummary;
+import org.apache.brooklyn.test.performance.PerformanceTestDescriptor;
+import org.apache.brooklyn.util.time.Duration;
+import org.apache.cxf.jaxrs.client.WebClient;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Function;
+
+/**
+ * Measures the large responses which render a whole application, e.g. {@code /applications/fetch},
+ * against a synthetic application with many entities.
+ */
+//by using a different suite name we disallow interleaving other tests between the methods of this test class, which wrecks the test fixtures
+@Test(suiteName = "ApplicationResourcePerformanceTest")
+public class ApplicationResourcePerformanceTest extends BrooklynRestResourcePerformanceTest {
+
+    private TestApplication app;
+
+    protected int numEntities() {
+        return 1000;
+    }
+
+    protected int numIterations() {
+        return 10;
+    }
+
+    @Override
+    protected void initClass() throws Exception {
+        super.initClass();
+
+        EntitySpec<TestApplication> appSpec = EntitySpec.create(TestApplication.class).displayName("large-app");
+        for (int i = 0; i < numEntities(); i++) {
+            appSpec.child(EntitySpec.create(TestEntity.class).displayName("entity-" + i));
+        }
+        app = getManagementContext().getEntityManager().createEntity(appSpec);
+        for (Entity child : app.getChildren()) {
+            child.sensors().set(Attributes.SERVICE_UP, true);
+            child.sensors().set(Attributes.SERVICE_STATE_ACTUAL, Lifecycle.RUNNING);
+            child.sensors().set(TestEntity.SEQUENCE, 1);
+            child.sensors().set(Attributes.HOSTNAME, child.getDisplayName() + ".example.com");
+        }
+    }
+
+    @Test(groups={"Integration"})
+    public void testFetch() {
+        runPerformanceTest("ApplicationResourcePerformanceTest.testFetch",
+                new Function<WebClient, Void>() {
+                    @Override
+                    public Void apply(WebClient client) {
+                        List<Map<String, Object>> result = client.path("/applications/fetch")
+                                .query("sensors", "host.name")
+                                .get(new GenericType<List<Map<String, Object>>>() {});
+                        assertEquals(((List<?>) result.get(0).get("children")).size(), numEntities());
+                        return null;
+                    }});
+    }
+
+    @Test(groups={"Integration"})
+    public void testDetails() {
+        runPerformanceTest("ApplicationResourcePerformanceTest.testDetails",
+                new Function<WebClient, Void>() {
+                    @Override
+                    public Void apply(WebClient client) {
+                        List<EntitySummary> result = client.path("/applications/details")
+                                .query("items", app.getId())
+                                .query("sensors", "service.*")
+                                .query("depth", 2)
+                                .get(new GenericType<List<EntitySummary>>() {});
+                        assertEquals(result.size(), 1);
+                        return null;
+                    }});
+    }
+
+    @Test(groups={"Integration"})
+    public void testDescendantsSensor() {
+        runPerformanceTest("ApplicationResourcePerformanceTest.testDescendantsSensor",
+                new Function<WebClient, Void>() {
+                    @Override
+                    public Void apply(WebClient client) {
+                        Map<?, ?> result = client.path("/applications/" + app.getId() + "/descendants/sensor/" + TestEntity.SEQUENCE.getName())
+                                .get(Map.class);
+                        assertEquals(result.size(), numEntities());
+                        return null;
+                    }});
+    }
+
+    protected void runPerformanceTest(String summary, final Function<WebClient, Void> job) {
+        final AtomicReference<WebClient> client = new AtomicReference<>();
+
+        measure(PerformanceTestDescriptor.create()
+                .summary(summary)
+                .iterations(numIterations())
+                .warmup(Duration.ONE_SECOND)
+                .minAcceptablePerSecond(0.1 * AbstractPerformanceTest.PERFORMANCE_EXPECTATION)
+                .preJob(new Runnable() {
+                    @Override
+                    public void run() {
+                        client.set(client());
+                    }})
+                .job(new Runnable() {
+                    @Override
+                    public void run() {
+                        job.apply(client.get());
+                    }}));
+    }
+}
@@ -21,6 +21,7 @@ package org.apache.brooklyn.rest.resources;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
 
+import java.util.List;
 import java.util.Map;
 
 import javax.ws.rs.core.MediaType;
@@ -29,6 +30,7 @@ import javax.ws.rs.core.Response;
 import org.apache.brooklyn.api.entity.EntitySpec;
 import org.apache.brooklyn.core.entity.Entities;
 import org.apache.brooklyn.core.test.entity.TestEntity;
+import org.apache.brooklyn.entity.group.BasicGroup;
 import org.apache.brooklyn.entity.stock.BasicApplication;
 import org.apache.brooklyn.rest.api.EffectorApi;
 import org.apache.brooklyn.rest.testing.BrooklynRestResourceTest;
@@ -38,6 +40,7 @@ import org.apache.brooklyn.util.time.Duration;
 import org.testng.annotations.Test;
 
 import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.gson.Gson;
 
@@ -162,4 +165,40 @@ public class EffectorResourceTest extends BrooklynRestResourceTest {
         boolean taskPreparing = detailedStatus.contains("In progress (RUNNABLE)") && detailedStatus.contains("EffectorUtils.invokeMethodEffector");
         assertTrue(taskSleeping || taskPreparing, "responseMap="+responseMap);
     }
+
+    @Test
+    public void testInvokeEffectorOnMembers() throws Exception {
+        BasicGroup group = app.addChild(EntitySpec.create(BasicGroup.class));
+        TestEntity member1 = app.addChild(EntitySpec.create(TestEntity.class));
+        TestEntity member2 = app.addChild(EntitySpec.create(TestEntity.class));
+        group.addMember(member1);
+        group.addMember(member2);
+        String path = "/applications/"+app.getId()+"/entities/"+group.getId()+"/effectors/"+"identityEffector/members";
+
+        Response response = client().path(path)
+                .query("maxConcurrency", "1")
+                .query("batchSize", "1")
+                .query("pauseBetweenBatches", "10ms")
+                .accept(MediaType.APPLICATION_JSON)
+                .header("Content-Type", MediaType.APPLICATION_JSON)
+                .post("{\"arg\": \"myval\"}");
+        assertEquals(response.getStatus(), 202);
+
+        List<?> results = new Gson().fromJson(response.readEntity(String.class), List.class);
+        assertEquals(results, ImmutableList.of("myval", "myval"));
+        assertTrue(member1.getCallHistory().contains("identityEffector"));
+        assertTrue(member2.getCallHistory().contains("identityEffector"));
+    }
+
+    @Test
+    public void testInvokeEffectorOnMembersOfNonGroupFails() throws Exception {
+        String path = "/applications/"+app.getId()+"/entities/"+entity.getId()+"/effectors/"+"identityEffector/members";
+
+        Response response = client().path(path)
+                .accept(MediaType.APPLICATION_JSON)
+                .header("Content-Type", MediaType.APPLICATION_JSON)
+                .post("{\"arg\": \"myval\"}");
+        assertEquals(response.getStatus(), 400);
+        assertTrue(entity.getCallHistory().isEmpty(), "calls="+entity.getCallHistory());
+    }
 }
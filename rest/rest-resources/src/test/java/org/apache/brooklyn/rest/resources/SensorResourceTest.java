@@ -19,12 +19,20 @@
 package org.apache.brooklyn.rest.resources;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
 
+import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.ws.rs.core.GenericType;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
@@ -37,19 +45,27 @@ import org.apache.brooklyn.api.sensor.AttributeSensor;
 import org.apache.brooklyn.api.sensor.Enricher;
 import org.apache.brooklyn.api.sensor.Feed;
 import org.apache.brooklyn.core.config.render.RendererHints;
+import org.apache.brooklyn.core.entity.Entities;
 import org.apache.brooklyn.core.entity.EntityInternal;
 import org.apache.brooklyn.core.entity.EntityPredicates;
+import org.apache.brooklyn.core.internal.BrooklynProperties;
+import org.apache.brooklyn.core.mgmt.internal.ManagementContextInternal;
 import org.apache.brooklyn.core.sensor.Sensors;
+import org.apache.brooklyn.core.test.entity.TestApplication;
 import org.apache.brooklyn.core.test.entity.TestEntity;
+import org.apache.brooklyn.entity.group.BasicGroup;
 import org.apache.brooklyn.core.test.policy.TestEnricher;
 import org.apache.brooklyn.core.test.policy.TestPolicy;
 import org.apache.brooklyn.feed.function.FunctionFeed;
 import org.apache.brooklyn.rest.api.SensorApi;
 import org.apache.brooklyn.rest.domain.ApplicationSpec;
 import org.apache.brooklyn.rest.domain.EntitySpec;
+import org.apache.brooklyn.rest.filter.NoCacheFilter;
 import org.apache.brooklyn.rest.test.config.render.TestRendererHints;
 import org.apache.brooklyn.rest.testing.BrooklynRestResourceTest;
 import org.apache.brooklyn.rest.testing.mocks.RestMockSimpleEntity;
+import org.apache.brooklyn.rest.util.SensorEventStreamingOutput;
+import org.apache.brooklyn.test.Asserts;
 import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.core.task.Tasks;
 import org.apache.brooklyn.util.http.HttpAsserts;
@@ -62,7 +78,10 @@ import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.Functions;
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
@@ -108,6 +127,12 @@ public class SensorResourceTest extends BrooklynRestResourceTest {
         addAmphibianSensor(entity);
     }
 
+    @Override
+    protected void addDefaultResources() {
+        super.addDefaultResources();
+        addResource(new NoCacheFilter());
+    }
+
     static void addAmphibianSensor(EntityInternal entity) {
         // Add new sensor
         entity.getMutableEntityType().addSensor(SENSOR);
@@ -347,6 +372,183 @@ public class SensorResourceTest extends BrooklynRestResourceTest {
         doGetSensorTest("myTask", Map.class, ImmutableMap.of("type", Task.class.getName(), "id", task.getId(), "displayName", "sleepEffector"));
     }
     
+    @Test
+    public void testConditionalGetNotModifiedUntilSensorChanges() throws Exception {
+        Response response = client().path(SENSORS_ENDPOINT + "/current-state")
+                .accept(MediaType.APPLICATION_JSON)
+                .get();
+        assertEquals(response.getStatus(), 200);
+        assertEquals(response.getHeaderString(HttpHeaders.CACHE_CONTROL), "no-cache");
+        String etag = response.getHeaderString(HttpHeaders.ETAG);
+        assertNotNull(etag);
+
+        response = client().path(SENSORS_ENDPOINT + "/current-state")
+                .accept(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .get();
+        assertEquals(response.getStatus(), 304);
+
+        // a different representation of the same entity has a different tag
+        response = client().path(SENSORS_ENDPOINT + "/" + SENSOR_NAME)
+                .accept(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .get();
+        assertEquals(response.getStatus(), 200);
+
+        entity.sensors().set(SENSOR, 54321);
+        try {
+            response = client().path(SENSORS_ENDPOINT + "/current-state")
+                    .accept(MediaType.APPLICATION_JSON)
+                    .header(HttpHeaders.IF_NONE_MATCH, etag)
+                    .get();
+            assertEquals(response.getStatus(), 200);
+            assertNotEquals(response.getHeaderString(HttpHeaders.ETAG), etag);
+            Map<String, ?> currentState = response.readEntity(new GenericType<Map<String,?>>(Map.class) {});
+            assertEquals(currentState.get(SENSOR_NAME), "54321 frogs");
+        } finally {
+            entity.sensors().set(SENSOR, 12345);
+        }
+    }
+
+    @Test
+    public void testConditionalApplicationDetailsNotModifiedUntilDescendantChanges() throws Exception {
+        Response response = applicationDetailsClient().get();
+        assertEquals(response.getStatus(), 200);
+        String etag = response.getHeaderString(HttpHeaders.ETAG);
+        assertNotNull(etag);
+
+        response = applicationDetailsClient().header(HttpHeaders.IF_NONE_MATCH, etag).get();
+        assertEquals(response.getStatus(), 304);
+
+        // a change to an entity within the application (not the application itself) changes the tag
+        entity.sensors().set(SENSOR, 54321);
+        try {
+            response = applicationDetailsClient().header(HttpHeaders.IF_NONE_MATCH, etag).get();
+            assertEquals(response.getStatus(), 200);
+            assertNotEquals(response.getHeaderString(HttpHeaders.ETAG), etag);
+        } finally {
+            entity.sensors().set(SENSOR, 12345);
+        }
+    }
+
+    @Test
+    public void testConditionalGroupDetailsModifiedWhenMemberInOtherApplicationChanges() throws Exception {
+        TestApplication otherApp = getManagementContext().getEntityManager().createEntity(
+                org.apache.brooklyn.api.entity.EntitySpec.create(TestApplication.class));
+        try {
+            final BasicGroup group = otherApp.addChild(org.apache.brooklyn.api.entity.EntitySpec.create(BasicGroup.class));
+            group.addMember(entity);
+
+            // once the group's own (asynchronous) updates are done, it is not modified
+            final AtomicReference<String> etag = new AtomicReference<>();
+            Asserts.succeedsEventually(new Runnable() {
+                @Override
+                public void run() {
+                    String tag = applicationDetailsClient(group).get().getHeaderString(HttpHeaders.ETAG);
+                    assertNotNull(tag);
+                    assertEquals(applicationDetailsClient(group).header(HttpHeaders.IF_NONE_MATCH, tag).get().getStatus(), 304);
+                    etag.set(tag);
+                }
+            });
+
+            // the member is in another application, whose change version is also part of the tag
+            entity.sensors().set(SENSOR, 54321);
+            try {
+                Response response = applicationDetailsClient(group).header(HttpHeaders.IF_NONE_MATCH, etag.get()).get();
+                assertEquals(response.getStatus(), 200);
+                assertNotEquals(response.getHeaderString(HttpHeaders.ETAG), etag.get());
+            } finally {
+                entity.sensors().set(SENSOR, 12345);
+            }
+        } finally {
+            Entities.unmanage(otherApp);
+        }
+    }
+
+    private WebClient applicationDetailsClient() {
+        return applicationDetailsClient(entity);
+    }
+
+    private WebClient applicationDetailsClient(Entity item) {
+        return client().path("/applications/details")
+                .query("includeAllApps", false)
+                .query("items", item.getId())
+                .query("sensors", SENSOR_NAME)
+                .query("depth", -1)
+                .accept(MediaType.APPLICATION_JSON);
+    }
+
+    @Test
+    public void testStreamSensorChanges() throws Exception {
+        final AttributeSensor<Integer> streamed = Sensors.newIntegerSensor("streamtest.value");
+        entity.sensors().set(streamed, 0);
+        Thread updater = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i=1; i<=3; i++) {
+                    Time.sleep(Duration.millis(300));
+                    entity.sensors().set(streamed, i);
+                }
+            }
+        });
+        updater.start();
+        try {
+            Response response = client().path(SENSORS_ENDPOINT + "/current-state/stream")
+                    .query("sensors", "streamtest.*")
+                    .query("period", "100ms")
+                    .query("maxDuration", "2s")
+                    .query("raw", true)
+                    .accept("text/event-stream")
+                    .get();
+            HttpAsserts.assertHealthyStatusCode(response.getStatus());
+            String events = response.readEntity(String.class);
+            
+            assertTrue(events.startsWith("event: sensors\ndata: {\""+entity.getId()+"\":{\"streamtest.value\":0}}"), "events="+events);
+            assertTrue(events.contains("\"streamtest.value\":3"), "events="+events);
+            assertFalse(events.contains(SENSOR_NAME), "events="+events);
+        } finally {
+            updater.join();
+        }
+    }
+
+    @Test
+    public void testStreamSensorChangesLimitsConcurrencyAndDuration() throws Exception {
+        BrooklynProperties props = ((ManagementContextInternal)getManagementContext()).getBrooklynProperties();
+        props.put(SensorResource.MAX_CONCURRENT_STREAMS, 0);
+        try {
+            Response response = client().path(SENSORS_ENDPOINT + "/current-state/stream")
+                    .accept("text/event-stream")
+                    .get();
+            assertEquals(response.getStatus(), 503);
+        } finally {
+            props.remove(SensorResource.MAX_CONCURRENT_STREAMS);
+        }
+
+        // a stream only takes a slot while written, and one started when the limit has since been reached ends at once
+        SensorEventStreamingOutput output = new SensorEventStreamingOutput(getManagementContext(), new ObjectMapper(), 
+                ImmutableList.<Entity>of(entity), "*", Duration.ONE_SECOND, Duration.ONE_MINUTE, false, 0);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        output.write(out);
+        assertTrue(new String(out.toByteArray(), StandardCharsets.UTF_8).startsWith("retry: "), "out="+out);
+        assertEquals(SensorEventStreamingOutput.getActiveStreamCount(getManagementContext()), 0);
+
+        // the server's limit applies whatever the client asks for
+        props.put(SensorResource.MAX_STREAM_DURATION, Duration.millis(500));
+        try {
+            Stopwatch stopwatch = Stopwatch.createStarted();
+            Response response = client().path(SENSORS_ENDPOINT + "/current-state/stream")
+                    .query("maxDuration", "1h")
+                    .accept("text/event-stream")
+                    .get();
+            HttpAsserts.assertHealthyStatusCode(response.getStatus());
+            response.readEntity(String.class);
+            assertTrue(Duration.of(stopwatch).isShorterThan(Duration.ONE_MINUTE), "took "+Duration.of(stopwatch));
+            assertEquals(SensorEventStreamingOutput.getActiveStreamCount(getManagementContext()), 0);
+        } finally {
+            props.remove(SensorResource.MAX_STREAM_DURATION);
+        }
+    }
+
     protected <T> void doGetSensorTest(String sensorName, Class<T> expectedType, T expectedVal) throws Exception {
         doGetSensorTest(sensorName, expectedType, expectedVal, true);
         doGetSensorTest(sensorName, expectedType, expectedVal, false);
@@ -18,11 +18,16 @@
  */
 package org.apache.brooklyn.rest.util.json;
 
+import java.io.ByteArrayOutputStream;
 import java.io.NotSerializableException;
+import java.lang.annotation.Annotation;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+
 import org.apache.brooklyn.api.mgmt.ManagementContext;
 import org.apache.brooklyn.core.entity.Attributes;
 import org.apache.brooklyn.core.entity.Entities;
@@ -93,6 +98,38 @@ public class BrooklynJacksonSerializerTest {
         }
     }
     
+    @Test
+    public void testProviderFlushesOtherThanCollections() throws Exception {
+        ManagementContext mgmt = LocalManagementContextForTests.newInstance();
+        try {
+            BrooklynJacksonJsonProvider provider = new BrooklynJacksonJsonProvider();
+            provider.ourMapper = BrooklynJacksonJsonProvider.newPrivateObjectMapper(mgmt);
+
+            // e.g. a stream of events is still flushed as it is written
+            FlushCountingOutputStream out = new FlushCountingOutputStream();
+            provider.writeTo(MutableMap.of("a", 1), Map.class, Map.class, new Annotation[0], MediaType.APPLICATION_JSON_TYPE, 
+                    new MultivaluedHashMap<String, Object>(), out);
+            Assert.assertEquals(out.toString(), "{\"a\":1}");
+            Assert.assertTrue(out.flushes > 0, "flushes="+out.flushes);
+
+            out = new FlushCountingOutputStream();
+            provider.writeTo(MutableList.of(1, new Object(), 3), List.class, List.class, new Annotation[0], MediaType.APPLICATION_JSON_TYPE, 
+                    new MultivaluedHashMap<String, Object>(), out);
+            Assert.assertTrue(out.toString().startsWith("[1,"), "out="+out);
+            Assert.assertEquals(out.flushes, 0);
+        } finally {
+            Entities.destroyAll(mgmt);
+        }
+    }
+
+    private static class FlushCountingOutputStream extends ByteArrayOutputStream {
+        int flushes;
+        @Override
+        public void flush() {
+            flushes++;
+        }
+    }
+
     public static class SelfRefNonSerializableClass {
         @JsonProperty
         Object bogus = this;
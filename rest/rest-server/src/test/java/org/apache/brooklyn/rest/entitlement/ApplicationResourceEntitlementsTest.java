@@ -25,6 +25,8 @@ import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertTrue;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.Nonnull;
@@ -53,6 +55,7 @@ import org.apache.brooklyn.util.http.HttpToolResponse;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
@@ -83,6 +86,64 @@ public class ApplicationResourceEntitlementsTest extends AbstractRestApiEntitlem
         assertFalse(INDICATOR.get());
     }
 
+    @Test
+    public void testDetailsExcludesUnentitledChildren() throws Exception {
+        String path = "/v1/applications/details?items="+app.getId()+"&depth=-1";
+        assertTrue(assertPermitted("myRoot", path).contains(entity.getId()));
+
+        // children are converted as the response is written, so this checks the entitlement context is still applied then
+        StaticDelegatingEntitlementManager.setDelegate(new HideEntity(entity));
+        String content = assertPermitted("myCustom", path);
+        assertTrue(content.contains(app.getId()), content);
+        assertFalse(content.contains(entity.getId()), content);
+    }
+
+    @Test
+    public void testDetailsStillWellFormedWhenEntityFailsAsWritten() throws Exception {
+        String path = "/v1/applications/details?items="+app.getId()+"&depth=-1&sensors=*";
+
+        // as if the entity were unmanaged while the response is being written
+        StaticDelegatingEntitlementManager.setDelegate(new FailOnSensors(entity));
+        String content = assertPermitted("myCustom", path);
+
+        List<?> apps = new ObjectMapper().readValue(content, List.class);
+        Map<?, ?> appDetail = (Map<?, ?>) apps.get(0);
+        assertEquals(appDetail.get("id"), app.getId());
+        Map<?, ?> entityDetail = (Map<?, ?>) ((List<?>) appDetail.get("children")).get(0);
+        assertEquals(entityDetail.get("id"), entity.getId());
+        assertTrue(String.valueOf(entityDetail.get("error")).contains("no longer managed"), content);
+    }
+
+    public static class FailOnSensors implements EntitlementManager {
+        private final Entity failing;
+
+        public FailOnSensors(Entity failing) {
+            this.failing = failing;
+        }
+
+        @Override
+        public <T> boolean isEntitled(EntitlementContext context, @Nonnull EntitlementClass<T> entitlementClass, T entitlementClassArgument) {
+            if (Entitlements.SEE_SENSOR.equals(entitlementClass) && failing.equals(((Entitlements.EntityAndItem<?>) entitlementClassArgument).getEntity())) {
+                throw new IllegalStateException(failing+" no longer managed");
+            }
+            return true;
+        }
+    }
+
+    public static class HideEntity implements EntitlementManager {
+        private final Entity hidden;
+
+        public HideEntity(Entity hidden) {
+            this.hidden = hidden;
+        }
+
+        @Override
+        public <T> boolean isEntitled(EntitlementContext context, @Nonnull EntitlementClass<T> entitlementClass, T entitlementClassArgument) {
+            if (context == null) return false;
+            return !(Entitlements.SEE_ENTITY.equals(entitlementClass) && hidden.equals(entitlementClassArgument));
+        }
+    }
+
     public static class InvokeEffector implements EntitlementManager {
         private final boolean mayInvoke;
 
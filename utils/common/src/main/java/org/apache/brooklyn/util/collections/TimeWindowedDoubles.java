@@ -0,0 +1,321 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.collections;
+
+import java.util.NoSuchElementException;
+
+import com.google.common.annotations.Beta;
+
+/**
+ * A ring buffer of timestamped primitive values, for windows over recent sensor values
+ * (as an alternative to {@link TimeWindowedList} where values are numbers, avoiding boxing).
+ * <p>
+ * Values are held oldest first, and indexes (as used by {@link #getValue(int)} etc) are from the oldest.
+ * Timestamps must be non-decreasing; a value added with a timestamp earlier than the latest
+ * is treated as having the latest timestamp. Old values are discarded with {@link #pruneBefore(long)}.
+ * <p>
+ * Adding and pruning is amortised O(1); sums and time-weighted sums are O(log n) (to find the start of the window),
+ * and min and max are O(log n), using monotonic queues maintained as values are added.
+ */
+@Beta
+public class TimeWindowedDoubles {
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 16;
+
+    private long[] timestamps;
+    private double[] values;
+    /** cumulative sum of values, up to and including each entry */
+    private double[] sums;
+    /** cumulative sum of each value weighted by the time since the previous value, up to and including each entry */
+    private double[] weightedSums;
+    private int head;
+    private int size;
+
+    /** sequence number of the next value to be added; the oldest held value is {@code nextSeq - size} */
+    private long nextSeq;
+    private int addsSinceRebase;
+
+    /** sequence numbers of values which could be the min of some suffix of the window; values increasing */
+    private final SeqQueue minQueue = new SeqQueue();
+    /** as {@link #minQueue}, for max; values decreasing */
+    private final SeqQueue maxQueue = new SeqQueue();
+
+    public TimeWindowedDoubles() {
+        this(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    public TimeWindowedDoubles(int initialCapacity) {
+        int capacity = Math.max(2, initialCapacity);
+        timestamps = new long[capacity];
+        values = new double[capacity];
+        sums = new double[capacity];
+        weightedSums = new double[capacity];
+    }
+
+    public synchronized void add(double value, long timestamp) {
+        if (size == timestamps.length) grow();
+        double sum = value;
+        double weightedSum = 0;
+        if (size > 0) {
+            int last = pos(size-1);
+            timestamp = Math.max(timestamp, timestamps[last]);
+            sum += sums[last];
+            weightedSum = weightedSums[last] + value * (timestamp - timestamps[last]);
+        }
+        int p = pos(size);
+        timestamps[p] = timestamp;
+        values[p] = value;
+        sums[p] = sum;
+        weightedSums[p] = weightedSum;
+        size++;
+        long seq = nextSeq++;
+
+        while (!minQueue.isEmpty() && valueOfSeq(minQueue.peekLast()) >= value) minQueue.removeLast();
+        minQueue.addLast(seq);
+        while (!maxQueue.isEmpty() && valueOfSeq(maxQueue.peekLast()) <= value) maxQueue.removeLast();
+        maxQueue.addLast(seq);
+
+        if (++addsSinceRebase >= timestamps.length) rebase();
+    }
+
+    /**
+     * Discards values with timestamps before the given cutoff, except for the most recent such value
+     * (so that the value in effect at the start of the window is known).
+     */
+    public synchronized void pruneBefore(long cutoff) {
+        while (size > 1 && timestamps[pos(1)] < cutoff) {
+            removeFirst();
+        }
+    }
+
+    public synchronized void clear() {
+        while (size > 0) removeFirst();
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    public synchronized double getValue(int index) {
+        checkIndex(index);
+        return values[pos(index)];
+    }
+
+    public synchronized long getTimestamp(int index) {
+        checkIndex(index);
+        return timestamps[pos(index)];
+    }
+
+    public synchronized double getLatestValue() {
+        return getValue(size-1);
+    }
+
+    public synchronized long getLatestTimestamp() {
+        return getTimestamp(size-1);
+    }
+
+    /** index of the first value whose timestamp is at or after the given time, or {@link #size()} if there is none */
+    public synchronized int indexOfFirstAtOrAfter(long timestamp) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (timestamps[pos(mid)] < timestamp) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /** sum of the values from the given index onwards */
+    public synchronized double getSum(int fromIndex) {
+        if (fromIndex >= size) return 0;
+        checkIndex(fromIndex);
+        int from = pos(fromIndex);
+        return sums[pos(size-1)] - sums[from] + values[from];
+    }
+
+    public synchronized double getSum() {
+        return getSum(0);
+    }
+
+    /** mean of all values held, or NaN if there are none */
+    public synchronized double getMean() {
+        return size == 0 ? Double.NaN : getSum(0) / size;
+    }
+
+    /**
+     * Sum of each value multiplied by the time for which it applies within the window starting at the given time,
+     * where a value is taken to apply from the previous value's timestamp (or the window start if later) until its own timestamp.
+     * Values before the window start are ignored. Dividing by the length of the window gives a time-weighted mean.
+     */
+    public synchronized double getTimeWeightedSum(long windowStart) {
+        int first = indexOfFirstAtOrAfter(windowStart);
+        if (first >= size) return 0;
+        int p = pos(first);
+        return weightedSums[pos(size-1)] - weightedSums[p] + values[p] * (timestamps[p] - windowStart);
+    }
+
+    /** min of the values from the given index onwards */
+    public synchronized double getMin(int fromIndex) {
+        checkIndex(fromIndex);
+        return valueOfSeq(minQueue.firstAtOrAfter(firstSeq() + fromIndex));
+    }
+
+    public synchronized double getMin() {
+        return getMin(0);
+    }
+
+    /** max of the values from the given index onwards */
+    public synchronized double getMax(int fromIndex) {
+        checkIndex(fromIndex);
+        return valueOfSeq(maxQueue.firstAtOrAfter(firstSeq() + fromIndex));
+    }
+
+    public synchronized double getMax() {
+        return getMax(0);
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder result = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) result.append(", ");
+            result.append(values[pos(i)]).append("@").append(timestamps[pos(i)]);
+        }
+        return result.append("]").toString();
+    }
+
+    private void removeFirst() {
+        long seq = firstSeq();
+        if (!minQueue.isEmpty() && minQueue.peekFirst() == seq) minQueue.removeFirst();
+        if (!maxQueue.isEmpty() && maxQueue.peekFirst() == seq) maxQueue.removeFirst();
+        head = (head + 1) % timestamps.length;
+        size--;
+    }
+
+    /** keeps the cumulative sums relative to the oldest value, so they do not lose precision as they grow */
+    private void rebase() {
+        addsSinceRebase = 0;
+        if (size == 0) return;
+        int first = pos(0);
+        double sumBase = sums[first] - values[first];
+        double weightedSumBase = weightedSums[first];
+        for (int i = 0; i < size; i++) {
+            int p = pos(i);
+            sums[p] -= sumBase;
+            weightedSums[p] -= weightedSumBase;
+        }
+    }
+
+    private void grow() {
+        int capacity = timestamps.length * 2;
+        long[] newTimestamps = new long[capacity];
+        double[] newValues = new double[capacity];
+        double[] newSums = new double[capacity];
+        double[] newWeightedSums = new double[capacity];
+        for (int i = 0; i < size; i++) {
+            int p = pos(i);
+            newTimestamps[i] = timestamps[p];
+            newValues[i] = values[p];
+            newSums[i] = sums[p];
+            newWeightedSums[i] = weightedSums[p];
+        }
+        timestamps = newTimestamps;
+        values = newValues;
+        sums = newSums;
+        weightedSums = newWeightedSums;
+        head = 0;
+    }
+
+    private long firstSeq() {
+        return nextSeq - size;
+    }
+
+    private double valueOfSeq(long seq) {
+        return values[pos((int) (seq - firstSeq()))];
+    }
+
+    private int pos(int index) {
+        return (head + index) % timestamps.length;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            if (size == 0) throw new NoSuchElementException("No values");
+            throw new IndexOutOfBoundsException("Index "+index+" not in window of size "+size);
+        }
+    }
+
+    /** double-ended queue of increasing sequence numbers, in a ring buffer */
+    private static class SeqQueue {
+        private long[] seqs = new long[DEFAULT_INITIAL_CAPACITY];
+        private int head;
+        private int size;
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        long peekFirst() {
+            return seqs[head];
+        }
+
+        long peekLast() {
+            return seqs[pos(size-1)];
+        }
+
+        void addLast(long seq) {
+            if (size == seqs.length) {
+                long[] newSeqs = new long[seqs.length * 2];
+                for (int i = 0; i < size; i++) newSeqs[i] = seqs[pos(i)];
+                seqs = newSeqs;
+                head = 0;
+            }
+            seqs[pos(size)] = seq;
+            size++;
+        }
+
+        void removeFirst() {
+            head = (head + 1) % seqs.length;
+            size--;
+        }
+
+        void removeLast() {
+            size--;
+        }
+
+        /** first sequence number held which is at or after the given one; callers must ensure there is one */
+        long firstAtOrAfter(long seq) {
+            int lo = 0, hi = size - 1;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (seqs[pos(mid)] < seq) lo = mid + 1;
+                else hi = mid;
+            }
+            return seqs[pos(lo)];
+        }
+
+        private int pos(int index) {
+            return (head + index) % seqs.length;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.math;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+
+/**
+ * A mergeable sketch of a distribution of numbers, from which quantiles (percentiles) can be estimated
+ * with a bounded relative error, using bounded memory regardless of how many values are added or sketches merged.
+ * <p>
+ * Values are counted in buckets whose bounds grow geometrically (as in HDR histograms and DDSketch),
+ * so any quantile is reported within the given relative accuracy of the true value,
+ * unless the number of buckets reaches the maximum, at which point the buckets for the values closest to zero
+ * are combined (so the accuracy of the high quantiles, normally the ones of interest, is preserved).
+ * <p>
+ * Sketches with the same relative accuracy can be merged, giving the same result as if all values had been
+ * added to one sketch; so sketches can be kept per entity (or per time period) and combined.
+ * This class is not thread-safe; instances published as sensor values should not be modified.
+ */
+@Beta
+public class QuantileSketch {
+
+    public static final double DEFAULT_RELATIVE_ACCURACY = 0.01;
+    public static final int DEFAULT_MAX_BUCKETS = 2048;
+
+    private final double relativeAccuracy;
+    private final int maxBuckets;
+    private final double logGamma;
+
+    /** counts of positive values, keyed by bucket index */
+    private final NavigableMap<Integer, Long> positive = new TreeMap<>();
+    /** counts of negative values, keyed by the bucket index of their absolute value */
+    private final NavigableMap<Integer, Long> negative = new TreeMap<>();
+    private long zeroCount;
+    private long count;
+    private double sum;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+
+    public QuantileSketch() {
+        this(DEFAULT_RELATIVE_ACCURACY, DEFAULT_MAX_BUCKETS);
+    }
+
+    public QuantileSketch(double relativeAccuracy, int maxBuckets) {
+        Preconditions.checkArgument(relativeAccuracy > 0 && relativeAccuracy < 1, "relativeAccuracy must be between 0 and 1, exclusive: %s", relativeAccuracy);
+        Preconditions.checkArgument(maxBuckets >= 2, "maxBuckets must be at least 2: %s", maxBuckets);
+        this.relativeAccuracy = relativeAccuracy;
+        this.maxBuckets = maxBuckets;
+        this.logGamma = Math.log((1 + relativeAccuracy) / (1 - relativeAccuracy));
+    }
+
+    /** a new empty sketch with the same accuracy and size as this one */
+    public QuantileSketch newEmptyCopy() {
+        return new QuantileSketch(relativeAccuracy, maxBuckets);
+    }
+
+    public QuantileSketch copy() {
+        QuantileSketch result = newEmptyCopy();
+        result.merge(this);
+        return result;
+    }
+
+    public double getRelativeAccuracy() {
+        return relativeAccuracy;
+    }
+
+    public int getMaxBuckets() {
+        return maxBuckets;
+    }
+
+    public QuantileSketch add(double value) {
+        return add(value, 1);
+    }
+
+    /** adds the given value the given number of times; NaN is ignored */
+    public QuantileSketch add(double value, long times) {
+        Preconditions.checkArgument(times >= 0, "times must not be negative: %s", times);
+        if (Double.isNaN(value) || times == 0) return this;
+        if (value > 0) {
+            increment(positive, index(value), times);
+        } else if (value < 0) {
+            increment(negative, index(-value), times);
+        } else {
+            zeroCount += times;
+        }
+        count += times;
+        sum += value * times;
+        min = Double.isNaN(min) ? value : Math.min(min, value);
+        max = Double.isNaN(max) ? value : Math.max(max, value);
+        collapseIfNeeded();
+        return this;
+    }
+
+    /** adds all the values in the given sketch to this one; they must have the same relative accuracy */
+    public QuantileSketch merge(QuantileSketch other) {
+        Preconditions.checkArgument(other.relativeAccuracy == relativeAccuracy,
+            "Cannot merge sketches with different accuracy (%s and %s)", relativeAccuracy, other.relativeAccuracy);
+        if (other.count == 0) return this;
+        for (Map.Entry<Integer, Long> e : other.positive.entrySet()) increment(positive, e.getKey(), e.getValue());
+        for (Map.Entry<Integer, Long> e : other.negative.entrySet()) increment(negative, e.getKey(), e.getValue());
+        zeroCount += other.zeroCount;
+        count += other.count;
+        sum += other.sum;
+        min = Double.isNaN(min) ? other.min : Math.min(min, other.min);
+        max = Double.isNaN(max) ? other.max : Math.max(max, other.max);
+        collapseIfNeeded();
+        return this;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public double getSum() {
+        return sum;
+    }
+
+    /** the mean, or NaN if empty */
+    public double getMean() {
+        return count == 0 ? Double.NaN : sum / count;
+    }
+
+    /** the exact min, or NaN if empty */
+    public double getMin() {
+        return min;
+    }
+
+    /** the exact max, or NaN if empty */
+    public double getMax() {
+        return max;
+    }
+
+    /** the estimated value at the given quantile, between 0 and 1 (e.g. 0.99 for the 99th percentile), or NaN if empty */
+    public double getQuantile(double quantile) {
+        Preconditions.checkArgument(quantile >= 0 && quantile <= 1, "quantile must be between 0 and 1: %s", quantile);
+        if (count == 0) return Double.NaN;
+        if (quantile == 0) return min;
+        if (quantile == 1) return max;
+
+        // the rank (0-based) of the value wanted; walk buckets from the most negative value upwards
+        long rank = (long) (quantile * (count - 1));
+        long seen = 0;
+        for (Map.Entry<Integer, Long> e : negative.descendingMap().entrySet()) {
+            seen += e.getValue();
+            if (seen > rank) return clamp(-value(e.getKey()));
+        }
+        seen += zeroCount;
+        if (seen > rank) return 0;
+        for (Map.Entry<Integer, Long> e : positive.entrySet()) {
+            seen += e.getValue();
+            if (seen > rank) return clamp(value(e.getKey()));
+        }
+        return max;
+    }
+
+    /** the estimated value at the given percentile, between 0 and 100 */
+    public double getPercentile(double percentile) {
+        return getQuantile(percentile / 100);
+    }
+
+    private int index(double absValue) {
+        return (int) Math.ceil(Math.log(absValue) / logGamma);
+    }
+
+    /** representative value for a bucket, within the relative accuracy of any value in that bucket */
+    private double value(int index) {
+        return 2 * Math.exp(index * logGamma) / (1 + Math.exp(logGamma));
+    }
+
+    private double clamp(double value) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    private static void increment(NavigableMap<Integer, Long> buckets, int index, long times) {
+        Long old = buckets.get(index);
+        buckets.put(index, old == null ? times : old + times);
+    }
+
+    /** combines the buckets for the values closest to zero, so that at most {@link #maxBuckets} are used */
+    private void collapseIfNeeded() {
+        collapse(negative, maxBuckets - Math.min(positive.size(), maxBuckets - 1));
+        collapse(positive, maxBuckets - negative.size());
+    }
+
+    private static void collapse(NavigableMap<Integer, Long> buckets, int limit) {
+        if (buckets.size() <= limit) return;
+        long collapsed = 0;
+        Iterator<Map.Entry<Integer, Long>> it = buckets.entrySet().iterator();
+        while (buckets.size() > limit) {
+            collapsed += it.next().getValue();
+            it.remove();
+        }
+        // combined into the lowest remaining bucket
+        increment(buckets, buckets.firstKey(), collapsed);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof QuantileSketch)) return false;
+        QuantileSketch o = (QuantileSketch) obj;
+        return relativeAccuracy == o.relativeAccuracy && maxBuckets == o.maxBuckets
+            && count == o.count && zeroCount == o.zeroCount
+            && positive.equals(o.positive) && negative.equals(o.negative);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(relativeAccuracy, count, positive, negative);
+    }
+
+    @Override
+    public String toString() {
+        MoreObjects.ToStringHelper result = MoreObjects.toStringHelper(this).add("count", count);
+        if (count > 0) {
+            result.add("min", min).add("p50", getQuantile(0.5)).add("p99", getQuantile(0.99)).add("max", max);
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.collections;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import com.google.common.collect.Lists;
+
+public class TimeWindowedDoublesTest {
+
+    private static final double DELTA = 0.000001;
+
+    @Test
+    public void testPruneKeepsMostRecentExpiredValue() {
+        TimeWindowedDoubles window = new TimeWindowedDoubles();
+        window.add(1, 100);
+        window.add(2, 200);
+        window.add(3, 300);
+
+        window.pruneBefore(250);
+        assertEquals(window.size(), 2);
+        assertEquals(window.getValue(0), 2d);
+        assertEquals(window.getTimestamp(0), 200L);
+
+        window.pruneBefore(1000);
+        assertEquals(window.size(), 1);
+        assertEquals(window.getLatestValue(), 3d);
+    }
+
+    @Test
+    public void testTimeWeightedSum() {
+        TimeWindowedDoubles window = new TimeWindowedDoubles();
+        window.add(10, 100);
+        window.add(20, 200);
+        window.add(30, 300);
+
+        // each value applies from the previous value (or window start) until its own timestamp
+        assertEquals(window.getTimeWeightedSum(100), 20*100d + 30*100d, DELTA);
+        assertEquals(window.getTimeWeightedSum(150), 20*50d + 30*100d, DELTA);
+        assertEquals(window.getTimeWeightedSum(250), 30*50d, DELTA);
+        assertEquals(window.getTimeWeightedSum(301), 0d, DELTA);
+    }
+
+    @Test
+    public void testOutOfOrderTimestampTreatedAsLatest() {
+        TimeWindowedDoubles window = new TimeWindowedDoubles();
+        window.add(10, 100);
+        window.add(20, 50);
+        assertEquals(window.getLatestTimestamp(), 100L);
+        assertEquals(window.getTimeWeightedSum(0), 10*100d, DELTA);
+    }
+
+    @Test
+    public void testSuffixMinAndMax() {
+        TimeWindowedDoubles window = new TimeWindowedDoubles();
+        double[] vals = {5, 1, 4, 1, 5, 9, 2, 6};
+        for (int i = 0; i < vals.length; i++) {
+            window.add(vals[i], i);
+        }
+        assertEquals(window.getMin(), 1d);
+        assertEquals(window.getMax(), 9d);
+        assertEquals(window.getMin(4), 2d);
+        assertEquals(window.getMax(6), 6d);
+        assertEquals(window.getMin(7), 6d);
+    }
+
+    @Test(expectedExceptions=NoSuchElementException.class)
+    public void testEmptyHasNoLatest() {
+        new TimeWindowedDoubles().getLatestValue();
+    }
+
+    @Test
+    public void testMatchesSimpleComputationAsWindowMoves() {
+        // small initial capacity so it grows, wraps and rebases
+        TimeWindowedDoubles window = new TimeWindowedDoubles(2);
+        List<double[]> expected = Lists.newArrayList();
+        Random random = new Random(1234);
+        long time = 0;
+        for (int i = 0; i < 2000; i++) {
+            time += random.nextInt(10);
+            double val = random.nextInt(1000) - 500;
+            window.add(val, time);
+            expected.add(new double[] {val, time});
+
+            long cutoff = time - random.nextInt(200);
+            window.pruneBefore(cutoff);
+            while (expected.size() > 1 && expected.get(1)[1] < cutoff) expected.remove(0);
+
+            assertEquals(window.size(), expected.size());
+            int from = random.nextInt(expected.size());
+            double sum = 0, min = Double.MAX_VALUE, max = -Double.MAX_VALUE;
+            for (int j = from; j < expected.size(); j++) {
+                double v = expected.get(j)[0];
+                sum += v;
+                min = Math.min(min, v);
+                max = Math.max(max, v);
+            }
+            assertEquals(window.getSum(from), sum, DELTA);
+            assertEquals(window.getMin(from), min);
+            assertEquals(window.getMax(from), max);
+
+            long windowStart = cutoff;
+            double weightedSum = 0;
+            double start = windowStart;
+            for (double[] e : expected) {
+                if (e[1] >= start) {
+                    weightedSum += e[0] * (e[1] - start);
+                    start = e[1];
+                }
+            }
+            assertEquals(window.getTimeWeightedSum(windowStart), weightedSum, DELTA, "at "+i);
+        }
+        assertTrue(window.size() > 1, "window="+window);
+    }
+}
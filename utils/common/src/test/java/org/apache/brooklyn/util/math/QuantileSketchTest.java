@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.math;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+public class QuantileSketchTest {
+
+    @Test
+    public void testEmpty() {
+        QuantileSketch sketch = new QuantileSketch();
+        assertTrue(sketch.isEmpty());
+        assertTrue(Double.isNaN(sketch.getQuantile(0.5)));
+        assertTrue(Double.isNaN(sketch.getMin()));
+    }
+
+    @Test
+    public void testQuantilesWithinRelativeAccuracy() {
+        QuantileSketch sketch = new QuantileSketch(0.01, 2048);
+        double[] values = new double[10000];
+        Random random = new Random(1234);
+        for (int i = 0; i < values.length; i++) {
+            // a long-tailed distribution, as for latencies
+            values[i] = Math.exp(random.nextGaussian() * 2);
+            sketch.add(values[i]);
+        }
+        Arrays.sort(values);
+        assertQuantilesWithin(sketch, values, 0.01);
+        assertEquals(sketch.getMin(), values[0]);
+        assertEquals(sketch.getMax(), values[values.length-1]);
+        assertEquals(sketch.getCount(), values.length);
+    }
+
+    @Test
+    public void testNegativeAndZeroValues() {
+        QuantileSketch sketch = new QuantileSketch();
+        double[] values = new double[1001];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i - 500;
+            sketch.add(values[i]);
+        }
+        assertQuantilesWithin(sketch, values, 0.01);
+        assertEquals(sketch.getQuantile(0.5), 0d);
+        assertEquals(sketch.getMean(), 0d, 0.000001);
+    }
+
+    @Test
+    public void testMergeIsSameAsAddingAll() {
+        QuantileSketch all = new QuantileSketch();
+        QuantileSketch merged = new QuantileSketch();
+        for (int part = 0; part < 10; part++) {
+            QuantileSketch sketch = new QuantileSketch();
+            for (int i = 0; i < 100; i++) {
+                double value = part * 100 + i + 1;
+                sketch.add(value);
+                all.add(value);
+            }
+            merged.merge(sketch);
+        }
+        assertEquals(merged, all);
+        assertEquals(merged.getQuantile(0.99), all.getQuantile(0.99));
+        assertEquals(merged.getCount(), 1000);
+    }
+
+    @Test(expectedExceptions=IllegalArgumentException.class)
+    public void testCannotMergeDifferentAccuracy() {
+        new QuantileSketch(0.01, 100).merge(new QuantileSketch(0.02, 100).add(1));
+    }
+
+    @Test
+    public void testBoundedBucketsKeepHighQuantilesAccurate() {
+        QuantileSketch sketch = new QuantileSketch(0.01, 50);
+        double[] values = new double[10000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i + 1;
+            sketch.add(values[i]);
+        }
+        // many more buckets than 50 are needed for values from 1 to 10000; low ones are collapsed
+        assertEquals(sketch.getCount(), values.length);
+        assertWithin(sketch.getQuantile(0.99), values[(int) (0.99 * (values.length - 1))], 0.01);
+        assertWithin(sketch.getQuantile(0.9), values[(int) (0.9 * (values.length - 1))], 0.01);
+        assertTrue(sketch.getQuantile(0.01) <= values[(int) (0.99 * (values.length - 1))]);
+    }
+
+    private static void assertQuantilesWithin(QuantileSketch sketch, double[] sortedValues, double relativeAccuracy) {
+        for (double q : new double[] {0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99, 0.999}) {
+            double expected = sortedValues[(int) (q * (sortedValues.length - 1))];
+            assertWithin(sketch.getQuantile(q), expected, relativeAccuracy);
+        }
+    }
+
+    private static void assertWithin(double actual, double expected, double relativeAccuracy) {
+        assertTrue(Math.abs(actual - expected) <= relativeAccuracy * Math.abs(expected) + 0.0000001,
+            "actual="+actual+"; expected="+expected);
+    }
+}